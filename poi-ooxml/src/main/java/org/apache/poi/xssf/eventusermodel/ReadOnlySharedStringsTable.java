@@ -177,6 +177,17 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         readFrom(stream);
     }
 
+    /**
+     * Creates an empty table, the strings are added by a following call to {@link #readFrom(InputStream)}.
+     * This allows subclasses to initialize their storage before the first string is added.
+     *
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @since POI 5.2.4
+     */
+    protected ReadOnlySharedStringsTable(boolean includePhoneticRuns) {
+        this.includePhoneticRuns = includePhoneticRuns;
+    }
+
     /**
      * Read this shared strings table from an XML file.
      *
@@ -230,6 +241,28 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         return new XSSFRichTextString(strings.get(idx));
     }
 
+    /**
+     * Prepares the storage of the strings, called when the sst element is read
+     *
+     * @param uniqueCount the number of unique strings as declared in the sst element, used as a size hint
+     * @throws SAXException if the storage can't be prepared
+     * @since POI 5.2.4
+     */
+    protected void initStrings(int uniqueCount) throws SAXException {
+        this.strings = new ArrayList<>(uniqueCount);
+    }
+
+    /**
+     * Stores the text of the next string item
+     *
+     * @param text the concatenated text of the si element
+     * @throws SAXException if the string can't be stored
+     * @since POI 5.2.4
+     */
+    protected void addString(String text) throws SAXException {
+        strings.add(text);
+    }
+
     //// ContentHandler methods ////
 
     private StringBuilder characters;
@@ -248,7 +281,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
             String uniqueCount = attributes.getValue("uniqueCount");
             if(uniqueCount != null) this.uniqueCount = (int) Long.parseLong(uniqueCount);
 
-            this.strings = new ArrayList<>(this.uniqueCount);
+            initStrings(this.uniqueCount);
             characters = new StringBuilder(64);
         } else if ("si".equals(localName)) {
             characters.setLength(0);
@@ -269,7 +302,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler implements Shared
         }
 
         if ("si".equals(localName)) {
-            strings.add(characters.toString());
+            addString(characters.toString());
         } else if ("t".equals(localName)) {
             tIsOpen = false;
         } else if ("rPh".equals(localName)) {
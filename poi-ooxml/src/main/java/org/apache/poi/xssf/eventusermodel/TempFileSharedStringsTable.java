@@ -0,0 +1,313 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.poifs.nio.CleanerUtil;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.xml.sax.SAXException;
+
+/**
+ * A {@link ReadOnlySharedStringsTable}, which doesn't keep the strings on the heap.
+ * <p>
+ * While the shared strings part is parsed, the text of each string item is appended to
+ * a temporary file (UTF-16LE) and its start offset to a second temporary index file.
+ * After parsing both files are memory-mapped and {@link #getItemAt(int)} decodes a
+ * string from the mapped buffers only when it is requested. The heap usage is therefore
+ * independent of the number and the size of the shared strings.
+ * <p>
+ * Lookups are thread-safe after the table has been read.
+ * <p>
+ * The temporary files are created via {@link TempFile} and are removed by {@link #close()},
+ * so instances should be closed when the sheets have been processed.
+ *
+ * @since POI 5.2.4
+ */
+public class TempFileSharedStringsTable extends ReadOnlySharedStringsTable implements Closeable {
+    private static final Logger LOG = LogManager.getLogger(TempFileSharedStringsTable.class);
+
+    /** the files are mapped in segments of 1 GB, which is a multiple of the index entry size */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private File stringsFile;
+    private File indexFile;
+    private OutputStream stringsOut;
+    private DataOutputStream indexOut;
+    private byte[] encodeBuffer;
+
+    /** number of bytes written to the strings file */
+    private long stringsLength;
+    /** number of strings added */
+    private int size;
+
+    private MappedByteBuffer[] stringSegments;
+    private MappedByteBuffer[] indexSegments;
+
+    /**
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @throws IOException If reading the data from the package or writing the temporary files fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileSharedStringsTable(OPCPackage pkg) throws IOException, SAXException {
+        this(pkg, true);
+    }
+
+    /**
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @throws IOException If reading the data from the package or writing the temporary files fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileSharedStringsTable(OPCPackage pkg, boolean includePhoneticRuns) throws IOException, SAXException {
+        super(includePhoneticRuns);
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+
+        // Some workbooks have no shared strings table.
+        if (!parts.isEmpty()) {
+            try (InputStream stream = parts.get(0).getInputStream()) {
+                readFrom(stream);
+            }
+        }
+    }
+
+    /**
+     * @param part The package part containing the shared strings
+     * @throws IOException If reading the data from the package or writing the temporary files fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileSharedStringsTable(PackagePart part) throws IOException, SAXException {
+        this(part, true);
+    }
+
+    /**
+     * @param part The package part containing the shared strings
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @throws IOException If reading the data from the package or writing the temporary files fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileSharedStringsTable(PackagePart part, boolean includePhoneticRuns) throws IOException, SAXException {
+        super(includePhoneticRuns);
+        try (InputStream stream = part.getInputStream()) {
+            readFrom(stream);
+        }
+    }
+
+    /**
+     * @param stream The stream containing the shared strings part
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @throws IOException If reading the data or writing the temporary files fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileSharedStringsTable(InputStream stream, boolean includePhoneticRuns) throws IOException, SAXException {
+        super(includePhoneticRuns);
+        readFrom(stream);
+    }
+
+    @Override
+    public void readFrom(InputStream is) throws IOException, SAXException {
+        if (stringSegments != null) {
+            throw new IllegalStateException("The shared strings have already been read");
+        }
+        boolean success = false;
+        try {
+            super.readFrom(is);
+            mapFiles();
+            success = true;
+        } finally {
+            if (!success) {
+                close();
+            }
+        }
+    }
+
+    @Override
+    protected void initStrings(int uniqueCount) throws SAXException {
+        if (stringsOut != null) {
+            return;
+        }
+        try {
+            stringsFile = TempFile.createTempFile("poi-sst", ".tmp");
+            indexFile = TempFile.createTempFile("poi-sst-index", ".tmp");
+            stringsOut = new BufferedOutputStream(new FileOutputStream(stringsFile), 64 * 1024);
+            indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 8 * 1024));
+            encodeBuffer = new byte[1024];
+        } catch (IOException e) {
+            throw new SAXException("Failed to create the temporary files for the shared strings", e);
+        }
+    }
+
+    @Override
+    protected void addString(String text) throws SAXException {
+        final int len = text.length();
+        if (encodeBuffer.length < len * 2) {
+            encodeBuffer = new byte[Math.max(len * 2, encodeBuffer.length * 2)];
+        }
+        final byte[] buf = encodeBuffer;
+        // lone surrogates are kept as-is, which wouldn't be the case with a CharsetEncoder
+        for (int i = 0; i < len; i++) {
+            final char c = text.charAt(i);
+            buf[2 * i] = (byte) c;
+            buf[2 * i + 1] = (byte) (c >>> 8);
+        }
+        try {
+            indexOut.writeLong(stringsLength);
+            stringsOut.write(buf, 0, len * 2);
+        } catch (IOException e) {
+            throw new SAXException("Failed to write the shared string item " + size, e);
+        }
+        stringsLength += len * 2L;
+        size++;
+    }
+
+    private void mapFiles() throws IOException {
+        if (stringsOut == null) {
+            // no sst element
+            return;
+        }
+        stringsOut.close();
+        indexOut.close();
+        stringsOut = null;
+        indexOut = null;
+        encodeBuffer = null;
+
+        stringSegments = map(stringsFile, stringsLength);
+        indexSegments = map(indexFile, size * 8L);
+    }
+
+    private static MappedByteBuffer[] map(File file, long length) throws IOException {
+        final int segmentCount = (int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        final MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            for (int i = 0; i < segmentCount; i++) {
+                final long start = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, length - start));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * @return the number of strings which have been read
+     */
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        if (stringSegments == null || idx < 0 || idx >= size) {
+            throw new IllegalStateException("Cannot get item at " + idx + " with " + size + " strings");
+        }
+        final long start = readOffset(idx);
+        final long end = (idx + 1 < size) ? readOffset(idx + 1) : stringsLength;
+        final byte[] bytes = new byte[Math.toIntExact(end - start)];
+
+        int copied = 0;
+        while (copied < bytes.length) {
+            final long pos = start + copied;
+            final ByteBuffer segment = stringSegments[(int) (pos >>> SEGMENT_SHIFT)].duplicate();
+            final int segmentPos = (int) (pos & SEGMENT_MASK);
+            final int len = Math.min(bytes.length - copied, segment.limit() - segmentPos);
+            segment.position(segmentPos);
+            segment.get(bytes, copied, len);
+            copied += len;
+        }
+
+        final char[] chars = new char[bytes.length / 2];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ((bytes[2 * i] & 0xFF) | ((bytes[2 * i + 1] & 0xFF) << 8));
+        }
+        return new XSSFRichTextString(new String(chars));
+    }
+
+    private long readOffset(int idx) {
+        final long pos = idx * 8L;
+        return indexSegments[(int) (pos >>> SEGMENT_SHIFT)].getLong((int) (pos & SEGMENT_MASK));
+    }
+
+    /**
+     * Unmaps and deletes the temporary files. The table can't be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (stringsOut != null) {
+                stringsOut.close();
+            }
+            if (indexOut != null) {
+                indexOut.close();
+            }
+        } finally {
+            stringsOut = null;
+            indexOut = null;
+            unmap(stringSegments);
+            unmap(indexSegments);
+            stringSegments = null;
+            indexSegments = null;
+            delete(stringsFile);
+            delete(indexFile);
+            stringsFile = null;
+            indexFile = null;
+        }
+    }
+
+    private static void unmap(MappedByteBuffer[] segments) {
+        if (segments == null) {
+            return;
+        }
+        if (!CleanerUtil.UNMAP_SUPPORTED) {
+            LOG.atDebug().log(CleanerUtil.UNMAP_NOT_SUPPORTED_REASON);
+            return;
+        }
+        for (MappedByteBuffer segment : segments) {
+            try {
+                CleanerUtil.getCleaner().freeBuffer(segment);
+            } catch (IOException e) {
+                LOG.atWarn().withThrowable(e).log("Failed to unmap the buffer");
+            }
+        }
+    }
+
+    private static void delete(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            LOG.atWarn().log("Failed to delete temporary file {}", file);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.Comments;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Parses all sheets of a workbook concurrently with {@link XSSFSheetXMLHandler}s,
+ * each on its own stream of the sheet part, on the threads of a given {@link Executor}.
+ * <p>
+ * The shared strings and styles are shared by all sheets. The shared strings need to be
+ * safe for concurrent reads, which is the case for {@link ReadOnlySharedStringsTable}
+ * (the default), {@link TempFileSharedStringsTable} and
+ * {@link org.apache.poi.xssf.model.SharedStringsTable}. The styles are only accessed
+ * while holding their monitor. Each sheet gets its own {@link DataFormatter}, as
+ * formatters are not thread-safe.
+ * <p>
+ * By default, the {@link SheetContentsHandler}s are created and called on the worker
+ * threads, i.e. the events of different sheets interleave. With {@link #setOrdered(boolean)}
+ * the events are instead buffered per sheet and replayed on the calling thread in sheet
+ * order, as soon as a sheet and all its predecessors have been parsed. This keeps the
+ * parsing parallel for consumers which aren't thread-safe, at the cost of keeping the
+ * events of the sheets which are parsed ahead in memory.
+ * <p>
+ * If a sheet fails, the other sheets stop at their next row and {@link #scan(Executor, SheetHandlerFactory)}
+ * waits for all workers before it rethrows the first failure, i.e. no handler is called after it returned.
+ *
+ * @since POI 5.2.4
+ */
+public class XSSFParallelSheetScanner {
+
+    /**
+     * Creates the handler for the events of a sheet
+     */
+    @FunctionalInterface
+    public interface SheetHandlerFactory {
+        /**
+         * @param sheetIndex the 0-based index of the sheet in workbook order
+         * @param sheetName the name of the sheet
+         * @return the handler which receives the events of this sheet
+         */
+        SheetContentsHandler create(int sheetIndex, String sheetName);
+    }
+
+    private final XSSFReader reader;
+    private SharedStrings sharedStrings;
+    private Styles styles;
+    private Supplier<DataFormatter> formatterFactory = DataFormatter::new;
+    private boolean formulasNotResults;
+    private boolean includeComments;
+    private boolean ordered;
+
+    /**
+     * @param reader the reader of the workbook package
+     */
+    public XSSFParallelSheetScanner(XSSFReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param sharedStrings the shared strings, which need to be safe for concurrent reads.
+     *                      If not set, a {@link ReadOnlySharedStringsTable} is read from the package.
+     */
+    public void setSharedStrings(SharedStrings sharedStrings) {
+        this.sharedStrings = sharedStrings;
+    }
+
+    /**
+     * @param styles the styles, if not set the {@link XSSFReader#getStylesTable() styles table} is used
+     */
+    public void setStyles(Styles styles) {
+        this.styles = styles;
+    }
+
+    /**
+     * @param formatterFactory creates the formatter for each sheet
+     */
+    public void setDataFormatterFactory(Supplier<DataFormatter> formatterFactory) {
+        this.formatterFactory = formatterFactory;
+    }
+
+    /**
+     * @param formulasNotResults if true, the formulas instead of the cached results are reported
+     */
+    public void setFormulasNotResults(boolean formulasNotResults) {
+        this.formulasNotResults = formulasNotResults;
+    }
+
+    /**
+     * @param includeComments if true, the cell comments are read and reported with the cells
+     */
+    public void setIncludeComments(boolean includeComments) {
+        this.includeComments = includeComments;
+    }
+
+    /**
+     * @param ordered if true, the events are delivered on the calling thread in sheet order
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    /**
+     * Parses all sheets and returns when all of them have been processed.
+     * Unless the scanner is {@link #setOrdered(boolean) ordered}, the handler factory
+     * is called concurrently from the worker threads.
+     *
+     * @param executor the executor for parsing the sheets
+     * @param handlerFactory creates the handler for each sheet
+     * @throws IOException if a sheet can't be read
+     * @throws SAXException if a sheet can't be parsed
+     * @throws InvalidFormatException if the package data format is invalid
+     */
+    public void scan(Executor executor, SheetHandlerFactory handlerFactory)
+    throws IOException, SAXException, InvalidFormatException {
+        final SharedStrings sst = (sharedStrings != null) ? sharedStrings : new ReadOnlySharedStringsTable(reader.pkg);
+        final Styles st = (styles != null) ? styles : reader.getStylesTable();
+        final boolean bufferEvents = ordered;
+        final Supplier<DataFormatter> formatters = formatterFactory;
+        final boolean formulas = formulasNotResults;
+
+        final List<String> sheetNames = new ArrayList<>();
+        final List<CompletableFuture<SheetEvents>> futures = new ArrayList<>();
+        // the first failure, which also tells the other workers to stop
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            final XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator)reader.getSheetsData();
+            while (iter.hasNext()) {
+                final int sheetIndex = sheetNames.size();
+                final PackagePart part = iter.nextSheetPart();
+                final String sheetName = iter.getSheetName();
+                final Comments comments = includeComments ? iter.getSheetComments() : null;
+                sheetNames.add(sheetName);
+
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    if (failure.get() != null) {
+                        // skip the sheets which haven't been started before the failure
+                        return null;
+                    }
+                    try {
+                        SheetEvents events = bufferEvents ? new SheetEvents() : null;
+                        SheetContentsHandler handler = bufferEvents ? events : handlerFactory.create(sheetIndex, sheetName);
+                        parseSheet(part, new XSSFSheetXMLHandler(st, comments, sst,
+                            new AbortableHandler(handler, failure), formatters.get(), formulas));
+                        return events;
+                    } catch (IOException | SAXException | RuntimeException | Error e) {
+                        // an abort caused by another failure isn't recorded, as the failure is already set
+                        failure.compareAndSet(null, e);
+                        return null;
+                    }
+                }, executor));
+            }
+
+            if (bufferEvents) {
+                for (int i = 0; i < futures.size(); i++) {
+                    SheetEvents events = futures.get(i).join();
+                    if (failure.get() != null) {
+                        break;
+                    }
+                    events.replay(handlerFactory.create(i, sheetNames.get(i)));
+                }
+            }
+        } catch (IOException | InvalidFormatException | RuntimeException | Error e) {
+            failure.compareAndSet(null, e);
+        }
+
+        // wait for all workers, so that no handler is called anymore after scan() has returned
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        final Throwable cause = failure.get();
+        if (cause == null) {
+            return;
+        } else if (cause instanceof IOException) {
+            throw (IOException)cause;
+        } else if (cause instanceof SAXException) {
+            throw (SAXException)cause;
+        } else if (cause instanceof InvalidFormatException) {
+            throw (InvalidFormatException)cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException)cause;
+        } else if (cause instanceof Error) {
+            throw (Error)cause;
+        }
+        throw new POIXMLException(cause);
+    }
+
+    private static void parseSheet(PackagePart part, XSSFSheetXMLHandler handler) throws IOException, SAXException {
+        final XMLReader sheetParser;
+        try {
+            sheetParser = XMLHelper.newXMLReader();
+        } catch (ParserConfigurationException e) {
+            throw new SAXException("SAX parser appears to be broken - " + e.getMessage(), e);
+        }
+        sheetParser.setContentHandler(handler);
+        try (InputStream stream = part.getInputStream()) {
+            sheetParser.parse(new InputSource(stream));
+        }
+    }
+
+    /**
+     * Stops the parsing of a sheet between rows, once another sheet has failed
+     */
+    private static final class AbortableHandler implements SheetContentsHandler {
+        private final SheetContentsHandler delegate;
+        private final AtomicReference<Throwable> failure;
+
+        AbortableHandler(SheetContentsHandler delegate, AtomicReference<Throwable> failure) {
+            this.delegate = delegate;
+            this.failure = failure;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            if (failure.get() != null) {
+                throw new ScanAbortedException();
+            }
+            delegate.startRow(rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            delegate.endRow(rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            delegate.cell(cellReference, formattedValue, comment);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            delegate.headerFooter(text, isHeader, tagName);
+        }
+
+        @Override
+        public void endSheet() {
+            if (failure.get() != null) {
+                throw new ScanAbortedException();
+            }
+            delegate.endSheet();
+        }
+    }
+
+    private static final class ScanAbortedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ScanAbortedException() {
+            super("Aborted after the failure of another sheet", null, false, false);
+        }
+    }
+
+    /**
+     * Buffers the events of a sheet for the ordered mode
+     */
+    private static final class SheetEvents implements SheetContentsHandler {
+        private final List<Consumer<SheetContentsHandler>> events = new ArrayList<>();
+
+        @Override
+        public void startRow(int rowNum) {
+            events.add(h -> h.startRow(rowNum));
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            events.add(h -> h.endRow(rowNum));
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            events.add(h -> h.cell(cellReference, formattedValue, comment));
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            events.add(h -> h.headerFooter(text, isHeader, tagName));
+        }
+
+        @Override
+        public void endSheet() {
+            events.add(SheetContentsHandler::endSheet);
+        }
+
+        void replay(SheetContentsHandler handler) {
+            events.forEach(e -> e.accept(handler));
+            events.clear();
+        }
+    }
+}
@@ -75,6 +75,7 @@ public class XSSFReader {
     protected OPCPackage pkg;
     protected PackagePart workbookPart;
     protected boolean useReadOnlySharedStringsTable;
+    protected boolean useTempFileSharedStringsTable;
 
     /**
      * Creates a new XSSFReader, for the given package
@@ -142,6 +143,28 @@ public class XSSFReader {
         return useReadOnlySharedStringsTable;
     }
 
+    /**
+     * Controls whether {@link #getSharedStringsTable()} uses a {@link TempFileSharedStringsTable},
+     * which keeps the strings in memory-mapped temporary files instead of on the heap.
+     * This takes precedence over {@link #setUseReadOnlySharedStringsTable(boolean)}.
+     * <p>
+     * The returned table needs to be closed by the caller to remove the temporary files.
+     *
+     * @param useTempFileSharedStringsTable if true, the TempFileSharedStringsTable is used
+     * @since POI 5.2.4
+     */
+    public void setUseTempFileSharedStringsTable(boolean useTempFileSharedStringsTable) {
+        this.useTempFileSharedStringsTable = useTempFileSharedStringsTable;
+    }
+
+    /**
+     * @return whether {@link #getSharedStringsTable()} uses {@link TempFileSharedStringsTable}
+     * @since POI 5.2.4
+     */
+    public boolean useTempFileSharedStringsTable() {
+        return useTempFileSharedStringsTable;
+    }
+
     /**
      * Opens up the Shared Strings Table, parses it, and
      * returns a handy object for working with
@@ -151,11 +174,13 @@ public class XSSFReader {
      * @throws InvalidFormatException if the shared strings data format is invalid
      * @throws IOException if there is an I/O issue reading the data
      * @see #setUseReadOnlySharedStringsTable(boolean)
+     * @see #setUseTempFileSharedStringsTable(boolean)
      */
     public SharedStrings getSharedStringsTable() throws IOException, InvalidFormatException {
         ArrayList<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
         try {
             return parts.isEmpty() ? null :
+                    useTempFileSharedStringsTable ? new TempFileSharedStringsTable(parts.get(0)) :
                     useReadOnlySharedStringsTable ? new ReadOnlySharedStringsTable(parts.get(0)) :
                             new SharedStringsTable(parts.get(0));
         } catch (SAXException se) {
@@ -394,6 +419,46 @@ public class XSSFReader {
             }
         }
 
+        /**
+         * Moves to the next sheet without opening its stream, so that the sheet
+         * can be processed later or on another thread, e.g. via
+         * {@link PackagePart#getInputStream()}.
+         * The sheet name, comments etc. refer to this sheet afterwards.
+         *
+         * @return the package part of the next sheet
+         * @throws java.util.NoSuchElementException if there are no more sheets
+         * @throws POIXMLException if the sheet part is missing
+         * @since POI 5.2.4
+         */
+        public PackagePart nextSheetPart() {
+            xssfSheetRef = sheetIterator.next();
+
+            PackagePart sheetPkg = getSheetPart();
+            if (sheetPkg == null) {
+                throw new POIXMLException("Failed to find sheet package for sheetId=" + xssfSheetRef.getId());
+            }
+            return sheetPkg;
+        }
+
+        /**
+         * Moves to the next sheet and returns a pull-based iterator over its rows,
+         * as an alternative to parsing the stream returned by {@link #next()} with
+         * a {@link XSSFSheetXMLHandler}.
+         * The sheet name, comments etc. refer to this sheet afterwards.
+         * It's up to you to close the row iterator when done with it.
+         *
+         * @param strings the shared strings, can be {@code null} if string cells aren't read
+         * @param styles the styles, can be {@code null} if cell styles aren't needed
+         * @return the row iterator of the next sheet
+         * @throws IOException if the sheet data can't be read
+         * @throws java.util.NoSuchElementException if there are no more sheets
+         * @throws POIXMLException if the sheet part is invalid
+         * @since POI 5.2.4
+         */
+        public XSSFSheetRowIterator nextRowIterator(SharedStrings strings, Styles styles) throws IOException {
+            return new XSSFSheetRowIterator(next(), strings, styles);
+        }
+
         /**
          * Returns name of the current sheet
          *
@@ -0,0 +1,577 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.Styles;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+/**
+ * A pull-based alternative to {@link XSSFSheetXMLHandler}, which reads the rows of a
+ * sheet#.xml part with a StAX parser only when they are requested.
+ * <p>
+ * Compared to the SAX callbacks, the rows can be consumed at the pace of the caller,
+ * e.g. in batches, and the iterator can be composed via {@link #stream()}.
+ * The memory usage is independent of the sheet size: the same {@link ReadOnlyRow}
+ * and {@link ReadOnlyCell} instances are reused for every row, i.e. the row returned
+ * by {@link #next()} is only valid until the next call of {@link #next()}.
+ * Values which need to be retained have to be copied by the caller.
+ * <p>
+ * Like {@link XSSFSheetXMLHandler}, only the master cell of a shared formula provides
+ * the formula text.
+ * <p>
+ * Instances are not thread-safe and need to be closed to release the sheet stream.
+ *
+ * @see XSSFReader.SheetIterator#nextRowIterator(SharedStrings, Styles)
+ * @since POI 5.2.4
+ */
+public class XSSFSheetRowIterator implements Iterator<XSSFSheetRowIterator.ReadOnlyRow>, Closeable {
+
+    private final InputStream sheetData;
+    private final XMLStreamReader reader;
+    private final SharedStrings sharedStrings;
+    private final Styles styles;
+    private final ReadOnlyRow row = new ReadOnlyRow();
+
+    /** the parser is positioned at the start of the next row element */
+    private boolean rowPending;
+    /** the end of the sheetData element has been reached */
+    private boolean finished;
+    private int nextRowNum;
+
+    /**
+     * @param sheetData the stream of the sheet part, which is closed by {@link #close()}
+     * @param sharedStrings the shared strings to resolve string cells, can be {@code null}
+     * @param styles the styles to resolve the cell styles, can be {@code null}
+     * @throws IOException if the XML parser can't be created
+     */
+    public XSSFSheetRowIterator(InputStream sheetData, SharedStrings sharedStrings, Styles styles) throws IOException {
+        this.sheetData = sheetData;
+        this.sharedStrings = sharedStrings;
+        this.styles = styles;
+        try {
+            reader = XMLHelper.newXMLInputFactory().createXMLStreamReader(sheetData);
+        } catch (XMLStreamException e) {
+            sheetData.close();
+            throw new IOException("Failed to create the XML parser for the sheet", e);
+        }
+    }
+
+    /**
+     * @return true, if there's another row in the sheet
+     * @throws POIXMLException if the sheet XML is invalid
+     */
+    @Override
+    public boolean hasNext() {
+        if (!rowPending && !finished) {
+            try {
+                rowPending = seekRow();
+            } catch (XMLStreamException e) {
+                throw new POIXMLException("Failed to parse the sheet", e);
+            }
+            finished = !rowPending;
+        }
+        return rowPending;
+    }
+
+    /**
+     * Reads the next row. The returned instance is reused and overwritten by subsequent calls.
+     *
+     * @return the next row
+     * @throws NoSuchElementException if there are no more rows
+     * @throws POIXMLException if the sheet XML is invalid
+     */
+    @Override
+    public ReadOnlyRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        rowPending = false;
+        try {
+            readRow();
+        } catch (XMLStreamException e) {
+            throw new POIXMLException("Failed to parse the sheet", e);
+        }
+        return row;
+    }
+
+    /**
+     * Wraps this iterator into a sequential stream. Closing the stream closes this iterator.
+     *
+     * @return a stream of the rows, which has the same reuse semantics as {@link #next()}
+     */
+    public Stream<ReadOnlyRow> stream() {
+        Spliterator<ReadOnlyRow> split = Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(split, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        rowPending = false;
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            sheetData.close();
+        }
+    }
+
+    private boolean seekRow() throws XMLStreamException {
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && isSpreadsheetML() && "row".equals(reader.getLocalName())) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT && isSpreadsheetML() && "sheetData".equals(reader.getLocalName())) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSpreadsheetML() {
+        final String ns = reader.getNamespaceURI();
+        return ns == null || NS_SPREADSHEETML.equals(ns);
+    }
+
+    private void readRow() throws XMLStreamException {
+        final String r = reader.getAttributeValue(null, "r");
+        row.rowNum = (r != null) ? Integer.parseInt(r) - 1 : nextRowNum;
+        nextRowNum = row.rowNum + 1;
+        row.cellCount = 0;
+
+        int nextColumn = 0;
+        int depth = 1;
+        ReadOnlyCell cell = null;
+        StringBuilder text = null;
+        boolean inRph = false;
+
+        while (depth > 0) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (!isSpreadsheetML()) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "c":
+                        cell = row.nextCell();
+                        cell.init(reader.getAttributeValue(null, "r"), nextColumn,
+                                reader.getAttributeValue(null, "t"), reader.getAttributeValue(null, "s"));
+                        nextColumn = cell.columnIndex + 1;
+                        break;
+                    case "v":
+                        if (cell != null) {
+                            cell.hasValue = true;
+                            text = cell.value;
+                        }
+                        break;
+                    case "f":
+                        if (cell != null) {
+                            cell.hasFormula = true;
+                            text = cell.formula;
+                        }
+                        break;
+                    case "is":
+                        if (cell != null) {
+                            cell.hasValue = true;
+                        }
+                        break;
+                    case "t":
+                        // text of an inline string, including the runs, but without the phonetic runs
+                        if (cell != null && !inRph) {
+                            text = cell.value;
+                        }
+                        break;
+                    case "rPh":
+                        inRph = true;
+                        break;
+                    default:
+                        break;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                text = null;
+                if (isSpreadsheetML()) {
+                    final String name = reader.getLocalName();
+                    if ("c".equals(name)) {
+                        cell = null;
+                    } else if ("rPh".equals(name)) {
+                        inRph = false;
+                    }
+                }
+            } else if (text != null && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE)) {
+                text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+        }
+    }
+
+    /**
+     * Parses the column part of a cell reference like "AB12" without creating intermediate objects
+     */
+    private static int parseColumn(String ref) {
+        int col = 0;
+        for (int i = 0; i < ref.length(); i++) {
+            final char ch = ref.charAt(i);
+            if (ch >= 'A' && ch <= 'Z') {
+                col = col * 26 + (ch - 'A' + 1);
+            } else if (ch >= 'a' && ch <= 'z') {
+                col = col * 26 + (ch - 'a' + 1);
+            } else if (ch != '$') {
+                break;
+            }
+        }
+        return col - 1;
+    }
+
+    /**
+     * A read-only view of the current row of a {@link XSSFSheetRowIterator}.
+     * Only the cells, which are stored in the sheet, are available - in the order of the sheet XML.
+     */
+    public final class ReadOnlyRow implements Iterable<ReadOnlyCell> {
+        private int rowNum;
+        private int cellCount;
+        private ReadOnlyCell[] cells = new ReadOnlyCell[16];
+
+        private ReadOnlyRow() {}
+
+        /**
+         * @return the 0-based row index
+         */
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        /**
+         * @return the number of cells stored for this row
+         */
+        public int getPhysicalNumberOfCells() {
+            return cellCount;
+        }
+
+        /**
+         * @param position the 0-based position of the cell within the stored cells of this row
+         * @return the cell at the position
+         * @throws IndexOutOfBoundsException if position is out of range
+         * @see #getPhysicalNumberOfCells()
+         */
+        public ReadOnlyCell getCellAt(int position) {
+            if (position < 0 || position >= cellCount) {
+                throw new IndexOutOfBoundsException("Cell position " + position + " is out of range 0.." + (cellCount - 1));
+            }
+            return cells[position];
+        }
+
+        /**
+         * @param columnIndex the 0-based column index
+         * @return the cell of the given column or {@code null}, if the cell is not stored in the sheet
+         */
+        public ReadOnlyCell getCell(int columnIndex) {
+            // the cells are usually written in column order, so try the direct position first
+            if (columnIndex < cellCount && cells[columnIndex].columnIndex == columnIndex) {
+                return cells[columnIndex];
+            }
+            for (int i = 0; i < cellCount; i++) {
+                if (cells[i].columnIndex == columnIndex) {
+                    return cells[i];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Iterator<ReadOnlyCell> iterator() {
+            return new Iterator<ReadOnlyCell>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < cellCount;
+                }
+
+                @Override
+                public ReadOnlyCell next() {
+                    if (next >= cellCount) {
+                        throw new NoSuchElementException();
+                    }
+                    return cells[next++];
+                }
+            };
+        }
+
+        private ReadOnlyCell nextCell() {
+            if (cellCount == cells.length) {
+                ReadOnlyCell[] newCells = new ReadOnlyCell[cells.length * 2];
+                System.arraycopy(cells, 0, newCells, 0, cells.length);
+                cells = newCells;
+            }
+            ReadOnlyCell cell = cells[cellCount];
+            if (cell == null) {
+                cell = cells[cellCount] = new ReadOnlyCell();
+            }
+            cellCount++;
+            return cell;
+        }
+    }
+
+    /**
+     * A read-only view of a cell of the current row of a {@link XSSFSheetRowIterator}.
+     * The instance is reused for other cells once the iterator moves to the next row.
+     */
+    public final class ReadOnlyCell {
+        private int columnIndex;
+        private String type;
+        private int styleIndex;
+        private boolean hasValue;
+        private boolean hasFormula;
+        private final StringBuilder value = new StringBuilder(32);
+        private final StringBuilder formula = new StringBuilder(32);
+
+        private ReadOnlyCell() {}
+
+        private void init(String ref, int defaultColumn, String type, String style) {
+            this.columnIndex = (ref != null) ? parseColumn(ref) : defaultColumn;
+            this.type = type;
+            this.styleIndex = (style != null) ? Integer.parseInt(style) : 0;
+            this.hasValue = false;
+            this.hasFormula = false;
+            value.setLength(0);
+            formula.setLength(0);
+        }
+
+        /**
+         * @return the 0-based column index
+         */
+        public int getColumnIndex() {
+            return columnIndex;
+        }
+
+        /**
+         * @return the 0-based row index
+         */
+        public int getRowIndex() {
+            return row.rowNum;
+        }
+
+        /**
+         * @return the index of the cell style within the styles table
+         */
+        public int getStyleIndex() {
+            return styleIndex;
+        }
+
+        /**
+         * @return the cell style or {@code null} if the iterator was created without styles
+         */
+        public XSSFCellStyle getCellStyle() {
+            if (styles == null || styles.getNumCellStyles() == 0) {
+                return null;
+            }
+            return styles.getStyleAt(styleIndex);
+        }
+
+        /**
+         * @return the cell type, FORMULA for formula cells and BLANK if there's no value
+         */
+        public CellType getCellType() {
+            return hasFormula ? CellType.FORMULA : getValueType();
+        }
+
+        /**
+         * @return the type of the cached formula result
+         * @throws IllegalStateException if this is not a formula cell
+         */
+        public CellType getCachedFormulaResultType() {
+            if (!hasFormula) {
+                throw new IllegalStateException("Only formula cells have cached results");
+            }
+            return getValueType();
+        }
+
+        private CellType getValueType() {
+            if (!hasValue) {
+                return CellType.BLANK;
+            }
+            if (type == null) {
+                return CellType.NUMERIC;
+            }
+            switch (type) {
+                case "s":
+                case "str":
+                case "inlineStr":
+                case "d":
+                    return CellType.STRING;
+                case "b":
+                    return CellType.BOOLEAN;
+                case "e":
+                    return CellType.ERROR;
+                default:
+                    return CellType.NUMERIC;
+            }
+        }
+
+        /**
+         * @return the raw value as stored in the XML, i.e. the index for shared strings
+         */
+        public String getRawValue() {
+            return value.toString();
+        }
+
+        /**
+         * @return the numeric value or 0 for blank cells
+         * @throws IllegalStateException if the value is not numeric
+         */
+        public double getNumericCellValue() {
+            CellType ct = getValueType();
+            if (ct == CellType.BLANK) {
+                return 0;
+            }
+            if (ct != CellType.NUMERIC) {
+                throw new IllegalStateException("Cannot get a NUMERIC value from a " + ct + " cell");
+            }
+            return Double.parseDouble(value.toString());
+        }
+
+        /**
+         * @return the string value, resolved via the shared strings table, or an empty string for blank cells
+         * @throws IllegalStateException if the value is not a string
+         */
+        public String getStringCellValue() {
+            CellType ct = getValueType();
+            if (ct == CellType.BLANK) {
+                return "";
+            }
+            if (ct != CellType.STRING) {
+                throw new IllegalStateException("Cannot get a STRING value from a " + ct + " cell");
+            }
+            if ("s".equals(type)) {
+                if (sharedStrings == null) {
+                    throw new IllegalStateException("Shared string cells require a shared strings table");
+                }
+                return sharedStrings.getItemAt(Integer.parseInt(value.toString().trim())).getString();
+            }
+            return value.toString();
+        }
+
+        /**
+         * @return the boolean value or false for blank cells
+         * @throws IllegalStateException if the value is not a boolean
+         */
+        public boolean getBooleanCellValue() {
+            CellType ct = getValueType();
+            if (ct == CellType.BLANK) {
+                return false;
+            }
+            if (ct != CellType.BOOLEAN) {
+                throw new IllegalStateException("Cannot get a BOOLEAN value from a " + ct + " cell");
+            }
+            return value.length() > 0 && value.charAt(0) != '0';
+        }
+
+        /**
+         * @return the error code
+         * @throws IllegalStateException if the value is not an error
+         */
+        public byte getErrorCellValue() {
+            CellType ct = getValueType();
+            if (ct != CellType.ERROR) {
+                throw new IllegalStateException("Cannot get an ERROR value from a " + ct + " cell");
+            }
+            return FormulaError.forString(value.toString()).getCode();
+        }
+
+        /**
+         * @return the formula text without the leading '=' - empty for dependent cells of a shared formula
+         * @throws IllegalStateException if this is not a formula cell
+         */
+        public String getCellFormula() {
+            if (!hasFormula) {
+                throw new IllegalStateException("Cannot get a formula from a non-formula cell");
+            }
+            return formula.toString();
+        }
+
+        /**
+         * Formats the value like {@link XSSFSheetXMLHandler} does, i.e. numbers according to
+         * their cell style, booleans as TRUE/FALSE and formulas by their cached result
+         *
+         * @param formatter the formatter for numeric values
+         * @return the formatted value or an empty string for blank cells
+         */
+        public String getFormattedValue(DataFormatter formatter) {
+            switch (getValueType()) {
+                case BLANK:
+                    return "";
+                case STRING:
+                    return getStringCellValue();
+                case BOOLEAN:
+                    return getBooleanCellValue() ? "TRUE" : "FALSE";
+                case ERROR:
+                    return value.toString();
+                default:
+                    XSSFCellStyle style = getCellStyle();
+                    if (style == null) {
+                        return value.toString();
+                    }
+                    final short formatIndex = style.getDataFormat();
+                    String formatString = style.getDataFormatString();
+                    if (formatString == null) {
+                        formatString = BuiltinFormats.getBuiltinFormat(formatIndex);
+                    }
+                    return formatter.formatRawCellContents(getNumericCellValue(), formatIndex, formatString);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return getFormattedValue(new DataFormatter());
+        }
+    }
+}
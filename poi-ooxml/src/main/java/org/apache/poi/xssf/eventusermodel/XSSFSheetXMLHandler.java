@@ -18,12 +18,14 @@ package org.apache.poi.xssf.eventusermodel;
 
 import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.RichTextString;
@@ -49,6 +51,7 @@ import org.xml.sax.helpers.DefaultHandler;
  */
 public class XSSFSheetXMLHandler extends DefaultHandler {
     private static final Logger LOG = LogManager.getLogger(XSSFSheetXMLHandler.class);
+    private static final int MAX_CACHED_STYLES = SpreadsheetVersion.EXCEL2007.getMaxCellStyles();
 
     /**
     * These are the different kinds of cells we support.
@@ -114,6 +117,11 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
 
    private Queue<CellAddress> commentCellRefs;
 
+   // Number formats of the cell styles, looked up on first use
+   private boolean[] styleFormatCached = new boolean[16];
+   private short[] styleFormatIndex = new short[16];
+   private String[] styleFormatString = new String[16];
+
    /**
     * Accepts objects needed while parsing.
     *
@@ -280,21 +288,57 @@ public class XSSFSheetXMLHandler extends DefaultHandler {
                nextDataType = xssfDataType.FORMULA;
            else {
                // Number, but almost certainly with a special style or format
-               XSSFCellStyle style = null;
-               if (stylesTable != null) {
-                   if (cellStyleStr != null) {
-                       int styleIndex = Integer.parseInt(cellStyleStr);
-                       style = stylesTable.getStyleAt(styleIndex);
-                   } else if (stylesTable.getNumCellStyles() > 0) {
-                       style = stylesTable.getStyleAt(0);
-                   }
-               }
-               if (style != null) {
-                   this.formatIndex = style.getDataFormat();
-                   this.formatString = style.getDataFormatString();
-                   if (this.formatString == null)
-                       this.formatString = BuiltinFormats.getBuiltinFormat(this.formatIndex);
-               }
+               applyStyleFormat(cellStyleStr);
+           }
+       }
+   }
+
+   /**
+    * Sets the number format of the given cell style as current format.
+    * The formats are cached per style, so the styles table - which might be shared
+    * by handlers on other threads - is only accessed once per style and only while
+    * holding its monitor.
+    */
+   private void applyStyleFormat(String cellStyleStr) {
+       if (stylesTable == null) {
+           return;
+       }
+       // slot 0 is used for cells without a style attribute
+       final int styleIndex = (cellStyleStr != null) ? Integer.parseInt(cellStyleStr) : -1;
+       final int slot = styleIndex + 1;
+       if (slot < 0 || slot > MAX_CACHED_STYLES) {
+           lookupStyleFormat(cellStyleStr, styleIndex);
+           return;
+       }
+       if (slot >= styleFormatCached.length) {
+           final int newLength = Math.max(slot + 1, styleFormatCached.length * 2);
+           styleFormatCached = Arrays.copyOf(styleFormatCached, newLength);
+           styleFormatIndex = Arrays.copyOf(styleFormatIndex, newLength);
+           styleFormatString = Arrays.copyOf(styleFormatString, newLength);
+       }
+       if (!styleFormatCached[slot]) {
+           lookupStyleFormat(cellStyleStr, styleIndex);
+           styleFormatIndex[slot] = this.formatIndex;
+           styleFormatString[slot] = this.formatString;
+           styleFormatCached[slot] = true;
+       }
+       this.formatIndex = styleFormatIndex[slot];
+       this.formatString = styleFormatString[slot];
+   }
+
+   private void lookupStyleFormat(String cellStyleStr, int styleIndex) {
+       synchronized (stylesTable) {
+           XSSFCellStyle style = null;
+           if (cellStyleStr != null) {
+               style = stylesTable.getStyleAt(styleIndex);
+           } else if (stylesTable.getNumCellStyles() > 0) {
+               style = stylesTable.getStyleAt(0);
+           }
+           if (style != null) {
+               this.formatIndex = style.getDataFormat();
+               this.formatString = style.getDataFormatString();
+               if (this.formatString == null)
+                   this.formatString = BuiltinFormats.getBuiltinFormat(this.formatIndex);
            }
        }
    }
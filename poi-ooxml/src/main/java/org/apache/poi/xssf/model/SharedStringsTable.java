@@ -25,10 +25,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import org.apache.poi.ooxml.POIXMLDocumentPart;
 import org.apache.poi.openxml4j.opc.PackagePart;
@@ -61,31 +63,56 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.SstDocument;
  * The shared string table contains all the necessary information for displaying the string: the text, formatting
  * properties, and phonetic properties (for East Asian languages).
  * </p>
+ * <p>
+ * Entries can be added concurrently, e.g. by SXSSF sheets which are filled by different threads.
+ * Lookups and reads of existing entries don't lock, only the addition of new entries is serialized.
+ * </p>
  */
 public class SharedStringsTable extends POIXMLDocumentPart implements SharedStrings, Closeable {
 
+    private static final AtomicIntegerFieldUpdater<SharedStringsTable> COUNT_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(SharedStringsTable.class, "count");
+
+    /**
+     *  Array of individual string items in the Shared String table, of which the first
+     *  <code>size</code> entries are used. Entries are only appended while holding the <code>lock</code>
+     *  and a full array is replaced by a larger copy, so that readers don't need to lock.
+     */
+    private volatile CTRst[] strings = new CTRst[16];
+
     /**
-     *  Array of individual string items in the Shared String table.
+     *  The number of entries in the <code>strings</code> array, it's written after an entry is stored
      */
-    private final List<CTRst> strings = new ArrayList<>();
+    private volatile int size;
+
+    /**
+     *  Guards the addition of entries and the write order. It's always taken before the locks of
+     *  <code>stmap</code>, which must not call back into this table.
+     */
+    private final Object lock = new Object();
 
     /**
      *  Maps strings and their indexes in the <code>strings</code> arrays
      */
-    private final Map<String, Integer> stmap = new HashMap<>();
+    private final Map<String, Integer> stmap = new ConcurrentHashMap<>();
 
     /**
      * An integer representing the total count of strings in the workbook. This count does not
      * include any numbers, it counts only the total of text strings in the workbook.
      */
-    protected int count;
+    protected volatile int count;
 
     /**
      * An integer representing the total count of unique strings in the Shared String Table.
      * A string is unique even if it is a copy of another string, but has different formatting applied
      * at the character level.
      */
-    protected int uniqueCount;
+    protected volatile int uniqueCount;
+
+    /**
+     * the entry indexes in the order they are written, or null to write them in the order of addition
+     */
+    private int[] writeOrder;
 
     private SstDocument _sstDoc;
 
@@ -127,10 +154,12 @@ public class SharedStringsTable extends POIXMLDocumentPart implements SharedStri
             count = (int)sst.getCount();
             uniqueCount = (int)sst.getUniqueCount();
             //noinspection deprecation
-            for (CTRst st : sst.getSiArray()) {
-                stmap.put(xmlText(st), cnt);
-                strings.add(st);
-                cnt++;
+            synchronized (lock) {
+                for (CTRst st : sst.getSiArray()) {
+                    stmap.put(xmlText(st), cnt);
+                    append(st);
+                    cnt++;
+                }
             }
         } catch (XmlException e) {
             throw new IOException("unable to parse shared strings table", e);
@@ -149,7 +178,12 @@ public class SharedStringsTable extends POIXMLDocumentPart implements SharedStri
      */
     @Override
     public RichTextString getItemAt(int idx) {
-        return new XSSFRichTextString(strings.get(idx));
+        // read the size before the array, the array is at least as new as the size
+        final int cnt = size;
+        if (idx < 0 || idx >= cnt) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + cnt);
+        }
+        return new XSSFRichTextString(strings[idx]);
     }
 
     /**
@@ -189,18 +223,42 @@ public class SharedStringsTable extends POIXMLDocumentPart implements SharedStri
     @Internal
     int addEntry(CTRst st) {
         String s = xmlText(st);
-        count++;
-        if (stmap.containsKey(s)) {
-            return stmap.get(s);
+        COUNT_UPDATER.incrementAndGet(this);
+        Integer idx = stmap.get(s);
+        if (idx != null) {
+            return idx;
         }
+        synchronized (lock) {
+            // another thread might have added the string in the meantime
+            idx = stmap.get(s);
+            if (idx != null) {
+                return idx;
+            }
+            //create a CTRst bean attached to this SstDocument and copy the argument CTRst into it
+            CTRst newSt = _sstDoc.getSst().addNewSi();
+            newSt.set(st);
+            int newIdx = append(newSt);
+            uniqueCount++;
+            // the entry is stored before it is mapped, so the index can be read by other threads at once
+            stmap.put(s, newIdx);
+            return newIdx;
+        }
+    }
 
-        uniqueCount++;
-        //create a CTRst bean attached to this SstDocument and copy the argument CTRst into it
-        CTRst newSt = _sstDoc.getSst().addNewSi();
-        newSt.set(st);
-        int idx = strings.size();
-        stmap.put(s, idx);
-        strings.add(newSt);
+    /**
+     * Appends an entry to the <code>strings</code> array, needs to be called while holding the <code>lock</code>
+     *
+     * @return the index of the entry
+     */
+    private int append(CTRst st) {
+        CTRst[] items = strings;
+        final int idx = size;
+        if (idx == items.length) {
+            items = Arrays.copyOf(items, idx * 2);
+            strings = items;
+        }
+        items[idx] = st;
+        size = idx + 1;
         return idx;
     }
 
@@ -229,13 +287,72 @@ public class SharedStringsTable extends POIXMLDocumentPart implements SharedStri
      * @return list of shared string instances
      */
     public List<RichTextString> getSharedStringItems() {
-        ArrayList<RichTextString> items = new ArrayList<>();
-        for (CTRst rst : strings) {
-            items.add(new XSSFRichTextString(rst));
+        final int cnt = size;
+        final CTRst[] rsts = strings;
+        ArrayList<RichTextString> items = new ArrayList<>(cnt);
+        for (int i = 0; i < cnt; i++) {
+            items.add(new XSSFRichTextString(rsts[i]));
         }
         return Collections.unmodifiableList(items);
     }
 
+    /**
+     * Sorts the entries from the given index by their text when the table is written, so that
+     * the written table doesn't depend on the order the entries have been added, e.g. by
+     * concurrent threads. The indexes of the entries in this table are not changed, the
+     * indexes of the written table are returned and need to be used by the written cells.
+     *
+     * @param fromIndex the index of the first entry to sort, the preceding entries keep their position
+     * @return the written index for each entry index
+     * @see #clearWriteOrder()
+     * @since POI 5.2.4
+     */
+    @Internal
+    public int[] sortWriteOrder(int fromIndex) {
+        synchronized (lock) {
+            final int size = this.size;
+            final int from = Math.min(Math.max(fromIndex, 0), size);
+            final String[] keys = new String[size - from];
+            for (Map.Entry<String, Integer> me : stmap.entrySet()) {
+                int idx = me.getValue();
+                if (idx >= from && idx < size) {
+                    keys[idx - from] = me.getKey();
+                }
+            }
+            final Integer[] sorted = new Integer[size - from];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = from + i;
+                if (keys[i] == null) {
+                    // entries of a read table might not be in the map, if they were duplicated
+                    keys[i] = xmlText(strings[from + i]);
+                }
+            }
+            Arrays.sort(sorted, (a, b) -> keys[a - from].compareTo(keys[b - from]));
+
+            final int[] order = new int[size];
+            final int[] mapping = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = (i < from) ? i : sorted[i - from];
+                mapping[order[i]] = i;
+            }
+            writeOrder = order;
+            return mapping;
+        }
+    }
+
+    /**
+     * Writes the entries in the order of their addition again
+     *
+     * @see #sortWriteOrder(int)
+     * @since POI 5.2.4
+     */
+    @Internal
+    public void clearWriteOrder() {
+        synchronized (lock) {
+            writeOrder = null;
+        }
+    }
+
     /**
      * Write this table out as XML.
      *
@@ -249,12 +366,25 @@ public class SharedStringsTable extends POIXMLDocumentPart implements SharedStri
         xmlOptions.setSaveCDataLengthThreshold(1000000);
         xmlOptions.setSaveCDataEntityCountThreshold(-1);
 
-        //re-create the sst table every time saving a workbook
-        CTSst sst = _sstDoc.getSst();
-        sst.setCount(count);
-        sst.setUniqueCount(uniqueCount);
+        synchronized (lock) {
+            SstDocument sstDoc = _sstDoc;
+            if (writeOrder != null) {
+                // the entries added after the write order has been set are appended
+                CTRst[] items = new CTRst[size];
+                for (int i = 0; i < items.length; i++) {
+                    items[i] = strings[i < writeOrder.length ? writeOrder[i] : i];
+                }
+                sstDoc = SstDocument.Factory.newInstance();
+                sstDoc.addNewSst().setSiArray(items);
+            }
 
-        _sstDoc.save(out, xmlOptions);
+            //re-create the sst table every time saving a workbook
+            CTSst sst = sstDoc.getSst();
+            sst.setCount(count);
+            sst.setUniqueCount(uniqueCount);
+
+            sstDoc.save(out, xmlOptions);
+        }
     }
 
     @Override
@@ -0,0 +1,148 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook.ISheetInjector;
+
+/**
+ * The deflated content of a zip entry, which has been compressed independently of the
+ * zip archive, so that several entries can be compressed concurrently and afterwards
+ * be copied into the archive as raw data.
+ * <p>
+ * The compressed data is kept in a temp file or in memory.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+final class DeflatedZipEntry implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final UnsynchronizedByteArrayOutputStream buffer;
+    private long crc;
+    private long size;
+    private long compressedSize;
+
+    private DeflatedZipEntry(File file, UnsynchronizedByteArrayOutputStream buffer) {
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Compresses the content of a zip entry
+     *
+     * @param content writes the uncompressed content of the entry
+     * @param useTempFile true, to store the compressed data in a temp file, otherwise it's kept in memory
+     * @param level the deflate compression level
+     */
+    static DeflatedZipEntry deflate(ISheetInjector content, boolean useTempFile, int level) throws IOException {
+        final DeflatedZipEntry entry;
+        final OutputStream target;
+        if (useTempFile) {
+            entry = new DeflatedZipEntry(TempFile.createTempFile("poi-sxssf-entry", ".deflate"), null);
+            target = new BufferedOutputStream(new FileOutputStream(entry.file), BUFFER_SIZE);
+        } else {
+            entry = new DeflatedZipEntry(null, UnsynchronizedByteArrayOutputStream.builder().get());
+            target = entry.buffer;
+        }
+
+        // zip entries contain raw deflate data without the zlib header
+        final Deflater deflater = new Deflater(level, true);
+        final CRC32 checksum = new CRC32();
+        boolean success = false;
+        try (DeflaterOutputStream dos = new DeflaterOutputStream(target, deflater, BUFFER_SIZE);
+             CheckedOutputStream cos = new CheckedOutputStream(dos, checksum)) {
+            content.writeSheetData(cos);
+            cos.flush();
+            dos.finish();
+            entry.crc = checksum.getValue();
+            entry.size = deflater.getBytesRead();
+            entry.compressedSize = deflater.getBytesWritten();
+            success = true;
+        } finally {
+            deflater.end();
+            if (!success) {
+                entry.close();
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return a new entry for the given name with the compression method, the sizes and the crc
+     *  of the deflated content, as needed to add it as raw entry
+     */
+    ZipArchiveEntry createArchiveEntry(String name) {
+        ZipArchiveEntry ze = new ZipArchiveEntry(name);
+        ze.setMethod(ZipEntry.DEFLATED);
+        ze.setCrc(crc);
+        ze.setSize(size);
+        ze.setCompressedSize(compressedSize);
+        return ze;
+    }
+
+    /**
+     * @return the compressed data
+     */
+    InputStream getRawInputStream() throws IOException {
+        return (file != null) ? new FileInputStream(file) : buffer.toInputStream();
+    }
+
+    long getCrc() {
+        return crc;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getCompressedSize() {
+        return compressedSize;
+    }
+
+    /**
+     * Deletes the temp file or releases the buffer
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != null && file.exists() && !file.delete()) {
+            throw new IOException("Could not delete temporary file: " + file);
+        }
+        if (buffer != null) {
+            buffer.reset();
+        }
+    }
+}
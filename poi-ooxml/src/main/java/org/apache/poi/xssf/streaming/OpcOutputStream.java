@@ -20,6 +20,7 @@ package org.apache.poi.xssf.streaming;
 import org.apache.poi.xssf.streaming.Zip64Impl.Entry;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -37,7 +38,7 @@ class OpcOutputStream extends DeflaterOutputStream {
     private final List<Entry> entries = new ArrayList<>();
     private final CRC32 crc = new CRC32();
     private Entry current;
-    private int written = 0;
+    private long written = 0;
     private boolean finished = false;
 
     /**
@@ -84,7 +85,7 @@ class OpcOutputStream extends DeflaterOutputStream {
         }
 
         current.size = def.getBytesRead();
-        current.compressedSize = Math.toIntExact(def.getBytesWritten());
+        current.compressedSize = def.getBytesWritten();
         current.crc = crc.getValue();
 
         written += current.compressedSize;
@@ -95,6 +96,41 @@ class OpcOutputStream extends DeflaterOutputStream {
     }
 
 
+    /**
+     * Adds an entry with already deflated data, which is copied as-is
+     *
+     * @param name the entry name
+     * @param crc the crc of the uncompressed data
+     * @param size the size of the uncompressed data
+     * @param compressedSize the size of the deflated data
+     * @param rawData the raw deflate data
+     */
+    public void putRawEntry(String name, long crc, long size, long compressedSize, InputStream rawData) throws IOException {
+        if (current != null) {
+            closeEntry();
+        }
+        Entry entry = new Entry(name);
+        entry.offset = written;
+        written += spec.writeLFH(entry);
+        entries.add(entry);
+
+        byte[] buf = new byte[8192];
+        long copied = 0;
+        for (int len; (len = rawData.read(buf)) != -1; ) {
+            out.write(buf, 0, len);
+            copied += len;
+        }
+        if (copied != compressedSize) {
+            throw new IOException("Expected " + compressedSize + " compressed bytes for entry " + name + ", but got " + copied);
+        }
+
+        entry.size = size;
+        entry.compressedSize = compressedSize;
+        entry.crc = crc;
+        written += entry.compressedSize;
+        written += spec.writeDAT(entry);
+    }
+
     /**
      * @see ZipOutputStream#finish()
      */
@@ -106,7 +142,7 @@ class OpcOutputStream extends DeflaterOutputStream {
         if(current != null) {
             closeEntry();
         }
-        int offset = written;
+        long offset = written;
         for (Entry entry : entries) {
             written += spec.writeCEN(entry);
         }
@@ -17,6 +17,7 @@
 
 package org.apache.poi.xssf.streaming;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -27,6 +28,7 @@ import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -34,6 +36,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
 
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.Zip64Mode;
@@ -128,11 +134,33 @@ public class SXSSFWorkbook implements Workbook {
      */
     private boolean _compressTmpFiles;
 
+    /**
+     * codec of the temp files, null to use {@link #_compressTmpFiles}
+     */
+    private SheetTempFileCodec _tempFileCodec;
+
+    private final SheetTempFileMetrics _tempFileMetrics = new SheetTempFileMetrics();
+
     /**
      * shared string table - a cache of strings in this workbook
      */
     protected final SharedStringsTable _sharedStringSource;
 
+    /**
+     * number of shared strings of the template, which keep their position in a deterministic table
+     */
+    private final int _sharedStringsBase;
+
+    /**
+     * whether the shared strings are sorted on write, see {@link #setDeterministicSharedStrings(boolean)}
+     */
+    private boolean _deterministicSharedStrings;
+
+    /**
+     * the written index of each shared string while the workbook is written with sorted shared strings
+     */
+    private int[] _sharedStringsMapping;
+
     /**
      * controls whether Zip64 mode is used - Always became the default in POI 5.0.0
      */
@@ -140,6 +168,11 @@ public class SXSSFWorkbook implements Workbook {
 
     private boolean shouldCalculateSheetDimensions = true;
 
+    /**
+     * executor to compress the sheet entries concurrently, null to compress them sequentially
+     */
+    private Executor compressionExecutor;
+
     /**
      * Construct a new workbook with default row window size
      */
@@ -273,6 +306,7 @@ public class SXSSFWorkbook implements Workbook {
                 createAndRegisterSXSSFSheet( (XSSFSheet)sheet );
             }
         }
+        _sharedStringsBase = (_sharedStringSource == null) ? 0 : _sharedStringSource.getUniqueCount();
     }
 
     /**
@@ -326,6 +360,37 @@ public class SXSSFWorkbook implements Workbook {
         this.zip64Mode = zip64Mode;
     }
 
+    /**
+     * Sets the executor to compress the sheets concurrently while the workbook is written.
+     * <p>
+     * Each worksheet entry is deflated on its own into a temp file - or into memory with
+     * {@link #writeAvoidingTempFiles(OutputStream)} - and afterwards copied as raw entry into
+     * the zip output. This speeds up writing workbooks with several large sheets on multi-core
+     * hosts, at the expense of the space for the compressed sheets.
+     * <p>
+     * The sheet data is read concurrently, so for a {@link DeferredSXSSFWorkbook}
+     * the row generators of the sheets need to be thread-safe.
+     *
+     * @param compressionExecutor the executor to compress the sheets with,
+     *                            or {@code null} to compress them sequentially (the default)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setCompressionExecutor(Executor compressionExecutor) {
+        this.compressionExecutor = compressionExecutor;
+    }
+
+    /**
+     * @return the executor to compress the sheets concurrently, or {@code null} if they are
+     *  compressed sequentially
+     * @see #setCompressionExecutor(Executor)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public Executor getCompressionExecutor() {
+        return compressionExecutor;
+    }
+
     /**
      * Get whether temp files should be compressed.
      *
@@ -351,11 +416,47 @@ public class SXSSFWorkbook implements Workbook {
      *     calls.
      * </p>
      * @param compress whether to compress temp files
+     * @see #setTempFileCodec(SheetTempFileCodec)
      */
     public void setCompressTempFiles(boolean compress) {
         _compressTmpFiles = compress;
     }
 
+    /**
+     * Sets the codec to encode the temp files of the sheets with.
+     * <p>
+     * If a codec is set, it takes precedence over {@link #setCompressTempFiles(boolean)}.
+     * Like the compress flag, this option only affects subsequent <code>createSheet()</code> calls.
+     * </p>
+     *
+     * @param codec the temp file codec, or {@code null} to use the compress flag
+     * @see #getTempFileMetrics()
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setTempFileCodec(SheetTempFileCodec codec) {
+        _tempFileCodec = codec;
+    }
+
+    /**
+     * @return the codec of the temp files, or {@code null} if the compress flag is used
+     * @since POI 5.2.4
+     */
+    @Beta
+    public SheetTempFileCodec getTempFileCodec() {
+        return _tempFileCodec;
+    }
+
+    /**
+     * @return the sizes and times of the temp files, which are written with a
+     *  {@link #setTempFileCodec(SheetTempFileCodec) temp file codec}
+     * @since POI 5.2.4
+     */
+    @Beta
+    public SheetTempFileMetrics getTempFileMetrics() {
+        return _tempFileMetrics;
+    }
+
     /**
      * @param shouldCalculateSheetDimensions defaults to <code>true</code>, set to <code>false</code> if
      *                                       the calculated dimensions are causing trouble
@@ -374,12 +475,44 @@ public class SXSSFWorkbook implements Workbook {
         return shouldCalculateSheetDimensions;
     }
 
+    /**
+     * Sets whether the shared strings table is written independently of the order the strings have been added.
+     * <p>
+     * When a shared strings table is used, different sheets can be filled by different threads at the same
+     * time, as long as the styles, fonts and other workbook objects are created beforehand. The index of a
+     * string in the shared strings table then depends on the interleaving of the threads. With this option,
+     * the strings added by the sheets are sorted by their text, when the workbook is written, and the
+     * indexes in the written sheets are adjusted accordingly, so the same content results in the same
+     * output. The strings of a template workbook keep their position.
+     * </p>
+     *
+     * @param deterministicSharedStrings true to sort the added shared strings on write, defaults to false
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setDeterministicSharedStrings(boolean deterministicSharedStrings) {
+        _deterministicSharedStrings = deterministicSharedStrings;
+    }
+
+    /**
+     * @return whether the shared strings are written independent of the order they have been added
+     * @see #setDeterministicSharedStrings(boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public boolean isDeterministicSharedStrings() {
+        return _deterministicSharedStrings;
+    }
+
     @Internal
     protected SharedStringsTable getSharedStringSource() {
         return _sharedStringSource;
     }
 
     protected SheetDataWriter createSheetDataWriter() throws IOException {
+        if (_tempFileCodec != null) {
+            return new SheetDataWriter(_sharedStringSource, _tempFileCodec, _tempFileMetrics);
+        }
         if(_compressTmpFiles) {
             return new GZIPSheetDataWriter(_sharedStringSource);
         }
@@ -420,6 +553,14 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     protected void injectData(ZipEntrySource zipEntrySource, OutputStream out) throws IOException {
+        injectData(zipEntrySource, out, true);
+    }
+
+    private void injectData(ZipEntrySource zipEntrySource, OutputStream out, boolean useTempFiles) throws IOException {
+        if (compressionExecutor != null) {
+            injectDataConcurrently(zipEntrySource, out, useTempFiles);
+            return;
+        }
         ArchiveOutputStream zos = createArchiveOutputStream(out);
         try {
             Enumeration<? extends ZipArchiveEntry> en = zipEntrySource.getEntries();
@@ -453,6 +594,94 @@ public class SXSSFWorkbook implements Workbook {
         }
     }
 
+    private void injectDataConcurrently(ZipEntrySource zipEntrySource, OutputStream out, boolean useTempFiles) throws IOException {
+        final List<? extends ZipArchiveEntry> entries = Collections.list(zipEntrySource.getEntries());
+        final Map<String, CompletableFuture<DeflatedZipEntry>> deflatedSheets = new HashMap<>();
+        ZipArchiveOutputStream zos = null;
+        try {
+            // the template entries are read upfront, as the entry source can't be shared by the tasks
+            for (ZipArchiveEntry ze : entries) {
+                XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
+                // See bug 56557, we should not inject data into the special ChartSheets
+                if (xSheet == null || xSheet instanceof XSSFChartSheet) {
+                    continue;
+                }
+                final byte[] template;
+                try (final InputStream is = zipEntrySource.getInputStream(ze)) {
+                    if (is instanceof ZipArchiveThresholdInputStream) {
+                        // #59743 - disable Threshold handling for SXSSF copy
+                        ((ZipArchiveThresholdInputStream)is).setGuardState(false);
+                    }
+                    template = IOUtils.toByteArray(is);
+                }
+                final ISheetInjector sheetInjector = createSheetInjector(getSXSSFSheet(xSheet));
+                final ISheetInjector content = (output) ->
+                    copyStreamAndInjectWorksheet(new ByteArrayInputStream(template), output, sheetInjector);
+                deflatedSheets.put(ze.getName(), CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return DeflatedZipEntry.deflate(content, useTempFiles, Deflater.DEFAULT_COMPRESSION);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, compressionExecutor));
+            }
+
+            zos = createArchiveOutputStream(out);
+            for (ZipArchiveEntry ze : entries) {
+                CompletableFuture<DeflatedZipEntry> deflated = deflatedSheets.remove(ze.getName());
+                if (deflated != null) {
+                    try (DeflatedZipEntry sheetEntry = awaitDeflatedSheet(deflated);
+                         InputStream raw = sheetEntry.getRawInputStream()) {
+                        ZipArchiveEntry zeOut = sheetEntry.createArchiveEntry(ze.getName());
+                        if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+                        zos.addRawArchiveEntry(zeOut, raw);
+                    }
+                    continue;
+                }
+
+                ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
+                if (ze.getSize() >= 0) zeOut.setSize(ze.getSize());
+                if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+                zos.putArchiveEntry(zeOut);
+                try (final InputStream is = zipEntrySource.getInputStream(ze)) {
+                    if (is instanceof ZipArchiveThresholdInputStream) {
+                        ((ZipArchiveThresholdInputStream)is).setGuardState(false);
+                    }
+                    IOUtils.copy(is, zos);
+                } finally {
+                    zos.closeArchiveEntry();
+                }
+            }
+        } finally {
+            // release the compressed sheets, which haven't been written because of a failure
+            for (CompletableFuture<DeflatedZipEntry> deflated : deflatedSheets.values()) {
+                deflated.thenAccept(IOUtils::closeQuietly);
+            }
+            if (zos != null) {
+                zos.finish();
+            }
+            zipEntrySource.close();
+        }
+    }
+
+    private static DeflatedZipEntry awaitDeflatedSheet(CompletableFuture<DeflatedZipEntry> deflated) throws IOException {
+        try {
+            return deflated.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
         if (Zip64Mode.Always.equals(zip64Mode)) {
             return new OpcZipArchiveOutputStream(out);
@@ -464,10 +693,17 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     protected ISheetInjector createSheetInjector(SXSSFSheet sxSheet) throws IOException {
+        final int[] mapping = _sharedStringsMapping;
         return (output) -> {
             try (InputStream xis = sxSheet.getWorksheetXMLInputStream()) {
                 // Copy the worksheet data to "output".
-                IOUtils.copy(xis, output);
+                if (mapping == null) {
+                    IOUtils.copy(xis, output);
+                } else {
+                    SharedStringIndexRemapper remapper = new SharedStringIndexRemapper(output, mapping);
+                    IOUtils.copy(xis, remapper);
+                    remapper.finish();
+                }
             }
         };
     }
@@ -936,6 +1172,7 @@ public class SXSSFWorkbook implements Workbook {
     @Override
     public void write(OutputStream stream) throws IOException {
         flushSheets();
+        sortSharedStrings();
 
         //Save the template
         File tmplFile = TempFile.createTempFile("poi-sxssf-template", ".xlsx");
@@ -954,6 +1191,7 @@ public class SXSSFWorkbook implements Workbook {
             }
         } finally {
             deleted = tmplFile.delete();
+            clearSharedStringsOrder();
         }
         if (!deleted) {
             throw new IOException("Could not delete temporary file after processing: " + tmplFile);
@@ -972,6 +1210,7 @@ public class SXSSFWorkbook implements Workbook {
     @Beta
     public void writeAvoidingTempFiles(OutputStream stream) throws IOException {
         flushSheets();
+        sortSharedStrings();
 
         //Save the template
         try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
@@ -984,8 +1223,26 @@ public class SXSSFWorkbook implements Workbook {
                     ZipInputStreamZipEntrySource source = new ZipInputStreamZipEntrySource(
                         new ZipArchiveThresholdInputStream(zis))
             ) {
-                injectData(source, stream);
+                injectData(source, stream, false);
             }
+        } finally {
+            clearSharedStringsOrder();
+        }
+    }
+
+    /**
+     * Sorts the shared strings added by the sheets for the output, if deterministic shared strings are enabled
+     */
+    private void sortSharedStrings() {
+        if (_deterministicSharedStrings && _sharedStringSource != null) {
+            _sharedStringsMapping = _sharedStringSource.sortWriteOrder(_sharedStringsBase);
+        }
+    }
+
+    private void clearSharedStringsOrder() {
+        if (_sharedStringsMapping != null) {
+            _sharedStringsMapping = null;
+            _sharedStringSource.clearWriteOrder();
         }
     }
 
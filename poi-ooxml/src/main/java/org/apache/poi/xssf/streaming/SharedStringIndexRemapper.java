@@ -0,0 +1,112 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.util.Internal;
+
+/**
+ * Replaces the shared string indexes in the sheet data written by {@link SheetDataWriter},
+ * i.e. the values of the cells with {@code t="s"}.
+ * <p>
+ * Text and formulas are escaped by the writer, so the searched attribute and value
+ * sequence can only be found in the cell markup.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+final class SharedStringIndexRemapper extends FilterOutputStream {
+    private static final byte[] PATTERN = " t=\"s\"><v>".getBytes(StandardCharsets.US_ASCII);
+
+    private final int[] mapping;
+    private int matched;
+    private boolean inIndex;
+    private long index;
+
+    /**
+     * @param out the stream to write the remapped data to
+     * @param mapping the new index for each old index, indexes outside the mapping are kept
+     */
+    SharedStringIndexRemapper(OutputStream out, int[] mapping) {
+        super(out);
+        this.mapping = mapping;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (inIndex) {
+            if (b >= '0' && b <= '9') {
+                index = index * 10 + (b - '0');
+                return;
+            }
+            writeIndex();
+        }
+        out.write(b);
+        if (b == PATTERN[matched]) {
+            if (++matched == PATTERN.length) {
+                inIndex = true;
+                index = 0;
+                matched = 0;
+            }
+        } else {
+            matched = (b == PATTERN[0]) ? 1 : 0;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // copy the chunks between the indexes as-is
+        int start = off;
+        final int end = off + len;
+        for (int i = off; i < end; i++) {
+            final int c = b[i] & 0xFF;
+            if (!inIndex && c != PATTERN[matched] && matched == 0) {
+                continue;
+            }
+            out.write(b, start, i - start);
+            write(c);
+            start = i + 1;
+        }
+        out.write(b, start, end - start);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes a pending index, without closing the underlying stream
+     */
+    void finish() throws IOException {
+        if (inIndex) {
+            writeIndex();
+        }
+        out.flush();
+    }
+
+    private void writeIndex() throws IOException {
+        inIndex = false;
+        long mapped = (index < mapping.length) ? mapping[(int)index] : index;
+        out.write(Long.toString(mapped).getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -31,7 +31,6 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
-import java.util.PrimitiveIterator;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -41,11 +40,9 @@ import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.FormulaError;
 import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.util.CellReference;
-import org.apache.poi.util.CodepointsUtil;
 import org.apache.poi.util.Removal;
 import org.apache.poi.util.TempFile;
 import org.apache.poi.xssf.model.SharedStringsTable;
-import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
 
 /**
  * Initially copied from BigGridDemo "SpreadsheetWriter".
@@ -70,6 +67,14 @@ public class SheetDataWriter implements Closeable {
      */
     private SharedStringsTable _sharedStringSource;
 
+    /** codec of the temp file, null if the stream decoration methods are used */
+    private SheetTempFileCodec _codec;
+    private SheetTempFileMetrics _metrics;
+
+    /** buffer for the XML of the current row header or cell */
+    private char[] _buf = new char[1024];
+    private int _bufLen;
+
     public SheetDataWriter() throws IOException {
         _fd = createTempFile();
         _out = createWriter(_fd);
@@ -85,6 +90,21 @@ public class SheetDataWriter implements Closeable {
         this._sharedStringSource = sharedStringsTable;
     }
 
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @param codec the codec to encode the temp file with
+     * @param metrics the metrics to record the temp file usage, or null
+     * @since POI 5.2.4
+     */
+    public SheetDataWriter(SharedStringsTable sharedStringsTable, SheetTempFileCodec codec, SheetTempFileMetrics metrics) throws IOException {
+        // the codec is needed by the temp file methods
+        _codec = codec;
+        _metrics = metrics;
+        _sharedStringSource = sharedStringsTable;
+        _fd = createTempFile();
+        _out = createWriter(_fd);
+    }
+
     /**
      * Create a temp file to write sheet data.
      * By default, temp files are created in the default temporary-file directory
@@ -97,7 +117,7 @@ public class SheetDataWriter implements Closeable {
     @Removal(version = "6.0.0")
     //make this protected or private in POI 6.0.0 - no need for this to be public
     public File createTempFile() throws IOException {
-        return TempFile.createTempFile("poi-sxssf-sheet", ".xml");
+        return TempFile.createTempFile("poi-sxssf-sheet", (_codec == null) ? ".xml" : _codec.getFileSuffix());
     }
 
     /**
@@ -124,7 +144,8 @@ public class SheetDataWriter implements Closeable {
     /**
      * Override this to translate (such as encrypt or compress) the file output stream
      * as it is being written to disk.
-     * The default behavior is to to pass the stream through unmodified.
+     * The default behavior is to to pass the stream through unmodified,
+     * unless a {@link SheetTempFileCodec} has been specified.
      *
      * @param fos  the stream to decorate
      * @return a decorated stream
@@ -132,7 +153,10 @@ public class SheetDataWriter implements Closeable {
      * @see #decorateInputStream(FileInputStream)
      */
     protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
-        return fos;
+        if (_codec == null) {
+            return fos;
+        }
+        return (_metrics == null) ? _codec.encode(fos) : _metrics.encode(_codec, fos);
     }
 
     /**
@@ -168,7 +192,8 @@ public class SheetDataWriter implements Closeable {
     /**
      * Override this to translate (such as decrypt or expand) the file input stream
      * as it is being read from disk.
-     * The default behavior is to to pass the stream through unmodified.
+     * The default behavior is to to pass the stream through unmodified,
+     * unless a {@link SheetTempFileCodec} has been specified.
      *
      * @param fis  the stream to decorate
      * @return a decorated stream
@@ -176,7 +201,10 @@ public class SheetDataWriter implements Closeable {
      * @see #decorateOutputStream(FileOutputStream)
      */
     protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
-        return fis;
+        if (_codec == null) {
+            return fis;
+        }
+        return (_metrics == null) ? _codec.decode(fis) : _metrics.decode(_codec, fis);
     }
 
     public int getNumberOfFlushedRows() {
@@ -219,8 +247,8 @@ public class SheetDataWriter implements Closeable {
     }
 
     void beginRow(int rownum, SXSSFRow row) throws IOException {
-        _out.write("<row");
-        writeAttribute("r", Integer.toString(rownum + 1));
+        append("<row");
+        writeAttribute("r", rownum + 1);
         if (row.hasCustomHeight()) {
             writeAttribute("customHeight", "true");
             writeAttribute("ht", Float.toString(row.getHeightInPoints()));
@@ -229,11 +257,11 @@ public class SheetDataWriter implements Closeable {
             writeAttribute("hidden", "true");
         }
         if (row.isFormatted()) {
-            writeAttribute("s", Integer.toString(row.getRowStyleIndex()));
+            writeAttribute("s", row.getRowStyleIndex());
             writeAttribute("customFormat", "1");
         }
         if (row.getOutlineLevel() != 0) {
-            writeAttribute("outlineLevel", Integer.toString(row.getOutlineLevel()));
+            writeAttribute("outlineLevel", row.getOutlineLevel());
         }
         if(row.getHidden() != null) {
             writeAttribute("hidden", row.getHidden() ? "1" : "0");
@@ -242,7 +270,8 @@ public class SheetDataWriter implements Closeable {
             writeAttribute("collapsed", row.getCollapsed() ? "1" : "0");
         }
 
-        _out.write(">\n");
+        append(">\n");
+        flushBuffer();
         this._rownum = rownum;
     }
 
@@ -250,24 +279,29 @@ public class SheetDataWriter implements Closeable {
         _out.write("</row>\n");
     }
 
+    /**
+     * Writes the XML of a cell. The markup is encoded into a reusable buffer - including the
+     * cell reference and numbers - and passed to the writer in one call, so no intermediate
+     * objects are created for the common cell types.
+     */
     public void writeCell(int columnIndex, Cell cell) throws IOException {
         if (cell == null) {
             return;
         }
-        String ref = new CellReference(_rownum, columnIndex).formatAsString();
-        _out.write("<c");
-        writeAttribute("r", ref);
+        append("<c r=\"");
+        appendCellReference(_rownum, columnIndex);
+        append('\"');
         CellStyle cellStyle = cell.getCellStyle();
         if (cellStyle.getIndex() != 0) {
             // need to convert the short to unsigned short as the indexes can be up to 64k
             // ideally we would use int for this index, but that would need changes to some more
             // APIs
-            writeAttribute("s", Integer.toString(cellStyle.getIndex() & 0xffff));
+            writeAttribute("s", cellStyle.getIndex() & 0xffff);
         }
         CellType cellType = cell.getCellType();
         switch (cellType) {
             case BLANK: {
-                _out.write('>');
+                append('>');
                 break;
             }
             case FORMULA: {
@@ -276,7 +310,7 @@ public class SheetDataWriter implements Closeable {
                         writeAttribute("t", "n");
                         break;
                     case STRING:
-                        writeAttribute("t", STCellType.STR.toString());
+                        writeAttribute("t", "str");
                         break;
                     case BOOLEAN:
                         writeAttribute("t", "b");
@@ -285,37 +319,37 @@ public class SheetDataWriter implements Closeable {
                         writeAttribute("t", "e");
                         break;
                 }
-                _out.write("><f>");
-                outputEscapedString(cell.getCellFormula());
-                _out.write("</f>");
+                append("><f>");
+                appendEscaped(cell.getCellFormula());
+                append("</f>");
                 switch (cell.getCachedFormulaResultType()) {
                     case NUMERIC:
                         double nval = cell.getNumericCellValue();
                         if (!Double.isNaN(nval)) {
-                            _out.write("<v>");
-                            _out.write(Double.toString(nval));
-                            _out.write("</v>");
+                            append("<v>");
+                            appendDouble(nval);
+                            append("</v>");
                         }
                         break;
                     case STRING:
                         String value = cell.getStringCellValue();
                         if(value != null && !value.isEmpty()) {
-                            _out.write("<v>");
-                            outputEscapedString(value);
-                            _out.write("</v>");
+                            append("<v>");
+                            appendEscaped(value);
+                            append("</v>");
                         }
                         break;
                     case BOOLEAN:
-                        _out.write("><v>");
-                        _out.write(cell.getBooleanCellValue() ? "1" : "0");
-                        _out.write("</v>");
+                        append("><v>");
+                        append(cell.getBooleanCellValue() ? '1' : '0');
+                        append("</v>");
                         break;
                     case ERROR: {
                         FormulaError error = FormulaError.forInt(cell.getErrorCellValue());
 
-                        _out.write("><v>");
-                        outputEscapedString(error.getString());
-                        _out.write("</v>");
+                        append("><v>");
+                        appendEscaped(error.getString());
+                        append("</v>");
                         break;
                     }
                 }
@@ -326,58 +360,69 @@ public class SheetDataWriter implements Closeable {
                     RichTextString rt = cell.getRichStringCellValue();
                     int sRef = _sharedStringSource.addSharedStringItem(rt);
 
-                    writeAttribute("t", STCellType.S.toString());
-                    _out.write("><v>");
-                    _out.write(String.valueOf(sRef));
-                    _out.write("</v>");
+                    writeAttribute("t", "s");
+                    append("><v>");
+                    appendInt(sRef);
+                    append("</v>");
                 } else {
                     writeAttribute("t", "inlineStr");
-                    _out.write("><is><t");
-                    if (hasLeadingTrailingSpaces(cell.getStringCellValue())) {
+                    append("><is><t");
+                    String value = cell.getStringCellValue();
+                    if (hasLeadingTrailingSpaces(value)) {
                         writeAttribute("xml:space", "preserve");
                     }
-                    _out.write(">");
-                    outputEscapedString(cell.getStringCellValue());
-                    _out.write("</t></is>");
+                    append('>');
+                    appendEscaped(value);
+                    append("</t></is>");
                 }
                 break;
             }
             case NUMERIC: {
                 writeAttribute("t", "n");
-                _out.write("><v>");
-                _out.write(Double.toString(cell.getNumericCellValue()));
-                _out.write("</v>");
+                append("><v>");
+                appendDouble(cell.getNumericCellValue());
+                append("</v>");
                 break;
             }
             case BOOLEAN: {
                 writeAttribute("t", "b");
-                _out.write("><v>");
-                _out.write(cell.getBooleanCellValue() ? "1" : "0");
-                _out.write("</v>");
+                append("><v>");
+                append(cell.getBooleanCellValue() ? '1' : '0');
+                append("</v>");
                 break;
             }
             case ERROR: {
                 FormulaError error = FormulaError.forInt(cell.getErrorCellValue());
 
                 writeAttribute("t", "e");
-                _out.write("><v>");
-                outputEscapedString(error.getString());
-                _out.write("</v>");
+                append("><v>");
+                appendEscaped(error.getString());
+                append("</v>");
                 break;
             }
             default: {
+                _bufLen = 0;
                 throw new IllegalStateException("Invalid cell type: " + cellType);
             }
         }
-        _out.write("</c>");
+        append("</c>");
+        flushBuffer();
     }
 
     private void writeAttribute(String name, String value) throws IOException {
-        _out.write(' ');
-        _out.write(name);
-        _out.write("=\"");
-        _out.write(value);
-        _out.write('\"');
+        append(' ');
+        append(name);
+        append("=\"");
+        append(value);
+        append('\"');
+    }
+
+    private void writeAttribute(String name, int value) throws IOException {
+        append(' ');
+        append(name);
+        append("=\"");
+        appendInt(value);
+        append('\"');
     }
 
     /**
@@ -394,58 +439,148 @@ public class SheetDataWriter implements Closeable {
     }
 
     protected void outputEscapedString(String s) throws IOException {
+        appendEscaped(s);
+        flushBuffer();
+    }
+
+    private void appendEscaped(String s) throws IOException {
         if (s == null || s.length() == 0) {
             return;
         }
 
-        int codepoint;
-        for (PrimitiveIterator.OfInt iter = CodepointsUtil.primitiveIterator(s); iter.hasNext(); ) {
-            codepoint = iter.nextInt();
-            switch (codepoint) {
+        final int len = s.length();
+        for (int i = 0; i < len; i++) {
+            // escapes need up to 6 chars
+            ensureCapacity(6);
+            final char c = s.charAt(i);
+            switch (c) {
                 case '<':
-                    _out.write("&lt;");
+                    append("&lt;");
                     break;
                 case '>':
-                    _out.write("&gt;");
+                    append("&gt;");
                     break;
                 case '&':
-                    _out.write("&amp;");
+                    append("&amp;");
                     break;
                 case '\"':
-                    _out.write("&quot;");
+                    append("&quot;");
                     break;
                 // Special characters
                 case '\n':
-                    _out.write("&#xa;");
+                    append("&#xa;");
                     break;
                 case '\r':
-                    _out.write("&#xd;");
+                    append("&#xd;");
                     break;
                 case '\t':
-                    _out.write("&#x9;");
+                    append("&#x9;");
                     break;
                 case '\u00A0': // NO-BREAK SPACE
-                    _out.write("&#xa0;");
+                    append("&#xa0;");
                     break;
                 default:
-                    final char[] chars = Character.toChars(codepoint);
-                    if (chars.length == 1) {
-                        char c = chars[0];
-                        // YK: XmlBeans silently replaces all ISO control characters ( < 32) with question marks.
-                        // the same rule applies to "not a character" symbols.
-                        if (replaceWithQuestionMark(c)) {
-                            _out.write('?');
-                        } else {
-                            _out.write(c);
-                        }
-                    } else {
-                        _out.write(chars);
-                    }
+                    // surrogate pairs are copied as they are, the check below doesn't apply to them
+                    // YK: XmlBeans silently replaces all ISO control characters ( < 32) with question marks.
+                    // the same rule applies to "not a character" symbols.
+                    _buf[_bufLen++] = replaceWithQuestionMark(c) ? '?' : c;
                     break;
             }
         }
     }
 
+    private void append(char c) throws IOException {
+        ensureCapacity(1);
+        _buf[_bufLen++] = c;
+    }
+
+    private void append(String str) throws IOException {
+        final int len = str.length();
+        ensureCapacity(len);
+        str.getChars(0, len, _buf, _bufLen);
+        _bufLen += len;
+    }
+
+    private void appendInt(int value) throws IOException {
+        appendLong(value);
+    }
+
+    private void appendLong(long value) throws IOException {
+        // at most 19 digits and the sign
+        ensureCapacity(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                append(Long.toString(value));
+                return;
+            }
+            _buf[_bufLen++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        for (int pos = _bufLen + digits - 1; pos >= _bufLen; pos--) {
+            _buf[pos] = (char)('0' + (value % 10));
+            value /= 10;
+        }
+        _bufLen += digits;
+    }
+
+    /**
+     * Appends the number in the format of {@link Double#toString(double)}.
+     * Integral values in the range where {@link Double#toString(double)} doesn't use the
+     * exponent notation are encoded directly, all other values are delegated to it.
+     */
+    private void appendDouble(double value) throws IOException {
+        final long l = (long)value;
+        if (l == value && Math.abs(value) < 1e7 && (l != 0 || Double.doubleToRawLongBits(value) == 0)) {
+            appendLong(l);
+            append(".0");
+        } else {
+            append(Double.toString(value));
+        }
+    }
+
+    /**
+     * Appends the reference of the cell in A1 notation, like {@link CellReference#formatAsString()}
+     */
+    private void appendCellReference(int rowIndex, int columnIndex) throws IOException {
+        // column letters are base 26 without a zero digit: A..Z, AA..ZZ, ...
+        int letters = 1;
+        for (int col = columnIndex; col >= 26; col = col / 26 - 1) {
+            letters++;
+        }
+        ensureCapacity(letters);
+        int col = columnIndex;
+        for (int pos = _bufLen + letters - 1; pos >= _bufLen; pos--) {
+            _buf[pos] = (char)('A' + col % 26);
+            col = col / 26 - 1;
+        }
+        _bufLen += letters;
+        appendInt(rowIndex + 1);
+    }
+
+    /**
+     * Makes room for the given number of chars, by writing out the buffered chars
+     * and enlarging the buffer only if it's too small to hold them at all
+     */
+    private void ensureCapacity(int len) throws IOException {
+        if (_bufLen + len > _buf.length) {
+            flushBuffer();
+            if (len > _buf.length) {
+                _buf = new char[Math.max(len, _buf.length * 2)];
+            }
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (_bufLen > 0) {
+            _out.write(_buf, 0, _bufLen);
+            _bufLen = 0;
+        }
+    }
+
     static boolean replaceWithQuestionMark(char c) {
         return c < ' ' || ('\uFFFE' <= c && c <= '\uFFFF');
     }
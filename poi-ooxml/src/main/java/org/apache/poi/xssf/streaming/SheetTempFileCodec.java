@@ -0,0 +1,77 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * Encoding of the temp files, which SXSSF uses to store the flushed rows of a sheet.
+ * <p>
+ * The codecs trade CPU time against the size of the temp files - use
+ * {@link SXSSFWorkbook#getTempFileMetrics()} to compare them for a workload:
+ * <ul>
+ *     <li>{@link #NONE} - the sheet XML is stored as-is</li>
+ *     <li>{@link #DEFLATE_FAST} - deflate with the fastest compression level</li>
+ *     <li>{@link #LZ} - a LZ77 block compression, which is faster than deflate but compresses less</li>
+ * </ul>
+ * Custom codecs need to be thread-safe, as the sheets of a workbook may be read concurrently.
+ *
+ * @see SXSSFWorkbook#setTempFileCodec(SheetTempFileCodec)
+ * @since POI 5.2.4
+ */
+@Beta
+public interface SheetTempFileCodec {
+    /** Stores the sheet XML uncompressed */
+    SheetTempFileCodec NONE = new TempFileCodecs.None();
+
+    /** Compresses with deflate level 1 */
+    SheetTempFileCodec DEFLATE_FAST = deflate(Deflater.BEST_SPEED);
+
+    /** Compresses with a LZ77 block codec, which is implemented without external dependencies */
+    SheetTempFileCodec LZ = new TempFileCodecs.LZBlock();
+
+    /**
+     * @param level the deflate compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+     * @return a codec which compresses with deflate
+     */
+    static SheetTempFileCodec deflate(int level) {
+        return new TempFileCodecs.Deflate(level);
+    }
+
+    /**
+     * @return the suffix of the temp files, e.g. {@code ".xml"}
+     */
+    String getFileSuffix();
+
+    /**
+     * @param out the temp file stream
+     * @return the stream to write the uncompressed sheet XML to
+     */
+    OutputStream encode(OutputStream out) throws IOException;
+
+    /**
+     * @param in the temp file stream
+     * @return the stream to read the uncompressed sheet XML from
+     */
+    InputStream decode(InputStream in) throws IOException;
+}
@@ -0,0 +1,248 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.poi.util.Beta;
+
+/**
+ * Statistics about the temp files of the sheets, which are written with a {@link SheetTempFileCodec}.
+ * <p>
+ * The write and read times include the time spent for the temp file I/O, the I/O time alone is
+ * available separately, so the difference is the time spent in the codec.
+ * The metrics are updated concurrently and are cumulative for all sheets of a workbook.
+ *
+ * @see SXSSFWorkbook#getTempFileMetrics()
+ * @since POI 5.2.4
+ */
+@Beta
+public final class SheetTempFileMetrics {
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder tempFileBytesWritten = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder tempFileWriteNanos = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder tempFileBytesRead = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder tempFileReadNanos = new LongAdder();
+
+    /**
+     * @return the number of uncompressed sheet XML bytes, which have been written
+     */
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * @return the number of bytes, which have been written to the temp files
+     */
+    public long getTempFileBytesWritten() {
+        return tempFileBytesWritten.sum();
+    }
+
+    /**
+     * @return the time spent for encoding and writing the temp files in nanoseconds
+     */
+    public long getWriteNanos() {
+        return writeNanos.sum();
+    }
+
+    /**
+     * @return the time spent for writing to the temp files in nanoseconds
+     */
+    public long getTempFileWriteNanos() {
+        return tempFileWriteNanos.sum();
+    }
+
+    /**
+     * @return the number of uncompressed sheet XML bytes, which have been read
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the number of bytes, which have been read from the temp files
+     */
+    public long getTempFileBytesRead() {
+        return tempFileBytesRead.sum();
+    }
+
+    /**
+     * @return the time spent for reading and decoding the temp files in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos.sum();
+    }
+
+    /**
+     * @return the time spent for reading from the temp files in nanoseconds
+     */
+    public long getTempFileReadNanos() {
+        return tempFileReadNanos.sum();
+    }
+
+    /**
+     * @return the ratio of the temp file size to the uncompressed size, 1 if nothing has been written
+     */
+    public double getCompressionRatio() {
+        long written = getBytesWritten();
+        return (written == 0) ? 1 : getTempFileBytesWritten() / (double)written;
+    }
+
+    /**
+     * Resets all metrics to zero
+     */
+    public void reset() {
+        bytesWritten.reset();
+        tempFileBytesWritten.reset();
+        writeNanos.reset();
+        tempFileWriteNanos.reset();
+        bytesRead.reset();
+        tempFileBytesRead.reset();
+        readNanos.reset();
+        tempFileReadNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SheetTempFileMetrics{" +
+                "bytesWritten=" + getBytesWritten() +
+                ", tempFileBytesWritten=" + getTempFileBytesWritten() +
+                ", writeNanos=" + getWriteNanos() +
+                ", tempFileWriteNanos=" + getTempFileWriteNanos() +
+                ", bytesRead=" + getBytesRead() +
+                ", tempFileBytesRead=" + getTempFileBytesRead() +
+                ", readNanos=" + getReadNanos() +
+                ", tempFileReadNanos=" + getTempFileReadNanos() +
+                '}';
+    }
+
+    /**
+     * Encodes the temp file stream with the codec and records the written bytes and times
+     */
+    OutputStream encode(SheetTempFileCodec codec, OutputStream tempFile) throws IOException {
+        OutputStream encoded = codec.encode(new MeteredOutputStream(tempFile, tempFileBytesWritten, tempFileWriteNanos));
+        return new MeteredOutputStream(encoded, bytesWritten, writeNanos);
+    }
+
+    /**
+     * Decodes the temp file stream with the codec and records the read bytes and times
+     */
+    InputStream decode(SheetTempFileCodec codec, InputStream tempFile) throws IOException {
+        InputStream decoded = codec.decode(new MeteredInputStream(tempFile, tempFileBytesRead, tempFileReadNanos));
+        return new MeteredInputStream(decoded, bytesRead, readNanos);
+    }
+
+    private static final class MeteredOutputStream extends FilterOutputStream {
+        private final LongAdder bytes;
+        private final LongAdder nanos;
+
+        MeteredOutputStream(OutputStream out, LongAdder bytes, LongAdder nanos) {
+            super(out);
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            nanos.add(System.nanoTime() - start);
+            bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos.add(System.nanoTime() - start);
+            bytes.add(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            nanos.add(System.nanoTime() - start);
+        }
+
+        @Override
+        public void close() throws IOException {
+            long start = System.nanoTime();
+            try {
+                out.close();
+            } finally {
+                nanos.add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static final class MeteredInputStream extends FilterInputStream {
+        private final LongAdder bytes;
+        private final LongAdder nanos;
+
+        MeteredInputStream(InputStream in, LongAdder bytes, LongAdder nanos) {
+            super(in);
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = in.read();
+            nanos.add(System.nanoTime() - start);
+            if (b != -1) {
+                bytes.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int n = in.read(b, off, len);
+            nanos.add(System.nanoTime() - start);
+            if (n > 0) {
+                bytes.add(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = System.nanoTime();
+            long skipped = in.skip(n);
+            nanos.add(System.nanoTime() - start);
+            bytes.add(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.poi.util.Beta;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * A variant of SXSSFSheet, which writes its flushed rows directly into the zip entry
+ * of the sheet in the output of a {@link StreamingSXSSFWorkbook}.
+ * <p>
+ * Once the next sheet is created, the sheet is complete and no more rows can be added.
+ *
+ * @see StreamingSXSSFWorkbook
+ * @since POI 5.2.4
+ */
+@Beta
+public class StreamingSXSSFSheet extends SXSSFSheet {
+    private boolean written;
+
+    StreamingSXSSFSheet(StreamingSXSSFWorkbook workbook, XSSFSheet xSheet, OutputStream entryStream) throws IOException {
+        super(workbook, xSheet, workbook.getRandomAccessWindowSize());
+        _writer = workbook.createSheetDataWriter(entryStream);
+    }
+
+    /**
+     * Unsupported in StreamingSXSSFSheet
+     *
+     * @throws IllegalStateException this is unsupported
+     */
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        throw new IllegalStateException("Not supported by StreamingSXSSFSheet");
+    }
+
+    /**
+     * Create a new row within the sheet
+     *
+     * @param rownum row number
+     * @return high level Row object representing a row in the sheet
+     * @throws IllegalStateException if the sheet has already been written, because a later sheet was created
+     */
+    @Override
+    public SXSSFRow createRow(int rownum) {
+        if (written) {
+            throw new IllegalStateException("Sheet '" + getSheetName() + "' has already been written, " +
+                    "the sheets of a StreamingSXSSFWorkbook are written in the order of their creation");
+        }
+        return super.createRow(rownum);
+    }
+
+    /**
+     * @return true, if the sheet data has been completely written to the output
+     */
+    public boolean isWritten() {
+        return written;
+    }
+
+    void markWritten() {
+        written = true;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.NotImplemented;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * A variant of SXSSFWorkbook, which writes the flushed rows directly into the final zip
+ * stream instead of temporary files.
+ * <p>
+ * The output stream is given on construction and each sheet is written as one zip entry
+ * while its rows are flushed, so neither temp files nor the memory for the sheet data
+ * are needed. As zip entries can only be written one after the other, the sheets are
+ * written in the order of their creation: creating a sheet completes the previous sheet
+ * and no more rows can be added to it afterwards. The remaining parts of the workbook,
+ * like the workbook, the styles and the shared strings, are written by {@link #finish()}
+ * or {@link #close()}.
+ * <p>
+ * The part of the sheet XML before the rows - e.g. the column widths, the panes and the
+ * sheet properties - is written when the first rows are flushed, so these settings need to
+ * be made before. Settings stored after the rows, like merged regions, hyperlinks or
+ * conditional formatting, can be changed until the sheet is complete. The sheet dimension
+ * isn't updated, as it precedes the rows.
+ * <p>
+ * This variant is experimental and APIs may change at short notice.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public class StreamingSXSSFWorkbook extends SXSSFWorkbook {
+    private static final String SHEET_DATA = "<sheetData";
+    private static final String SHEET_DATA_END = "</sheetData>";
+
+    private final OutputStream out;
+    private ZipArchiveOutputStream zos;
+    private final Set<String> writtenEntries = new HashSet<>();
+    private StreamingSXSSFSheet currentSheet;
+    private SheetEntryOutputStream currentEntry;
+    private boolean finished;
+
+    /**
+     * @param out the stream to write the workbook to, which isn't closed by this workbook
+     */
+    public StreamingSXSSFWorkbook(OutputStream out) {
+        this(out, SXSSFWorkbook.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param out the stream to write the workbook to, which isn't closed by this workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out
+     */
+    public StreamingSXSSFWorkbook(OutputStream out, int rowAccessWindowSize) {
+        this(out, rowAccessWindowSize, false);
+    }
+
+    /**
+     * @param out the stream to write the workbook to, which isn't closed by this workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out
+     * @param useSharedStringsTable whether to use a shared strings table
+     */
+    public StreamingSXSSFWorkbook(OutputStream out, int rowAccessWindowSize, boolean useSharedStringsTable) {
+        super(null, rowAccessWindowSize, false, useSharedStringsTable);
+        this.out = out;
+    }
+
+    @NotImplemented
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        throw new IllegalStateException("Not supported by StreamingSXSSFWorkbook");
+    }
+
+    protected StreamingSheetWriter createSheetDataWriter(OutputStream entryStream) throws IOException {
+        return new StreamingSheetWriter(entryStream);
+    }
+
+    @Override
+    SXSSFSheet createAndRegisterSXSSFSheet(XSSFSheet xSheet) {
+        if (finished) {
+            throw new IllegalStateException("The workbook has already been written");
+        }
+        final StreamingSXSSFSheet sxSheet;
+        try {
+            finishCurrentSheet();
+            currentEntry = new SheetEntryOutputStream(xSheet);
+            sxSheet = new StreamingSXSSFSheet(this, xSheet, currentEntry);
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        registerSheetMapping(sxSheet, xSheet);
+        currentSheet = sxSheet;
+        return sxSheet;
+    }
+
+    @Override
+    public StreamingSXSSFSheet createSheet() {
+        return (StreamingSXSSFSheet) super.createSheet();
+    }
+
+    @Override
+    public StreamingSXSSFSheet createSheet(String sheetname) {
+        return (StreamingSXSSFSheet) super.createSheet(sheetname);
+    }
+
+    /**
+     * Removes the sheet at the given index
+     *
+     * @param index of the sheet to remove (0-based)
+     * @throws IllegalStateException if rows of the sheet have already been written
+     */
+    @Override
+    public void removeSheetAt(int index) {
+        XSSFSheet xSheet = _wb.getSheetAt(index);
+        if (writtenEntries.contains(getEntryName(xSheet))
+                || (currentEntry != null && currentEntry.xSheet == xSheet && currentEntry.started)) {
+            throw new IllegalStateException("Sheet '" + xSheet.getSheetName() + "' has already been written");
+        }
+        if (currentEntry != null && currentEntry.xSheet == xSheet) {
+            currentSheet = null;
+            currentEntry = null;
+        }
+        super.removeSheetAt(index);
+    }
+
+    /**
+     * Not supported, the workbook is written to the stream given on construction
+     *
+     * @throws IllegalStateException this is unsupported, use {@link #finish()}
+     */
+    @NotImplemented
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        throw new IllegalStateException("StreamingSXSSFWorkbook is written to the stream given on construction, use finish()");
+    }
+
+    /**
+     * Not supported, the workbook is written to the stream given on construction
+     *
+     * @throws IllegalStateException this is unsupported, use {@link #finish()}
+     */
+    @NotImplemented
+    @Override
+    public void writeAvoidingTempFiles(OutputStream stream) throws IOException {
+        throw new IllegalStateException("StreamingSXSSFWorkbook is written to the stream given on construction, use finish()");
+    }
+
+    /**
+     * Completes the current sheet and writes the remaining parts of the workbook.
+     * The workbook can't be changed afterwards. The output stream is not closed.
+     * Subsequent calls have no effect.
+     *
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finishCurrentSheet();
+        finished = true;
+
+        final ZipArchiveOutputStream zip = getZipStream();
+        try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
+            // the template contains the written sheets without rows, these entries are skipped
+            _wb.write(bos);
+
+            try (InputStream is = bos.toInputStream();
+                 ZipArchiveInputStream zis = new ZipArchiveInputStream(is)) {
+                ZipArchiveEntry ze;
+                while ((ze = zis.getNextZipEntry()) != null) {
+                    if (writtenEntries.contains(ze.getName())) {
+                        continue;
+                    }
+                    ZipArchiveEntry zeOut = new ZipArchiveEntry(ze.getName());
+                    if (ze.getTime() >= 0) zeOut.setTime(ze.getTime());
+                    zip.putArchiveEntry(zeOut);
+                    IOUtils.copy(zis, zip);
+                    zip.closeArchiveEntry();
+                }
+            }
+        }
+        zip.finish();
+    }
+
+    /**
+     * Finishes the output via {@link #finish()}, if not done yet, and closes the workbook.
+     * The output stream is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            super.close();
+        }
+    }
+
+    private void finishCurrentSheet() throws IOException {
+        if (currentSheet == null) {
+            return;
+        }
+        currentSheet.flushRows(0);
+        currentSheet.getSheetDataWriter().close();
+        currentEntry.finishEntry();
+        currentSheet.markWritten();
+        currentSheet = null;
+        currentEntry = null;
+    }
+
+    private ZipArchiveOutputStream getZipStream() {
+        if (zos == null) {
+            zos = createArchiveOutputStream(out);
+        }
+        return zos;
+    }
+
+    private static String getEntryName(XSSFSheet xSheet) {
+        return xSheet.getPackagePart().getPartName().getName().substring(1);
+    }
+
+    private static String getSheetXml(XSSFSheet xSheet) throws IOException {
+        try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
+            xSheet.writeSheetXml(bos);
+            return bos.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Passes the sheet data to the zip entry of the sheet, which is opened on the first
+     * write, and wraps it with the sheet XML before and after the sheetData element.
+     */
+    private final class SheetEntryOutputStream extends OutputStream {
+        private final XSSFSheet xSheet;
+        private boolean started;
+
+        SheetEntryOutputStream(XSSFSheet xSheet) {
+            this.xSheet = xSheet;
+        }
+
+        private void start() throws IOException {
+            if (started) {
+                return;
+            }
+            started = true;
+            final String xml = getSheetXml(xSheet);
+            final int start = xml.indexOf(SHEET_DATA);
+            if (start < 0) {
+                throw new IOException("Sheet XML of '" + xSheet.getSheetName() + "' doesn't contain a sheetData element");
+            }
+            final ZipArchiveOutputStream zip = getZipStream();
+            zip.putArchiveEntry(new ZipArchiveEntry(getEntryName(xSheet)));
+            zip.write(xml.substring(0, start).getBytes(StandardCharsets.UTF_8));
+            zip.write("<sheetData>\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        void finishEntry() throws IOException {
+            start();
+            // the elements after the rows, like merged regions, might have changed since the start
+            final String xml = getSheetXml(xSheet);
+            final int start = xml.indexOf(SHEET_DATA);
+            final int startEnd = xml.indexOf('>', start);
+            final int end = (xml.charAt(startEnd - 1) == '/')
+                    ? startEnd + 1
+                    : xml.indexOf(SHEET_DATA_END, startEnd) + SHEET_DATA_END.length();
+
+            final ZipArchiveOutputStream zip = getZipStream();
+            zip.write(SHEET_DATA_END.getBytes(StandardCharsets.UTF_8));
+            zip.write(xml.substring(end).getBytes(StandardCharsets.UTF_8));
+            zip.closeArchiveEntry();
+            writtenEntries.add(getEntryName(xSheet));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            start();
+            getZipStream().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            start();
+            getZipStream().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            // the sheet writer flushes the rows each time, passing that to the deflater would degrade the compression
+        }
+
+        @Override
+        public void close() {
+            // the entry is closed by finishEntry()
+        }
+    }
+}
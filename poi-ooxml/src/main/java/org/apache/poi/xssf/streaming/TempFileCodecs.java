@@ -0,0 +1,435 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.poi.util.Internal;
+
+/**
+ * The built-in {@link SheetTempFileCodec}s
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+final class TempFileCodecs {
+    private static final int BUFFER_SIZE = 8192;
+
+    private TempFileCodecs() {}
+
+    static final class None implements SheetTempFileCodec {
+        @Override
+        public String getFileSuffix() {
+            return ".xml";
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out) {
+            return out;
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return in;
+        }
+    }
+
+    static final class Deflate implements SheetTempFileCodec {
+        private final int level;
+
+        Deflate(int level) {
+            if ((level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) && level != Deflater.DEFAULT_COMPRESSION) {
+                throw new IllegalArgumentException("Invalid deflate level: " + level);
+            }
+            this.level = level;
+        }
+
+        @Override
+        public String getFileSuffix() {
+            return ".deflate";
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out) {
+            final Deflater deflater = new Deflater(level, true);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            final Inflater inflater = new Inflater(true);
+            return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+                private boolean dummyByteFed;
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inflater.end();
+                    }
+                }
+
+                @Override
+                protected void fill() throws IOException {
+                    // the raw deflate data has no trailer, so the inflater might need an extra byte at the end
+                    len = in.read(buf, 0, buf.length);
+                    if (len == -1) {
+                        if (dummyByteFed) {
+                            // the data is truncated
+                            throw new EOFException("Unexpected end of deflate input stream");
+                        }
+                        dummyByteFed = true;
+                        buf[0] = 0;
+                        len = 1;
+                    }
+                    inf.setInput(buf, 0, len);
+                }
+            };
+        }
+    }
+
+    /**
+     * A LZ77 codec similar to LZ4, which splits the data into blocks of 64kb.
+     * <p>
+     * Each block starts with its uncompressed and its stored length as big-endian ints.
+     * If both are equal, the block is stored uncompressed, otherwise it consists of sequences of
+     * a token byte (4 bits literal length, 4 bits match length - 4), the extra literal length
+     * bytes, the literals, the 2 byte little-endian match offset and the extra match length bytes.
+     * The last sequence of a block only contains literals.
+     */
+    static final class LZBlock implements SheetTempFileCodec {
+        static final int BLOCK_SIZE = 1 << 16;
+        private static final int MIN_MATCH = 4;
+        private static final int MAX_OFFSET = BLOCK_SIZE - 1;
+        private static final int HASH_LOG = 14;
+
+        @Override
+        public String getFileSuffix() {
+            return ".lz";
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out) {
+            return new LZBlockOutputStream(out);
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return new LZBlockInputStream(in);
+        }
+
+        static int maxCompressedLength(int length) {
+            return length + length / 255 + 16;
+        }
+
+        /**
+         * @return the compressed length, which is written to {@code dst}
+         */
+        static int compress(byte[] src, int len, byte[] dst, int[] table) {
+            Arrays.fill(table, -1);
+            final int limit = len - MIN_MATCH;
+            int anchor = 0;
+            int op = 0;
+            int i = 0;
+            while (i <= limit) {
+                final int seq = readInt(src, i);
+                final int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+                final int ref = table[h];
+                table[h] = i;
+                if (ref < 0 || i - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+                    // skip faster through incompressible data
+                    i += 1 + ((i - anchor) >>> 6);
+                    continue;
+                }
+                int matchLen = MIN_MATCH;
+                while (i + matchLen < len && src[ref + matchLen] == src[i + matchLen]) {
+                    matchLen++;
+                }
+
+                final int litLen = i - anchor;
+                final int tokenPos = op++;
+                op = writeLength(dst, op, litLen);
+                System.arraycopy(src, anchor, dst, op, litLen);
+                op += litLen;
+                final int offset = i - ref;
+                dst[op++] = (byte)offset;
+                dst[op++] = (byte)(offset >>> 8);
+                op = writeLength(dst, op, matchLen - MIN_MATCH);
+                dst[tokenPos] = (byte)((Math.min(litLen, 15) << 4) | Math.min(matchLen - MIN_MATCH, 15));
+
+                i += matchLen;
+                anchor = i;
+            }
+
+            if (anchor < len) {
+                final int litLen = len - anchor;
+                dst[op++] = (byte)(Math.min(litLen, 15) << 4);
+                op = writeLength(dst, op, litLen);
+                System.arraycopy(src, anchor, dst, op, litLen);
+                op += litLen;
+            }
+            return op;
+        }
+
+        /**
+         * Decompresses a block into {@code dst}, which has to be exactly filled
+         */
+        static void decompress(byte[] src, int srcLen, byte[] dst, int dstLen) throws IOException {
+            int ip = 0;
+            int op = 0;
+            try {
+                while (op < dstLen) {
+                    final int token = src[ip++] & 0xFF;
+                    int litLen = token >>> 4;
+                    if (litLen == 15) {
+                        int b;
+                        do {
+                            b = src[ip++] & 0xFF;
+                            litLen += b;
+                        } while (b == 255);
+                    }
+                    System.arraycopy(src, ip, dst, op, litLen);
+                    ip += litLen;
+                    op += litLen;
+                    if (op == dstLen) {
+                        break;
+                    }
+
+                    final int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+                    int matchLen = token & 15;
+                    if (matchLen == 15) {
+                        int b;
+                        do {
+                            b = src[ip++] & 0xFF;
+                            matchLen += b;
+                        } while (b == 255);
+                    }
+                    matchLen += MIN_MATCH;
+                    int ref = op - offset;
+                    if (offset == 0 || ref < 0 || op + matchLen > dstLen) {
+                        throw new IOException("Corrupt LZ block");
+                    }
+                    if (offset >= matchLen) {
+                        System.arraycopy(dst, ref, dst, op, matchLen);
+                        op += matchLen;
+                    } else {
+                        // the match overlaps with the output, so copy bytewise
+                        for (int end = op + matchLen; op < end; ) {
+                            dst[op++] = dst[ref++];
+                        }
+                    }
+                }
+            } catch (ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Corrupt LZ block", e);
+            }
+            if (ip != srcLen || op != dstLen) {
+                throw new IOException("Corrupt LZ block");
+            }
+        }
+
+        private static int writeLength(byte[] dst, int op, int length) {
+            if (length >= 15) {
+                int remaining = length - 15;
+                for (; remaining >= 255; remaining -= 255) {
+                    dst[op++] = (byte)255;
+                }
+                dst[op++] = (byte)remaining;
+            }
+            return op;
+        }
+
+        private static int readInt(byte[] buf, int pos) {
+            return (buf[pos] & 0xFF) | ((buf[pos + 1] & 0xFF) << 8) | ((buf[pos + 2] & 0xFF) << 16) | (buf[pos + 3] << 24);
+        }
+    }
+
+    static final class LZBlockOutputStream extends FilterOutputStream {
+        private final DataOutputStream dos;
+        private final byte[] block = new byte[LZBlock.BLOCK_SIZE];
+        private final byte[] compressed = new byte[LZBlock.maxCompressedLength(LZBlock.BLOCK_SIZE)];
+        private final int[] table = new int[1 << LZBlock.HASH_LOG];
+        private int blockLen;
+        private boolean closed;
+
+        LZBlockOutputStream(OutputStream out) {
+            super(out);
+            dos = new DataOutputStream(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (blockLen == block.length) {
+                writeBlock();
+            }
+            block[blockLen++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (blockLen == block.length) {
+                    writeBlock();
+                }
+                int n = Math.min(len, block.length - blockLen);
+                System.arraycopy(b, off, block, blockLen, n);
+                blockLen += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * Flushes the underlying stream - the pending data is written with the next full block
+         * or when the stream is closed, to not degrade the compression
+         */
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (blockLen > 0) {
+                    writeBlock();
+                }
+                dos.flush();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            int compressedLen = LZBlock.compress(block, blockLen, compressed, table);
+            dos.writeInt(blockLen);
+            if (compressedLen < blockLen) {
+                dos.writeInt(compressedLen);
+                dos.write(compressed, 0, compressedLen);
+            } else {
+                dos.writeInt(blockLen);
+                dos.write(block, 0, blockLen);
+            }
+            blockLen = 0;
+        }
+    }
+
+    static final class LZBlockInputStream extends InputStream {
+        private final DataInputStream dis;
+        private final byte[] block = new byte[LZBlock.BLOCK_SIZE];
+        private final byte[] compressed = new byte[LZBlock.maxCompressedLength(LZBlock.BLOCK_SIZE)];
+        private int blockLen;
+        private int pos;
+        private boolean eof;
+
+        LZBlockInputStream(InputStream in) {
+            dis = new DataInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureData()) {
+                return -1;
+            }
+            return block[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureData()) {
+                return -1;
+            }
+            int n = Math.min(len, blockLen - pos);
+            System.arraycopy(block, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return blockLen - pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            dis.close();
+        }
+
+        private boolean ensureData() throws IOException {
+            while (pos == blockLen) {
+                if (eof || !readBlock()) {
+                    eof = true;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean readBlock() throws IOException {
+            int b = dis.read();
+            if (b == -1) {
+                return false;
+            }
+            final int rawLen = (b << 24) | (dis.readUnsignedByte() << 16) | dis.readUnsignedShort();
+            final int storedLen = dis.readInt();
+            if (rawLen <= 0 || rawLen > block.length || storedLen <= 0 || storedLen > rawLen) {
+                throw new IOException("Corrupt LZ block header");
+            }
+            try {
+                if (storedLen == rawLen) {
+                    dis.readFully(block, 0, rawLen);
+                } else {
+                    dis.readFully(compressed, 0, storedLen);
+                    LZBlock.decompress(compressed, storedLen, block, rawLen);
+                }
+            } catch (EOFException e) {
+                throw new IOException("Truncated LZ block", e);
+            }
+            blockLen = rawLen;
+            pos = 0;
+            return true;
+        }
+    }
+}
@@ -32,12 +32,15 @@ class Zip64Impl {
     private static final long PK0304 = 0x04034b50L;
     private static final long PK0506 = 0x06054b50L;
     private static final long PK0708 = 0x08074b50L;
+    private static final long PK0606 = 0x06064b50L;
+    private static final long PK0607 = 0x07064b50L;
 
     private static final int VERSION_20 = 20;
     private static final int VERSION_45 = 45;
     private static final int DATA_DESCRIPTOR_USED = 0x08;
     private static final int ZIP64_FIELD = 0x0001;
     private static final long MAX32 = 0xffffffffL;
+    private static final int MAX16 = 0xffff;
 
     private final OutputStream out;
     private int written = 0;
@@ -46,8 +49,8 @@ class Zip64Impl {
         final String filename;
         long crc;
         long size;
-        int compressedSize;
-        int offset;
+        long compressedSize;
+        long offset;
 
         Entry(String filename) {
             this.filename = filename;
@@ -95,7 +98,11 @@ class Zip64Impl {
      */
     int writeCEN(Entry entry) throws IOException {
         written = 0;
-        boolean useZip64 = entry.size > MAX32;
+        boolean zip64Size = entry.size >= MAX32;
+        boolean zip64CompressedSize = entry.compressedSize >= MAX32;
+        boolean zip64Offset = entry.offset >= MAX32;
+        int zip64Fields = (zip64Size ? 1 : 0) + (zip64CompressedSize ? 1 : 0) + (zip64Offset ? 1 : 0);
+        boolean useZip64 = zip64Fields > 0;
         writeInt(PK0102);                              // "PK\001\002"
         writeShort(VERSION_45);                        // version made by: 4.5
         writeShort(useZip64 ? VERSION_45 : VERSION_20);// version required: 4.5
@@ -103,40 +110,69 @@ class Zip64Impl {
         writeShort(ZipEntry.DEFLATED);                 // compression method: 8 = deflate
         writeInt(0);                                // file modification time & date
         writeInt(entry.crc);                           // CRC-32
-        writeInt(entry.compressedSize);                // compressed size
-        writeInt(useZip64 ? MAX32 : entry.size); // uncompressed size
+        writeInt(zip64CompressedSize ? MAX32 : entry.compressedSize); // compressed size
+        writeInt(zip64Size ? MAX32 : entry.size);      // uncompressed size
         writeShort(entry.filename.length());           // filename length
         writeShort(useZip64
-                ? (2 + 2 + 8)  /* short + short + long*/
+                ? (2 + 2 + 8 * zip64Fields)  /* short + short + longs*/
                 : 0);                                  // extra field len
         writeShort(0);                              // comment length
         writeShort(0);                              // disk number where file starts
         writeShort(0);                              // internal file attributes (unused)
         writeInt(0);                                // external file attributes (unused)
-        writeInt(entry.offset);                        // LFH offset
+        writeInt(zip64Offset ? MAX32 : entry.offset);  // LFH offset
         byte[] filenameBytes = entry.filename.getBytes(US_ASCII);
         out.write(filenameBytes);                      // filename characters
         if (useZip64) {
             // Extra field:
             writeShort(ZIP64_FIELD);                   // ZIP64 field signature
-            writeShort(8);                          // size of extra field (below)
-            writeLong(entry.size);                     // uncompressed size
+            writeShort(8 * zip64Fields);               // size of extra field (below)
+            if (zip64Size) {
+                writeLong(entry.size);                 // uncompressed size
+            }
+            if (zip64CompressedSize) {
+                writeLong(entry.compressedSize);       // compressed size
+            }
+            if (zip64Offset) {
+                writeLong(entry.offset);               // LFH offset
+            }
         }
         return written + filenameBytes.length;
     }
 
     /**
-     * Write End of central directory record (EOCD)
+     * Write End of central directory record (EOCD), preceded by the Zip64 EOCD record
+     * and locator if the central directory is too large or starts too far for the EOCD
+     *
+     * @param offset the offset of the central directory, which is directly followed by the EOCD
      */
-    int writeEND(int entriesCount, int offset, int length) throws IOException {
+    int writeEND(int entriesCount, long offset, long length) throws IOException {
         written = 0;
+        boolean useZip64 = entriesCount >= MAX16 || offset >= MAX32 || length >= MAX32;
+        if (useZip64) {
+            writeInt(PK0606);         // "PK\006\006"
+            writeLong(44);            // size of the remaining Zip64 EOCD record
+            writeShort(VERSION_45);   // version made by: 4.5
+            writeShort(VERSION_45);   // version required: 4.5
+            writeInt(0);           // number of this disk
+            writeInt(0);           // central directory start disk
+            writeLong(entriesCount);  // number of directory entries on disk
+            writeLong(entriesCount);  // total number of directory entries
+            writeLong(length);        // length of central directory
+            writeLong(offset);        // offset of central directory
+
+            writeInt(PK0607);         // "PK\006\007"
+            writeInt(0);           // disk of the Zip64 EOCD record
+            writeLong(offset + length); // offset of the Zip64 EOCD record
+            writeInt(1);           // total number of disks
+        }
         writeInt(PK0506);         // "PK\005\006"
         writeShort(0);         // number of this disk
         writeShort(0);         // central directory start disk
-        writeShort(entriesCount); // number of directory entries on disk
-        writeShort(entriesCount); // total number of directory entries
-        writeInt(length);         // length of central directory
-        writeInt(offset);         // offset of central directory
+        writeShort(Math.min(entriesCount, MAX16)); // number of directory entries on disk
+        writeShort(Math.min(entriesCount, MAX16)); // total number of directory entries
+        writeInt(Math.min(length, MAX32));         // length of central directory
+        writeInt(Math.min(offset, MAX32));         // offset of central directory
         writeShort(0);         // comment length
         return written;
     }
@@ -25,6 +25,7 @@ import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.EvaluationName;
 import org.apache.poi.ss.formula.EvaluationWorkbook;
 import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParseCache;
 import org.apache.poi.ss.formula.FormulaParsingWorkbook;
 import org.apache.poi.ss.formula.FormulaRenderingWorkbook;
 import org.apache.poi.ss.formula.FormulaType;
@@ -55,7 +56,7 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
 
     // lazily populated. This should only be accessed through getTableCache
     // keys are lower-case to make this a quasi-case-insensitive map
-    private Map<String, XSSFTable> _tableCache;
+    private volatile Map<String, XSSFTable> _tableCache;
 
 
     protected BaseXSSFEvaluationWorkbook(XSSFWorkbook book) {
@@ -361,17 +362,19 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
      *       Perhaps tables can be managed similar to PivotTable references above?
      */
     private Map<String, XSSFTable> getTableCache() {
-        if ( _tableCache != null ) {
-            return _tableCache;
+        Map<String, XSSFTable> tableCache = _tableCache;
+        if ( tableCache != null ) {
+            return tableCache;
         }
-        _tableCache = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+        tableCache = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
 
         for (Sheet sheet : _uBook) {
             for (XSSFTable tbl : ((XSSFSheet)sheet).getTables()) {
-                _tableCache.put(tbl.getName(), tbl);
+                tableCache.put(tbl.getName(), tbl);
             }
         }
-        return _tableCache;
+        _tableCache = tableCache;
+        return tableCache;
     }
 
     /**
@@ -400,6 +403,11 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
         return SpreadsheetVersion.EXCEL2007;
     }
 
+    @Override
+    public FormulaParseCache getFormulaParseCache() {
+        return _uBook.getFormulaParseCache();
+    }
+
     private static final class Name implements EvaluationName {
 
         private final XSSFName _nameRecord;
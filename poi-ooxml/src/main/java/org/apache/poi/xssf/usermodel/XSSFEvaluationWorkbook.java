@@ -17,8 +17,8 @@
 
 package org.apache.poi.xssf.usermodel;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationSheet;
@@ -32,7 +32,7 @@ import org.apache.poi.util.Internal;
  */
 @Internal
 public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
-    private final Map<XSSFSheet, XSSFEvaluationSheet> _sheetCache = new HashMap<>();
+    private final Map<XSSFSheet, XSSFEvaluationSheet> _sheetCache = new ConcurrentHashMap<>();
 
     public static XSSFEvaluationWorkbook create(XSSFWorkbook book) {
         if (book == null) {
@@ -54,6 +54,17 @@ public final class XSSFEvaluationWorkbook extends BaseXSSFEvaluationWorkbook {
         _sheetCache.clear();
     }
 
+    /**
+     * The sheets of an XSSF workbook are parsed completely, when the workbook is loaded,
+     * and the cell values are read from the XML beans, which synchronize on their document.
+     *
+     * @since POI 5.2.4
+     */
+    @Override
+    public boolean isConcurrentReadSafe() {
+        return true;
+    }
+
     @Override
     public int getSheetIndex(EvaluationSheet evalSheet) {
         XSSFSheet sheet = ((XSSFEvaluationSheet)evalSheet).getXSSFSheet();
@@ -37,6 +37,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
@@ -67,6 +70,7 @@ import org.apache.poi.poifs.filesystem.DirectoryNode;
 import org.apache.poi.poifs.filesystem.Ole10Native;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaParseCache;
 import org.apache.poi.ss.formula.SheetNameFormatter;
 import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
 import org.apache.poi.ss.formula.udf.IndexedUDFFinder;
@@ -155,6 +159,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      */
     private final IndexedUDFFinder _udfFinder = new IndexedUDFFinder(AggregatingUDFFinder.DEFAULT);
 
+    /**
+     * The cache of the parsed formulas, {@code null} if the formulas aren't cached
+     */
+    private volatile FormulaParseCache _formulaParseCache;
+
     private CalculationChain calcChain;
 
     /**
@@ -208,6 +217,18 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
 
     private final XSSFFactory xssfFactory;
 
+    /**
+     * Executor used to parse the worksheet parts concurrently while the workbook is loaded,
+     * {@code null} if the sheets are parsed sequentially
+     */
+    private final Executor sheetParsingExecutor;
+
+    /**
+     * Sheet parse tasks which have been handed to the {@link #sheetParsingExecutor}
+     * and have not been awaited yet
+     */
+    private List<CompletableFuture<Void>> pendingSheetReads;
+
     /**
      * Create a new SpreadsheetML workbook.
      */
@@ -230,6 +251,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
     private XSSFWorkbook(XSSFWorkbookType workbookType, XSSFFactory factory) {
         super(newPackage(workbookType));
         this.xssfFactory = (factory == null) ? XSSFFactory.getInstance() : factory;
+        this.sheetParsingExecutor = null;
         onWorkbookCreate();
     }
 
@@ -251,8 +273,35 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
      * input format
      */
     public XSSFWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, null);
+    }
+
+    /**
+     * Constructs a XSSFWorkbook object given a OpenXML4J {@code Package} object and
+     *  parses the worksheet parts concurrently on the given executor.
+     *
+     * <p>The workbook-wide parts, e.g. the shared strings and the styles, are loaded
+     *  before any worksheet is parsed. Each worksheet part is then parsed as a separate task
+     *  on the executor and the constructor returns after all of them have finished.
+     *  The executor is not shut down by the workbook.
+     *
+     * <p>Parsing is only worthwhile for workbooks with several large sheets.
+     *  Other than the loading of the sheets, the resulting workbook is the same as
+     *  one opened via {@link #XSSFWorkbook(OPCPackage)} and is not thread-safe.
+     *
+     * @param pkg the OpenXML4J {@code OPC Package} object.
+     * @param sheetParsingExecutor the executor to parse the sheets with,
+     *  or {@code null} to parse them sequentially on the calling thread
+     * @throws IOException If reading data from the package fails
+     * @throws POIXMLException a RuntimeException that can be caused by invalid OOXML data
+     * @throws IllegalStateException a number of other runtime exceptions can be thrown, especially if there are problems with the
+     * input format
+     * @since POI 5.2.4
+     */
+    public XSSFWorkbook(OPCPackage pkg, Executor sheetParsingExecutor) throws IOException {
         super(pkg);
         this.xssfFactory = XSSFFactory.getInstance();
+        this.sheetParsingExecutor = sheetParsingExecutor;
 
         beforeDocumentRead();
 
@@ -432,10 +481,19 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
                 throw new POIXMLException("Cannot read a workbook without sheets");
             }
 
+            if (sheetParsingExecutor != null) {
+                pendingSheetReads = new ArrayList<>();
+                pivotTables = Collections.synchronizedList(pivotTables);
+            }
+
             for (CTSheet ctSheet : this.workbook.getSheets().getSheetArray()) {
                 parseSheet(shIdMap, ctSheet);
             }
 
+            if (sheetParsingExecutor != null) {
+                awaitSheetReads();
+            }
+
             // Load the external links tables. Their order is defined by the order
             //  of CTExternalReference elements in the workbook
             externalLinks = new ArrayList<>(elIdMap.size());
@@ -472,10 +530,47 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
             return;
         }
         sh.sheet = ctSheet;
-        sh.onDocumentRead();
+        if (sheetParsingExecutor == null) {
+            sh.onDocumentRead();
+        } else {
+            pendingSheetReads.add(CompletableFuture.runAsync(sh::onDocumentRead, sheetParsingExecutor));
+        }
         sheets.add(sh);
     }
 
+    /**
+     * Waits for the sheets which are parsed by the {@link #sheetParsingExecutor}
+     * and rethrows the first failure, if any
+     */
+    private void awaitSheetReads() {
+        try {
+            CompletableFuture.allOf(pendingSheetReads.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new POIXMLException(cause);
+        } finally {
+            pendingSheetReads = null;
+        }
+
+        // the sheets have registered their pivot tables in the order they were parsed,
+        // restore the sheet order of a sequential load
+        List<XSSFPivotTable> orderedPivotTables = new ArrayList<>(pivotTables.size());
+        for (XSSFSheet sh : sheets) {
+            for (RelationPart rp : sh.getRelationParts()) {
+                if (rp.getDocumentPart() instanceof XSSFPivotTable) {
+                    orderedPivotTables.add((XSSFPivotTable)rp.getDocumentPart());
+                }
+            }
+        }
+        pivotTables = orderedPivotTables;
+    }
+
     /**
      * Create a new CTWorkbook with all values set to default
      */
@@ -2281,6 +2376,26 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook, Date1904Su
         _udfFinder.add(toolpack);
     }
 
+    /**
+     * Caches the tokens of the parsed formulas of this workbook, so formulas of the same shape,
+     * e.g. {@code A1*B1} and {@code A2*B2}, are only parsed once when they are set or evaluated.
+     * Only formulas without names and sheet references are cached.
+     *
+     * @param maxFormulas the maximum number of cached formulas, 0 to disable the cache
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setFormulaParseCacheSize(int maxFormulas) {
+        _formulaParseCache = (maxFormulas > 0) ? new FormulaParseCache(SpreadsheetVersion.EXCEL2007, maxFormulas) : null;
+    }
+
+    /**
+     * @return the cache of the parsed formulas or {@code null} if the formulas aren't cached
+     */
+    /*package*/ FormulaParseCache getFormulaParseCache() {
+        return _formulaParseCache;
+    }
+
     /**
      * Whether the application shall perform a full recalculation when the workbook is opened.
      * <p>
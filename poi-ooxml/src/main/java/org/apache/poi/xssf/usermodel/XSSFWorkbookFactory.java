@@ -20,6 +20,7 @@ package org.apache.poi.xssf.usermodel;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
 
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
@@ -114,8 +115,29 @@ public class XSSFWorkbookFactory implements WorkbookProvider {
      *  @throws IOException if an error occurs while reading the data
      */
     public static XSSFWorkbook createWorkbook(OPCPackage pkg) throws IOException {
+        return createWorkbook(pkg, null);
+    }
+
+    /**
+     * Creates a XSSFWorkbook from the given OOXML Package and parses the
+     *  worksheets concurrently on the given executor
+     *
+     * <p>Note that in order to properly release resources the
+     *  Workbook should be closed after use.</p>
+     *
+     *  @param pkg The {@link OPCPackage} opened for reading data.
+     *  @param sheetParsingExecutor the executor to parse the sheets with,
+     *      or {@code null} to parse them sequentially
+     *
+     *  @return The created Workbook
+     *
+     *  @throws IOException if an error occurs while reading the data
+     *  @see XSSFWorkbook#XSSFWorkbook(OPCPackage, Executor)
+     *  @since POI 5.2.4
+     */
+    public static XSSFWorkbook createWorkbook(OPCPackage pkg, Executor sheetParsingExecutor) throws IOException {
         try {
-            return new XSSFWorkbook(pkg);
+            return new XSSFWorkbook(pkg, sheetParsingExecutor);
         } catch (RuntimeException ioe) {
             // ensure that file handles are closed (use revert() to not re-write the file)
             pkg.revert();
@@ -0,0 +1,100 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.BaseFormulaEvaluator;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the interpreted and the compiled formula evaluation
+ * on a large sheet with formulas copied down the rows.
+ * Run with the GC profiler to compare the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class FormulaCompilationBench {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"HSSF", "XSSF"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private Workbook wb;
+    private Sheet sheet;
+    private FormulaEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        wb = "HSSF".equals(format) ? new HSSFWorkbook() : new XSSFWorkbook();
+        sheet = wb.createSheet();
+        for (int r = 0; r < ROWS; r++) {
+            Row row = sheet.createRow(r);
+            int rn = r + 1;
+            row.createCell(0).setCellValue(r);
+            row.createCell(1).setCellValue(r % 7);
+            row.createCell(2).setCellFormula("A" + rn + "*B" + rn + "+$A$1");
+            row.createCell(3).setCellFormula("IF(B" + rn + ">3,C" + rn + "/2,-C" + rn + ")");
+            row.createCell(4).setCellFormula("ROUND(D" + rn + "*1.19,2)&\" EUR\"");
+        }
+        evaluator = wb.getCreationHelper().createFormulaEvaluator();
+        ((BaseFormulaEvaluator) evaluator).setCompiledEvaluation(compiled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wb.close();
+    }
+
+    @Benchmark
+    public void benchEvaluateCopyDown(Blackhole bh) {
+        evaluator.clearAllCachedResultValues();
+        for (Row row : sheet) {
+            for (int c = 2; c <= 4; c++) {
+                bh.consume(evaluator.evaluate(row.getCell(c)));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + FormulaCompilationBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
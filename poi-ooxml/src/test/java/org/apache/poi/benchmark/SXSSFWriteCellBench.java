@@ -0,0 +1,132 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cells/sec of {@link SheetDataWriter#writeRow(int, SXSSFRow)}, i.e. the
+ * XML encoding of SXSSF cells without the I/O. The rows mix numeric, integral, styled,
+ * string and boolean cells. Run with the GC profiler to see the allocation per cell.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SXSSFWriteCellBench {
+
+    private static final int ROWS = 1000;
+    private static final int COLUMNS = 50;
+
+    private SXSSFWorkbook wb;
+    private SXSSFRow row;
+    private SheetDataWriter writer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // keep all rows in memory, the benchmark writes the row on its own
+        wb = new SXSSFWorkbook(-1);
+        SXSSFSheet sheet = wb.createSheet();
+        CellStyle style = wb.createCellStyle();
+        style.setDataFormat(wb.createDataFormat().getFormat("0.00"));
+
+        row = sheet.createRow(0);
+        for (int c = 0; c < COLUMNS; c++) {
+            switch (c % 5) {
+                case 0:
+                    row.createCell(c).setCellValue(c * 1000);
+                    break;
+                case 1:
+                    row.createCell(c).setCellValue(c * 3.14159);
+                    break;
+                case 2:
+                    row.createCell(c).setCellValue("text " + c);
+                    break;
+                case 3:
+                    row.createCell(c).setCellValue(c % 2 == 0);
+                    break;
+                default:
+                    row.createCell(c).setCellValue(c / 7.0);
+                    row.getCell(c).setCellStyle(style);
+                    break;
+            }
+        }
+        writer = new SheetDataWriter(new NullWriter());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writer.close();
+        wb.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS * COLUMNS)
+    public void benchWriteCells() throws IOException {
+        for (int r = 0; r < ROWS; r++) {
+            writer.writeRow(r, row);
+        }
+    }
+
+    private static final class NullWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(int c) {
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + SXSSFWriteCellBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
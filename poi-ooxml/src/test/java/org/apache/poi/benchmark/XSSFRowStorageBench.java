@@ -0,0 +1,119 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the row/cell storage of {@link XSSFSheet} and {@link XSSFRow}:
+ * loading a large test-data workbook, random access via getRow/getCell,
+ * iteration and creating rows.
+ * Run with the GC profiler to compare the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class XSSFRowStorageBench {
+
+    private static final String TEST_FILE = "58325_db.xlsx";
+
+    private XSSFWorkbook wb;
+    private XSSFSheet sheet;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        wb = XSSFTestDataSamples.openSampleWorkbook(TEST_FILE);
+        sheet = wb.getSheetAt(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wb.close();
+    }
+
+    @Benchmark
+    public void benchLoad(Blackhole bh) throws IOException {
+        try (XSSFWorkbook wb2 = XSSFTestDataSamples.openSampleWorkbook(TEST_FILE)) {
+            bh.consume(wb2.getSheetAt(0).getLastRowNum());
+        }
+    }
+
+    @Benchmark
+    public void benchGetRowGetCell(Blackhole bh) {
+        final int lastRow = sheet.getLastRowNum();
+        for (int r = 0; r <= lastRow; r++) {
+            XSSFRow row = sheet.getRow(r);
+            if (row == null) {
+                continue;
+            }
+            final short lastCell = row.getLastCellNum();
+            for (int c = 0; c < lastCell; c++) {
+                bh.consume(row.getCell(c));
+            }
+        }
+    }
+
+    @Benchmark
+    public void benchIterate(Blackhole bh) {
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                bh.consume(cell);
+            }
+        }
+    }
+
+    @Benchmark
+    public void benchCreateRows(Blackhole bh) throws IOException {
+        try (XSSFWorkbook wb2 = new XSSFWorkbook()) {
+            XSSFSheet sh = wb2.createSheet();
+            for (int r = 0; r < 50_000; r++) {
+                XSSFRow row = sh.createRow(r);
+                for (int c = 0; c < 10; c++) {
+                    row.createCell(c).setCellValue(r * c);
+                }
+            }
+            bh.consume(sh.getPhysicalNumberOfRows());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + XSSFRowStorageBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
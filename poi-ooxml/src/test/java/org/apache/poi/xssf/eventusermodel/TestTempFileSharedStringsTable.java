@@ -0,0 +1,102 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests for {@link TempFileSharedStringsTable}
+ */
+final class TestTempFileSharedStringsTable {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SampleSS.xlsx", "MalformedSSTCount.xlsx", "51519.xlsx"})
+    void testMatchesReadOnlyTable(String file) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(file))) {
+            List<PackagePart> parts = pkg.getPartsByName(Pattern.compile("/xl/sharedStrings.xml"));
+            assertEquals(1, parts.size());
+
+            for (boolean phonetic : new boolean[]{true, false}) {
+                ReadOnlySharedStringsTable rtbl = new ReadOnlySharedStringsTable(parts.get(0), phonetic);
+                try (TempFileSharedStringsTable ttbl = new TempFileSharedStringsTable(parts.get(0), phonetic)) {
+                    assertEquals(rtbl.getCount(), ttbl.getCount());
+                    assertEquals(rtbl.getUniqueCount(), ttbl.getUniqueCount());
+                    for (int i = 0; i < ttbl.getSize(); i++) {
+                        assertEquals(rtbl.getItemAt(i).getString(), ttbl.getItemAt(i).getString());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSpecialCharacters() throws Exception {
+        String xml = "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"3\" uniqueCount=\"3\">" +
+            "<si><t></t></si>" +
+            "<si><r><t>ä€</t></r><r><t>😀</t></r></si>" +
+            "<si><t>last</t></si>" +
+            "</sst>";
+        try (TempFileSharedStringsTable tbl = new TempFileSharedStringsTable(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), true)) {
+            assertEquals(3, tbl.getSize());
+            assertEquals("", tbl.getItemAt(0).getString());
+            assertEquals("ä€😀", tbl.getItemAt(1).getString());
+            assertEquals("last", tbl.getItemAt(2).getString());
+            assertThrows(IllegalStateException.class, () -> tbl.getItemAt(3));
+
+            tbl.close();
+            assertThrows(IllegalStateException.class, () -> tbl.getItemAt(0));
+        }
+    }
+
+    @Test
+    void testXSSFReader() throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("SampleSS.xlsx"))) {
+            XSSFReader reader = new XSSFReader(pkg);
+            reader.setUseTempFileSharedStringsTable(true);
+            SharedStrings sst = reader.getSharedStringsTable();
+            assertInstanceOf(TempFileSharedStringsTable.class, sst);
+            try (TempFileSharedStringsTable tbl = (TempFileSharedStringsTable)sst;
+                 InputStream is = reader.getSharedStringsData()) {
+                ReadOnlySharedStringsTable rtbl = new ReadOnlySharedStringsTable(is, true);
+                assertEquals(rtbl.getUniqueCount(), tbl.getUniqueCount());
+                assertEquals(rtbl.getUniqueCount(), tbl.getSize());
+                for (int i = 0; i < tbl.getSize(); i++) {
+                    assertEquals(rtbl.getItemAt(i).getString(), tbl.getItemAt(i).getString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.SuppressForbidden;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+class TestXSSFParallelSheetScanner {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+    private static final String[] FILES = {"SampleSS.xlsx", "WithVariousData.xlsx", "ExcelPivotTableSample.xlsx"};
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @SuppressForbidden("test code")
+    void testMatchesSequentialParsing(boolean ordered) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (String file : FILES) {
+                try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(file))) {
+                    XSSFReader reader = new XSSFReader(pkg);
+                    List<String> expected = readSequential(reader);
+
+                    Map<Integer, List<String>> sheets = ordered ? new TreeMap<>() : new ConcurrentHashMap<>();
+                    Thread caller = Thread.currentThread();
+                    XSSFParallelSheetScanner scanner = new XSSFParallelSheetScanner(reader);
+                    scanner.setOrdered(ordered);
+                    scanner.scan(executor, (index, name) -> {
+                        if (ordered) {
+                            // the ordered events are replayed on the calling thread in sheet order
+                            assertSame(caller, Thread.currentThread());
+                            assertEquals(sheets.size(), (int)index);
+                        }
+                        List<String> events = new ArrayList<>();
+                        events.add("sheet " + name);
+                        sheets.put(index, events);
+                        return new RecordingHandler(events);
+                    });
+
+                    List<String> actual = new ArrayList<>();
+                    new TreeMap<>(sheets).values().forEach(actual::addAll);
+                    assertEquals(expected, actual, file);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @SuppressForbidden("test code")
+    void testHandlerFailure(boolean ordered) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream("SampleSS.xlsx"))) {
+            XSSFParallelSheetScanner scanner = new XSSFParallelSheetScanner(new XSSFReader(pkg));
+            scanner.setOrdered(ordered);
+            AtomicInteger events = new AtomicInteger();
+            IllegalStateException ex = assertThrows(IllegalStateException.class, () ->
+                scanner.scan(executor, (index, name) -> new RecordingHandler(new ArrayList<>()) {
+                    @Override
+                    public void startRow(int rowNum) {
+                        events.incrementAndGet();
+                    }
+
+                    @Override
+                    public void endSheet() {
+                        throw new IllegalStateException("failed " + name);
+                    }
+                }));
+            assertEquals("failed ", ex.getMessage().substring(0, 7));
+
+            // all workers have finished when scan() fails, i.e. the handlers aren't called anymore
+            int eventsAfterFailure = events.get();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+            assertEquals(eventsAfterFailure, events.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<String> readSequential(XSSFReader reader) throws Exception {
+        SharedStrings strings = new ReadOnlySharedStringsTable(reader.pkg);
+        List<String> events = new ArrayList<>();
+        XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator)reader.getSheetsData();
+        while (iter.hasNext()) {
+            try (InputStream stream = iter.next()) {
+                events.add("sheet " + iter.getSheetName());
+                XMLReader sheetParser = XMLHelper.newXMLReader();
+                sheetParser.setContentHandler(new XSSFSheetXMLHandler(
+                    reader.getStylesTable(), strings, new RecordingHandler(events), false));
+                sheetParser.parse(new InputSource(stream));
+            }
+        }
+        return events;
+    }
+
+    private static class RecordingHandler implements SheetContentsHandler {
+        private final List<String> events;
+
+        RecordingHandler(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            events.add("start " + rowNum);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            events.add("end " + rowNum);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            events.add(cellReference + "=" + formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            events.add(tagName + "=" + text);
+        }
+
+        @Override
+        public void endSheet() {
+            events.add("endSheet");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetRowIterator.ReadOnlyCell;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetRowIterator.ReadOnlyRow;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+class TestXSSFSheetRowIterator {
+    private static final POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"SampleSS.xlsx", "WithVariousData.xlsx", "InlineString.xlsx", "sample.xlsx"})
+    void testMatchesSheetXMLHandler(String file) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(file))) {
+            XSSFReader reader = new XSSFReader(pkg);
+            StylesTable styles = reader.getStylesTable();
+            SharedStrings strings = new ReadOnlySharedStringsTable(pkg);
+            DataFormatter formatter = new DataFormatter();
+
+            XSSFReader.SheetIterator handlerIter = (XSSFReader.SheetIterator)reader.getSheetsData();
+            XSSFReader.SheetIterator rowIter = (XSSFReader.SheetIterator)reader.getSheetsData();
+            while (handlerIter.hasNext()) {
+                List<String> expected = new ArrayList<>();
+                try (InputStream stream = handlerIter.next()) {
+                    XMLReader sheetParser = XMLHelper.newXMLReader();
+                    sheetParser.setContentHandler(new XSSFSheetXMLHandler(styles, strings, new SheetContentsHandler() {
+                        @Override
+                        public void startRow(int rowNum) {
+                        }
+
+                        @Override
+                        public void endRow(int rowNum) {
+                        }
+
+                        @Override
+                        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+                            expected.add(cellReference + "=" + formattedValue);
+                        }
+                    }, formatter, false));
+                    sheetParser.parse(new InputSource(stream));
+                }
+
+                assertTrue(rowIter.hasNext());
+                List<String> actual = new ArrayList<>();
+                try (XSSFSheetRowIterator rows = rowIter.nextRowIterator(strings, styles)) {
+                    assertEquals(handlerIter.getSheetName(), rowIter.getSheetName());
+                    while (rows.hasNext()) {
+                        ReadOnlyRow row = rows.next();
+                        for (ReadOnlyCell cell : row) {
+                            if (cell.getCellType() != CellType.BLANK) {
+                                actual.add(new CellAddress(row.getRowNum(), cell.getColumnIndex())
+                                        + "=" + cell.getFormattedValue(formatter));
+                            }
+                        }
+                    }
+                }
+                assertEquals(expected, actual, file + " / " + rowIter.getSheetName());
+            }
+            assertFalse(rowIter.hasNext());
+        }
+    }
+
+    @Test
+    void testCellTypes() throws Exception {
+        String xml = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>" +
+            "<row><c t=\"inlineStr\"><is><r><t>ab</t></r><r><t>c</t></r><rPh><t>x</t></rPh></is></c>" +
+            "<c t=\"b\"><v>1</v></c><c r=\"E1\" t=\"e\"><v>#DIV/0!</v></c></row>" +
+            "<row r=\"5\"><c r=\"AA5\"><f>SUM(A1:B1)</f><v>3</v></c><c t=\"str\"><f>\"a\"&amp;\"b\"</f><v>ab</v></c>" +
+            "<c s=\"0\"/></row>" +
+            "<row/>" +
+            "</sheetData></worksheet>";
+        try (XSSFSheetRowIterator rows = open(xml)) {
+            ReadOnlyRow row = rows.next();
+            assertEquals(0, row.getRowNum());
+            assertEquals(3, row.getPhysicalNumberOfCells());
+            assertEquals("abc", row.getCell(0).getStringCellValue());
+            assertEquals(CellType.BOOLEAN, row.getCell(1).getCellType());
+            assertTrue(row.getCell(1).getBooleanCellValue());
+            assertNull(row.getCell(2));
+            ReadOnlyCell error = row.getCell(4);
+            assertSame(error, row.getCellAt(2));
+            assertEquals(CellType.ERROR, error.getCellType());
+            assertEquals(FormulaError.DIV0.getCode(), error.getErrorCellValue());
+            assertThrows(IllegalStateException.class, error::getNumericCellValue);
+
+            ReadOnlyRow row2 = rows.next();
+            assertSame(row, row2);
+            assertEquals(4, row2.getRowNum());
+            ReadOnlyCell sum = row2.getCellAt(0);
+            assertEquals(26, sum.getColumnIndex());
+            assertEquals(CellType.FORMULA, sum.getCellType());
+            assertEquals(CellType.NUMERIC, sum.getCachedFormulaResultType());
+            assertEquals("SUM(A1:B1)", sum.getCellFormula());
+            assertEquals(3, sum.getNumericCellValue(), 0);
+            ReadOnlyCell concat = row2.getCell(27);
+            assertEquals(CellType.STRING, concat.getCachedFormulaResultType());
+            assertEquals("ab", concat.getStringCellValue());
+            assertEquals(CellType.BLANK, row2.getCell(28).getCellType());
+            assertThrows(IllegalStateException.class, () -> row2.getCell(28).getCellFormula());
+
+            ReadOnlyRow row3 = rows.next();
+            assertEquals(5, row3.getRowNum());
+            assertEquals(0, row3.getPhysicalNumberOfCells());
+            assertFalse(rows.hasNext());
+            assertThrows(NoSuchElementException.class, rows::next);
+        }
+    }
+
+    @Test
+    void testStream() throws Exception {
+        StringBuilder xml = new StringBuilder("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        for (int i = 1; i <= 1000; i++) {
+            xml.append("<row r=\"").append(i).append("\"><c r=\"A").append(i).append("\"><v>").append(i).append("</v></c></row>");
+        }
+        xml.append("</sheetData></worksheet>");
+
+        try (XSSFSheetRowIterator rows = open(xml.toString())) {
+            List<Integer> evens = rows.stream()
+                .map(row -> (int)row.getCellAt(0).getNumericCellValue())
+                .filter(i -> i % 2 == 0)
+                .collect(Collectors.toList());
+            assertEquals(500, evens.size());
+            assertEquals(1000, (int)evens.get(499));
+        }
+    }
+
+    private static XSSFSheetRowIterator open(String xml) throws Exception {
+        return new XSSFSheetRowIterator(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), null, null);
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.apache.poi.xssf.model;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -24,13 +25,19 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.SuppressForbidden;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.apache.poi.xssf.usermodel.XSSFFont;
 import org.apache.poi.xssf.usermodel.XSSFRichTextString;
@@ -241,4 +248,68 @@ public final class TestSharedStringsTable {
         assertNotNull(w3);
         w3.close();
     }
+
+    @Test
+    @SuppressForbidden("test code")
+    void addConcurrently() throws Exception {
+        SharedStringsTable sst = new SharedStringsTable();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    // all threads add the same strings, the indexes have to be the same
+                    int[] indexes = new int[1000];
+                    for (int i = 0; i < indexes.length; i++) {
+                        indexes[i] = sst.addSharedStringItem(new XSSFRichTextString("string " + i));
+                    }
+                    return indexes;
+                }));
+            }
+            int[] expected = results.get(0).get();
+            for (Future<int[]> result : results) {
+                int[] indexes = result.get();
+                for (int i = 0; i < indexes.length; i++) {
+                    assertEquals(expected[i], indexes[i]);
+                    assertEquals("string " + i, sst.getItemAt(indexes[i]).getString());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4000, sst.getCount());
+        assertEquals(1000, sst.getUniqueCount());
+        assertEquals(1000, sst.getSharedStringItems().size());
+    }
+
+    @Test
+    void sortWriteOrder() throws IOException {
+        SharedStringsTable sst = new SharedStringsTable();
+        String[] values = {"first", "c", "a", "b"};
+        for (String value : values) {
+            sst.addSharedStringItem(new XSSFRichTextString(value));
+        }
+
+        int[] mapping = sst.sortWriteOrder(1);
+        assertArrayEquals(new int[]{0, 3, 1, 2}, mapping);
+        // the entries of the table itself keep their index
+        assertEquals("c", sst.getItemAt(1).getString());
+
+        SharedStringsTable written = new SharedStringsTable();
+        try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
+            sst.writeTo(bos);
+            written.readFrom(bos.toInputStream());
+        }
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], written.getItemAt(mapping[i]).getString());
+        }
+
+        sst.clearWriteOrder();
+        try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
+            sst.writeTo(bos);
+            written = new SharedStringsTable();
+            written.readFrom(bos.toInputStream());
+        }
+        assertEquals("c", written.getItemAt(1).getString());
+    }
 }
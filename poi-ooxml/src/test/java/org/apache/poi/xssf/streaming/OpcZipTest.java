@@ -18,6 +18,7 @@
 package org.apache.poi.xssf.streaming;
 
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.util.LittleEndian;
 import org.junit.jupiter.api.Test;
 
 import java.io.PrintStream;
@@ -28,8 +29,11 @@ import java.util.Map;
 import java.util.zip.ZipEntry;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class OpcZipTest {
+    private static final long MAX32 = 0xffffffffL;
+
     @Test
     void compareOutput() throws Exception {
         Map<String, String> contents = createContents();
@@ -59,6 +63,39 @@ class OpcZipTest {
         }
     }
 
+    @Test
+    void zip64FieldsOfLargeEntries() throws Exception {
+        try (UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()) {
+            Zip64Impl spec = new Zip64Impl(bos);
+            Zip64Impl.Entry entry = new Zip64Impl.Entry("a.xml");
+            entry.size = 6_000_000_000L;
+            entry.compressedSize = 5_000_000_000L;
+            entry.offset = 4_500_000_000L;
+            int cenLength = spec.writeCEN(entry);
+            spec.writeEND(1, 9_600_000_000L, cenLength);
+            byte[] data = bos.toByteArray();
+
+            // the central directory header refers to its Zip64 extra field for all values beyond 4 GB
+            assertEquals(MAX32, LittleEndian.getUInt(data, 20));
+            assertEquals(MAX32, LittleEndian.getUInt(data, 24));
+            assertEquals(MAX32, LittleEndian.getUInt(data, 42));
+            int extra = 46 + "a.xml".length();
+            assertEquals(0x0001, LittleEndian.getUShort(data, extra));
+            assertEquals(24, LittleEndian.getUShort(data, extra + 2));
+            assertEquals(6_000_000_000L, LittleEndian.getLong(data, extra + 4));
+            assertEquals(5_000_000_000L, LittleEndian.getLong(data, extra + 12));
+            assertEquals(4_500_000_000L, LittleEndian.getLong(data, extra + 20));
+
+            // the Zip64 end of central directory record and its locator precede the end of central directory
+            assertEquals(0x06064b50L, LittleEndian.getUInt(data, cenLength));
+            assertEquals(9_600_000_000L, LittleEndian.getLong(data, cenLength + 48));
+            assertEquals(0x07064b50L, LittleEndian.getUInt(data, cenLength + 56));
+            assertEquals(9_600_000_000L + cenLength, LittleEndian.getLong(data, cenLength + 64));
+            assertEquals(0x06054b50L, LittleEndian.getUInt(data, cenLength + 76));
+            assertEquals(MAX32, LittleEndian.getUInt(data, cenLength + 92));
+        }
+    }
+
     private static Map<String, String> createContents() {
         Map<String, String> contents = new LinkedHashMap<>();
         for (int i = 0; i < 3; i++) {
@@ -34,7 +34,12 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
@@ -53,6 +58,7 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SuppressForbidden;
 import org.apache.poi.xssf.SXSSFITestDataProvider;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.apache.poi.xssf.model.SharedStringsTable;
@@ -676,6 +682,98 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
         }
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @SuppressForbidden("test code")
+    void compressSheetsConcurrently(boolean avoidTempFiles) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try (
+                SXSSFWorkbook workbook = new SXSSFWorkbook(10);
+                UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()
+        ) {
+            workbook.setCompressionExecutor(executor);
+            for (int s = 0; s < 4; s++) {
+                SXSSFSheet sheet = workbook.createSheet("sheet" + s);
+                for (int r = 0; r < 500; r++) {
+                    SXSSFRow row = sheet.createRow(r);
+                    row.createCell(0).setCellValue(s * 1000 + r);
+                    row.createCell(1).setCellValue("value " + r);
+                }
+            }
+            if (avoidTempFiles) {
+                workbook.writeAvoidingTempFiles(bos);
+            } else {
+                workbook.write(bos);
+            }
+
+            try (XSSFWorkbook xssfWorkbook = new XSSFWorkbook(bos.toInputStream())) {
+                assertEquals(4, xssfWorkbook.getNumberOfSheets());
+                for (int s = 0; s < 4; s++) {
+                    XSSFSheet xssfSheet = xssfWorkbook.getSheetAt(s);
+                    assertEquals("sheet" + s, xssfSheet.getSheetName());
+                    assertEquals(499, xssfSheet.getLastRowNum());
+                    for (int r = 0; r < 500; r++) {
+                        assertEquals(s * 1000 + r, xssfSheet.getRow(r).getCell(0).getNumericCellValue(), 0);
+                        assertEquals("value " + r, xssfSheet.getRow(r).getCell(1).getStringCellValue());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressForbidden("test code")
+    void fillSheetsConcurrentlyWithSharedStrings() throws Exception {
+        List<String> expectedStrings = null;
+        for (int run = 0; run < 2; run++) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try (
+                    SXSSFWorkbook workbook = new SXSSFWorkbook(null, 10, false, true);
+                    UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get()
+            ) {
+                workbook.setDeterministicSharedStrings(true);
+                List<Future<?>> fills = new ArrayList<>();
+                for (int s = 0; s < 4; s++) {
+                    SXSSFSheet sheet = workbook.createSheet("sheet" + s);
+                    final int sheetNum = s;
+                    fills.add(executor.submit(() -> {
+                        for (int r = 0; r < 300; r++) {
+                            // the strings overlap between the sheets
+                            sheet.createRow(r).createCell(0).setCellValue("value " + (sheetNum * 100 + r));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> fill : fills) {
+                    fill.get();
+                }
+                workbook.write(bos);
+
+                try (XSSFWorkbook xssfWorkbook = new XSSFWorkbook(bos.toInputStream())) {
+                    for (int s = 0; s < 4; s++) {
+                        XSSFSheet xssfSheet = xssfWorkbook.getSheetAt(s);
+                        for (int r = 0; r < 300; r++) {
+                            assertEquals("value " + (s * 100 + r), xssfSheet.getRow(r).getCell(0).getStringCellValue());
+                        }
+                    }
+                    SharedStringsTable sst = xssfWorkbook.getSharedStringSource();
+                    assertEquals(600, sst.getUniqueCount());
+                    List<String> strings = new ArrayList<>();
+                    sst.getSharedStringItems().forEach(rts -> strings.add(rts.getString()));
+                    if (expectedStrings == null) {
+                        expectedStrings = strings;
+                    } else {
+                        assertEquals(expectedStrings, strings);
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
     @Override
     @Disabled("not implemented")
     protected void changeSheetNameWithSharedFormulas() {
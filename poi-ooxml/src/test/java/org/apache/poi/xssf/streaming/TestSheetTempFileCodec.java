@@ -0,0 +1,162 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class TestSheetTempFileCodec {
+
+    static Stream<SheetTempFileCodec> codecs() {
+        return Stream.of(SheetTempFileCodec.NONE, SheetTempFileCodec.DEFLATE_FAST,
+            SheetTempFileCodec.deflate(9), SheetTempFileCodec.LZ);
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void roundTrip(SheetTempFileCodec codec) throws IOException {
+        Random rnd = new Random(1234);
+
+        byte[] random = new byte[200_000];
+        rnd.nextBytes(random);
+
+        StringBuilder sb = new StringBuilder();
+        for (int r = 0; sb.length() < 300_000; r++) {
+            sb.append("<row r=\"").append(r + 1).append("\"><c r=\"A").append(r + 1)
+                .append("\" t=\"n\"><v>").append(rnd.nextInt(1000)).append("</v></c></row>");
+        }
+        byte[] xml = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        byte[] repetitive = new byte[100_000];
+
+        for (byte[] data : new byte[][]{new byte[0], {42}, "abc".getBytes(StandardCharsets.UTF_8), random, xml, repetitive}) {
+            UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+            try (OutputStream os = codec.encode(bos)) {
+                // write in uneven chunks to cross the block boundaries
+                for (int off = 0; off < data.length; off += 9999) {
+                    os.write(data, off, Math.min(9999, data.length - off));
+                }
+            }
+            if (codec != SheetTempFileCodec.NONE && data == xml) {
+                assertTrue(bos.size() < data.length / 2, "compressed size " + bos.size());
+            }
+            try (InputStream is = codec.decode(bos.toInputStream())) {
+                assertArrayEquals(data, IOUtils.toByteArray(is));
+            }
+        }
+    }
+
+    @Test
+    void invalidDeflateLevel() {
+        assertThrows(IllegalArgumentException.class, () -> SheetTempFileCodec.deflate(10));
+    }
+
+    @Test
+    void corruptLZData() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (OutputStream os = SheetTempFileCodec.LZ.encode(bos)) {
+            os.write(new byte[10_000]);
+        }
+        byte[] data = bos.toByteArray();
+        byte[] truncated = new byte[data.length - 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        try (InputStream is = SheetTempFileCodec.LZ.decode(new ByteArrayInputStream(new byte[0]))) {
+            assertEquals(-1, is.read());
+        }
+        assertThrows(IOException.class, () -> {
+            try (InputStream is = SheetTempFileCodec.LZ.decode(new ByteArrayInputStream(truncated))) {
+                IOUtils.toByteArray(is);
+            }
+        });
+    }
+
+    @Test
+    void truncatedDeflateData() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (OutputStream os = SheetTempFileCodec.DEFLATE_FAST.encode(bos)) {
+            byte[] data = new byte[100_000];
+            new Random(1234).nextBytes(data);
+            os.write(data);
+        }
+        byte[] data = bos.toByteArray();
+        byte[] truncated = new byte[data.length / 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertThrows(EOFException.class, () -> {
+            try (InputStream is = SheetTempFileCodec.DEFLATE_FAST.decode(new ByteArrayInputStream(truncated))) {
+                IOUtils.toByteArray(is);
+            }
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecs")
+    void writeWorkbook(SheetTempFileCodec codec) throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        SheetTempFileMetrics metrics;
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(10)) {
+            wb.setTempFileCodec(codec);
+            SXSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 1000; r++) {
+                SXSSFRow row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r);
+                row.createCell(1).setCellValue("text " + r);
+            }
+            wb.write(bos);
+            metrics = wb.getTempFileMetrics();
+            assertTrue(wb.dispose());
+        }
+
+        assertTrue(metrics.getBytesWritten() > 0);
+        assertEquals(metrics.getBytesWritten(), metrics.getBytesRead());
+        assertEquals(metrics.getTempFileBytesWritten(), metrics.getTempFileBytesRead());
+        assertTrue(metrics.getWriteNanos() >= metrics.getTempFileWriteNanos());
+        if (codec == SheetTempFileCodec.NONE) {
+            assertEquals(1, metrics.getCompressionRatio(), 0);
+        } else {
+            assertTrue(metrics.getCompressionRatio() < 1);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            assertEquals(999, sheet.getLastRowNum());
+            for (int r = 0; r < 1000; r++) {
+                assertEquals(r, sheet.getRow(r).getCell(0).getNumericCellValue(), 0);
+                assertEquals("text " + r, sheet.getRow(r).getCell(1).getStringCellValue());
+            }
+        }
+    }
+}
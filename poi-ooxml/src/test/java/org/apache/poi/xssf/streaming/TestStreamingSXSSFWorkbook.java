@@ -0,0 +1,105 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+final class TestStreamingSXSSFWorkbook {
+
+    @Test
+    void writeSheetsInOrder() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (StreamingSXSSFWorkbook wb = new StreamingSXSSFWorkbook(bos, 10)) {
+            StreamingSXSSFSheet first = wb.createSheet("first");
+            first.setColumnWidth(0, 20 * 256);
+            for (int r = 0; r < 100; r++) {
+                first.createRow(r).createCell(0).setCellValue(r);
+                first.getRow(r).createCell(1).setCellValue("row " + r);
+            }
+            first.addMergedRegion(new CellRangeAddress(0, 0, 1, 3));
+
+            StreamingSXSSFSheet second = wb.createSheet("second");
+            assertTrue(first.isWritten());
+            assertFalse(second.isWritten());
+            assertThrows(IllegalStateException.class, () -> first.createRow(100));
+            assertThrows(IllegalStateException.class, () -> wb.removeSheetAt(0));
+            assertThrows(IllegalStateException.class, () -> wb.write(bos));
+
+            for (int r = 0; r < 25; r++) {
+                second.createRow(r).createCell(2).setCellValue(r % 2 == 0);
+            }
+
+            // a sheet without rows
+            wb.createSheet("empty");
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(3, wb.getNumberOfSheets());
+
+            XSSFSheet first = wb.getSheet("first");
+            assertEquals(99, first.getLastRowNum());
+            assertEquals(20 * 256, first.getColumnWidth(0));
+            assertEquals(1, first.getNumMergedRegions());
+            for (int r = 0; r < 100; r++) {
+                assertEquals(r, first.getRow(r).getCell(0).getNumericCellValue(), 0);
+                assertEquals("row " + r, first.getRow(r).getCell(1).getStringCellValue());
+            }
+
+            XSSFSheet second = wb.getSheet("second");
+            assertEquals(24, second.getLastRowNum());
+            for (int r = 0; r < 25; r++) {
+                assertEquals(r % 2 == 0, second.getRow(r).getCell(2).getBooleanCellValue());
+            }
+
+            assertEquals(-1, wb.getSheet("empty").getLastRowNum());
+        }
+    }
+
+    @Test
+    void sharedStringsTable() throws IOException {
+        UnsynchronizedByteArrayOutputStream bos = UnsynchronizedByteArrayOutputStream.builder().get();
+        try (StreamingSXSSFWorkbook wb = new StreamingSXSSFWorkbook(bos, 2, true)) {
+            StreamingSXSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 10; r++) {
+                sheet.createRow(r).createCell(0).setCellValue("value " + (r % 3));
+            }
+            wb.finish();
+            assertThrows(IllegalStateException.class, wb::createSheet);
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(bos.toInputStream())) {
+            assertEquals(3, wb.getSharedStringSource().getUniqueCount());
+            for (int r = 0; r < 10; r++) {
+                assertEquals("value " + (r % 3), wb.getSheetAt(0).getRow(r).getCell(0).getStringCellValue());
+            }
+        }
+    }
+}
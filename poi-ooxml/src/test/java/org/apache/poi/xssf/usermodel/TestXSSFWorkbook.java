@@ -56,6 +56,7 @@ import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.util.SuppressForbidden;
 import org.apache.poi.util.TempFile;
 import org.apache.poi.xddf.usermodel.chart.XDDFBarChartData;
 import org.apache.poi.xddf.usermodel.chart.XDDFChartData;
@@ -79,6 +80,8 @@ import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.CRC32;
 
 import static org.apache.poi.hssf.HSSFTestDataSamples.openSampleFileStream;
@@ -1427,6 +1430,44 @@ public final class TestXSSFWorkbook extends BaseTestXWorkbook {
         }
     }
 
+    @Test
+    @SuppressForbidden("test code")
+    void parseSheetsConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (String sample : new String[]{"ExcelPivotTableSample.xlsx", "SampleSS.xlsx", "57893-many-merges.xlsx"}) {
+                try (XSSFWorkbook expected = openSampleWorkbook(sample);
+                     XSSFWorkbook actual = XSSFWorkbookFactory.createWorkbook(
+                             OPCPackage.open(openSampleFileStream(sample)), executor)) {
+                    assertEquals(expected.getNumberOfSheets(), actual.getNumberOfSheets());
+                    assertEquals(expected.getPivotTables().size(), actual.getPivotTables().size());
+                    DataFormatter formatter = new DataFormatter();
+                    for (int i = 0; i < expected.getNumberOfSheets(); i++) {
+                        XSSFSheet expSheet = expected.getSheetAt(i);
+                        XSSFSheet actSheet = actual.getSheetAt(i);
+                        assertEquals(expSheet.getSheetName(), actSheet.getSheetName());
+                        assertEquals(expSheet.getPhysicalNumberOfRows(), actSheet.getPhysicalNumberOfRows());
+                        assertEquals(expSheet.getNumMergedRegions(), actSheet.getNumMergedRegions());
+                        for (Row expRow : expSheet) {
+                            Row actRow = actSheet.getRow(expRow.getRowNum());
+                            assertNotNull(actRow);
+                            for (Cell expCell : expRow) {
+                                Cell actCell = actRow.getCell(expCell.getColumnIndex());
+                                assertEquals(formatter.formatCellValue(expCell), formatter.formatCellValue(actCell));
+                            }
+                        }
+                    }
+                    for (int i = 0; i < expected.getPivotTables().size(); i++) {
+                        assertEquals(expected.getPivotTables().get(i).getPackagePart().getPartName(),
+                                actual.getPivotTables().get(i).getPackagePart().getPartName());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private static void expectFormattedContent(Cell cell, String value) {
         assertEquals(value, new DataFormatter().formatCellValue(cell),
                 "Cell " + ref(cell) + " has wrong formatted content.");
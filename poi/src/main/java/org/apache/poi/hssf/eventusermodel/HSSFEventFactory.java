@@ -148,6 +148,63 @@ public class HSSFEventFactory {
         return genericProcessEvents(req, in);
     }
 
+    /**
+     * Processes the records of a cursor into Record events.
+     * <p>
+     * Only the records with registered listeners are decoded, so listeners which handle only
+     * a few record types don't pay for the rest of the stream. Like {@link #processEvents(HSSFRequest, InputStream)},
+     * RK and MULRK records are passed as {@link NumberRecord}s and DBCELL records are skipped, but continue records
+     * are only passed to the listeners of {@link ContinueRecord}s and drawing group records aren't joined.
+     *
+     * @param req    an Instance of HSSFRequest which has your registered listeners
+     * @param cursor the cursor over the workbook stream, e.g. from {@link HSSFRecordCursor#create(DirectoryNode)}
+     * @since POI 5.2.4
+     */
+    public void processEvents(HSSFRequest req, HSSFRecordCursor cursor) {
+        try {
+            abortableProcessEvents(req, cursor);
+        } catch (HSSFUserException hue) {
+            /*If an HSSFUserException user exception is thrown, ignore it.*/
+        }
+    }
+
+    /**
+     * Processes the records of a cursor into Record events.
+     *
+     * @param req    an Instance of HSSFRequest which has your registered listeners
+     * @param cursor the cursor over the workbook stream, e.g. from {@link HSSFRecordCursor#create(DirectoryNode)}
+     * @return    numeric user-specified result code.
+     *
+     * @throws HSSFUserException if the processing should be aborted
+     * @see #processEvents(HSSFRequest, HSSFRecordCursor)
+     * @since POI 5.2.4
+     */
+    public short abortableProcessEvents(HSSFRequest req, HSSFRecordCursor cursor)
+        throws HSSFUserException {
+        short userCode = 0;
+        boolean numbers = req.hasListeners(NumberRecord.sid);
+        while (userCode == 0 && cursor.next()) {
+            short sid = cursor.getSid();
+            if (sid == RKRecord.sid) {
+                if (numbers) {
+                    userCode = req.processRecord(RecordFactory.convertToNumberRecord((RKRecord) cursor.getRecord()));
+                }
+            } else if (sid == MulRKRecord.sid) {
+                if (numbers) {
+                    for (NumberRecord nr : RecordFactory.convertRKRecords((MulRKRecord) cursor.getRecord())) {
+                        userCode = req.processRecord(nr);
+                        if (userCode != 0) {
+                            break;
+                        }
+                    }
+                }
+            } else if (sid != DBCellRecord.sid && req.hasListeners(sid)) {
+                userCode = req.processRecord(cursor.getRecord());
+            }
+        }
+        return userCode;
+    }
+
     /**
      * Processes a DocumentInputStream into essentially Record events.
      *
@@ -0,0 +1,320 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.ContinueRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hssf.util.RKUtil;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.HexDump;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndianByteArrayInputStream;
+import org.apache.poi.util.RecordFormatException;
+
+/**
+ * Low level cursor over the BIFF records of a workbook stream.
+ * <p>
+ * Unlike {@link HSSFEventFactory}, the cursor doesn't copy the records or create {@link Record}s
+ * for them. The sid, length and data of the current record are read directly from the buffer,
+ * so skipping records, which aren't needed, costs next to nothing. The record is only decoded,
+ * when {@link #getRecord()} is called.
+ * <pre>{@code
+ * HSSFRecordCursor cursor = HSSFRecordCursor.create(fs.getRoot());
+ * while (cursor.next()) {
+ *     if (cursor.getSid() == NumberRecord.sid) {
+ *         sum += cursor.getNumberValue();
+ *     }
+ * }
+ * }</pre>
+ * Encrypted workbook streams aren't supported.
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class HSSFRecordCursor {
+    private static final int HEADER_SIZE = 4;
+
+    private final ByteBuffer _buf;
+    private final int _limit;
+
+    /** the position of the header of the next record */
+    private int _nextPosition;
+    /** the position of the header of the current record */
+    private int _position = -1;
+    private int _sid = -1;
+    private int _length;
+    /** the decoded current record */
+    private Record _record;
+
+    private int _bofDepth;
+    private boolean _lastRecordWasEOFLevelZero;
+
+    /**
+     * @param workbookStream the workbook stream, e.g. a mapped file, from its position to its limit.
+     *  The position and limit of the buffer aren't changed.
+     */
+    public HSSFRecordCursor(ByteBuffer workbookStream) {
+        _buf = workbookStream.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        _nextPosition = _buf.position();
+        _limit = _buf.limit();
+    }
+
+    /**
+     * Reads the workbook stream of the directory into a buffer with a single bulk read.
+     *
+     * @param dir the directory containing the workbook
+     * @return the cursor before the first record of the workbook stream
+     * @throws IOException if the workbook stream can't be read
+     */
+    public static HSSFRecordCursor create(DirectoryNode dir) throws IOException {
+        DocumentEntry entry = (DocumentEntry) dir.getEntry(HSSFWorkbook.getWorkbookDirEntryName(dir));
+        try (InputStream in = dir.createDocumentInputStream(entry)) {
+            return new HSSFRecordCursor(ByteBuffer.wrap(IOUtils.toByteArray(in, entry.getSize())));
+        }
+    }
+
+    /**
+     * Moves the cursor to the next record.
+     * <p>
+     * Like {@link HSSFEventFactory}, the cursor stops after the last EOF record, which isn't
+     * followed by a BOF record, and ignores the padding of the stream.
+     *
+     * @return {@code true} if there's another record, {@code false} at the end of the workbook stream
+     * @throws EncryptedDocumentException if the workbook stream is encrypted
+     * @throws RecordFormatException if a record is truncated
+     */
+    public boolean next() {
+        _record = null;
+        int pos = _nextPosition;
+        if (_limit - pos < HEADER_SIZE) {
+            return end();
+        }
+        int sid = _buf.getShort(pos) & 0xFFFF;
+        if (_lastRecordWasEOFLevelZero && sid != BOFRecord.sid) {
+            return end();
+        }
+        int length = _buf.getShort(pos + 2) & 0xFFFF;
+        if (length > _limit - pos - HEADER_SIZE) {
+            throw new RecordFormatException("The record " + HexDump.shortToHex(sid) + " at offset " + pos
+                    + " has " + length + " bytes, but only " + (_limit - pos - HEADER_SIZE) + " bytes are left");
+        }
+        _position = pos;
+        _sid = sid;
+        _length = length;
+        _nextPosition = pos + HEADER_SIZE + length;
+
+        _lastRecordWasEOFLevelZero = false;
+        switch (sid) {
+            case BOFRecord.sid:
+                _bofDepth++;
+                break;
+            case EOFRecord.sid:
+                if (--_bofDepth < 1) {
+                    _lastRecordWasEOFLevelZero = true;
+                }
+                break;
+            case FilePassRecord.sid:
+                throw new EncryptedDocumentException("Encrypted workbook streams can't be read by a record cursor");
+            default:
+                break;
+        }
+        return true;
+    }
+
+    private boolean end() {
+        _position = -1;
+        _sid = -1;
+        _length = 0;
+        _nextPosition = _limit;
+        return false;
+    }
+
+    /**
+     * @return the sid of the current record
+     */
+    public short getSid() {
+        checkRecord();
+        return (short) _sid;
+    }
+
+    /**
+     * @return the size of the data of the current record, without its header and continue records
+     */
+    public int getLength() {
+        checkRecord();
+        return _length;
+    }
+
+    /**
+     * @return the offset of the header of the current record in the buffer
+     */
+    public int getPosition() {
+        checkRecord();
+        return _position;
+    }
+
+    public byte getByte(int offset) {
+        return _buf.get(dataPosition(offset, 1));
+    }
+
+    public int getUByte(int offset) {
+        return getByte(offset) & 0xFF;
+    }
+
+    public short getShort(int offset) {
+        return _buf.getShort(dataPosition(offset, 2));
+    }
+
+    public int getUShort(int offset) {
+        return getShort(offset) & 0xFFFF;
+    }
+
+    public int getInt(int offset) {
+        return _buf.getInt(dataPosition(offset, 4));
+    }
+
+    public long getLong(int offset) {
+        return _buf.getLong(dataPosition(offset, 8));
+    }
+
+    public double getDouble(int offset) {
+        return _buf.getDouble(dataPosition(offset, 8));
+    }
+
+    /**
+     * @return a read-only view of the data of the current record
+     */
+    public ByteBuffer getData() {
+        int start = dataPosition(0, 0);
+        ByteBuffer data = _buf.duplicate();
+        data.limit(start + _length).position(start);
+        return data.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return the 0-based row of the current cell value record, e.g. NUMBER, RK or LABELSST
+     */
+    public int getRow() {
+        return getUShort(0);
+    }
+
+    /**
+     * @return the 0-based column of the current cell value record, e.g. NUMBER, RK or LABELSST
+     */
+    public int getColumn() {
+        return getUShort(2);
+    }
+
+    /**
+     * @return the index of the extended format of the current cell value record, e.g. NUMBER, RK or LABELSST
+     */
+    public int getXFIndex() {
+        return getUShort(4);
+    }
+
+    /**
+     * @return the value of the current NUMBER or RK record
+     * @throws IllegalStateException if the current record isn't a NUMBER or RK record
+     */
+    public double getNumberValue() {
+        switch (getSid()) {
+            case NumberRecord.sid:
+                return getDouble(6);
+            case RKRecord.sid:
+                return RKUtil.decodeNumber(getInt(6));
+            default:
+                throw new IllegalStateException("The record " + HexDump.shortToHex(_sid) + " isn't a NUMBER or RK record");
+        }
+    }
+
+    /**
+     * @return the index of the string of the current LABELSST record in the shared strings table
+     * @throws IllegalStateException if the current record isn't a LABELSST record
+     */
+    public int getSSTIndex() {
+        if (getSid() != LabelSSTRecord.sid) {
+            throw new IllegalStateException("The record " + HexDump.shortToHex(_sid) + " isn't a LABELSST record");
+        }
+        return getInt(6);
+    }
+
+    /**
+     * Decodes the current record with its continue records.
+     * The record is decoded only once, even if this method is called repeatedly.
+     *
+     * @return the current record
+     */
+    public Record getRecord() {
+        checkRecord();
+        if (_record == null) {
+            int end = _nextPosition;
+            if (_sid != ContinueRecord.sid) {
+                while (_limit - end >= HEADER_SIZE && (_buf.getShort(end) & 0xFFFF) == ContinueRecord.sid) {
+                    end = Math.min(_limit, end + HEADER_SIZE + (_buf.getShort(end + 2) & 0xFFFF));
+                }
+            }
+            int size = end - _position;
+            LittleEndianByteArrayInputStream in;
+            if (_buf.hasArray()) {
+                in = new LittleEndianByteArrayInputStream(_buf.array(), _buf.arrayOffset() + _position, size);
+            } else {
+                byte[] bytes = new byte[size];
+                ByteBuffer src = _buf.duplicate();
+                src.position(_position);
+                src.get(bytes);
+                in = new LittleEndianByteArrayInputStream(bytes);
+            }
+            RecordInputStream ris = new RecordInputStream(in);
+            ris.nextRecord();
+            _record = RecordFactory.createSingleRecord(ris);
+        }
+        return _record;
+    }
+
+    private int dataPosition(int offset, int size) {
+        checkRecord();
+        if (offset < 0 || offset + size > _length) {
+            throw new RecordFormatException("Can't read " + size + " bytes at offset " + offset
+                    + " of the record " + HexDump.shortToHex(_sid) + " with " + _length + " bytes");
+        }
+        return _position + HEADER_SIZE + offset;
+    }
+
+    private void checkRecord() {
+        if (_sid < 0) {
+            throw new IllegalStateException("The cursor isn't positioned on a record");
+        }
+    }
+}
@@ -78,6 +78,14 @@ public class HSSFRequest {
         }
     }
 
+    /**
+     * @param sid the record type
+     * @return {@code true} if listeners are registered for the record type
+     */
+    boolean hasListeners(short sid) {
+        return _records.containsKey(sid);
+    }
+
     /**
      * Called by HSSFEventFactory, passes the Record to each listener associated with
      * a record.sid.
@@ -112,6 +112,7 @@ public final class RowRecordsAggregate extends RecordAggregate {
             }
             _valuesAgg.construct((CellValueRecordInterface)rec, rs, svm);
         }
+        _valuesAgg.trimToSize();
     }
 
     /**
@@ -260,45 +261,76 @@ public final class RowRecordsAggregate extends RecordAggregate {
 
     @Override
     public void visitContainedRecords(RecordVisitor rv) {
-
-        PositionTrackingVisitor stv = new PositionTrackingVisitor(rv, 0);
         //DBCells are serialized before row records.
         final int blockCount = getRowBlockCount();
         for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
-            // Serialize a block of rows.
-            // Hold onto the position of the first row in the block
-            int pos=0;
-            // Hold onto the size of this block that was serialized
-            final int rowBlockSize = visitRowRecordsForBlock(blockIndex, rv);
-            pos += rowBlockSize;
-            // Serialize a block of cells for those rows
-            final int startRowNumber = getStartRowNumberForBlock(blockIndex);
-            final int endRowNumber = getEndRowNumberForBlock(blockIndex);
-
-            final List<Short> cellOffsets = new ArrayList<>();
-
-            // Note: Cell references start from the second row...
-            int cellRefOffset = (rowBlockSize - RowRecord.ENCODED_SIZE);
-            for (int row = startRowNumber; row <= endRowNumber; row++) {
-                if (_valuesAgg.rowHasCells(row)) {
-                    stv.setPosition(0);
-                    _valuesAgg.visitCellsForRow(row, stv);
-                    int rowCellSize = stv.getPosition();
-                    pos += rowCellSize;
-                    // Add the offset to the first cell for the row into the
-                    // DBCellRecord.
-                    cellOffsets.add((short)cellRefOffset);
-                    cellRefOffset = rowCellSize;
-                }
-            }
-            // Calculate Offset from the start of a DBCellRecord to the first Row
-            rv.visitRecord(new DBCellRecord(pos, shortListToArray(cellOffsets)));
+            visitRowBlock(blockIndex, rv);
         }
 
         // Potentially breaking the file here since we don't know exactly where to write these records
         _unknownRecords.forEach(rv::visitRecord);
     }
 
+    /**
+     * Serializes a block of rows, the cells of these rows and the DBCELL record of the block
+     *
+     * @return the offset of the DBCELL record from the start of the block
+     */
+    private int visitRowBlock(int blockIndex, RecordVisitor rv) {
+        PositionTrackingVisitor stv = new PositionTrackingVisitor(rv, 0);
+        // Serialize a block of rows.
+        // Hold onto the position of the first row in the block
+        int pos=0;
+        // Hold onto the size of this block that was serialized
+        final int rowBlockSize = visitRowRecordsForBlock(blockIndex, rv);
+        pos += rowBlockSize;
+        // Serialize a block of cells for those rows
+        final int startRowNumber = getStartRowNumberForBlock(blockIndex);
+        final int endRowNumber = getEndRowNumberForBlock(blockIndex);
+
+        final List<Short> cellOffsets = new ArrayList<>();
+
+        // Note: Cell references start from the second row...
+        int cellRefOffset = (rowBlockSize - RowRecord.ENCODED_SIZE);
+        for (int row = startRowNumber; row <= endRowNumber; row++) {
+            if (_valuesAgg.rowHasCells(row)) {
+                stv.setPosition(0);
+                _valuesAgg.visitCellsForRow(row, stv);
+                int rowCellSize = stv.getPosition();
+                pos += rowCellSize;
+                // Add the offset to the first cell for the row into the
+                // DBCellRecord.
+                cellOffsets.add((short)cellRefOffset);
+                cellRefOffset = rowCellSize;
+            }
+        }
+        // Calculate Offset from the start of a DBCellRecord to the first Row
+        rv.visitRecord(new DBCellRecord(pos, shortListToArray(cellOffsets)));
+        return pos;
+    }
+
+    /**
+     * Serializes the first block of rows with their cells like {@link #visitContainedRecords(RecordVisitor)}
+     * and removes the rows and cells afterwards. This allows to write the rows of a sheet before
+     * the rest of the sheet.
+     *
+     * @param rv the visitor for the records of the block, the last record is the DBCELL record
+     * @return the offset of the DBCELL record from the start of the block
+     * @throws IllegalStateException if there are no rows
+     * @since POI 5.2.4
+     */
+    public int removeFirstRowBlock(RecordVisitor rv) {
+        if (_rowRecords.isEmpty()) {
+            throw new IllegalStateException("There are no rows to remove");
+        }
+        int rowCount = getRowCountForBlock(0);
+        int dbCellOffset = visitRowBlock(0, rv);
+        for (int i = 0; i < rowCount; i++) {
+            removeRow(_rowRecords.values().iterator().next());
+        }
+        return dbCellOffset;
+    }
+
     private static short[] shortListToArray(List<Short> list) {
         final short[] arr = new short[list.size()];
         int idx = 0;
@@ -519,6 +551,41 @@ public final class RowRecordsAggregate extends RecordAggregate {
     public void insertCell(CellValueRecordInterface cvRec) {
         _valuesAgg.insertCell(cvRec);
     }
+
+    /**
+     * Returns the record of a cell, which is created on demand for compactly stored cells
+     *
+     * @return the record of the cell or {@code null} if there's no cell
+     * @since POI 5.2.4
+     */
+    public CellValueRecordInterface getCell(int row, int column) {
+        return _valuesAgg.getCell(row, column);
+    }
+
+    /**
+     * @return the index of the first row with cells starting from the given row or -1 if there's none
+     * @since POI 5.2.4
+     */
+    public int getNextRowWithCells(int row) {
+        return _valuesAgg.getNextRowWithCells(row);
+    }
+
+    /**
+     * @return the column of the first cell in the row or -1 if the row has no cells
+     * @since POI 5.2.4
+     */
+    public int getFirstCellInRow(int row) {
+        return _valuesAgg.getFirstCellInRow(row);
+    }
+
+    /**
+     * @return the column of the last cell in the row or -1 if the row has no cells
+     * @since POI 5.2.4
+     */
+    public int getLastCellInRow(int row) {
+        return _valuesAgg.getLastCellInRow(row);
+    }
+
     public void removeCell(CellValueRecordInterface cvRec) {
         if (cvRec instanceof FormulaRecordAggregate) {
             ((FormulaRecordAggregate)cvRec).notifyFormulaChanging();
@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.record.aggregates;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
@@ -26,7 +27,9 @@ import org.apache.poi.hssf.model.RecordStream;
 import org.apache.poi.hssf.record.BlankRecord;
 import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.RecordBase;
 import org.apache.poi.hssf.record.StringRecord;
@@ -37,56 +40,145 @@ import org.apache.poi.ss.formula.ptg.Ptg;
 /**
  *
  * Aggregate value records together.  Things are easier to handle that way.
+ * <p>
+ * NUMBER, LABELSST and BLANK cells are stored compactly by their kind, XF index and value,
+ * e.g. the raw bits of a double or the index in the shared strings table. Their records are only
+ * created, when the cells are serialized or requested by {@link #getCell(int, int)} or the
+ * {@link #iterator()}. All other cells, e.g. formulas, are kept as record objects.
  */
 public final class ValueRecordsAggregate implements Iterable<CellValueRecordInterface> {
     private static final int MAX_ROW_INDEX = 0XFFFF;
     private static final int INDEX_NOT_SET = -1;
+
+    // the kind of a cell is kept in the upper half of its info, the XF index in the lower half
+    private static final int KIND_SHIFT = 16;
+    private static final int XF_MASK = 0xFFFF;
+    private static final int EMPTY = 0;
+    /** the cell is kept as record object */
+    private static final int RECORD = 1;
+    /** a NUMBER cell with the raw bits of its double as value */
+    private static final int NUMBER = 2;
+    /** a LABELSST cell with its index in the shared strings table as value */
+    private static final int LABEL_SST = 3;
+    private static final int BLANK = 4;
+
+    // the serialized sizes of the compact cells including the record header
+    private static final int NUMBER_SIZE = 18;
+    private static final int LABEL_SST_SIZE = 14;
+    private static final int BLANK_SIZE = 10;
+
     private int firstcell = INDEX_NOT_SET;
     private int lastcell  = INDEX_NOT_SET;
+    /** the kind and XF index of the cells by row and column */
+    private int[][] cellInfos;
+    /** the values of the compact cells by row and column, {@code null} for rows without values */
+    private long[][] values;
+    /** the cells kept as record objects by row and column, {@code null} for rows without such cells */
     private CellValueRecordInterface[][] records;
 
     /** Creates a new instance of ValueRecordsAggregate */
 
     public ValueRecordsAggregate() {
-        this(INDEX_NOT_SET, INDEX_NOT_SET, new CellValueRecordInterface[30][]); // We start with 30 Rows.
+        this(INDEX_NOT_SET, INDEX_NOT_SET, 30); // We start with 30 Rows.
     }
-    private ValueRecordsAggregate(int firstCellIx, int lastCellIx, CellValueRecordInterface[][] pRecords) {
+    private ValueRecordsAggregate(int firstCellIx, int lastCellIx, int numRows) {
         firstcell = firstCellIx;
         lastcell = lastCellIx;
-        records = pRecords;
+        cellInfos = new int[numRows][];
+        values = new long[numRows][];
+        records = new CellValueRecordInterface[numRows][];
     }
 
     public void insertCell(CellValueRecordInterface cell) {
         short column = cell.getColumn();
         int row = cell.getRow();
-        if (row >= records.length) {
-            CellValueRecordInterface[][] oldRecords = records;
-            int newSize = oldRecords.length * 2;
+        ensureCapacity(row, column);
+        CellValueRecordInterface[] rowCells = records[row];
+        if (rowCells == null) {
+            rowCells = new CellValueRecordInterface[cellInfos[row].length];
+            records[row] = rowCells;
+        }
+        rowCells[column] = cell;
+        int previousKind = cellInfos[row][column] >>> KIND_SHIFT;
+        cellInfos[row][column] = RECORD << KIND_SHIFT;
+        if (previousKind == NUMBER || previousKind == LABEL_SST) {
+            releaseValue(row, column);
+        }
+        updateFirstAndLastCell(column);
+    }
+
+    /**
+     * Clears the value of a cell, which isn't stored compactly anymore,
+     * and drops the values of the row once none of its cells uses them
+     */
+    private void releaseValue(int row, int column) {
+        long[] rowValues = values[row];
+        rowValues[column] = 0;
+        int[] rowInfos = cellInfos[row];
+        // the cells are usually accessed from left to right, so search for a remaining value from the right
+        for (int i = rowInfos.length - 1; i >= 0; i--) {
+            int kind = rowInfos[i] >>> KIND_SHIFT;
+            if (kind == NUMBER || kind == LABEL_SST) {
+                return;
+            }
+        }
+        values[row] = null;
+    }
+
+    /**
+     * Inserts a cell, which is stored without a record object
+     */
+    private void insertValue(int row, int column, int kind, short xfIndex, long value) {
+        ensureCapacity(row, column);
+        if (kind != BLANK) {
+            long[] rowValues = values[row];
+            if (rowValues == null) {
+                rowValues = new long[cellInfos[row].length];
+                values[row] = rowValues;
+            }
+            rowValues[column] = value;
+        }
+        if (records[row] != null) {
+            records[row][column] = null;
+        }
+        cellInfos[row][column] = (kind << KIND_SHIFT) | (xfIndex & XF_MASK);
+        updateFirstAndLastCell(column);
+    }
+
+    private void ensureCapacity(int row, int column) {
+        if (row >= cellInfos.length) {
+            int newSize = cellInfos.length * 2;
             if (newSize < row + 1)
                 newSize = row + 1;
-            records = new CellValueRecordInterface[newSize][];
-            System.arraycopy(oldRecords, 0, records, 0, oldRecords.length);
+            cellInfos = Arrays.copyOf(cellInfos, newSize);
+            values = Arrays.copyOf(values, newSize);
+            records = Arrays.copyOf(records, newSize);
         }
-        CellValueRecordInterface[] rowCells = records[row];
-        if (rowCells == null) {
+        int[] rowInfos = cellInfos[row];
+        if (rowInfos == null) {
             int newSize = column + 1;
             if (newSize < 10)
                 newSize = 10;
-            rowCells = new CellValueRecordInterface[newSize];
-            records[row] = rowCells;
-        }
-        if (column >= rowCells.length) {
-            CellValueRecordInterface[] oldRowCells = rowCells;
-            int newSize = oldRowCells.length * 2;
+            cellInfos[row] = new int[newSize];
+        } else if (column >= rowInfos.length) {
+            int newSize = rowInfos.length * 2;
             if (newSize < column + 1)
                 newSize = column + 1;
-            // if(newSize>257) newSize=257; // activate?
-            rowCells = new CellValueRecordInterface[newSize];
-            System.arraycopy(oldRowCells, 0, rowCells, 0, oldRowCells.length);
-            records[row] = rowCells;
+            resizeRow(row, newSize);
         }
-        rowCells[column] = cell;
+    }
 
+    private void resizeRow(int row, int newSize) {
+        cellInfos[row] = Arrays.copyOf(cellInfos[row], newSize);
+        if (values[row] != null) {
+            values[row] = Arrays.copyOf(values[row], newSize);
+        }
+        if (records[row] != null) {
+            records[row] = Arrays.copyOf(records[row], newSize);
+        }
+    }
+
+    private void updateFirstAndLastCell(int column) {
         if (column < firstcell || firstcell == INDEX_NOT_SET) {
             firstcell = column;
         }
@@ -95,23 +187,55 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
         }
     }
 
+    /**
+     * Releases the unused capacity of the rows, e.g. after all cells of a sheet have been read.
+     *
+     * @since POI 5.2.4
+     */
+    public void trimToSize() {
+        for (int row = 0; row < cellInfos.length; row++) {
+            int[] rowInfos = cellInfos[row];
+            if (rowInfos == null) {
+                continue;
+            }
+            int length = rowInfos.length;
+            while (length > 0 && rowInfos[length - 1] == EMPTY) {
+                length--;
+            }
+            if (length > 0 && length < rowInfos.length) {
+                resizeRow(row, length);
+            }
+        }
+    }
+
     public void removeCell(CellValueRecordInterface cell) {
         if (cell == null) {
             throw new IllegalArgumentException("cell must not be null");
         }
         int row = cell.getRow();
-        if (row >= records.length) {
+        if (row >= cellInfos.length) {
             throw new IllegalStateException("cell row is out of range");
         }
-        CellValueRecordInterface[] rowCells = records[row];
-        if (rowCells == null) {
+        int[] rowInfos = cellInfos[row];
+        if (rowInfos == null) {
             throw new IllegalStateException("cell row is already empty");
         }
         short column = cell.getColumn();
-        if (column >= rowCells.length) {
+        if (column >= rowInfos.length) {
             throw new IllegalStateException("cell column is out of range");
         }
-        rowCells[column] = null;
+        clearCell(row, column);
+    }
+
+    private void clearCell(int row, int column) {
+        int previousKind = cellInfos[row][column] >>> KIND_SHIFT;
+        cellInfos[row][column] = EMPTY;
+        if (previousKind == NUMBER || previousKind == LABEL_SST) {
+            releaseValue(row, column);
+        }
+        if (records[row] != null) {
+            records[row][column] = null;
+        }
     }
 
     public void removeAllCellsValuesForRow(int rowIndex) {
@@ -119,22 +243,24 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
             throw new IllegalArgumentException("Specified rowIndex " + rowIndex
                     + " is outside the allowable range (0.." +MAX_ROW_INDEX + ")");
         }
-        if (rowIndex >= records.length) {
+        if (rowIndex >= cellInfos.length) {
             // this can happen when the client code has created a row,
             // and then removes/replaces it before adding any cells. (see bug 46312)
             return;
         }
 
+        cellInfos[rowIndex] = null;
+        values[rowIndex] = null;
         records[rowIndex] = null;
     }
 
 
     public int getPhysicalNumberOfCells() {
         int count = 0;
-        for (CellValueRecordInterface[] rowCells : records) {
-            if (rowCells != null) {
-                for (CellValueRecordInterface rowCell : rowCells) {
-                    if (rowCell != null)
+        for (int[] rowInfos : cellInfos) {
+            if (rowInfos != null) {
+                for (int info : rowInfos) {
+                    if (info != EMPTY)
                         count++;
                 }
             }
@@ -152,12 +278,7 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 
     public void addMultipleBlanks(MulBlankRecord mbr) {
         for (int j = 0; j < mbr.getNumColumns(); j++) {
-            BlankRecord br = new BlankRecord();
-
-            br.setColumn(( short ) (j + mbr.getFirstColumn()));
-            br.setRow(mbr.getRow());
-            br.setXFIndex(mbr.getXFAt(j));
-            insertCell(br);
+            insertValue(mbr.getRow(), j + mbr.getFirstColumn(), BLANK, mbr.getXFAt(j), 0);
         }
     }
 
@@ -177,52 +298,178 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
                 cachedText = null;
             }
             insertCell(new FormulaRecordAggregate(formulaRec, cachedText, sfh));
+        } else if (rec instanceof NumberRecord) {
+            NumberRecord nr = (NumberRecord) rec;
+            insertValue(nr.getRow(), nr.getColumn(), NUMBER, nr.getXFIndex(), Double.doubleToRawLongBits(nr.getValue()));
+        } else if (rec instanceof LabelSSTRecord) {
+            LabelSSTRecord lr = (LabelSSTRecord) rec;
+            insertValue(lr.getRow(), lr.getColumn(), LABEL_SST, lr.getXFIndex(), lr.getSSTIndex());
+        } else if (rec instanceof BlankRecord) {
+            insertValue(rec.getRow(), rec.getColumn(), BLANK, rec.getXFIndex(), 0);
         } else {
             insertCell(rec);
         }
     }
 
+    /**
+     * Returns the record of a cell. A compactly stored cell is replaced by its record,
+     * so changes of the record are reflected by the aggregate, and its compact value is released.
+     * The replacement is synchronized, so the cells of a read-only sheet can be requested concurrently.
+     *
+     * @return the record of the cell or {@code null} if there's no cell
+     * @since POI 5.2.4
+     */
+    public synchronized CellValueRecordInterface getCell(int row, int column) {
+        if (row < 0 || row >= cellInfos.length || column < 0) {
+            return null;
+        }
+        int[] rowInfos = cellInfos[row];
+        if (rowInfos == null || column >= rowInfos.length) {
+            return null;
+        }
+        switch (rowInfos[column] >>> KIND_SHIFT) {
+            case EMPTY:
+                return null;
+            case RECORD:
+                return records[row][column];
+            default:
+                CellValueRecordInterface cell = createRecord(row, column);
+                insertCell(cell);
+                return cell;
+        }
+    }
+
+    /**
+     * Creates the record of a compactly stored cell
+     */
+    private CellValueRecordInterface createRecord(int row, int column) {
+        int info = cellInfos[row][column];
+        CellValueRecordInterface cell;
+        switch (info >>> KIND_SHIFT) {
+            case NUMBER: {
+                NumberRecord nr = new NumberRecord();
+                nr.setValue(Double.longBitsToDouble(values[row][column]));
+                cell = nr;
+                break;
+            }
+            case LABEL_SST: {
+                LabelSSTRecord lr = new LabelSSTRecord();
+                lr.setSSTIndex((int) values[row][column]);
+                cell = lr;
+                break;
+            }
+            case BLANK:
+                cell = new BlankRecord();
+                break;
+            default:
+                return records[row][column];
+        }
+        cell.setRow(row);
+        cell.setColumn((short) column);
+        cell.setXFIndex((short) (info & XF_MASK));
+        return cell;
+    }
+
+    /**
+     * @return the index of the first row with cells starting from the given row or -1 if there's none
+     * @since POI 5.2.4
+     */
+    public int getNextRowWithCells(int row) {
+        for (int rowIx = Math.max(row, 0); rowIx < cellInfos.length; rowIx++) {
+            if (rowHasCells(rowIx)) {
+                return rowIx;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the column of the first cell in the row or -1 if the row has no cells
+     * @since POI 5.2.4
+     */
+    public int getFirstCellInRow(int row) {
+        int[] rowInfos = (row >= 0 && row < cellInfos.length) ? cellInfos[row] : null;
+        if (rowInfos != null) {
+            for (int i = 0; i < rowInfos.length; i++) {
+                if (rowInfos[i] != EMPTY) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the column of the last cell in the row or -1 if the row has no cells
+     * @since POI 5.2.4
+     */
+    public int getLastCellInRow(int row) {
+        int[] rowInfos = (row >= 0 && row < cellInfos.length) ? cellInfos[row] : null;
+        if (rowInfos != null) {
+            for (int i = rowInfos.length - 1; i >= 0; i--) {
+                if (rowInfos[i] != EMPTY) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
     /** Tallies a count of the size of the cell records
      *  that are attached to the rows in the range specified.
      */
     public int getRowCellBlockSize(int startRow, int endRow) {
         int result = 0;
-        for(int rowIx=startRow; rowIx<=endRow && rowIx<records.length; rowIx++) {
-            result += getRowSerializedSize(records[rowIx]);
+        for(int rowIx=startRow; rowIx<=endRow && rowIx<cellInfos.length; rowIx++) {
+            result += getRowSerializedSize(rowIx);
         }
         return result;
     }
 
     /** Returns true if the row has cells attached to it */
     public boolean rowHasCells(int row) {
-        if (row >= records.length) {
+        if (row >= cellInfos.length) {
             return false;
         }
-        CellValueRecordInterface[] rowCells=records[row];
-        if(rowCells==null) return false;
-        for (CellValueRecordInterface rowCell : rowCells) {
-            if (rowCell != null)
+        int[] rowInfos = cellInfos[row];
+        if(rowInfos==null) return false;
+        for (int info : rowInfos) {
+            if (info != EMPTY)
                 return true;
         }
         return false;
     }
 
-    private static int getRowSerializedSize(CellValueRecordInterface[] rowCells) {
-        if(rowCells == null) {
+    private int getRowSerializedSize(int row) {
+        int[] rowInfos = cellInfos[row];
+        if(rowInfos == null) {
             return 0;
         }
         int result = 0;
-        for (int i = 0; i < rowCells.length; i++) {
-            RecordBase cvr = (RecordBase) rowCells[i];
-            if(cvr == null) {
+        for (int i = 0; i < rowInfos.length; i++) {
+            int kind = rowInfos[i] >>> KIND_SHIFT;
+            if(kind == EMPTY) {
                 continue;
             }
-            int nBlank = countBlanks(rowCells, i);
+            int nBlank = countBlanks(row, i);
             if (nBlank > 1) {
                 result += (10 + 2*nBlank);
                 i+=nBlank-1;
             } else {
-                result += cvr.getRecordSize();
+                switch (kind) {
+                    case NUMBER:
+                        result += NUMBER_SIZE;
+                        break;
+                    case LABEL_SST:
+                        result += LABEL_SST_SIZE;
+                        break;
+                    case BLANK:
+                        result += BLANK_SIZE;
+                        break;
+                    default:
+                        result += ((RecordBase) records[row][i]).getRecordSize();
+                        break;
+                }
             }
         }
         return result;
@@ -230,39 +477,43 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 
     public void visitCellsForRow(int rowIndex, RecordVisitor rv) {
 
-        CellValueRecordInterface[] rowCells = records[rowIndex];
-        if(rowCells == null) {
+        int[] rowInfos = cellInfos[rowIndex];
+        if(rowInfos == null) {
             throw new IllegalArgumentException("Row [" + rowIndex + "] is empty");
         }
 
 
-        for (int i = 0; i < rowCells.length; i++) {
-            RecordBase cvr = (RecordBase) rowCells[i];
-            if(cvr == null) {
+        for (int i = 0; i < rowInfos.length; i++) {
+            int kind = rowInfos[i] >>> KIND_SHIFT;
+            if(kind == EMPTY) {
                 continue;
             }
-            int nBlank = countBlanks(rowCells, i);
+            int nBlank = countBlanks(rowIndex, i);
             if (nBlank > 1) {
-                rv.visitRecord(createMBR(rowCells, i, nBlank));
+                rv.visitRecord(createMBR(rowIndex, i, nBlank));
                 i+=nBlank-1;
-            } else if (cvr instanceof RecordAggregate) {
-                RecordAggregate agg = (RecordAggregate) cvr;
+            } else if (kind != RECORD) {
+                // the record is only needed while it's serialized
+                rv.visitRecord((org.apache.poi.hssf.record.Record) createRecord(rowIndex, i));
+            } else if (records[rowIndex][i] instanceof RecordAggregate) {
+                RecordAggregate agg = (RecordAggregate) records[rowIndex][i];
                 agg.visitContainedRecords(rv);
             } else {
-                rv.visitRecord((org.apache.poi.hssf.record.Record) cvr);
+                rv.visitRecord((org.apache.poi.hssf.record.Record) records[rowIndex][i]);
             }
         }
     }
 
     /**
-     * @return the number of <em>consecutive</em> {@link BlankRecord}s in the specified row
+     * @return the number of <em>consecutive</em> blank cells in the specified row
      * starting from startIx.
      */
-    private static int countBlanks(CellValueRecordInterface[] rowCellValues, int startIx) {
+    private int countBlanks(int row, int startIx) {
+        int[] rowInfos = cellInfos[row];
         int i = startIx;
-        while(i < rowCellValues.length) {
-            CellValueRecordInterface cvr = rowCellValues[i];
-            if (!(cvr instanceof BlankRecord)) {
+        while(i < rowInfos.length) {
+            int kind = rowInfos[i] >>> KIND_SHIFT;
+            if (kind != BLANK && !(kind == RECORD && records[row][i] instanceof BlankRecord)) {
                 break;
             }
             i++;
@@ -270,17 +521,20 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
         return i - startIx;
     }
 
-    private MulBlankRecord createMBR(CellValueRecordInterface[] cellValues, int startIx, int nBlank) {
+    private MulBlankRecord createMBR(int row, int startIx, int nBlank) {
 
         short[] xfs = new short[nBlank];
         for (int i = 0; i < xfs.length; i++) {
-            xfs[i] = cellValues[startIx + i].getXFIndex();
+            int info = cellInfos[row][startIx + i];
+            xfs[i] = (info >>> KIND_SHIFT == RECORD)
+                ? records[row][startIx + i].getXFIndex()
+                : (short) (info & XF_MASK);
         }
-        int rowIx = cellValues[startIx].getRow();
-        return new MulBlankRecord(rowIx, startIx, xfs);
+        return new MulBlankRecord(row, startIx, xfs);
     }
 
     public void updateFormulasAfterRowShift(FormulaShifter shifter, int currentExternSheetIndex) {
+        // formulas are always kept as record objects
         for (CellValueRecordInterface[] rowCells : records) {
             if (rowCells == null) {
                 continue;
@@ -313,25 +567,25 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
         }
 
         void getNextPos() {
-            if (nextRowIndex >= records.length)
+            if (nextRowIndex >= cellInfos.length)
                 return; // no next already
 
-            while (nextRowIndex < records.length) {
+            while (nextRowIndex < cellInfos.length) {
                 ++nextColIndex;
-                if (records[nextRowIndex] == null || nextColIndex >= records[nextRowIndex].length) {
+                if (cellInfos[nextRowIndex] == null || nextColIndex >= cellInfos[nextRowIndex].length) {
                     ++nextRowIndex;
                     nextColIndex = -1;
                     continue;
                 }
 
-                if (records[nextRowIndex][nextColIndex] != null)
+                if (cellInfos[nextRowIndex][nextColIndex] != EMPTY)
                     return; // next cell found
             }
             // no next found
         }
 
         public boolean hasNext() {
-            return nextRowIndex < records.length;
+            return nextRowIndex < cellInfos.length;
         }
 
         public CellValueRecordInterface next() {
@@ -341,17 +595,19 @@ public final class ValueRecordsAggregate implements Iterable<CellValueRecordInte
 
             curRowIndex = nextRowIndex;
             curColIndex = nextColIndex;
-            final CellValueRecordInterface ret = records[curRowIndex][curColIndex];
+            final CellValueRecordInterface ret = getCell(curRowIndex, curColIndex);
             getNextPos();
             return ret;
         }
 
         public void remove() {
-            records[curRowIndex][curColIndex] = null;
+            clearCell(curRowIndex, curColIndex);
         }
     }
 
-    /** value iterator */
+    /**
+     * value iterator, which creates the records of the compactly stored cells
+     */
     public Iterator<CellValueRecordInterface> iterator() {
         return new ValueIterator();
     }
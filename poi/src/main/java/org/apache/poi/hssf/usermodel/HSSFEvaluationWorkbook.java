@@ -25,6 +25,7 @@ import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.EvaluationName;
 import org.apache.poi.ss.formula.EvaluationSheet;
 import org.apache.poi.ss.formula.EvaluationWorkbook;
+import org.apache.poi.ss.formula.FormulaParseCache;
 import org.apache.poi.ss.formula.FormulaParsingWorkbook;
 import org.apache.poi.ss.formula.FormulaRenderingWorkbook;
 import org.apache.poi.ss.formula.SheetIdentifier;
@@ -68,6 +69,18 @@ public final class HSSFEvaluationWorkbook implements FormulaRenderingWorkbook, E
         // nothing to do
     }
 
+    /**
+     * The cells, which are created lazily from their records, are created while holding the
+     * monitor of their row, and sheets loaded on demand while holding the monitor of the
+     * sheet index, so a workbook can be read concurrently, as long as it isn't modified.
+     *
+     * @since POI 5.2.4
+     */
+    @Override
+    public boolean isConcurrentReadSafe() {
+        return true;
+    }
+
     @Override
     public HSSFName createName() {
         return _uBook.createName();
@@ -299,6 +312,11 @@ public final class HSSFEvaluationWorkbook implements FormulaRenderingWorkbook, E
         return SpreadsheetVersion.EXCEL97;
     }
 
+    @Override
+    public FormulaParseCache getFormulaParseCache() {
+        return _uBook.getFormulaParseCache();
+    }
+
     /**
       * @throws IllegalStateException data tables are not supported in Excel 97-2003 format
       */
@@ -52,6 +52,12 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
 
     private int rowNum;
     private HSSFCell[] cells;
+    /**
+     * whether the cells of some low level records haven't been created yet,
+     * see {@link #setUnloadedCells(int, int)}. The cells are created while holding
+     * the monitor of the row, so a read-only sheet can still be read concurrently.
+     */
+    private volatile boolean hasUnloadedCells;
 
     /**
      * reference to low level representation
@@ -168,6 +174,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
         removeCell((HSSFCell)cell, true);
     }
     private void removeCell(HSSFCell cell, boolean alsoRemoveRecords) {
+        loadCells();
 
         int column=cell.getColumnIndex();
         if(column < 0) {
@@ -199,6 +206,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      *  records too.
      */
     protected void removeAllCells() {
+        loadCells();
         for (HSSFCell cell : cells) {
             if (cell != null) {
                 removeCell(cell, true);
@@ -234,6 +242,54 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
         return hcell;
     }
 
+    /**
+     * Marks the columns, in which the sheet has cell records for this row. The high level cells
+     * for these records are only created, when they are accessed.
+     * Should only be called from HSSFSheet, when an existing file is read in.
+     *
+     * @param firstCol the column of the first cell record
+     * @param lastCol the column of the last cell record
+     */
+    void setUnloadedCells(int firstCol, int lastCol) {
+        hasUnloadedCells = true;
+        if (row.isEmpty() || firstCol < row.getFirstCol()) {
+            row.setFirstCol(firstCol);
+        }
+        if (row.isEmpty() || lastCol >= row.getLastCol()) {
+            row.setLastCol(lastCol + 1);
+        }
+    }
+
+    /**
+     * Creates the high level cells, which haven't been accessed yet
+     */
+    private void loadCells() {
+        if (hasUnloadedCells) {
+            synchronized (this) {
+                if (hasUnloadedCells) {
+                    for (int i = row.getFirstCol(); i < row.getLastCol(); i++) {
+                        loadCell(i);
+                    }
+                    hasUnloadedCells = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cell of a column and creates it, if its record hasn't been accessed yet
+     */
+    private synchronized HSSFCell loadCell(int cellIndex) {
+        HSSFCell cell = (cellIndex < cells.length) ? cells[cellIndex] : null;
+        if (cell == null && hasUnloadedCells && cellIndex >= row.getFirstCol() && cellIndex < row.getLastCol()) {
+            CellValueRecordInterface cval = sheet.getSheet().getRowsAggregate().getCell(rowNum, cellIndex);
+            if (cval != null) {
+                cell = createCellFromRecord(cval);
+            }
+        }
+        return cell;
+    }
+
     /**
      * set the row number of this row.
      * @param rowIndex  the row number (0-based)
@@ -246,6 +302,8 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
           throw new IllegalArgumentException("Invalid row number (" + rowIndex
                   + ") outside allowable range (0.." + maxrow + ")");
         }
+        // the unloaded cells are looked up by the current row number
+        loadCells();
         rowNum = rowIndex;
         if (row != null) {
             row.setRowNumber(rowIndex);   // used only for KEY comparison (HSSFRow)
@@ -290,6 +348,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      * @param newColumn The new column number (0 based)
      */
     public void moveCell(HSSFCell cell, short newColumn) {
+        loadCells();
         // Ensure the destination is free
         if(cells.length > newColumn && cells[newColumn] != null) {
             throw new IllegalArgumentException("Asked to move cell to column " + newColumn + " but there's already a cell there");
@@ -346,10 +405,13 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
      * @return HSSFCell representing that column or null if undefined.
      */
     private HSSFCell retrieveCell(int cellIndex) {
-        if(cellIndex<0||cellIndex>=cells.length) {
+        if(cellIndex<0) {
             return null;
         }
-        return cells[cellIndex];
+        if (hasUnloadedCells) {
+            return loadCell(cellIndex);
+        }
+        return (cellIndex < cells.length) ? cells[cellIndex] : null;
     }
 
     /**
@@ -440,6 +502,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public int getPhysicalNumberOfCells()
     {
+        loadCells();
         int count = 0;
         for (HSSFCell cell : cells) {
             if (cell != null) {
@@ -627,6 +690,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public Iterator<Cell> cellIterator()
     {
+      loadCells();
       return new CellIterator();
     }
 
@@ -734,6 +798,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public void shiftCellsRight(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
         RowShifter.validateShiftParameters(firstShiftColumnIndex, lastShiftColumnIndex, step);
+        loadCells();
 
         if (lastShiftColumnIndex + step + 1 > cells.length) {
             extend(lastShiftColumnIndex + step + 1);
@@ -766,6 +831,7 @@ public final class HSSFRow implements Row, Comparable<HSSFRow> {
     @Override
     public void shiftCellsLeft(int firstShiftColumnIndex, int lastShiftColumnIndex, int step) {
         RowShifter.validateShiftLeftParameters(firstShiftColumnIndex, lastShiftColumnIndex, step);
+        loadCells();
 
         for (int columnIndex = firstShiftColumnIndex; columnIndex <= lastShiftColumnIndex; columnIndex++){
             HSSFCell cell = getCell(columnIndex);
@@ -17,6 +17,7 @@
 
 package org.apache.poi.hssf.usermodel;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -29,7 +30,6 @@ import java.util.TreeSet;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.message.SimpleMessage;
 import org.apache.poi.ddf.EscherRecord;
 import org.apache.poi.hssf.model.DrawingManager2;
 import org.apache.poi.hssf.model.HSSFFormulaParser;
@@ -53,6 +53,7 @@ import org.apache.poi.hssf.record.WindowTwoRecord;
 import org.apache.poi.hssf.record.aggregates.DataValidityTable;
 import org.apache.poi.hssf.record.aggregates.FormulaRecordAggregate;
 import org.apache.poi.hssf.record.aggregates.RecordAggregate.RecordVisitor;
+import org.apache.poi.hssf.record.aggregates.RowRecordsAggregate;
 import org.apache.poi.hssf.record.aggregates.WorksheetProtectionBlock;
 import org.apache.poi.hssf.usermodel.helpers.HSSFColumnShifter;
 import org.apache.poi.hssf.usermodel.helpers.HSSFRowShifter;
@@ -126,6 +127,10 @@ public final class HSSFSheet implements Sheet {
     private HSSFPatriarch _patriarch;
     private int _firstrow = -1;
     private int _lastrow = -1;
+    /**
+     * writes the rows, which aren't accessed anymore, if the sheet was created by a {@link SHSSFWorkbook}
+     */
+    private SHSSFSheetWriter _streamingWriter;
 
     /**
      * Creates new HSSFSheet   - called by HSSFWorkbook to create a sheet from
@@ -205,47 +210,29 @@ public final class HSSFSheet implements Sheet {
             row = sheet.getNextRow();
         }
 
-        Iterator<CellValueRecordInterface> iter = sheet.getCellValueIterator();
+        RowRecordsAggregate rra = sheet.getRowsAggregate();
         long timestart = currentTimeMillis();
 
         LOGGER.atDebug().log("Time at start of cell creating in HSSF sheet = {}", box(timestart));
-        HSSFRow lastrow = null;
-
-        // Add every cell to its row
-        while (iter.hasNext()) {
-            CellValueRecordInterface cval = iter.next();
-
-            long cellstart = currentTimeMillis();
-            HSSFRow hrow = lastrow;
-
-            if (hrow == null || hrow.getRowNum() != cval.getRow()) {
-                hrow = getRow(cval.getRow());
-                lastrow = hrow;
-                if (hrow == null) {
-                    /* we removed this check, see bug 47245 for the discussion around this
-                    // Some tools (like Perl module Spreadsheet::WriteExcel - bug 41187) skip the RowRecords
-                    // Excel, OpenOffice.org and GoogleDocs are all OK with this, so POI should be too.
-                    if (rowRecordsAlreadyPresent) {
-                        // if at least one row record is present, all should be present.
-                        throw new IllegalStateException("Unexpected missing row when some rows already present");
-                    }*/
-
-                    // create the row record on the fly now.
-                    RowRecord rowRec = new RowRecord(cval.getRow());
-                    sheet.addRow(rowRec);
-                    hrow = createRowFromRecord(rowRec);
-                }
-            }
-            LOGGER.atTrace().log(() -> {
-                if (cval instanceof Record) {
-                    return new SimpleMessage("record id = " + Integer.toHexString(((Record) cval).getSid()));
-                } else {
-                    return new SimpleMessage("record = " + cval);
-                }
-            });
-            hrow.createCellFromRecord( cval );
-            LOGGER.atTrace().log("record took {}ms", box(currentTimeMillis() - cellstart));
 
+        // Add the columns of the cells to their rows, the cells are created on demand
+        for (int rowIx = rra.getNextRowWithCells(0); rowIx >= 0; rowIx = rra.getNextRowWithCells(rowIx + 1)) {
+            HSSFRow hrow = getRow(rowIx);
+            if (hrow == null) {
+                /* we removed this check, see bug 47245 for the discussion around this
+                // Some tools (like Perl module Spreadsheet::WriteExcel - bug 41187) skip the RowRecords
+                // Excel, OpenOffice.org and GoogleDocs are all OK with this, so POI should be too.
+                if (rowRecordsAlreadyPresent) {
+                    // if at least one row record is present, all should be present.
+                    throw new IllegalStateException("Unexpected missing row when some rows already present");
+                }*/
+
+                // create the row record on the fly now.
+                RowRecord rowRec = new RowRecord(rowIx);
+                sheet.addRow(rowRec);
+                hrow = createRowFromRecord(rowRec);
+            }
+            hrow.setUnloadedCells(rra.getFirstCellInRow(rowIx), rra.getLastCellInRow(rowIx));
         }
         LOGGER.atDebug().log("total sheet cell creation took {}ms", box(currentTimeMillis() - timestart));
     }
@@ -260,15 +247,50 @@ public final class HSSFSheet implements Sheet {
      */
     @Override
     public HSSFRow createRow(int rownum) {
+        if (_streamingWriter != null) {
+            _streamingWriter.checkRowNum(rownum);
+        }
         HSSFRow row = new HSSFRow(_workbook, this, rownum);
         // new rows inherit default height from the sheet
         row.setHeight(getDefaultRowHeight());
         row.getRowRecord().setBadFontHeight(false);
 
         addRow(row, true);
+        if (_streamingWriter != null) {
+            try {
+                _streamingWriter.flushRows();
+            } catch (IOException ioe) {
+                throw new IllegalStateException(ioe);
+            }
+        }
         return row;
     }
 
+    SHSSFSheetWriter getStreamingWriter() {
+        return _streamingWriter;
+    }
+
+    void setStreamingWriter(SHSSFSheetWriter streamingWriter) {
+        _streamingWriter = streamingWriter;
+    }
+
+    /**
+     * Serializes the first block of rows and removes the rows from the sheet.
+     * The first and last row number of the sheet are kept.
+     *
+     * @param rv the visitor for the records of the rows and their cells
+     * @return the offset of the DBCELL record from the start of the block
+     * @see RowRecordsAggregate#removeFirstRowBlock(RecordVisitor)
+     */
+    int removeFirstRowBlock(RecordVisitor rv) {
+        int rowCount = _sheet.getRowsAggregate().getRowCountForBlock(0);
+        int dbCellOffset = _sheet.getRowsAggregate().removeFirstRowBlock(rv);
+        for (int i = 0; i < rowCount; i++) {
+            _rows.pollFirstEntry();
+        }
+        return dbCellOffset;
+    }
+
     /**
      * Used internally to create a high level Row object from a low level row object.
      * USed when reading an existing file
@@ -82,6 +82,7 @@ import org.apache.poi.poifs.crypt.EncryptionVerifier;
 import org.apache.poi.poifs.crypt.Encryptor;
 import org.apache.poi.poifs.filesystem.DirectoryEntry;
 import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.DocumentEntry;
 import org.apache.poi.poifs.filesystem.DocumentNode;
 import org.apache.poi.poifs.filesystem.EntryUtils;
 import org.apache.poi.poifs.filesystem.FileMagic;
@@ -90,6 +91,7 @@ import org.apache.poi.poifs.filesystem.Ole10Native;
 import org.apache.poi.poifs.filesystem.POIFSDocument;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.FormulaParseCache;
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.formula.FormulaType;
 import org.apache.poi.ss.formula.SheetNameFormatter;
@@ -104,6 +106,7 @@ import org.apache.poi.ss.usermodel.SheetVisibility;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.util.Beta;
 import org.apache.poi.util.Configurator;
 import org.apache.poi.util.HexDump;
 import org.apache.poi.util.IOUtils;
@@ -162,6 +165,12 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
 
     protected List<HSSFSheet> _sheets;
 
+    /**
+     * the substreams of the sheets, if the sheets are parsed on demand.
+     * The sheets which weren't parsed yet are {@code null} in {@link #_sheets}.
+     */
+    private LazySheetIndex _sheetIndex;
+
     /**
      * this holds the HSSFName objects attached to this workbook
      */
@@ -203,6 +212,11 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
      */
     private final UDFFinder _udfFinder = new IndexedUDFFinder(AggregatingUDFFinder.DEFAULT);
 
+    /**
+     * The cache of the parsed formulas, {@code null} if the formulas aren't cached
+     */
+    private volatile FormulaParseCache _formulaParseCache;
+
     public static HSSFWorkbook create(InternalWorkbook book) {
         return new HSSFWorkbook(book);
     }
@@ -350,6 +364,37 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
      */
     public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes)
             throws IOException {
+        this(directory, preserveNodes, false);
+    }
+
+    /**
+     * given a POI POIFSFileSystem object, and a specific directory
+     * within it, read in its Workbook and populate the high and
+     * low level models.
+     * <p>
+     * If {@code loadSheetsOnDemand} is set, only the workbook globals are parsed up front.
+     * The records of a sheet are parsed, when the sheet is accessed the first time, e.g. by
+     * {@link #getSheetAt(int)}, and can be released again by {@link #releaseSheet(int)}.
+     * Iterating over the sheets, writing the workbook and other operations on all sheets
+     * parse the remaining sheets. If the sheets of the workbook stream can't be parsed one
+     * by one, e.g. because the stream is encrypted, the workbook is loaded completely.
+     * The workbook stream is kept in memory to parse the sheets.
+     *
+     * @param directory     the POI filesystem directory to process from
+     * @param preserveNodes whether to preserve other nodes, such as
+     *                      macros.  This takes more memory, so only say yes if you
+     *                      need to. If set, will store all of the POIFSFileSystem
+     *                      in memory
+     * @param loadSheetsOnDemand whether to parse the sheets on their first access
+     * @throws IOException if the stream cannot be read
+     * @throws IllegalStateException a number of runtime exceptions can be thrown, especially if there are problems with the
+     * input format
+     * @see POIFSFileSystem
+     * @since POI 5.2.4
+     */
+    @Beta
+    public HSSFWorkbook(DirectoryNode directory, boolean preserveNodes, boolean loadSheetsOnDemand)
+            throws IOException {
         super(directory);
         String workbookName = getWorkbookDirEntryName(directory);
 
@@ -367,6 +412,13 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
         // Grab the data from the workbook stream, however
         //  it happens to be spelled.
         InputStream stream = directory.createDocumentInputStream(workbookName);
+        if (loadSheetsOnDemand) {
+            DocumentEntry entry = (DocumentEntry) directory.getEntry(workbookName);
+            byte[] data = IOUtils.toByteArray(stream, entry.getSize());
+            _sheetIndex = LazySheetIndex.create(data);
+            stream = (_sheetIndex != null) ? _sheetIndex.openGlobals()
+                : UnsynchronizedByteArrayInputStream.builder().setByteArray(data).get();
+        }
 
         List<org.apache.poi.hssf.record.Record> records = RecordFactory.createRecords(stream);
 
@@ -374,6 +426,11 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
         setPropertiesFromWorkbook(workbook);
         int recOffset = workbook.getNumRecords();
 
+        if (_sheetIndex != null) {
+            // the sheets are parsed on their first access
+            _sheets.addAll(Collections.nCopies(_sheetIndex.getNumberOfSheets(), null));
+        }
+
         // convert all LabelRecord records to LabelSSTRecord
         convertLabelRecords(records, recOffset);
         RecordStream rs = new RecordStream(records, recOffset);
@@ -517,7 +574,12 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
     @Override
     public void setSheetOrder(String sheetname, int pos) {
         int oldSheetIndex = getSheetIndex(sheetname);
+        // the formulas of all sheets are updated below
+        loadSheets();
         _sheets.add(pos, _sheets.remove(oldSheetIndex));
+        if (_sheetIndex != null) {
+            _sheetIndex.moveSheet(oldSheetIndex, pos);
+        }
         workbook.setSheetOrder(sheetname, pos);
 
         FormulaShifter shifter = FormulaShifter.createForSheetShift(oldSheetIndex, pos);
@@ -818,6 +880,9 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
         HSSFSheet sheet = new HSSFSheet(this);
 
         _sheets.add(sheet);
+        if (_sheetIndex != null) {
+            _sheetIndex.addSheet();
+        }
         workbook.setSheetName(_sheets.size() - 1, "Sheet" + (_sheets.size() - 1));
         boolean isOnlySheet = _sheets.size() == 1;
         sheet.setSelected(isOnlySheet);
@@ -834,7 +899,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
     @Override
     public HSSFSheet cloneSheet(int sheetIndex) {
         validateSheetIndex(sheetIndex);
-        HSSFSheet srcSheet = _sheets.get(sheetIndex);
+        HSSFSheet srcSheet = getSheetAt(sheetIndex);
         String srcName = workbook.getSheetName(sheetIndex);
         HSSFSheet clonedSheet = srcSheet.cloneSheet(this);
         clonedSheet.setSelected(false);
@@ -843,6 +908,9 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
         String name = getUniqueSheetName(srcName);
         int newSheetIndex = _sheets.size();
         _sheets.add(clonedSheet);
+        if (_sheetIndex != null) {
+            _sheetIndex.addSheet();
+        }
         workbook.setSheetName(newSheetIndex, name);
 
         // Check this sheet has an autofilter, (which has a built-in NameRecord at workbook level)
@@ -957,6 +1025,9 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
 
         workbook.setSheetName(_sheets.size(), sheetname);
         _sheets.add(sheet);
+        if (_sheetIndex != null) {
+            _sheetIndex.addSheet();
+        }
         boolean isOnlySheet = _sheets.size() == 1;
         sheet.setSelected(isOnlySheet);
         sheet.setActive(isOnlySheet);
@@ -985,6 +1056,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
     @Override
     @SuppressWarnings("unchecked")
     public Spliterator<Sheet> spliterator() {
+        loadSheets();
         return (Spliterator<Sheet>)(Spliterator<? extends Sheet>) _sheets.spliterator();
     }
 
@@ -993,6 +1065,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
 
         @SuppressWarnings("unchecked")
         public SheetIterator() {
+            loadSheets();
             it = (Iterator<T>) _sheets.iterator();
         }
 
@@ -1029,6 +1102,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
     }
 
     private HSSFSheet[] getSheets() {
+        loadSheets();
         HSSFSheet[] result = new HSSFSheet[_sheets.size()];
         _sheets.toArray(result);
         return result;
@@ -1045,7 +1119,63 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
     @Override
     public HSSFSheet getSheetAt(int index) {
         validateSheetIndex(index);
-        return _sheets.get(index);
+        HSSFSheet sheet = _sheets.get(index);
+        return (sheet != null) ? sheet : loadSheet(index);
+    }
+
+    /**
+     * Parses the records of a sheet, which wasn't accessed since the workbook was loaded
+     */
+    private HSSFSheet loadSheet(int index) {
+        synchronized (_sheetIndex) {
+            HSSFSheet sheet = _sheets.get(index);
+            if (sheet == null) {
+                List<org.apache.poi.hssf.record.Record> records = _sheetIndex.readRecords(index);
+                convertLabelRecords(records, 0);
+                sheet = new HSSFSheet(this, InternalSheet.createSheet(new RecordStream(records, 0)));
+                _sheets.set(index, sheet);
+            }
+            return sheet;
+        }
+    }
+
+    /**
+     * Parses the sheets, which weren't accessed yet, before an operation on all sheets
+     */
+    private void loadSheets() {
+        if (_sheetIndex != null) {
+            for (int i = 0; i < _sheets.size(); i++) {
+                if (_sheets.get(i) == null) {
+                    loadSheet(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the records of a sheet, which was parsed on demand, to free its memory.
+     * The sheet is parsed again from the workbook stream on its next access.
+     * <p>
+     * Any changes to the sheet are lost. The sheet, its rows and cells and evaluators, which
+     * were created before, must not be used anymore.
+     *
+     * @param index of the sheet (0-based)
+     * @return {@code true} if the records were released, {@code false} if the sheet wasn't
+     *  parsed yet or can't be parsed again, because the workbook wasn't loaded with
+     *  sheets on demand or the sheet was created afterwards
+     * @throws IllegalArgumentException if the index is out of range
+     * @see #HSSFWorkbook(DirectoryNode, boolean, boolean)
+     * @since POI 5.2.4
+     */
+    @Beta
+    public boolean releaseSheet(int index) {
+        validateSheetIndex(index);
+        if (_sheetIndex == null || !_sheetIndex.canLoad(index)) {
+            return false;
+        }
+        synchronized (_sheetIndex) {
+            return _sheets.set(index, null) != null;
+        }
     }
 
     /**
@@ -1063,7 +1193,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
             String sheetname = workbook.getSheetName(k);
 
             if (sheetname.equalsIgnoreCase(name)) {
-                retval = _sheets.get(k);
+                retval = getSheetAt(k);
             }
         }
         return retval;
@@ -1089,6 +1219,9 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
         boolean wasSelected = getSheetAt(index).isSelected();
 
         _sheets.remove(index);
+        if (_sheetIndex != null) {
+            _sheetIndex.removeSheet(index);
+        }
         workbook.removeSheet(index);
 
         // set the remaining active/selected sheet
@@ -1750,6 +1883,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
 
     @Override
     public CellReferenceType getCellReferenceType() {
+        loadSheets();
         for (HSSFSheet hssfSheet : _sheets) {
             InternalSheet internalSheet = hssfSheet.getSheet();
 
@@ -1785,6 +1919,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
      */
     @Override
     public void setCellReferenceType(CellReferenceType cellReferenceType) {
+        loadSheets();
         for (HSSFSheet hssfSheet : _sheets) {
 
             InternalSheet internalSheet = hssfSheet.getSheet();
@@ -1937,6 +2072,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
     void initDrawings() {
         DrawingManager2 mgr = workbook.findDrawingGroup();
         if (mgr != null) {
+            loadSheets();
             for (HSSFSheet sh : _sheets) {
                 sh.getDrawingPatriarch();
             }
@@ -2191,6 +2327,7 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
      */
     public List<HSSFObjectData> getAllEmbeddedObjects() {
         List<HSSFObjectData> objects = new ArrayList<>();
+        loadSheets();
         for (HSSFSheet sheet : _sheets) {
             getAllEmbeddedObjects(sheet, objects);
         }
@@ -2253,6 +2390,26 @@ public final class HSSFWorkbook extends POIDocument implements Workbook {
         udfs.add(toolpack);
     }
 
+    /**
+     * Caches the tokens of the parsed formulas of this workbook, so formulas of the same shape,
+     * e.g. {@code A1*B1} and {@code A2*B2}, are only parsed once when they are set or evaluated.
+     * Only formulas without names and sheet references are cached.
+     *
+     * @param maxFormulas the maximum number of cached formulas, 0 to disable the cache
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setFormulaParseCacheSize(int maxFormulas) {
+        _formulaParseCache = (maxFormulas > 0) ? new FormulaParseCache(SpreadsheetVersion.EXCEL97, maxFormulas) : null;
+    }
+
+    /**
+     * @return the cache of the parsed formulas or {@code null} if the formulas aren't cached
+     */
+    /*package*/ FormulaParseCache getFormulaParseCache() {
+        return _formulaParseCache;
+    }
+
     /**
      * Whether the application shall perform a full recalculation when the workbook is opened.
      * <p>
@@ -0,0 +1,178 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.EncryptedDocumentException;
+import org.apache.poi.hssf.eventusermodel.HSSFRecordCursor;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.util.RecordFormatException;
+
+/**
+ * Index of the sheet substreams of a workbook stream, which allows to parse the records of the
+ * sheets on demand.
+ * <p>
+ * The index is only created, if the positions in the {@code BOUNDSHEET} records match the
+ * substreams of the workbook stream and each substream can be loaded on its own, i.e. the
+ * stream isn't encrypted and contains only supported sheet types.
+ * Otherwise the workbook needs to be loaded completely.
+ */
+final class LazySheetIndex {
+    /** the workbook stream */
+    private final byte[] _data;
+    /** the length of the workbook globals substream */
+    private final int _globalsLength;
+    /** the substreams of the sheets in sheet order, {@code null} for sheets which weren't loaded from the stream */
+    private final List<int[]> _ranges;
+
+    private LazySheetIndex(byte[] data, int globalsLength, List<int[]> ranges) {
+        _data = data;
+        _globalsLength = globalsLength;
+        _ranges = ranges;
+    }
+
+    /**
+     * Scans the record headers of the workbook stream for the sheet substreams.
+     *
+     * @param data the workbook stream
+     * @return the index or {@code null}, if the sheets can't be loaded on demand
+     */
+    static LazySheetIndex create(byte[] data) {
+        List<Integer> bofPositions = new ArrayList<>();
+        List<int[]> substreams = new ArrayList<>();
+        HSSFRecordCursor cursor = new HSSFRecordCursor(ByteBuffer.wrap(data));
+        int depth = 0;
+        int start = -1;
+        boolean emptySubstream = false;
+        try {
+            while (cursor.next()) {
+                switch (cursor.getSid()) {
+                    case BOFRecord.sid:
+                        if (depth == 0) {
+                            start = cursor.getPosition();
+                            // the globals are always followed by worksheets, charts or macro sheets
+                            if (!substreams.isEmpty() && !isSupportedType(cursor.getUShort(2))) {
+                                return null;
+                            }
+                        }
+                        // a substream without records can't be parsed on its own
+                        emptySubstream = (depth == 0);
+                        depth++;
+                        continue;
+                    case EOFRecord.sid:
+                        if (--depth < 0 || (depth == 0 && emptySubstream)) {
+                            return null;
+                        }
+                        if (depth == 0) {
+                            substreams.add(new int[]{start, cursor.getPosition() + 4 + cursor.getLength()});
+                        }
+                        break;
+                    case BoundSheetRecord.sid:
+                        if (substreams.isEmpty()) {
+                            bofPositions.add(cursor.getInt(0));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                emptySubstream = false;
+            }
+        } catch (EncryptedDocumentException | RecordFormatException e) {
+            return null;
+        }
+
+        int numSheets = bofPositions.size();
+        if (depth != 0 || substreams.size() != numSheets + 1 || substreams.get(0)[0] != 0) {
+            return null;
+        }
+        for (int i = 0; i < numSheets; i++) {
+            if (substreams.get(i + 1)[0] != bofPositions.get(i)) {
+                return null;
+            }
+        }
+        return new LazySheetIndex(data, substreams.get(0)[1], new ArrayList<>(substreams.subList(1, numSheets + 1)));
+    }
+
+    private static boolean isSupportedType(int bofType) {
+        return bofType == BOFRecord.TYPE_WORKSHEET || bofType == BOFRecord.TYPE_CHART
+            || bofType == BOFRecord.TYPE_EXCEL_4_MACRO;
+    }
+
+    /**
+     * @return the workbook globals substream
+     */
+    UnsynchronizedByteArrayInputStream openGlobals() throws IOException {
+        return UnsynchronizedByteArrayInputStream.builder()
+            .setByteArray(_data).setOffset(0).setLength(_globalsLength).get();
+    }
+
+    int getNumberOfSheets() {
+        return _ranges.size();
+    }
+
+    /**
+     * @return {@code true}, if the sheet at the index can be parsed from the workbook stream
+     */
+    boolean canLoad(int index) {
+        return _ranges.get(index) != null;
+    }
+
+    /**
+     * Parses the records of the sheet substream.
+     *
+     * @param index the current index of the sheet
+     * @return the records of the sheet, starting with its BOF record
+     */
+    List<Record> readRecords(int index) {
+        int[] range = _ranges.get(index);
+        if (range == null) {
+            throw new IllegalStateException("The sheet " + index + " wasn't loaded from the workbook stream");
+        }
+        try (UnsynchronizedByteArrayInputStream is = UnsynchronizedByteArrayInputStream.builder()
+                .setByteArray(_data).setOffset(range[0]).setLength(range[1] - range[0]).get()) {
+            return RecordFactory.createRecords(is);
+        } catch (IOException e) {
+            // can't happen for a byte array
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Appends a sheet, which wasn't loaded from the workbook stream
+     */
+    void addSheet() {
+        _ranges.add(null);
+    }
+
+    void removeSheet(int index) {
+        _ranges.remove(index);
+    }
+
+    void moveSheet(int oldIndex, int newIndex) {
+        _ranges.add(newIndex, _ranges.remove(oldIndex));
+    }
+}
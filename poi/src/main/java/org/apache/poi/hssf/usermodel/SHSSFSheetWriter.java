@@ -0,0 +1,172 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.util.IntList;
+import org.apache.poi.util.TempFile;
+
+/**
+ * Writes the row blocks of a sheet of a {@link SHSSFWorkbook}, which aren't accessed anymore,
+ * to a temporary file. The row blocks are copied into the workbook stream, when the workbook
+ * is written.
+ */
+final class SHSSFSheetWriter {
+    private final HSSFSheet _sheet;
+    private final int _rowAccessWindowSize;
+
+    private File _file;
+    private OutputStream _out;
+    /** the serialized records of the current row block */
+    private final UnsynchronizedByteArrayOutputStream _block = UnsynchronizedByteArrayOutputStream.builder().get();
+    /** the number of bytes written to the file */
+    private int _length;
+    /** the offsets of the DBCELL records of the written row blocks from the start of the file */
+    private final IntList _dbCellOffsets = new IntList();
+    private int _firstRow = -1;
+    private int _lastRow = -1;
+
+    SHSSFSheetWriter(HSSFSheet sheet, int rowAccessWindowSize) {
+        _sheet = sheet;
+        _rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the row has already been written
+     */
+    void checkRowNum(int rownum) {
+        if (rownum <= _lastRow) {
+            throw new IllegalArgumentException(
+                    "Attempting to write a row[" + rownum + "] " +
+                            "in the range [0," + _lastRow + "] that is already written to disk.");
+        }
+    }
+
+    /**
+     * Writes the first row blocks of the sheet, as long as the rows of the access window are kept
+     */
+    void flushRows() throws IOException {
+        while (_sheet.getPhysicalNumberOfRows() >= _rowAccessWindowSize + DBCellRecord.BLOCK_SIZE) {
+            flushRowBlock();
+        }
+    }
+
+    /**
+     * Writes all rows of the sheet
+     */
+    void flushAllRows() throws IOException {
+        while (_sheet.getPhysicalNumberOfRows() > 0) {
+            flushRowBlock();
+        }
+    }
+
+    private void flushRowBlock() throws IOException {
+        if (_out == null) {
+            _file = TempFile.createTempFile("poi-shssf-sheet", ".bin");
+            _out = new BufferedOutputStream(new FileOutputStream(_file));
+        }
+        _block.reset();
+        int dbCellOffset = _sheet.removeFirstRowBlock(r -> {
+            if (r instanceof RowRecord) {
+                int rownum = ((RowRecord) r).getRowNumber();
+                if (_firstRow == -1) {
+                    _firstRow = rownum;
+                }
+                _lastRow = rownum;
+            }
+            byte[] data = r.serialize();
+            _block.write(data, 0, data.length);
+        });
+        _dbCellOffsets.add(_length + dbCellOffset);
+        _block.writeTo(_out);
+        _length += _block.size();
+    }
+
+    /**
+     * @return the number of written row blocks
+     */
+    int getNumberOfBlocks() {
+        return _dbCellOffsets.size();
+    }
+
+    /**
+     * @return the offset of the DBCELL record of the written row block from the start of the written data
+     */
+    int getDbCellOffset(int block) {
+        return _dbCellOffsets.get(block);
+    }
+
+    /**
+     * @return the number of written bytes
+     */
+    int getLength() {
+        return _length;
+    }
+
+    /**
+     * @return the number of the first written row or -1 if no rows were written
+     */
+    int getFirstRow() {
+        return _firstRow;
+    }
+
+    /**
+     * @return the number of the last written row or -1 if no rows were written
+     */
+    int getLastRow() {
+        return _lastRow;
+    }
+
+    /**
+     * @return the written data, which needs to be closed by the caller
+     */
+    InputStream openData() throws IOException {
+        if (_out == null) {
+            throw new IllegalStateException("No rows have been written");
+        }
+        _out.flush();
+        return new FileInputStream(_file);
+    }
+
+    /**
+     * Deletes the temporary file
+     *
+     * @return {@code true} if the file was deleted or no file was created
+     */
+    boolean dispose() throws IOException {
+        if (_out == null) {
+            return true;
+        }
+        try {
+            _out.close();
+        } finally {
+            _out = null;
+        }
+        return _file.delete();
+    }
+}
@@ -0,0 +1,362 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.input.UnsynchronizedByteArrayInputStream;
+import org.apache.poi.hssf.eventusermodel.HSSFRecordCursor;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.DimensionsRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.IndexRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.Beta;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+import org.apache.poi.util.TempFile;
+
+/**
+ * Streaming version of {@link HSSFWorkbook} for writing large .xls files.
+ * <p>
+ * The sheets created by this workbook keep only a configurable number of rows in memory.
+ * When more rows are created, the rows with the lowest index are written in blocks of 32 rows
+ * to temporary files and can't be accessed via {@link HSSFSheet#getRow(int)} anymore.
+ * On {@link #write(OutputStream)}, the workbook globals with the shared strings table and the
+ * sheets are serialized without the written rows, which are copied from the temporary files
+ * into the workbook stream. The workbook stream itself is assembled in a temporary file.
+ * <p>
+ * Everything else, e.g. the shared strings, styles, merged regions and comments, is still kept
+ * in memory. Formulas can't be evaluated and columns can't be auto-sized based on the written rows.
+ * Use {@link #getWorkbook()} for fonts, styles and other workbook settings.
+ * <pre>{@code
+ * try (SHSSFWorkbook wb = new SHSSFWorkbook()) {
+ *     HSSFSheet sheet = wb.createSheet("data");
+ *     for (int i = 0; i < 65536; i++) {
+ *         sheet.createRow(i).createCell(0).setCellValue(i);
+ *     }
+ *     wb.write(out);
+ * }
+ * }</pre>
+ *
+ * @since POI 5.2.4
+ */
+@Beta
+public final class SHSSFWorkbook implements Closeable {
+    /**
+     * Specifies how many rows can be accessed at least via {@link HSSFSheet#getRow(int)}.
+     * When a new row is created via {@link HSSFSheet#createRow(int)} and the number of rows in memory
+     * exceeds this value by a block of 32 rows, the block with the lowest row indexes is written.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+
+    private final HSSFWorkbook _wb;
+    private final int _rowAccessWindowSize;
+    private final List<SHSSFSheetWriter> _writers = new ArrayList<>();
+
+    /**
+     * Creates an empty workbook with the default row access window size
+     */
+    public SHSSFWorkbook() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates an empty workbook
+     *
+     * @param rowAccessWindowSize the number of rows, which are at least kept in memory
+     */
+    public SHSSFWorkbook(int rowAccessWindowSize) {
+        this(new HSSFWorkbook(), rowAccessWindowSize);
+    }
+
+    /**
+     * Creates a workbook based on a template workbook. The existing sheets of the template
+     * are kept in memory, only the sheets created by {@link #createSheet(String)} are streamed.
+     *
+     * @param workbook the template workbook
+     * @param rowAccessWindowSize the number of rows, which are at least kept in memory
+     */
+    public SHSSFWorkbook(HSSFWorkbook workbook, int rowAccessWindowSize) {
+        if (rowAccessWindowSize < 1) {
+            throw new IllegalArgumentException("rowAccessWindowSize must be greater than 0, but had " + rowAccessWindowSize);
+        }
+        _wb = workbook;
+        _rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    /**
+     * @return the underlying workbook, e.g. for creating styles and fonts
+     */
+    public HSSFWorkbook getWorkbook() {
+        return _wb;
+    }
+
+    /**
+     * @return the row access window size
+     */
+    public int getRowAccessWindowSize() {
+        return _rowAccessWindowSize;
+    }
+
+    /**
+     * Creates a sheet, whose rows are written when they leave the row access window.
+     * The rows need to be created in ascending order, i.e. rows can't be created below
+     * rows, which were already written.
+     *
+     * @return the new sheet
+     * @see HSSFWorkbook#createSheet()
+     */
+    public HSSFSheet createSheet() {
+        return stream(_wb.createSheet());
+    }
+
+    /**
+     * Creates a sheet, whose rows are written when they leave the row access window.
+     * The rows need to be created in ascending order, i.e. rows can't be created below
+     * rows, which were already written.
+     *
+     * @param sheetname the name of the sheet
+     * @return the new sheet
+     * @see HSSFWorkbook#createSheet(String)
+     */
+    public HSSFSheet createSheet(String sheetname) {
+        return stream(_wb.createSheet(sheetname));
+    }
+
+    private HSSFSheet stream(HSSFSheet sheet) {
+        SHSSFSheetWriter writer = new SHSSFSheetWriter(sheet, _rowAccessWindowSize);
+        sheet.setStreamingWriter(writer);
+        _writers.add(writer);
+        return sheet;
+    }
+
+    /**
+     * Writes all rows of a sheet, which was created by this workbook.
+     * Afterwards, no rows of the sheet can be accessed and new rows can only be created
+     * below the written rows.
+     *
+     * @param sheet the sheet
+     * @throws IOException if the rows can't be written
+     * @throws IllegalArgumentException if the sheet wasn't created by this workbook
+     */
+    public void flushRows(HSSFSheet sheet) throws IOException {
+        SHSSFSheetWriter writer = sheet.getStreamingWriter();
+        if (writer == null || !_writers.contains(writer)) {
+            throw new IllegalArgumentException("The sheet wasn't created by this workbook");
+        }
+        writer.flushAllRows();
+    }
+
+    /**
+     * Writes the workbook to a stream. The rows in memory aren't written to the temporary files,
+     * so the workbook can still be changed and written again.
+     *
+     * @param stream the stream, which isn't closed
+     * @throws IOException if the workbook can't be written
+     * @throws org.apache.poi.EncryptedDocumentException if the workbook is encrypted,
+     *  which isn't supported for streamed sheets
+     */
+    public void write(OutputStream stream) throws IOException {
+        byte[] globalsAndSheets = _wb.getBytes();
+        List<SheetLayout> sheets = findSheets(globalsAndSheets);
+
+        // the row blocks are inserted after the DIMENSIONS record of each sheet, so the offsets of the
+        // following sheets and of the DBCELL records in the INDEX records need to be moved
+        int shift = 0;
+        List<InputStream> segments = new ArrayList<>();
+        int pos = 0;
+        try {
+            for (int i = 0; i < sheets.size(); i++) {
+                SheetLayout sheet = sheets.get(i);
+                SHSSFSheetWriter writer = _wb.getSheetAt(i).getStreamingWriter();
+                int numWritten = (writer == null) ? 0 : writer.getNumberOfBlocks();
+                int writtenLength = (numWritten == 0) ? 0 : writer.getLength();
+                IndexRecord oldIndex = sheet.index;
+                int numInMemory = oldIndex.getNumDbcells();
+                int indexGrowth = IndexRecord.getRecordSizeForBlockCount(numWritten + numInMemory) - sheet.indexLength;
+
+                IndexRecord index = new IndexRecord();
+                if (numWritten > 0) {
+                    // the written rows are the lowest rows of the sheet
+                    index.setFirstRow(writer.getFirstRow());
+                    index.setLastRowAdd1(Math.max(writer.getLastRow() + 1, oldIndex.getLastRowAdd1()));
+                } else {
+                    index.setFirstRow(oldIndex.getFirstRow());
+                    index.setLastRowAdd1(oldIndex.getLastRowAdd1());
+                }
+                int rowsStart = sheet.rowsPosition + shift + indexGrowth;
+                for (int block = 0; block < numWritten; block++) {
+                    index.addDbcell(rowsStart + writer.getDbCellOffset(block));
+                }
+                for (int block = 0; block < numInMemory; block++) {
+                    index.addDbcell(oldIndex.getDbcellAt(block) + shift + indexGrowth + writtenLength);
+                }
+
+                LittleEndian.putInt(globalsAndSheets, sheet.boundSheetPosition + 4, sheet.start + shift);
+
+                segments.add(segment(globalsAndSheets, pos, sheet.indexPosition));
+                segments.add(UnsynchronizedByteArrayInputStream.builder().setByteArray(index.serialize()).get());
+                segments.add(segment(globalsAndSheets, sheet.indexPosition + sheet.indexLength, sheet.rowsPosition));
+                if (numWritten > 0) {
+                    segments.add(writer.openData());
+                }
+                pos = sheet.rowsPosition;
+                shift += indexGrowth + writtenLength;
+            }
+            segments.add(segment(globalsAndSheets, pos, globalsAndSheets.length));
+        } catch (IOException | RuntimeException e) {
+            segments.forEach(IOUtils::closeQuietly);
+            throw e;
+        }
+
+        File file = TempFile.createTempFile("poi-shssf-workbook", ".xls");
+        try {
+            try (POIFSFileSystem fs = POIFSFileSystem.create(file);
+                 InputStream workbookStream = new SequenceInputStream(Collections.enumeration(segments))) {
+                fs.createDocument(workbookStream, "Workbook");
+                _wb.writeProperties(fs);
+                fs.writeFilesystem(stream);
+            }
+        } finally {
+            segments.forEach(IOUtils::closeQuietly);
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private static InputStream segment(byte[] data, int start, int end) throws IOException {
+        return UnsynchronizedByteArrayInputStream.builder()
+            .setByteArray(data).setOffset(start).setLength(end - start).get();
+    }
+
+    /**
+     * The positions of the records of a sheet substream, which are changed when the
+     * written rows are inserted
+     */
+    private static final class SheetLayout {
+        /** the position of the BOF record of the sheet */
+        final int start;
+        /** the position of the BOUNDSHEET record of the sheet in the workbook globals */
+        final int boundSheetPosition;
+        int indexPosition = -1;
+        int indexLength;
+        IndexRecord index;
+        /** the position after the DIMENSIONS record, where the row blocks start */
+        int rowsPosition = -1;
+
+        SheetLayout(int start, int boundSheetPosition) {
+            this.start = start;
+            this.boundSheetPosition = boundSheetPosition;
+        }
+    }
+
+    private List<SheetLayout> findSheets(byte[] globalsAndSheets) {
+        List<Integer> boundSheets = new ArrayList<>();
+        List<SheetLayout> sheets = new ArrayList<>();
+        HSSFRecordCursor cursor = new HSSFRecordCursor(ByteBuffer.wrap(globalsAndSheets));
+        SheetLayout sheet = null;
+        int substreams = 0;
+        int depth = 0;
+        while (cursor.next()) {
+            switch (cursor.getSid()) {
+                case BOFRecord.sid:
+                    if (depth++ == 0 && substreams++ > 0) {
+                        int index = sheets.size();
+                        if (index >= boundSheets.size()) {
+                            throw new IllegalStateException("The workbook has more sheet substreams than BOUNDSHEET records");
+                        }
+                        sheet = new SheetLayout(cursor.getPosition(), boundSheets.get(index));
+                        sheets.add(sheet);
+                    }
+                    break;
+                case EOFRecord.sid:
+                    depth--;
+                    break;
+                case BoundSheetRecord.sid:
+                    if (substreams == 1) {
+                        boundSheets.add(cursor.getPosition());
+                    }
+                    break;
+                case IndexRecord.sid:
+                    if (depth == 1 && sheet != null && sheet.index == null) {
+                        sheet.indexPosition = cursor.getPosition();
+                        sheet.indexLength = 4 + cursor.getLength();
+                        sheet.index = (IndexRecord) cursor.getRecord();
+                    }
+                    break;
+                case DimensionsRecord.sid:
+                    if (depth == 1 && sheet != null && sheet.rowsPosition == -1) {
+                        sheet.rowsPosition = cursor.getPosition() + 4 + cursor.getLength();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (sheets.size() != _wb.getNumberOfSheets() || boundSheets.size() != sheets.size()) {
+            throw new IllegalStateException("The workbook stream doesn't contain the " + _wb.getNumberOfSheets() + " sheets of the workbook");
+        }
+        for (SheetLayout sl : sheets) {
+            if (sl.index == null || sl.rowsPosition < sl.indexPosition) {
+                throw new IllegalStateException("The sheet at " + sl.start + " has no INDEX record followed by a DIMENSIONS record");
+            }
+        }
+        return sheets;
+    }
+
+    /**
+     * Deletes the temporary files of the written rows.
+     * Calling this method will render the workbook unusable.
+     *
+     * @return {@code true} if all temporary files were deleted successfully
+     * @throws IOException if a temporary file can't be closed
+     */
+    public boolean dispose() throws IOException {
+        boolean success = true;
+        for (SHSSFSheetWriter writer : _writers) {
+            success = writer.dispose() && success;
+        }
+        return success;
+    }
+
+    /**
+     * Closes the underlying workbook and deletes the temporary files.
+     * No further operations should be performed on the workbook afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            _wb.close();
+        } finally {
+            dispose();
+        }
+    }
+}
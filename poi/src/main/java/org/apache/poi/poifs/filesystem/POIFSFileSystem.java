@@ -24,9 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
-import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -40,6 +38,7 @@ import org.apache.poi.poifs.common.POIFSBigBlockSize;
 import org.apache.poi.poifs.common.POIFSConstants;
 import org.apache.poi.poifs.dev.POIFSViewable;
 import org.apache.poi.poifs.nio.ByteArrayBackedDataSource;
+import org.apache.poi.poifs.nio.ChunkedByteArrayDataSource;
 import org.apache.poi.poifs.nio.DataSource;
 import org.apache.poi.poifs.nio.FileBackedDataSource;
 import org.apache.poi.poifs.property.DirectoryProperty;
@@ -315,15 +314,13 @@ public class POIFSFileSystem extends BlockStore
         this(false);
 
         boolean success = false;
-        try (ReadableByteChannel channel = Channels.newChannel(stream)) {
-            // Turn our InputStream into something NIO based
-
+        try {
             // Get the header
-            ByteBuffer headerBuffer = ByteBuffer.allocate(POIFSConstants.SMALLER_BIG_BLOCK_SIZE);
-            IOUtils.readFully(channel, headerBuffer);
+            byte[] headerBytes = new byte[POIFSConstants.SMALLER_BIG_BLOCK_SIZE];
+            IOUtils.readFully(stream, headerBytes);
 
             // Have the header processed
-            _header = new HeaderBlock(headerBuffer);
+            _header = new HeaderBlock(ByteBuffer.wrap(headerBytes));
 
             // Sanity check the block count
             sanityCheckBlockCount(_header.getBATCount());
@@ -339,19 +336,14 @@ public class POIFSFileSystem extends BlockStore
             // don't allow huge allocations with invalid header-values
             IOUtils.safelyAllocateCheck(maxSize, MAX_ALLOCATION_SIZE);
 
-            ByteBuffer data = ByteBuffer.allocate((int) maxSize);
-
-            // Copy in the header
-            headerBuffer.position(0);
-            data.put(headerBuffer);
-            data.position(headerBuffer.capacity());
-
-            // Now read the rest of the stream
-            IOUtils.readFully(channel, data);
+            // Read the stream into chunks, which are only allocated for the data actually read
+            //  and never copied, instead of a single buffer of the maximum size
+            ChunkedByteArrayDataSource data = new ChunkedByteArrayDataSource();
+            data.write(ByteBuffer.wrap(headerBytes), 0);
+            data.readFrom(stream, maxSize - headerBytes.length);
             success = true;
 
-            // Turn it into a DataSource
-            _data = new ByteArrayBackedDataSource(data.array(), data.position());
+            _data = data;
         } finally {
             // As per the constructor contract, always close the stream
             closeInputStream(stream, success);
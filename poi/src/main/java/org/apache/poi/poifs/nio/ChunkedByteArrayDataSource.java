@@ -0,0 +1,170 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.poifs.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.util.IOUtils;
+
+/**
+ * A POIFS {@link DataSource} backed by a list of fixed size byte arrays.
+ * <p>
+ * Unlike {@link ByteArrayBackedDataSource}, the data doesn't need a single contiguous array,
+ * so it can be filled from a stream of unknown length without allocating an upper bound of
+ * the length up front or copying the data into larger arrays while it grows.
+ * <p>
+ * The chunks are allocated at their full size and never replaced, and they are a multiple of
+ * the big block size, so the blocks of a POIFS file never span two chunks and the buffers
+ * returned by {@link #read(int, long)} keep writing through to the data, even after appending.
+ * Reads spanning two chunks return a copy of the data.
+ *
+ * @since POI 5.2.4
+ */
+public class ChunkedByteArrayDataSource extends DataSource {
+    private static final int CHUNK_SHIFT = 16;
+    /** the size of the chunks, 64 KiB */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** all chunks have {@link #CHUNK_SIZE} bytes */
+    private List<byte[]> chunks = new ArrayList<>();
+    private long size;
+
+    /**
+     * Appends the rest of the stream to the data.
+     *
+     * @param stream the stream, which isn't closed
+     * @param maxLength the maximum number of bytes to read
+     * @return the number of bytes read
+     * @throws IOException if the stream can't be read
+     */
+    public long readFrom(InputStream stream, long maxLength) throws IOException {
+        long read = 0;
+        while (read < maxLength) {
+            int offset = (int) (size & CHUNK_MASK);
+            int length = (int) Math.min(CHUNK_SIZE - offset, maxLength - read);
+            boolean newChunk = (offset == 0 && (size >>> CHUNK_SHIFT) == chunks.size());
+            byte[] chunk = getChunk((int) (size >>> CHUNK_SHIFT));
+            int count = IOUtils.readFully(stream, chunk, offset, length);
+            if (count <= 0) {
+                if (newChunk) {
+                    chunks.remove(chunks.size() - 1);
+                }
+                break;
+            }
+            read += count;
+            size += count;
+            if (count < length) {
+                // end of stream
+                break;
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public ByteBuffer read(int length, long position) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Unable to read " + length + " bytes from " +
+                    position + " in stream of length " + size
+            );
+        }
+
+        int toRead = (int) Math.min(length, size - position);
+        int offset = (int) (position & CHUNK_MASK);
+        byte[] chunk = chunks.get((int) (position >>> CHUNK_SHIFT));
+        if (offset + toRead <= CHUNK_SIZE) {
+            return ByteBuffer.wrap(chunk, offset, toRead);
+        }
+
+        byte[] copy = new byte[toRead];
+        copy(position, copy, toRead, false);
+        return ByteBuffer.wrap(copy);
+    }
+
+    @Override
+    public void write(ByteBuffer src, long position) {
+        int length = src.capacity();
+        long endPosition = position + length;
+        byte[] data = new byte[length];
+        src.get(data, 0, length);
+
+        getChunk((int) ((endPosition - 1) >>> CHUNK_SHIFT));
+        copy(position, data, length, true);
+
+        if (endPosition > size) {
+            size = endPosition;
+        }
+    }
+
+    /**
+     * Copies the data between the chunks and the array
+     */
+    private void copy(long position, byte[] data, int length, boolean toChunks) {
+        int done = 0;
+        while (done < length) {
+            long pos = position + done;
+            byte[] chunk = chunks.get((int) (pos >>> CHUNK_SHIFT));
+            int offset = (int) (pos & CHUNK_MASK);
+            int count = Math.min(length - done, CHUNK_SIZE - offset);
+            if (toChunks) {
+                System.arraycopy(data, done, chunk, offset, count);
+            } else {
+                System.arraycopy(chunk, offset, data, done, count);
+            }
+            done += count;
+        }
+    }
+
+    /**
+     * @return the chunk at the index, allocated with any chunks before it if it doesn't exist yet
+     */
+    private byte[] getChunk(int index) {
+        while (chunks.size() <= index) {
+            chunks.add(new byte[CHUNK_SIZE]);
+        }
+        return chunks.get(index);
+    }
+
+    @Override
+    public void copyTo(OutputStream stream) throws IOException {
+        long remaining = size;
+        for (byte[] chunk : chunks) {
+            int count = (int) Math.min(remaining, CHUNK_SIZE);
+            stream.write(chunk, 0, count);
+            remaining -= count;
+        }
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        chunks = null;
+        size = -1;
+    }
+}
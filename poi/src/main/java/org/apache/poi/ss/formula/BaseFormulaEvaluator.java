@@ -17,7 +17,9 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -27,6 +29,7 @@ import org.apache.poi.ss.usermodel.RichTextString;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Beta;
 
 /**
  * Common functionality across file formats for evaluating formula cells.
@@ -267,6 +270,53 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         FormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
         evaluateAllFormulaCells(wb, evaluator);
     }
+
+    /**
+     * Evaluates all formula cells of the supplied workbook like
+     *  {@link #evaluateAllFormulaCells(Workbook)}, but spreads the
+     *  work over the threads of the executor.
+     * The formula cells are scheduled by their dependencies, so
+     *  that independent cells are evaluated concurrently.
+     *  Formulas with dynamic or circular references are evaluated
+     *  afterwards on the calling thread.
+     * The results are the same as with the single-threaded
+     *  evaluation. The workbook must not be modified until
+     *  this method returns.
+     * The number of concurrent tasks is the parallelism of a
+     *  {@link java.util.concurrent.ForkJoinPool} or the maximum
+     *  pool size of a {@link java.util.concurrent.ThreadPoolExecutor},
+     *  other executors evaluate the cells serially - use
+     *  {@link #evaluateAllFormulaCells(Workbook, Executor, int)} for them.
+     * Workbooks, which can't be read concurrently, e.g. SXSSF workbooks,
+     *  are evaluated serially on the calling thread.
+     *
+     * @param wb the workbook to evaluate
+     * @param executor the executor for the evaluation tasks, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public static void evaluateAllFormulaCells(Workbook wb, Executor executor) {
+        new ParallelFormulaEvaluation(wb, executor).evaluateAll();
+    }
+
+    /**
+     * Evaluates all formula cells of the supplied workbook like
+     *  {@link #evaluateAllFormulaCells(Workbook, Executor)}, but with
+     *  at most the given number of concurrent tasks.
+     *
+     * @param wb the workbook to evaluate
+     * @param executor the executor for the evaluation tasks
+     * @param parallelism the maximum number of concurrent tasks, 1 evaluates the cells serially
+     * @throws IllegalArgumentException if the parallelism is less than 1
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public static void evaluateAllFormulaCells(Workbook wb, Executor executor, int parallelism) {
+        new ParallelFormulaEvaluation(wb, executor, parallelism).evaluateAll();
+    }
+
     protected static void evaluateAllFormulaCells(Workbook wb, FormulaEvaluator evaluator) {
         for(int i=0; i<wb.getNumberOfSheets(); i++) {
             Sheet sheet = wb.getSheetAt(i);
@@ -281,6 +331,113 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         }
     }
 
+    /**
+     * Builds the dependency graph of all formula cells in the workbook
+     *  and uses it to recalculate only the formulas affected by changes.
+     * Afterwards the cached results of the formula cells are
+     *  considered to be up-to-date, e.g. after loading a workbook
+     *  saved by Excel or after {@link #evaluateAllFormulaCells(Workbook)}.
+     * The notify~ methods then mark the formula cells as dirty, which
+     *  depend on the changed cells, and only those are evaluated again.
+     *  Formulas with dynamic references, e.g. INDIRECT, are marked
+     *  as dirty on every change.
+     * <pre>
+     * evaluator.setupDependencyGraph(wb);
+     * inputCell.setCellValue(42);
+     * evaluator.notifyUpdateCell(inputCell);
+     * evaluator.recalculateDirty();
+     * </pre>
+     *
+     * @param wb the workbook of this evaluator or {@code null} to stop
+     *  using the dependency graph
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setupDependencyGraph(Workbook wb) {
+        _bookEvaluator.setDependencyGraph(wb == null ? null
+            : new FormulaDependencyGraph(wb, getEvaluationWorkbook()));
+    }
+
+    /**
+     * Evaluates the formula cells, which have been marked as dirty since
+     *  the dependency graph has been set up or since the last call of
+     *  this method, and saves their results in sheet, row and cell order.
+     * The cells remain formula cells.
+     *
+     * @return the number of recalculated formula cells
+     * @throws IllegalStateException if {@link #setupDependencyGraph(Workbook)}
+     *  hasn't been called
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public int recalculateDirty() {
+        FormulaDependencyGraph graph = _bookEvaluator.getDependencyGraph();
+        if (graph == null) {
+            throw new IllegalStateException("The dependency graph hasn't been set up");
+        }
+        List<FormulaDependencyGraph.Node> dirty = graph.getDirtyNodes();
+        for (FormulaDependencyGraph.Node node : dirty) {
+            evaluateFormulaCell(node.getCell());
+        }
+        graph.clearDirty(dirty);
+        return dirty.size();
+    }
+
+    /**
+     * Evaluates the precedents of formula cells with an explicit work
+     *  stack instead of recursive calls, so that long dependency chains
+     *  like running balances don't overflow the Java call stack.
+     * The results are the same as with the recursive evaluation.
+     * Precedents via names, dynamic references like INDIRECT and
+     *  very large areas are still evaluated recursively.
+     *
+     * @param iterative whether to evaluate with a work stack
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setIterativeEvaluation(boolean iterative) {
+        _bookEvaluator.setIterativeEvaluation(iterative);
+    }
+
+    /**
+     * Evaluates formula cells with compiled token arrays, which are
+     *  cached by their shape, i.e. shared by formulas which only differ
+     *  by their relative references, like formulas copied down a column.
+     * The results are the same as with the interpreted evaluation.
+     *
+     * @param compiled whether to evaluate compiled formulas
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setCompiledEvaluation(boolean compiled) {
+        _bookEvaluator.setCompiledEvaluation(compiled);
+    }
+
+    /**
+     * Allows several threads to call {@link #evaluate(Cell)} on this
+     *  evaluator at the same time, e.g. to serve a read-only model to
+     *  many requests. Each thread evaluates with its own cache and the
+     *  formula results are shared by all threads.
+     * The workbook must not be modified while other threads evaluate,
+     *  and the evaluate~InCell methods, which write the results into
+     *  the cells, must not be called concurrently.
+     *  The notify~ methods discard all cached results in this mode.
+     * This method must be called before the evaluator is shared with
+     *  other threads.
+     *
+     * @param concurrent whether to allow concurrent evaluations
+     *
+     * @since POI 5.2.4
+     */
+    @Beta
+    public void setConcurrentEvaluation(boolean concurrent) {
+        _bookEvaluator.setConcurrentEvaluation(concurrent);
+    }
+
     @Override
     public void setIgnoreMissingWorkbooks(boolean ignore){
         _bookEvaluator.setIgnoreMissingWorkbooks(ignore);
@@ -0,0 +1,625 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.EvaluationException;
+import org.apache.poi.ss.formula.eval.FunctionEval;
+import org.apache.poi.ss.formula.eval.MissingArgEval;
+import org.apache.poi.ss.formula.eval.NotImplementedException;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.RefListEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.functions.ArrayMode;
+import org.apache.poi.ss.formula.functions.Choose;
+import org.apache.poi.ss.formula.functions.FreeRefFunction;
+import org.apache.poi.ss.formula.functions.Function;
+import org.apache.poi.ss.formula.functions.IfFunc;
+import org.apache.poi.ss.formula.ptg.*;
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndianByteArrayOutputStream;
+import org.apache.poi.util.StringUtil;
+
+/**
+ * A formula token array, which is prepared for repeated evaluation.
+ * <p>
+ * Compared to {@link WorkbookEvaluator#evaluateFormula(OperationEvaluationContext, Ptg[])}, the token
+ * dispatch, the constant operands, the function lookups and the jump distances of {@code IF}, {@code CHOOSE}
+ * and skip tokens are resolved once. Relative references are stored as offsets to the formula cell, so a
+ * compiled formula can be shared by all cells with the same {@link Shape}, e.g. a formula which has been
+ * copied down a column.
+ * <p>
+ * The evaluation replicates the interpreter, including the order in which the operands are evaluated
+ * and the errors which are thrown.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+final class CompiledFormula {
+    private static final int NOOP = 0;
+    private static final int CONSTANT = 1;
+    private static final int REFERENCE = 2;
+    private static final int PTG = 3;
+    private static final int OPERATION = 4;
+    private static final int UNION = 5;
+    private static final int IF = 6;
+    private static final int CHOOSE = 7;
+    private static final int SKIP = 8;
+
+    /** Marks a token array, which can't be compiled and is left to the interpreter */
+    static final CompiledFormula NOT_COMPILABLE = new CompiledFormula(new int[0], new Object[0], false);
+
+    private final int[] _opcodes;
+    private final Object[] _operands;
+    private final boolean _checksArrayFormula;
+
+    private CompiledFormula(int[] opcodes, Object[] operands, boolean checksArrayFormula) {
+        _opcodes = opcodes;
+        _operands = operands;
+        _checksArrayFormula = checksArrayFormula;
+    }
+
+    /**
+     * The identity of a formula token array, where relative references are replaced by their offset to
+     * the formula cell
+     */
+    static final class Shape {
+        private static final int TAG_PTG = 0;
+        private static final int TAG_REF = 1;
+        private static final int TAG_REF_3D = 2;
+        private static final int TAG_REF_3D_PXG = 3;
+        private static final int TAG_NAME_X_PXG = 4;
+
+        /** the maximum encoded size of a reference, without the sheet names */
+        private static final int MAX_REF_SIZE = 24;
+
+        private final byte[] _bytes;
+        private final int _hash;
+
+        private Shape(byte[] bytes) {
+            _bytes = bytes;
+            _hash = Arrays.hashCode(bytes);
+        }
+
+        /**
+         * @return the shape of the token array, or {@code null} if it can't be determined
+         */
+        static Shape of(Ptg[] ptgs, int rowIndex, int columnIndex) {
+            int size = 0;
+            for (Ptg ptg : ptgs) {
+                size += 1 + Math.max(ptg.getSize(), MAX_REF_SIZE);
+                if (ptg instanceof Pxg) {
+                    size += 4 + 2 * (length(((Pxg) ptg).getSheetName()) + length(lastSheetName(ptg)));
+                }
+                if (ptg instanceof NameXPxg) {
+                    size += 2 + 2 * length(ptg.toFormulaString());
+                }
+            }
+
+            byte[] buf = new byte[size];
+            LittleEndianByteArrayOutputStream out = new LittleEndianByteArrayOutputStream(buf, 0);
+            try {
+                for (Ptg ptg : ptgs) {
+                    write(out, ptg, rowIndex, columnIndex);
+                }
+            } catch (RuntimeException e) {
+                // e.g. XSSF-only tokens, which can't be serialized
+                return null;
+            }
+            return new Shape(Arrays.copyOf(buf, out.getWriteIndex()));
+        }
+
+        private static void write(LittleEndianByteArrayOutputStream out, Ptg ptg, int rowIndex, int columnIndex) {
+            if (ptg instanceof Ref3DPxg || ptg instanceof Area3DPxg) {
+                Pxg3D pxg = (Pxg3D) ptg;
+                out.writeByte(TAG_REF_3D_PXG);
+                out.writeShort(pxg.getExternalWorkbookNumber());
+                writeString(out, pxg.getSheetName());
+                writeString(out, pxg.getLastSheetName());
+                writeReference(out, ptg, rowIndex, columnIndex);
+            } else if (ptg instanceof Ref3DPtg || ptg instanceof Area3DPtg) {
+                out.writeByte(TAG_REF_3D);
+                out.writeShort(((ExternSheetReferenceToken) ptg).getExternSheetIndex());
+                writeReference(out, ptg, rowIndex, columnIndex);
+            } else if (ptg instanceof RefPtg || ptg instanceof AreaPtg) {
+                out.writeByte(TAG_REF);
+                writeReference(out, ptg, rowIndex, columnIndex);
+            } else if (ptg instanceof NameXPxg) {
+                out.writeByte(TAG_NAME_X_PXG);
+                writeString(out, ptg.toFormulaString());
+            } else {
+                out.writeByte(TAG_PTG);
+                ptg.write(out);
+                if (ptg instanceof ArrayPtg) {
+                    ((ArrayPtg) ptg).writeTokenValueBytes(out);
+                }
+            }
+        }
+
+        private static void writeReference(LittleEndianByteArrayOutputStream out, Ptg ptg, int rowIndex, int columnIndex) {
+            out.writeByte(ptg.getSid() + ptg.getPtgClass());
+            if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                out.writeByte((ref.isRowRelative() ? 1 : 0) | (ref.isColRelative() ? 2 : 0));
+                out.writeInt(ref.isRowRelative() ? ref.getRow() - rowIndex : ref.getRow());
+                out.writeInt(ref.isColRelative() ? ref.getColumn() - columnIndex : ref.getColumn());
+            } else {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                out.writeByte((area.isFirstRowRelative() ? 1 : 0) | (area.isFirstColRelative() ? 2 : 0)
+                        | (area.isLastRowRelative() ? 4 : 0) | (area.isLastColRelative() ? 8 : 0));
+                out.writeInt(area.isFirstRowRelative() ? area.getFirstRow() - rowIndex : area.getFirstRow());
+                out.writeInt(area.isFirstColRelative() ? area.getFirstColumn() - columnIndex : area.getFirstColumn());
+                out.writeInt(area.isLastRowRelative() ? area.getLastRow() - rowIndex : area.getLastRow());
+                out.writeInt(area.isLastColRelative() ? area.getLastColumn() - columnIndex : area.getLastColumn());
+            }
+        }
+
+        private static void writeString(LittleEndianByteArrayOutputStream out, String str) {
+            if (str == null) {
+                out.writeShort(-1);
+            } else {
+                out.writeShort(str.length());
+                StringUtil.putUnicodeLE(str, out);
+            }
+        }
+
+        private static String lastSheetName(Ptg ptg) {
+            return (ptg instanceof Pxg3D) ? ((Pxg3D) ptg).getLastSheetName() : null;
+        }
+
+        private static int length(String str) {
+            return (str == null) ? 0 : str.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Shape) && _hash == ((Shape) o)._hash && Arrays.equals(_bytes, ((Shape) o)._bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+    }
+
+    /**
+     * A cell or area reference with relative coordinates stored as offsets
+     */
+    private static final class Reference {
+        /** the token for the sheet lookup of 3D references, otherwise {@code null} */
+        private final Ptg sheetPtg;
+        private final boolean area;
+        private final int firstRow, firstColumn, lastRow, lastColumn;
+        private final boolean firstRowRelative, firstColumnRelative, lastRowRelative, lastColumnRelative;
+
+        Reference(Ptg ptg, int rowIndex, int columnIndex) {
+            sheetPtg = (ptg instanceof RefPtg || ptg instanceof AreaPtg) ? null : ptg;
+            if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                area = false;
+                firstRowRelative = lastRowRelative = ref.isRowRelative();
+                firstColumnRelative = lastColumnRelative = ref.isColRelative();
+                firstRow = lastRow = offset(ref.getRow(), rowIndex, firstRowRelative);
+                firstColumn = lastColumn = offset(ref.getColumn(), columnIndex, firstColumnRelative);
+            } else {
+                AreaPtgBase aptg = (AreaPtgBase) ptg;
+                area = true;
+                firstRowRelative = aptg.isFirstRowRelative();
+                firstColumnRelative = aptg.isFirstColRelative();
+                lastRowRelative = aptg.isLastRowRelative();
+                lastColumnRelative = aptg.isLastColRelative();
+                firstRow = offset(aptg.getFirstRow(), rowIndex, firstRowRelative);
+                firstColumn = offset(aptg.getFirstColumn(), columnIndex, firstColumnRelative);
+                lastRow = offset(aptg.getLastRow(), rowIndex, lastRowRelative);
+                lastColumn = offset(aptg.getLastColumn(), columnIndex, lastColumnRelative);
+            }
+        }
+
+        private static int offset(int index, int base, boolean relative) {
+            return relative ? index - base : index;
+        }
+
+        private static int resolve(int index, int base, boolean relative) {
+            return relative ? index + base : index;
+        }
+
+        ValueEval evaluate(OperationEvaluationContext ec) {
+            SheetRangeEvaluator sre;
+            if (sheetPtg == null) {
+                sre = ec.getRefEvaluatorForCurrentSheet();
+            } else if (sheetPtg instanceof Pxg3D) {
+                Pxg3D pxg = (Pxg3D) sheetPtg;
+                sre = ec.createExternSheetRefEvaluator(pxg.getSheetName(), pxg.getLastSheetName(), pxg.getExternalWorkbookNumber());
+            } else {
+                sre = ec.createExternSheetRefEvaluator((ExternSheetReferenceToken) sheetPtg);
+            }
+
+            int row = ec.getRowIndex();
+            int col = ec.getColumnIndex();
+            if (!area) {
+                return new LazyRefEval(resolve(firstRow, row, firstRowRelative), resolve(firstColumn, col, firstColumnRelative), sre);
+            }
+            return new LazyAreaEval(resolve(firstRow, row, firstRowRelative), resolve(firstColumn, col, firstColumnRelative),
+                    resolve(lastRow, row, lastRowRelative), resolve(lastColumn, col, lastColumnRelative), sre);
+        }
+    }
+
+    /**
+     * An operator or function with its pre-resolved implementation
+     */
+    private static final class Operation {
+        private final OperationPtg ptg;
+        private final int numberOfOperands;
+        /** whether the next function is evaluated in array mode, when it has area arguments */
+        private final boolean arrayMode;
+        private final Function function;
+        private final FreeRefFunction freeRefFunction;
+
+        Operation(OperationPtg ptg, boolean arrayMode) {
+            this.ptg = ptg;
+            this.numberOfOperands = ptg.getNumberOfOperands();
+            this.arrayMode = arrayMode;
+            Function func = null;
+            FreeRefFunction freeRefFunc = null;
+            try {
+                func = OperationEvaluatorFactory.getFunction(ptg);
+                if (func == null) {
+                    freeRefFunc = OperationEvaluatorFactory.getFreeRefFunction(ptg);
+                }
+            } catch (NotImplementedException e) {
+                // reported, when the function is actually evaluated
+            }
+            this.function = func;
+            this.freeRefFunction = freeRefFunc;
+        }
+
+        ValueEval evaluate(ValueEval[] args, OperationEvaluationContext ec) {
+            if (function != null) {
+                return OperationEvaluatorFactory.evaluate(function, args, ec);
+            }
+            if (freeRefFunction != null) {
+                return freeRefFunction.evaluate(args, ec);
+            }
+            return OperationEvaluatorFactory.evaluate(ptg, args, ec);
+        }
+    }
+
+    /**
+     * The precomputed continuations of an optimized {@code IF}
+     */
+    private static final class IfJump {
+        private final int falseIndex;
+        private final boolean pushFalse;
+        private final int errorIndex;
+
+        IfJump(int falseIndex, boolean pushFalse, int errorIndex) {
+            this.falseIndex = falseIndex;
+            this.pushFalse = pushFalse;
+            this.errorIndex = errorIndex;
+        }
+    }
+
+    /**
+     * The precomputed continuations of an optimized {@code CHOOSE}
+     */
+    private static final class ChooseJump {
+        private final int[] choiceIndexes;
+        private final int defaultIndex;
+
+        ChooseJump(int[] choiceIndexes, int defaultIndex) {
+            this.choiceIndexes = choiceIndexes;
+            this.defaultIndex = defaultIndex;
+        }
+    }
+
+    /**
+     * Compiles the token array of the formula at the given cell
+     *
+     * @return the compiled formula, or {@link #NOT_COMPILABLE} if the tokens are left to the interpreter
+     */
+    static CompiledFormula compile(Ptg[] ptgs, int rowIndex, int columnIndex) {
+        int size = ptgs.length;
+        int[] opcodes = new int[size];
+        Object[] operands = new Object[size];
+        boolean checksArrayFormula = false;
+
+        try {
+            for (int i = 0; i < size; i++) {
+                Ptg ptg = ptgs[i];
+                if (ptg instanceof AttrPtg) {
+                    AttrPtg attrPtg = (AttrPtg) ptg;
+                    if (attrPtg.isOptimizedChoose()) {
+                        opcodes[i] = CHOOSE;
+                        operands[i] = compileChoose(ptgs, i, attrPtg);
+                        continue;
+                    }
+                    if (attrPtg.isOptimizedIf()) {
+                        opcodes[i] = IF;
+                        operands[i] = compileIf(ptgs, i, attrPtg);
+                        checksArrayFormula = true;
+                        continue;
+                    }
+                    if (attrPtg.isSkip()) {
+                        opcodes[i] = SKIP;
+                        operands[i] = i + countTokensToBeSkipped(ptgs, i, attrPtg.getData() + 1) + 1;
+                        checksArrayFormula = true;
+                        continue;
+                    }
+                    if (attrPtg.isSum()) {
+                        opcodes[i] = OPERATION;
+                        operands[i] = new Operation(FuncVarPtg.SUM, isArrayModeFunction(ptgs, i));
+                        continue;
+                    }
+                }
+                if (ptg instanceof ControlPtg || ptg instanceof MemFuncPtg || ptg instanceof MemAreaPtg || ptg instanceof MemErrPtg) {
+                    opcodes[i] = NOOP;
+                } else if (ptg instanceof UnionPtg) {
+                    opcodes[i] = UNION;
+                } else if (ptg instanceof OperationPtg) {
+                    opcodes[i] = OPERATION;
+                    operands[i] = new Operation((OperationPtg) ptg, isArrayModeFunction(ptgs, i));
+                } else if (ptg instanceof Ref3DPtg || ptg instanceof Ref3DPxg || ptg instanceof Area3DPtg
+                        || ptg instanceof Area3DPxg || ptg instanceof RefPtg || ptg instanceof AreaPtg) {
+                    opcodes[i] = REFERENCE;
+                    operands[i] = new Reference(ptg, rowIndex, columnIndex);
+                } else {
+                    ValueEval constant = getConstant(ptg);
+                    opcodes[i] = (constant == null) ? PTG : CONSTANT;
+                    operands[i] = (constant == null) ? ptg : constant;
+                }
+            }
+        } catch (RuntimeException e) {
+            // e.g. invalid jump distances are reported by the interpreter, if the jump is taken
+            return NOT_COMPILABLE;
+        }
+        return new CompiledFormula(opcodes, operands, checksArrayFormula);
+    }
+
+    private static IfJump compileIf(Ptg[] ptgs, int index, AttrPtg attrPtg) {
+        int falseIndex = index + countTokensToBeSkipped(ptgs, index, attrPtg.getData());
+        if (falseIndex + 1 >= ptgs.length) {
+            throw new IllegalStateException("Missing IF function");
+        }
+        Ptg nextPtg = ptgs[falseIndex + 1];
+        // an IF statement without a false param (as opposed to MissingArgPtg as the false param)
+        boolean pushFalse = ptgs[falseIndex] instanceof AttrPtg && nextPtg instanceof FuncVarPtg &&
+                ((FuncVarPtg) nextPtg).getFunctionIndex() == FunctionMetadataRegistry.FUNCTION_INDEX_IF;
+
+        AttrPtg skipPtg = (AttrPtg) ptgs[falseIndex];
+        int errorIndex = falseIndex + countTokensToBeSkipped(ptgs, falseIndex, skipPtg.getData() + 1);
+        return new IfJump(falseIndex + 1, pushFalse, errorIndex + 1);
+    }
+
+    private static ChooseJump compileChoose(Ptg[] ptgs, int index, AttrPtg attrPtg) {
+        int[] jumpTable = attrPtg.getJumpTable();
+        int nChoices = jumpTable.length;
+        // Encoded dist for tAttrChoose includes size of jump table, but
+        // countTokensToBeSkipped() does not (it counts whole tokens).
+        int tableSize = nChoices * 2 + 2;
+        int[] choiceIndexes = new int[nChoices];
+        for (int i = 0; i < nChoices; i++) {
+            choiceIndexes[i] = index + countTokensToBeSkipped(ptgs, index, jumpTable[i] - tableSize) + 1;
+        }
+        // +4 for tFuncFar(CHOOSE)
+        int defaultIndex = index + countTokensToBeSkipped(ptgs, index, attrPtg.getChooseFuncOffset() + 4 - tableSize) + 1;
+        return new ChooseJump(choiceIndexes, defaultIndex);
+    }
+
+    private static boolean isArrayModeFunction(Ptg[] ptgs, int index) {
+        for (int i = index; i < ptgs.length; i++) {
+            if (ptgs[i] instanceof FuncVarPtg) {
+                try {
+                    return FunctionEval.getBasicFunction(((FuncVarPtg) ptgs[i]).getFunctionIndex()) instanceof ArrayMode;
+                } catch (NotImplementedException ne) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the value of a constant operand token, otherwise {@code null}
+     */
+    private static ValueEval getConstant(Ptg ptg) {
+        if (ptg instanceof IntPtg) {
+            return new NumberEval(((IntPtg) ptg).getValue());
+        }
+        if (ptg instanceof NumberPtg) {
+            return new NumberEval(((NumberPtg) ptg).getValue());
+        }
+        if (ptg instanceof StringPtg) {
+            return new StringEval(((StringPtg) ptg).getValue());
+        }
+        if (ptg instanceof BoolPtg) {
+            return BoolEval.valueOf(((BoolPtg) ptg).getValue());
+        }
+        if (ptg instanceof MissingArgPtg) {
+            return MissingArgEval.instance;
+        }
+        if (ptg instanceof AreaErrPtg || ptg instanceof RefErrorPtg
+                || ptg instanceof DeletedArea3DPtg || ptg instanceof DeletedRef3DPtg) {
+            return ErrorEval.REF_INVALID;
+        }
+        // error codes are resolved by the interpreter, as unknown codes fail
+        return null;
+    }
+
+    private static int countTokensToBeSkipped(Ptg[] ptgs, int startIndex, int distInBytes) {
+        int remBytes = distInBytes;
+        int index = startIndex;
+        while (remBytes != 0) {
+            index++;
+            if (index >= ptgs.length) {
+                throw new IllegalStateException("Skip distance too far (ran out of formula tokens).");
+            }
+            remBytes -= ptgs[index].getSize();
+            if (remBytes < 0) {
+                throw new IllegalStateException("Bad skip distance (wrong token size calculation).");
+            }
+        }
+        return index - startIndex;
+    }
+
+    boolean isCompilable() {
+        return this != NOT_COMPILABLE;
+    }
+
+    /**
+     * Evaluates the compiled formula of the given cell.
+     *
+     * @return the result, which hasn't been dereferenced yet
+     */
+    ValueEval evaluate(WorkbookEvaluator evaluator, OperationEvaluationContext ec, EvaluationCell evalCell) {
+        final int[] opcodes = _opcodes;
+        final Object[] operands = _operands;
+        final int size = opcodes.length;
+        // every token pushes at most one value in total
+        ValueEval[] stack = new ValueEval[size + 1];
+        int sp = 0;
+
+        boolean arrayFormula = _checksArrayFormula && evalCell.isPartOfArrayFormulaGroup();
+
+        int i = 0;
+        while (i < size) {
+            Object operand = operands[i];
+            ValueEval opResult;
+            switch (opcodes[i]) {
+                case NOOP:
+                    i++;
+                    continue;
+                case CONSTANT:
+                    opResult = (ValueEval) operand;
+                    break;
+                case REFERENCE:
+                    opResult = ((Reference) operand).evaluate(ec);
+                    break;
+                case PTG:
+                    opResult = evaluator.getEvalForPtg((Ptg) operand, ec);
+                    break;
+                case UNION: {
+                    ValueEval v2 = pop(stack, sp--);
+                    ValueEval v1 = pop(stack, sp--);
+                    opResult = new RefListEval(v1, v2);
+                    break;
+                }
+                case OPERATION: {
+                    Operation op = (Operation) operand;
+                    ValueEval[] ops = new ValueEval[op.numberOfOperands];
+                    // storing the ops in reverse order since they are popping
+                    boolean areaArg = false;
+                    for (int j = ops.length - 1; j >= 0; j--) {
+                        ValueEval p = pop(stack, sp--);
+                        ops[j] = p;
+                        if (p instanceof AreaEval) {
+                            areaArg = true;
+                        }
+                    }
+                    ec.setArrayMode(areaArg && op.arrayMode);
+                    opResult = op.evaluate(ops, ec);
+                    ec.setArrayMode(false);
+                    break;
+                }
+                case IF: {
+                    if (arrayFormula) {
+                        i++;
+                        continue;
+                    }
+                    IfJump jump = (IfJump) operand;
+                    ValueEval arg0 = pop(stack, sp--);
+                    try {
+                        if (IfFunc.evaluateFirstArg(arg0, ec.getRowIndex(), ec.getColumnIndex())) {
+                            // nothing to skip - true param follows
+                            i++;
+                        } else {
+                            i = jump.falseIndex;
+                            if (jump.pushFalse) {
+                                stack[sp++] = arg0;
+                                stack[sp++] = BoolEval.FALSE;
+                            }
+                        }
+                    } catch (EvaluationException e) {
+                        stack[sp++] = e.getErrorEval();
+                        i = jump.errorIndex;
+                    }
+                    continue;
+                }
+                case CHOOSE: {
+                    ChooseJump jump = (ChooseJump) operand;
+                    ValueEval arg0 = pop(stack, sp--);
+                    try {
+                        int switchIndex = Choose.evaluateFirstArg(arg0, ec.getRowIndex(), ec.getColumnIndex());
+                        if (switchIndex < 1 || switchIndex > jump.choiceIndexes.length) {
+                            stack[sp++] = ErrorEval.VALUE_INVALID;
+                            i = jump.defaultIndex;
+                        } else {
+                            i = jump.choiceIndexes[switchIndex - 1];
+                        }
+                    } catch (EvaluationException e) {
+                        stack[sp++] = e.getErrorEval();
+                        i = jump.defaultIndex;
+                    }
+                    continue;
+                }
+                case SKIP:
+                    if (arrayFormula) {
+                        i++;
+                        continue;
+                    }
+                    i = (Integer) operand;
+                    if (sp == 0) {
+                        throw new EmptyStackException();
+                    }
+                    if (stack[sp - 1] == MissingArgEval.instance) {
+                        stack[sp - 1] = BlankEval.instance;
+                    }
+                    continue;
+                default:
+                    throw new IllegalStateException("Unexpected opcode " + opcodes[i]);
+            }
+            if (opResult == null) {
+                throw new IllegalStateException("Evaluation result must not be null");
+            }
+            stack[sp++] = opResult;
+            i++;
+        }
+
+        ValueEval value = pop(stack, sp--);
+        if (sp != 0) {
+            throw new IllegalStateException("evaluation stack not empty");
+        }
+        return value;
+    }
+
+    private static ValueEval pop(ValueEval[] stack, int sp) {
+        if (sp == 0) {
+            throw new EmptyStackException();
+        }
+        ValueEval value = stack[sp - 1];
+        stack[sp - 1] = null;
+        return value;
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.Map;
+
 import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
 import org.apache.poi.ss.formula.PlainCellCache.Loc;
 import org.apache.poi.ss.formula.eval.BlankEval;
@@ -36,6 +38,7 @@ final class EvaluationCache {
 
     private final PlainCellCache _plainCellCache;
     private final FormulaCellCache _formulaCellCache;
+    private final LookupIndexCache _lookupIndexCache;
     /** only used for testing. <code>null</code> otherwise */
     final IEvaluationListener _evaluationListener;
 
@@ -43,6 +46,7 @@ final class EvaluationCache {
         _evaluationListener = evaluationListener;
         _plainCellCache = new PlainCellCache();
         _formulaCellCache = new FormulaCellCache();
+        _lookupIndexCache = new LookupIndexCache();
     }
 
     public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
@@ -68,6 +72,8 @@ final class EvaluationCache {
             } else {
                 fcce.recurseClearCachedFormulaResults(_evaluationListener);
                 fcce.clearFormulaEntry();
+                // the formula might have been changed
+                fcce.setCompiledFormula(null);
             }
             if (pcce == null) {
                 // was formula cell before - no change of type
@@ -116,6 +122,7 @@ final class EvaluationCache {
             final int rowIndex, final int columnIndex) {
         final BookSheetKey bsk = new BookSheetKey(bookIndex, sheetIndex);
         _formulaCellCache.applyOperation(entry -> entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener));
+        _lookupIndexCache.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
     }
 
     public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
@@ -167,6 +174,13 @@ final class EvaluationCache {
         throw new IllegalStateException("Unexpected value class (" + cls.getName() + ")");
     }
 
+    /**
+     * @return the cache entry of the formula cell or {@code null} if it hasn't been evaluated yet
+     */
+    public FormulaCellCacheEntry getFormulaCellEntry(EvaluationCell cell) {
+        return _formulaCellCache.get(cell);
+    }
+
     public FormulaCellCacheEntry getOrCreateFormulaCellEntry(EvaluationCell cell) {
         FormulaCellCacheEntry result = _formulaCellCache.get(cell);
         if (result == null) {
@@ -177,6 +191,13 @@ final class EvaluationCache {
         return result;
     }
 
+    /**
+     * Adds the results of the evaluated formula cells by their identity keys
+     */
+    public void copyFormulaResultsTo(Map<Object, ValueEval> results) {
+        _formulaCellCache.copyResultsTo(results);
+    }
+
     /**
      * Should be called whenever there are changes to input cells in the evaluated workbook.
      */
@@ -186,7 +207,24 @@ final class EvaluationCache {
         }
         _plainCellCache.clear();
         _formulaCellCache.clear();
+        _lookupIndexCache.clear();
     }
+
+    public LookupIndexCache getLookupIndexCache() {
+        return _lookupIndexCache;
+    }
+
+    /**
+     * Discards the cached result of a formula cell and of the formulas, which are known to depend on it
+     */
+    public void clearFormulaResult(EvaluationCell cell) {
+        FormulaCellCacheEntry fcce = _formulaCellCache.get(cell);
+        if (fcce != null) {
+            fcce.recurseClearCachedFormulaResults(_evaluationListener);
+            fcce.clearFormulaEntry();
+        }
+    }
+
     public void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
 
         if (cell.getCellType() == CellType.FORMULA) {
@@ -0,0 +1,221 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheetRange;
+import org.apache.poi.ss.formula.ptg.Area3DPtg;
+import org.apache.poi.ss.formula.ptg.Area3DPxg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Ref3DPtg;
+import org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.util.Internal;
+
+/**
+ * Evaluates the precedents of a formula cell with an explicit work stack, before the cell itself is evaluated.
+ * <p>
+ * The precedents found in the formula tokens are visited depth-first and evaluated in post-order, i.e. in the
+ * order the recursive evaluation would complete them. Each evaluation then finds its precedents in the
+ * {@link EvaluationCache}, so the Java stack depth stays constant even for long dependency chains like
+ * running balances.
+ * <p>
+ * Only precedents are evaluated upfront, whose result doesn't depend on the evaluation order:
+ * cells which are part of or depend on a circular reference are left to the recursive evaluation, which
+ * reports them as before. The same applies to cells whose evaluation fails, to references via names or
+ * functions like {@code INDIRECT} and to large areas.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+final class EvaluationWorkStack {
+    private static final Logger LOG = LogManager.getLogger(EvaluationWorkStack.class);
+
+    /** areas with more cells are not visited */
+    private static final int MAX_AREA_CELLS = 4096;
+
+    private enum State { ON_STACK, DONE, SKIPPED }
+
+    private static final class Frame {
+        private final EvaluationCell cell;
+        private final int sheetIndex;
+        private List<Frame> precedents;
+        private int next;
+        private boolean skip;
+
+        Frame(EvaluationCell cell, int sheetIndex) {
+            this.cell = cell;
+            this.sheetIndex = sheetIndex;
+        }
+    }
+
+    private final WorkbookEvaluator _evaluator;
+    private final EvaluationWorkbook _workbook;
+    private final Map<Object, State> _states = new HashMap<>();
+
+    EvaluationWorkStack(WorkbookEvaluator evaluator) {
+        _evaluator = evaluator;
+        _workbook = evaluator.getWorkbook();
+    }
+
+    /**
+     * Evaluates the precedents of the given formula cell, but not the cell itself
+     */
+    void evaluatePrecedents(EvaluationCell srcCell, int sheetIndex) {
+        if (srcCell.getCellType() != CellType.FORMULA || _evaluator.hasCachedResult(srcCell, sheetIndex)) {
+            return;
+        }
+
+        Deque<Frame> stack = new ArrayDeque<>();
+        Frame root = new Frame(srcCell, sheetIndex);
+        stack.push(root);
+        _states.put(srcCell.getIdentityKey(), State.ON_STACK);
+
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            if (frame.precedents == null) {
+                frame.precedents = findPrecedents(frame);
+            }
+
+            if (frame.next < frame.precedents.size()) {
+                Frame precedent = frame.precedents.get(frame.next++);
+                Object key = precedent.cell.getIdentityKey();
+                State state = _states.get(key);
+                if (state == null) {
+                    _states.put(key, State.ON_STACK);
+                    stack.push(precedent);
+                } else if (state != State.DONE) {
+                    // a circular reference or a precedent, which depends on one
+                    frame.skip = true;
+                    if (state == State.ON_STACK) {
+                        for (Frame f : stack) {
+                            f.skip = true;
+                        }
+                    }
+                }
+                continue;
+            }
+
+            stack.pop();
+            if (frame != root && !frame.skip) {
+                frame.skip = !evaluate(frame);
+            }
+            _states.put(frame.cell.getIdentityKey(), frame.skip ? State.SKIPPED : State.DONE);
+            if (frame.skip && !stack.isEmpty()) {
+                stack.peek().skip = true;
+            }
+        }
+    }
+
+    private boolean evaluate(Frame frame) {
+        try {
+            _evaluator.evaluateCell(frame.cell, frame.sheetIndex);
+            return true;
+        } catch (RuntimeException e) {
+            // evaluated again by the recursive evaluation, which reports the error
+            LOG.atDebug().withThrowable(e).log("Failed to evaluate precedent");
+            return false;
+        }
+    }
+
+    /**
+     * @return the formula cells referenced by the tokens, which need to be evaluated
+     */
+    private List<Frame> findPrecedents(Frame frame) {
+        List<Frame> precedents = new ArrayList<>();
+        Ptg[] ptgs;
+        try {
+            ptgs = _workbook.getFormulaTokens(frame.cell);
+        } catch (RuntimeException e) {
+            return precedents;
+        }
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof RefPtg) {
+                RefPtg rptg = (RefPtg) ptg;
+                addArea(precedents, frame.sheetIndex, frame.sheetIndex, rptg.getRow(), rptg.getColumn(), rptg.getRow(), rptg.getColumn());
+            } else if (ptg instanceof AreaPtg) {
+                AreaPtg aptg = (AreaPtg) ptg;
+                addArea(precedents, frame.sheetIndex, frame.sheetIndex,
+                        aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
+            } else if (ptg instanceof Ref3DPtg) {
+                Ref3DPtg rptg = (Ref3DPtg) ptg;
+                addArea(precedents, _workbook.getExternalSheet(rptg.getExternSheetIndex()),
+                        rptg.getRow(), rptg.getColumn(), rptg.getRow(), rptg.getColumn());
+            } else if (ptg instanceof Area3DPtg) {
+                Area3DPtg aptg = (Area3DPtg) ptg;
+                addArea(precedents, _workbook.getExternalSheet(aptg.getExternSheetIndex()),
+                        aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
+            } else if (ptg instanceof Ref3DPxg) {
+                Ref3DPxg rptg = (Ref3DPxg) ptg;
+                addArea(precedents, _workbook.getExternalSheet(rptg.getSheetName(), rptg.getLastSheetName(), rptg.getExternalWorkbookNumber()),
+                        rptg.getRow(), rptg.getColumn(), rptg.getRow(), rptg.getColumn());
+            } else if (ptg instanceof Area3DPxg) {
+                Area3DPxg aptg = (Area3DPxg) ptg;
+                addArea(precedents, _workbook.getExternalSheet(aptg.getSheetName(), aptg.getLastSheetName(), aptg.getExternalWorkbookNumber()),
+                        aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
+            }
+        }
+        return precedents;
+    }
+
+    private void addArea(List<Frame> precedents, ExternalSheet es, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        if (es == null || es.getWorkbookName() != null) {
+            // unknown or external sheets are left to the recursive evaluation
+            return;
+        }
+        int firstSheet = _workbook.getSheetIndex(es.getSheetName());
+        int lastSheet = (es instanceof ExternalSheetRange)
+                ? _workbook.getSheetIndex(((ExternalSheetRange) es).getLastSheetName())
+                : firstSheet;
+        if (firstSheet >= 0 && lastSheet >= 0) {
+            addArea(precedents, firstSheet, lastSheet, firstRow, firstColumn, lastRow, lastColumn);
+        }
+    }
+
+    private void addArea(List<Frame> precedents, int firstSheet, int lastSheet, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        for (int s = Math.min(firstSheet, lastSheet); s <= Math.max(firstSheet, lastSheet); s++) {
+            EvaluationSheet sheet = _workbook.getSheet(s);
+            int row1 = Math.min(firstRow, lastRow);
+            int row2 = Math.min(Math.max(firstRow, lastRow), sheet.getLastRowNum());
+            int col1 = Math.min(firstColumn, lastColumn);
+            int col2 = Math.max(firstColumn, lastColumn);
+            if ((long) (row2 - row1 + 1) * (col2 - col1 + 1) > MAX_AREA_CELLS) {
+                continue;
+            }
+            for (int r = row1; r <= row2; r++) {
+                for (int c = col1; c <= col2; c++) {
+                    EvaluationCell cell = sheet.getCell(r, c);
+                    if (cell != null && cell.getCellType() == CellType.FORMULA && !_evaluator.hasCachedResult(cell, s)) {
+                        precedents.add(new Frame(cell, s));
+                    }
+                }
+            }
+        }
+    }
+}
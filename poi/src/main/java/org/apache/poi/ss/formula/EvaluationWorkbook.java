@@ -105,6 +105,20 @@ public interface EvaluationWorkbook {
      */
     void clearAllCachedResultValues();
 
+    /**
+     * Whether the cells of the workbook can be read by several evaluation workbooks on different
+     * threads at the same time, as long as the workbook isn't modified. This is required to
+     * evaluate the formulas of the workbook concurrently.
+     *
+     * @return {@code false} by default, as reading some workbooks updates their internal state
+     * @see BaseFormulaEvaluator#evaluateAllFormulaCells(org.apache.poi.ss.usermodel.Workbook, java.util.concurrent.Executor)
+     *
+     * @since POI 5.2.4
+     */
+    default boolean isConcurrentReadSafe() {
+        return false;
+    }
+
     class ExternalSheet {
         private final String _workbookName;
         private final String _sheetName;
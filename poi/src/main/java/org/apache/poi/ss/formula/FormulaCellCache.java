@@ -21,6 +21,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.apache.poi.ss.formula.eval.ValueEval;
+
 final class FormulaCellCache {
 
     static interface IEntryOperation {
@@ -60,6 +62,18 @@ final class FormulaCellCache {
         return _formulaEntriesByCell.remove(cell.getIdentityKey());
     }
 
+    /**
+     * Adds the results of the evaluated formula cells by their identity keys
+     */
+    public void copyResultsTo(Map<Object, ValueEval> results) {
+        for (Map.Entry<Object, FormulaCellCacheEntry> entry : _formulaEntriesByCell.entrySet()) {
+            ValueEval value = entry.getValue().getValue();
+            if (value != null) {
+                results.put(entry.getKey(), value);
+            }
+        }
+    }
+
     public void applyOperation(IEntryOperation operation) {
         for (FormulaCellCacheEntry formulaCellCacheEntry : _formulaEntriesByCell.values()) {
             operation.processEntry(formulaCellCacheEntry);
@@ -0,0 +1,733 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheetRange;
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.Area3DPtg;
+import org.apache.poi.ss.formula.ptg.Area3DPxg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.ExpPtg;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.NameXPxg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Ref3DPtg;
+import org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.TblPtg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.Internal;
+
+/**
+ * The static dependencies between the formula cells of a workbook, as found in their formula tokens.
+ * <p>
+ * The formula cells are linked to the formula cells they reference. The referenced cells and areas are
+ * indexed as well, to find the formula cells depending on a changed value cell.
+ * Formulas, whose precedents can't be determined upfront - e.g. because of {@code INDIRECT}, {@code OFFSET}
+ * or references to external workbooks - are marked as dynamic.
+ * <p>
+ * Each formula cell has a dirty flag, which tells if its cached formula result needs to be recalculated.
+ * <p>
+ * When a formula is added, changed or removed, only the links of that cell are updated, see
+ * {@link #updateCell(int, int, int)}. The ids of the other cells are kept.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+final class FormulaDependencyGraph {
+    private static final int FUNCTION_INDEX_INDIRECT = FunctionMetadataRegistry.lookupIndexByName("INDIRECT");
+    private static final int FUNCTION_INDEX_OFFSET = FunctionMetadataRegistry.lookupIndexByName("OFFSET");
+
+    /** names referring to other names are followed up to this depth */
+    private static final int MAX_NAME_DEPTH = 32;
+
+    private static final Node[] NO_NODES = new Node[0];
+
+    static final class Node {
+        private final int id;
+        private final int sheetIndex;
+        private final int rowIndex;
+        private final int columnIndex;
+        private final Cell cell;
+        private boolean dynamic;
+        private Node[] precedents = NO_NODES;
+        private int precedentCount;
+        private Node[] dependents = NO_NODES;
+        private int dependentCount;
+        /** the references of the formula, which are registered in the indexes of the referenced sheets */
+        private List<AreaRef> references;
+        private int visitedBy = -1;
+        private boolean dirty;
+
+        Node(int id, int sheetIndex, Cell cell) {
+            this.id = id;
+            this.sheetIndex = sheetIndex;
+            this.rowIndex = cell.getRowIndex();
+            this.columnIndex = cell.getColumnIndex();
+            this.cell = cell;
+        }
+
+        /**
+         * @return the unique id of the cell, the ids of removed cells aren't reused
+         */
+        int getId() {
+            return id;
+        }
+
+        int getSheetIndex() {
+            return sheetIndex;
+        }
+
+        int getRowIndex() {
+            return rowIndex;
+        }
+
+        int getColumnIndex() {
+            return columnIndex;
+        }
+
+        Cell getCell() {
+            return cell;
+        }
+
+        /**
+         * @return {@code true}, if the precedents of the formula can only be determined by evaluating it
+         */
+        boolean isDynamic() {
+            return dynamic;
+        }
+
+        /**
+         * @return {@code true}, if the cached formula result is outdated
+         */
+        boolean isDirty() {
+            return dirty;
+        }
+
+        /**
+         * @return the number of formula cells referenced by this cell
+         */
+        int getPrecedentCount() {
+            return precedentCount;
+        }
+
+        /**
+         * @return the formula cells, which reference this cell
+         */
+        List<Node> getDependents() {
+            return Collections.unmodifiableList(Arrays.asList(dependents).subList(0, dependentCount));
+        }
+
+        private void addDependent(Node dependent) {
+            if (dependentCount == dependents.length) {
+                dependents = Arrays.copyOf(dependents, Math.max(4, dependentCount * 2));
+            }
+            dependents[dependentCount++] = dependent;
+            if (dependent.precedentCount == dependent.precedents.length) {
+                dependent.precedents = Arrays.copyOf(dependent.precedents, Math.max(4, dependent.precedentCount * 2));
+            }
+            dependent.precedents[dependent.precedentCount++] = this;
+        }
+
+        private void removeDependent(Node dependent) {
+            dependentCount = remove(dependents, dependentCount, dependent);
+            dependent.precedentCount = remove(dependent.precedents, dependent.precedentCount, this);
+        }
+
+        /**
+         * Removes a node from an unordered array
+         *
+         * @return the new number of nodes
+         */
+        private static int remove(Node[] nodes, int count, Node node) {
+            for (int i = 0; i < count; i++) {
+                if (nodes[i] == node) {
+                    nodes[i] = nodes[count - 1];
+                    nodes[count - 1] = null;
+                    return count - 1;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return sheetIndex + "!" + new CellReference(rowIndex, columnIndex).formatAsString();
+        }
+    }
+
+    /**
+     * A referenced cell or area of a sheet
+     */
+    private static final class AreaRef {
+        private final int sheetIndex;
+        private final int firstRow;
+        private final int firstColumn;
+        private final int lastRow;
+        private final int lastColumn;
+        private final Node node;
+
+        AreaRef(int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn, Node node) {
+            this.sheetIndex = sheetIndex;
+            this.firstRow = firstRow;
+            this.firstColumn = firstColumn;
+            this.lastRow = lastRow;
+            this.lastColumn = lastColumn;
+            this.node = node;
+        }
+
+        boolean contains(int rowIndex, int columnIndex) {
+            return firstRow <= rowIndex && rowIndex <= lastRow && firstColumn <= columnIndex && columnIndex <= lastColumn;
+        }
+
+        boolean isSingleCell() {
+            return firstRow == lastRow && firstColumn == lastColumn;
+        }
+    }
+
+    private final Workbook _wb;
+    private final EvaluationWorkbook _workbook;
+    /** formula cells by id, the ids of removed cells are {@code null} */
+    private final List<Node> _nodes = new ArrayList<>();
+    /** formula cells by sheet index, row index and column index */
+    private final List<TreeMap<Integer, List<Node>>> _nodesBySheet = new ArrayList<>();
+    /** formula cells by sheet index and the single cells they reference */
+    private final List<Map<Long, List<Node>>> _cellRefsBySheet = new ArrayList<>();
+    /** formula cells by sheet index and the areas they reference */
+    private final List<List<AreaRef>> _areaRefsBySheet = new ArrayList<>();
+    private final List<Node> _dynamicNodes = new ArrayList<>();
+
+    /**
+     * Collects the formula cells of the workbook in sheet, row and cell order and links them by their formula tokens
+     *
+     * @param wb the workbook to analyze
+     * @param workbook the evaluation view of the same workbook
+     */
+    FormulaDependencyGraph(Workbook wb, EvaluationWorkbook workbook) {
+        _wb = wb;
+        _workbook = workbook;
+        build();
+    }
+
+    /**
+     * Analyzes the workbook again, e.g. after formulas have been changed, and keeps the dirty state of the formula cells
+     */
+    void rebuild() {
+        Set<Cell> dirtyCells = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Node node : getNodes()) {
+            if (node.dirty) {
+                dirtyCells.add(node.cell);
+            }
+        }
+        build();
+        for (Node node : _nodes) {
+            node.dirty = dirtyCells.contains(node.cell);
+        }
+    }
+
+    private void build() {
+        _nodes.clear();
+        _nodesBySheet.clear();
+        _cellRefsBySheet.clear();
+        _areaRefsBySheet.clear();
+        _dynamicNodes.clear();
+
+        for (int i = 0; i < _wb.getNumberOfSheets(); i++) {
+            Sheet sheet = _wb.getSheetAt(i);
+            TreeMap<Integer, List<Node>> rows = new TreeMap<>();
+            _nodesBySheet.add(rows);
+            _cellRefsBySheet.add(new HashMap<>());
+            _areaRefsBySheet.add(new ArrayList<>());
+            for (Row r : sheet) {
+                List<Node> cells = null;
+                for (Cell c : r) {
+                    if (c.getCellType() == CellType.FORMULA) {
+                        Node node = new Node(_nodes.size(), i, c);
+                        _nodes.add(node);
+                        if (cells == null) {
+                            cells = new ArrayList<>();
+                            rows.put(r.getRowNum(), cells);
+                        }
+                        cells.add(node);
+                    }
+                }
+            }
+        }
+
+        for (Node node : _nodes) {
+            linkPrecedents(node);
+        }
+    }
+
+    /**
+     * Updates the graph after the formula of a cell has been added, changed or removed.
+     * Only the links of the cell are analyzed again, the dirty state of the other cells is kept.
+     */
+    void updateCell(int sheetIndex, int rowIndex, int columnIndex) {
+        if (_nodesBySheet.size() != _wb.getNumberOfSheets()) {
+            // sheets have been added or removed
+            rebuild();
+            return;
+        }
+        if (sheetIndex < 0 || sheetIndex >= _nodesBySheet.size()) {
+            return;
+        }
+        Row row = _wb.getSheetAt(sheetIndex).getRow(rowIndex);
+        Cell cell = (row == null) ? null : row.getCell(columnIndex);
+        boolean isFormula = cell != null && cell.getCellType() == CellType.FORMULA;
+
+        Node node = getNode(sheetIndex, rowIndex, columnIndex);
+        if (node != null) {
+            unlinkPrecedents(node);
+            if (!isFormula || node.cell != cell) {
+                removeNode(node);
+                node = null;
+            }
+        }
+        if (isFormula) {
+            if (node == null) {
+                node = addNode(sheetIndex, cell);
+            }
+            linkPrecedents(node);
+        }
+    }
+
+    /**
+     * Removes a formula cell, which is about to be deleted, from the graph
+     */
+    void removeCell(int sheetIndex, int rowIndex, int columnIndex) {
+        Node node = getNode(sheetIndex, rowIndex, columnIndex);
+        if (node != null) {
+            unlinkPrecedents(node);
+            removeNode(node);
+        }
+    }
+
+    /**
+     * Adds a new formula cell and links it to the formula cells, which already reference its position
+     */
+    private Node addNode(int sheetIndex, Cell cell) {
+        Node node = new Node(_nodes.size(), sheetIndex, cell);
+        _nodes.add(node);
+        List<Node> cells = _nodesBySheet.get(sheetIndex).computeIfAbsent(node.rowIndex, k -> new ArrayList<>());
+        int idx = 0;
+        while (idx < cells.size() && cells.get(idx).columnIndex < node.columnIndex) {
+            idx++;
+        }
+        cells.add(idx, node);
+
+        Set<Node> dependents = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Node> cellRefs = _cellRefsBySheet.get(sheetIndex).get(cellKey(node.rowIndex, node.columnIndex));
+        if (cellRefs != null) {
+            dependents.addAll(cellRefs);
+        }
+        for (AreaRef areaRef : _areaRefsBySheet.get(sheetIndex)) {
+            if (areaRef.contains(node.rowIndex, node.columnIndex)) {
+                dependents.add(areaRef.node);
+            }
+        }
+        for (Node dependent : dependents) {
+            node.addDependent(dependent);
+        }
+        return node;
+    }
+
+    private void removeNode(Node node) {
+        while (node.dependentCount > 0) {
+            node.removeDependent(node.dependents[node.dependentCount - 1]);
+        }
+        List<Node> cells = _nodesBySheet.get(node.sheetIndex).get(node.rowIndex);
+        cells.remove(node);
+        if (cells.isEmpty()) {
+            _nodesBySheet.get(node.sheetIndex).remove(node.rowIndex);
+        }
+        _nodes.set(node.id, null);
+    }
+
+    /**
+     * Registers the references of the formula and links the cell to the formula cells it references
+     */
+    private void linkPrecedents(Node node) {
+        EvaluationCell cell = _workbook.getSheet(node.sheetIndex).getCell(node.rowIndex, node.columnIndex);
+        try {
+            node.dynamic = (cell == null) || !collectPrecedents(node, _workbook.getFormulaTokens(cell), 0);
+        } catch (RuntimeException e) {
+            // e.g. unparsable formulas - leave the error reporting to the evaluation
+            node.dynamic = true;
+        }
+        if (node.dynamic) {
+            _dynamicNodes.add(node);
+        }
+    }
+
+    /**
+     * Removes the references of the formula and the links to the formula cells it references
+     */
+    private void unlinkPrecedents(Node node) {
+        if (node.references != null) {
+            for (AreaRef ref : node.references) {
+                if (ref.isSingleCell()) {
+                    long key = cellKey(ref.firstRow, ref.firstColumn);
+                    List<Node> cellRefs = _cellRefsBySheet.get(ref.sheetIndex).get(key);
+                    cellRefs.remove(node);
+                    if (cellRefs.isEmpty()) {
+                        _cellRefsBySheet.get(ref.sheetIndex).remove(key);
+                    }
+                } else {
+                    _areaRefsBySheet.get(ref.sheetIndex).remove(ref);
+                }
+            }
+            node.references = null;
+        }
+        while (node.precedentCount > 0) {
+            Node precedent = node.precedents[node.precedentCount - 1];
+            if (precedent.visitedBy == node.id) {
+                // the precedents are linked again by the same id
+                precedent.visitedBy = -1;
+            }
+            precedent.removeDependent(node);
+        }
+        if (node.dynamic) {
+            _dynamicNodes.remove(node);
+            node.dynamic = false;
+        }
+    }
+
+    /**
+     * @return all formula cells in sheet, row and cell order
+     */
+    List<Node> getNodes() {
+        List<Node> nodes = new ArrayList<>(_nodes.size());
+        for (TreeMap<Integer, List<Node>> rows : _nodesBySheet) {
+            for (List<Node> cells : rows.values()) {
+                nodes.addAll(cells);
+            }
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * @return the formula cell at the given position or {@code null} if it's not a formula cell
+     */
+    Node getNode(int sheetIndex, int rowIndex, int columnIndex) {
+        if (sheetIndex < 0 || sheetIndex >= _nodesBySheet.size()) {
+            return null;
+        }
+        List<Node> cells = _nodesBySheet.get(sheetIndex).get(rowIndex);
+        if (cells == null) {
+            return null;
+        }
+        for (Node node : cells) {
+            if (node.columnIndex == columnIndex) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the formula cells as dirty, which depend on the given cell - including the cell itself,
+     * if it's a formula cell - and all dynamic formula cells.
+     *
+     * @return the formula cells, which weren't dirty before
+     */
+    List<Node> markDirty(int sheetIndex, int rowIndex, int columnIndex) {
+        Deque<Node> pending = getDirectDependents(sheetIndex, rowIndex, columnIndex);
+        List<Node> marked = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            Node node = pending.poll();
+            if (node.dirty) {
+                continue;
+            }
+            node.dirty = true;
+            marked.add(node);
+            for (int i = 0; i < node.dependentCount; i++) {
+                pending.add(node.dependents[i]);
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * Marks the formula cells as dirty like {@link #markDirty(int, int, int)}, but in the given set
+     * instead of the dirty flags of the cells, so that several evaluators can track their changes with
+     * the same graph.
+     *
+     * @param dirty the ids of the dirty formula cells, see {@link Node#getId()}
+     * @return the formula cells, which weren't dirty before
+     */
+    List<Node> markDirty(int sheetIndex, int rowIndex, int columnIndex, BitSet dirty) {
+        Deque<Node> pending = getDirectDependents(sheetIndex, rowIndex, columnIndex);
+        List<Node> marked = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            Node node = pending.poll();
+            if (dirty.get(node.id)) {
+                continue;
+            }
+            dirty.set(node.id);
+            marked.add(node);
+            for (int i = 0; i < node.dependentCount; i++) {
+                pending.add(node.dependents[i]);
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * @return the given cell, if it's a formula cell, the formula cells referencing it and all dynamic formula cells
+     */
+    private Deque<Node> getDirectDependents(int sheetIndex, int rowIndex, int columnIndex) {
+        Deque<Node> pending = new ArrayDeque<>(_dynamicNodes);
+        Node self = getNode(sheetIndex, rowIndex, columnIndex);
+        if (self != null) {
+            pending.add(self);
+        }
+        if (sheetIndex >= 0 && sheetIndex < _nodesBySheet.size()) {
+            List<Node> cellRefs = _cellRefsBySheet.get(sheetIndex).get(cellKey(rowIndex, columnIndex));
+            if (cellRefs != null) {
+                pending.addAll(cellRefs);
+            }
+            for (AreaRef areaRef : _areaRefsBySheet.get(sheetIndex)) {
+                if (areaRef.contains(rowIndex, columnIndex)) {
+                    pending.add(areaRef.node);
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Marks all formula cells as dirty
+     */
+    void markAllDirty() {
+        for (Node node : getNodes()) {
+            node.dirty = true;
+        }
+    }
+
+    /**
+     * @return the dirty formula cells in sheet, row and cell order
+     */
+    List<Node> getDirtyNodes() {
+        List<Node> dirty = new ArrayList<>();
+        for (Node node : getNodes()) {
+            if (node.dirty) {
+                dirty.add(node);
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Marks the formula cells as up-to-date
+     */
+    void clearDirty(List<Node> nodes) {
+        for (Node node : nodes) {
+            node.dirty = false;
+        }
+    }
+
+    /**
+     * Partitions the formula cells into levels, so that the cells of a level only depend on the cells of the
+     * previous levels and can be evaluated independently of each other.
+     * <p>
+     * Dynamic cells, cells which are part of a circular reference and all cells depending on them are not
+     * contained in any level, as their evaluation order can't be determined upfront.
+     *
+     * @return the levels in evaluation order
+     */
+    List<List<Node>> getLevels() {
+        int[] pending = new int[_nodes.size()];
+        List<Node> level = new ArrayList<>();
+        for (Node node : getNodes()) {
+            pending[node.id] = node.precedentCount;
+            if (node.precedentCount == 0 && !node.dynamic) {
+                level.add(node);
+            }
+        }
+
+        List<List<Node>> levels = new ArrayList<>();
+        while (!level.isEmpty()) {
+            levels.add(level);
+            List<Node> next = new ArrayList<>();
+            for (Node node : level) {
+                for (int i = 0; i < node.dependentCount; i++) {
+                    Node dependent = node.dependents[i];
+                    if (--pending[dependent.id] == 0 && !dependent.dynamic) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            level = next;
+        }
+        return levels;
+    }
+
+    /**
+     * @return {@code false}, if the precedents can't be determined statically
+     */
+    private boolean collectPrecedents(Node node, Ptg[] ptgs, int nameDepth) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof RefPtg) {
+                RefPtg rptg = (RefPtg) ptg;
+                addArea(node, node.sheetIndex, node.sheetIndex, rptg.getRow(), rptg.getColumn(), rptg.getRow(), rptg.getColumn());
+            } else if (ptg instanceof AreaPtg) {
+                AreaPtg aptg = (AreaPtg) ptg;
+                addArea(node, node.sheetIndex, node.sheetIndex,
+                        aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
+            } else if (ptg instanceof Ref3DPtg) {
+                Ref3DPtg rptg = (Ref3DPtg) ptg;
+                ExternalSheet es = _workbook.getExternalSheet(rptg.getExternSheetIndex());
+                if (!addArea(node, es, rptg.getRow(), rptg.getColumn(), rptg.getRow(), rptg.getColumn())) {
+                    return false;
+                }
+            } else if (ptg instanceof Area3DPtg) {
+                Area3DPtg aptg = (Area3DPtg) ptg;
+                ExternalSheet es = _workbook.getExternalSheet(aptg.getExternSheetIndex());
+                if (!addArea(node, es, aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn())) {
+                    return false;
+                }
+            } else if (ptg instanceof Ref3DPxg) {
+                Ref3DPxg rptg = (Ref3DPxg) ptg;
+                ExternalSheet es = _workbook.getExternalSheet(rptg.getSheetName(), rptg.getLastSheetName(), rptg.getExternalWorkbookNumber());
+                if (!addArea(node, es, rptg.getRow(), rptg.getColumn(), rptg.getRow(), rptg.getColumn())) {
+                    return false;
+                }
+            } else if (ptg instanceof Area3DPxg) {
+                Area3DPxg aptg = (Area3DPxg) ptg;
+                ExternalSheet es = _workbook.getExternalSheet(aptg.getSheetName(), aptg.getLastSheetName(), aptg.getExternalWorkbookNumber());
+                if (!addArea(node, es, aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn())) {
+                    return false;
+                }
+            } else if (ptg instanceof NamePtg) {
+                EvaluationName name = _workbook.getName((NamePtg) ptg);
+                if (name == null || nameDepth >= MAX_NAME_DEPTH) {
+                    return false;
+                }
+                if (!name.isFunctionName()
+                        && (!name.hasFormula() || !collectPrecedents(node, name.getNameDefinition(), nameDepth + 1))) {
+                    return false;
+                }
+            } else if (ptg instanceof NameXPtg) {
+                // add-in functions are referenced by external names, everything else is resolved when evaluated
+                if (!isFunction(_workbook.resolveNameXText((NameXPtg) ptg))) {
+                    return false;
+                }
+            } else if (ptg instanceof NameXPxg) {
+                if (!isFunction(((NameXPxg) ptg).getNameName())) {
+                    return false;
+                }
+            } else if (ptg instanceof AbstractFunctionPtg) {
+                int functionIndex = ((AbstractFunctionPtg) ptg).getFunctionIndex();
+                if (functionIndex == FUNCTION_INDEX_INDIRECT || functionIndex == FUNCTION_INDEX_OFFSET) {
+                    return false;
+                }
+            } else if (ptg instanceof ExpPtg || ptg instanceof TblPtg) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isFunction(String name) {
+        return name != null && _workbook.getUDFFinder() != null && _workbook.getUDFFinder().findFunction(name) != null;
+    }
+
+    /**
+     * @return {@code false}, if the sheets are not part of this workbook
+     */
+    private boolean addArea(Node node, ExternalSheet es, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        int firstSheet;
+        int lastSheet;
+        if (es == null) {
+            // the evaluator falls back to the first sheet for unknown extern sheet indexes
+            firstSheet = 0;
+            lastSheet = 0;
+        } else {
+            if (es.getWorkbookName() != null) {
+                return false;
+            }
+            firstSheet = _workbook.getSheetIndex(es.getSheetName());
+            lastSheet = (es instanceof ExternalSheetRange)
+                    ? _workbook.getSheetIndex(((ExternalSheetRange) es).getLastSheetName())
+                    : firstSheet;
+        }
+        if (firstSheet < 0 || lastSheet < 0) {
+            return false;
+        }
+        addArea(node, firstSheet, lastSheet, firstRow, firstColumn, lastRow, lastColumn);
+        return true;
+    }
+
+    private void addArea(Node node, int firstSheet, int lastSheet, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        final int row1 = Math.min(firstRow, lastRow);
+        final int row2 = Math.max(firstRow, lastRow);
+        final int col1 = Math.min(firstColumn, lastColumn);
+        final int col2 = Math.max(firstColumn, lastColumn);
+        for (int s = Math.min(firstSheet, lastSheet); s <= Math.max(firstSheet, lastSheet) && s < _nodesBySheet.size(); s++) {
+            AreaRef ref = new AreaRef(s, row1, col1, row2, col2, node);
+            if (ref.isSingleCell()) {
+                _cellRefsBySheet.get(s).computeIfAbsent(cellKey(row1, col1), k -> new ArrayList<>(1)).add(node);
+            } else {
+                _areaRefsBySheet.get(s).add(ref);
+            }
+            if (node.references == null) {
+                node.references = new ArrayList<>(2);
+            }
+            node.references.add(ref);
+
+            NavigableMap<Integer, List<Node>> rows = _nodesBySheet.get(s).subMap(row1, true, row2, true);
+            for (Map.Entry<Integer, List<Node>> me : rows.entrySet()) {
+                for (Node precedent : me.getValue()) {
+                    int col = precedent.columnIndex;
+                    if (col >= col1 && col <= col2 && precedent.visitedBy != node.id) {
+                        // each precedent is only linked once per formula
+                        precedent.visitedBy = node.id;
+                        precedent.addDependent(node);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long cellKey(int rowIndex, int columnIndex) {
+        return ((long)rowIndex << 32) | (columnIndex & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,367 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.CellReference.NameType;
+import org.apache.poi.util.Internal;
+
+/**
+ * Bounded LRU cache of the parsed tokens of the formulas of a workbook.
+ * <p>
+ * The relative cell references of a formula are normalized in the key, i.e. the formulas
+ * {@code A1*B1+1} and {@code A7*B7+1} share an entry and the tokens of the second formula are
+ * the tokens of the first one with the relative rows shifted by 6. Only formulas, whose tokens
+ * don't depend on the workbook, are cached - formulas with names, sheet or external references,
+ * user defined functions or structured references are parsed each time, as their tokens change
+ * with the names, sheets and tables of the workbook.
+ * <p>
+ * The tokens are mutable, so the callers always get a copy of the cached tokens.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public final class FormulaParseCache {
+
+    private static final class Entry {
+        private final Ptg[] _ptgs;
+        private final int _firstRow;
+        private final int _firstColumn;
+
+        private Entry(Ptg[] ptgs, int firstRow, int firstColumn) {
+            _ptgs = ptgs;
+            _firstRow = firstRow;
+            _firstColumn = firstColumn;
+        }
+    }
+
+    /**
+     * The normalized formula text with the smallest relative row and column of its references
+     */
+    private static final class Key {
+        private final String _text;
+        private final FormulaType _formulaType;
+        private final int _firstRow;
+        private final int _firstColumn;
+
+        private Key(String text, FormulaType formulaType, int firstRow, int firstColumn) {
+            _text = text;
+            _formulaType = formulaType;
+            _firstRow = firstRow;
+            _firstColumn = firstColumn;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _formulaType == other._formulaType && _text.equals(other._text);
+        }
+
+        @Override
+        public int hashCode() {
+            return _text.hashCode() * 31 + _formulaType.hashCode();
+        }
+    }
+
+    /** the number of values per cell reference of a formula */
+    private static final int REF_SIZE = 5;
+
+    private final SpreadsheetVersion _ssVersion;
+    private final Map<Key, Entry> _entries;
+
+    /**
+     * @param ssVersion the version of the workbook
+     * @param maxEntries the maximum number of cached formulas
+     */
+    public FormulaParseCache(SpreadsheetVersion ssVersion, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The cache needs at least one entry, but had " + maxEntries);
+        }
+        _ssVersion = ssVersion;
+        _entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Parses the formula or copies the tokens of a cached formula of the same shape.
+     *
+     * @see FormulaParser#parse(String, FormulaParsingWorkbook, FormulaType, int, int)
+     */
+    Ptg[] parse(String formula, FormulaParsingWorkbook workbook, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        Key key = createKey(formula, formulaType);
+        if (key == null) {
+            return FormulaParser.parseUncached(formula, workbook, formulaType, sheetIndex, rowIndex);
+        }
+        Entry entry;
+        synchronized (_entries) {
+            entry = _entries.get(key);
+        }
+        if (entry != null) {
+            return copy(entry._ptgs, key._firstRow - entry._firstRow, key._firstColumn - entry._firstColumn);
+        }
+
+        Ptg[] ptgs = FormulaParser.parseUncached(formula, workbook, formulaType, sheetIndex, rowIndex);
+        if (isWorkbookIndependent(ptgs)) {
+            entry = new Entry(copy(ptgs, 0, 0), key._firstRow, key._firstColumn);
+            synchronized (_entries) {
+                _entries.put(key, entry);
+            }
+        }
+        return ptgs;
+    }
+
+    /**
+     * @return the number of cached formulas
+     */
+    public int size() {
+        synchronized (_entries) {
+            return _entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (_entries) {
+            _entries.clear();
+        }
+    }
+
+    private static boolean isWorkbookIndependent(Ptg[] ptgs) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof WorkbookDependentFormula || ptg instanceof Pxg) {
+                // names and sheet references
+                return false;
+            }
+            if (ptg instanceof AbstractFunctionPtg && ((AbstractFunctionPtg) ptg).isExternalFunction()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Ptg[] copy(Ptg[] ptgs, int rowDelta, int columnDelta) {
+        Ptg[] result = new Ptg[ptgs.length];
+        for (int i = 0; i < ptgs.length; i++) {
+            Ptg ptg = ptgs[i].copy();
+            if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                if (ref.isRowRelative()) {
+                    ref.setRow(ref.getRow() + rowDelta);
+                }
+                if (ref.isColRelative()) {
+                    ref.setColumn(ref.getColumn() + columnDelta);
+                }
+            } else if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                if (area.isFirstRowRelative()) {
+                    area.setFirstRow(area.getFirstRow() + rowDelta);
+                }
+                if (area.isLastRowRelative()) {
+                    area.setLastRow(area.getLastRow() + rowDelta);
+                }
+                if (area.isFirstColRelative()) {
+                    area.setFirstColumn(area.getFirstColumn() + columnDelta);
+                }
+                if (area.isLastColRelative()) {
+                    area.setLastColumn(area.getLastColumn() + columnDelta);
+                }
+            }
+            result[i] = ptg;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the relative rows and columns of the cell references by their offsets to the
+     * smallest relative row and column of the formula.
+     *
+     * @return the key or {@code null} if the formula can't be cached
+     */
+    private Key createKey(String formula, FormulaType formulaType) {
+        int length = formula.length();
+        // the cell references as start, end, column, row, with negative values for absolute parts,
+        // and the order of the corners of areas
+        int[] refs = null;
+        int refCount = 0;
+        int firstRow = Integer.MAX_VALUE;
+        int firstColumn = Integer.MAX_VALUE;
+
+        int i = 0;
+        while (i < length) {
+            char ch = formula.charAt(i);
+            if (ch == '"' || ch == '\'') {
+                // string literal or quoted sheet name
+                int end = formula.indexOf(ch, i + 1);
+                if (end < 0) {
+                    return null;
+                }
+                i = end + 1;
+            } else if (ch == '[') {
+                // structured or external reference
+                return null;
+            } else if (isIdentifierChar(ch)) {
+                int start = i;
+                while (i < length && isIdentifierChar(formula.charAt(i))) {
+                    i++;
+                }
+                char next = nextChar(formula, i);
+                if (next == '(' || next == '!') {
+                    // function or sheet name
+                    continue;
+                }
+                String token = formula.substring(start, i);
+                if (!isCellReference(token)) {
+                    if (next == ':' || previousChar(formula, start) == ':') {
+                        // whole rows or columns, which aren't normalized
+                        return null;
+                    }
+                    continue;
+                }
+
+                boolean columnAbsolute = token.charAt(0) == '$';
+                int digits = token.length();
+                while (Character.isDigit(token.charAt(digits - 1))) {
+                    digits--;
+                }
+                boolean rowAbsolute = token.charAt(digits - 1) == '$';
+                int column = CellReference.convertColStringToIndex(token.substring(0, rowAbsolute ? digits - 1 : digits));
+                int row = Integer.parseInt(token.substring(digits)) - 1;
+                if (refs == null) {
+                    refs = new int[REF_SIZE * 4];
+                } else if (refs.length < (refCount + 1) * REF_SIZE) {
+                    int[] newRefs = new int[refs.length * 2];
+                    System.arraycopy(refs, 0, newRefs, 0, refs.length);
+                    refs = newRefs;
+                }
+                int p = refCount * REF_SIZE;
+                refs[p] = start;
+                refs[p + 1] = i;
+                refs[p + 2] = columnAbsolute ? -1 - column : column;
+                refs[p + 3] = rowAbsolute ? -1 - row : row;
+                refs[p + 4] = -1;
+                if (refCount > 0 && isRangeOperator(formula, refs[p - REF_SIZE + 1], start)) {
+                    // the parser orders the corners of areas by their values, which changes the
+                    // tokens of areas with relative and absolute parts
+                    int prevColumn = refs[p - REF_SIZE + 2];
+                    int prevRow = refs[p - REF_SIZE + 3];
+                    refs[p + 4] = ((prevColumn < 0 ? -1 - prevColumn : prevColumn) > column ? 1 : 0)
+                            | ((prevRow < 0 ? -1 - prevRow : prevRow) > row ? 2 : 0);
+                }
+                refCount++;
+                if (!columnAbsolute) {
+                    firstColumn = Math.min(firstColumn, column);
+                }
+                if (!rowAbsolute) {
+                    firstRow = Math.min(firstRow, row);
+                }
+            } else {
+                i++;
+            }
+        }
+
+        if (refCount == 0) {
+            return new Key(formula, formulaType, 0, 0);
+        }
+        StringBuilder sb = new StringBuilder(length + refCount * 4);
+        int last = 0;
+        for (int r = 0; r < refCount; r++) {
+            int p = r * REF_SIZE;
+            sb.append(formula, last, refs[p]);
+            // the marker can't be part of a valid formula outside of string literals
+            sb.append('\u0000');
+            int column = refs[p + 2];
+            int row = refs[p + 3];
+            if (column < 0) {
+                sb.append('$').append(-1 - column);
+            } else {
+                sb.append('c').append(column - firstColumn);
+            }
+            if (row < 0) {
+                sb.append('$').append(-1 - row);
+            } else {
+                sb.append('r').append(row - firstRow);
+            }
+            if (refs[p + 4] >= 0) {
+                sb.append('o').append(refs[p + 4]);
+            }
+            last = refs[p + 1];
+        }
+        sb.append(formula, last, length);
+        return new Key(sb.toString(), formulaType,
+                firstRow == Integer.MAX_VALUE ? 0 : firstRow, firstColumn == Integer.MAX_VALUE ? 0 : firstColumn);
+    }
+
+    private boolean isCellReference(String token) {
+        char first = token.charAt(0);
+        if (!Character.isLetter(first) && first != '$') {
+            return false;
+        }
+        if (!Character.isDigit(token.charAt(token.length() - 1))) {
+            return false;
+        }
+        try {
+            return CellReference.classifyCellReference(token, _ssVersion) == NameType.CELL;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isIdentifierChar(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_' || ch == '.' || ch == '$' || ch == '\\';
+    }
+
+    private static boolean isRangeOperator(String formula, int end, int start) {
+        return formula.substring(end, start).trim().equals(":");
+    }
+
+    private static char nextChar(String formula, int index) {
+        int i = skipSpaces(formula, index);
+        return (i < formula.length()) ? formula.charAt(i) : 0;
+    }
+
+    private static char previousChar(String formula, int index) {
+        int i = index - 1;
+        while (i >= 0 && formula.charAt(i) == ' ') {
+            i--;
+        }
+        return (i >= 0) ? formula.charAt(i) : 0;
+    }
+
+    private static int skipSpaces(String formula, int index) {
+        int i = index;
+        while (i < formula.length() && formula.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+}
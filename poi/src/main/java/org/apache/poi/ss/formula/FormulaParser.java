@@ -171,6 +171,14 @@ public final class FormulaParser {
      * @throws FormulaParseException if the formula has incorrect syntax or is otherwise invalid
      */
     public static Ptg[] parse(String formula, FormulaParsingWorkbook workbook, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        FormulaParseCache cache = (workbook == null) ? null : workbook.getFormulaParseCache();
+        if (cache != null) {
+            return cache.parse(formula, workbook, formulaType, sheetIndex, rowIndex);
+        }
+        return parseUncached(formula, workbook, formulaType, sheetIndex, rowIndex);
+    }
+
+    /* package */ static Ptg[] parseUncached(String formula, FormulaParsingWorkbook workbook, FormulaType formulaType, int sheetIndex, int rowIndex) {
         FormulaParser fp = new FormulaParser(formula, workbook, sheetIndex, rowIndex);
         fp.parse();
         return fp.getRPNPtg(formulaType);
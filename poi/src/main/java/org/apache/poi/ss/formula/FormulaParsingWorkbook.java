@@ -77,4 +77,11 @@ public interface FormulaParsingWorkbook {
      */
     SpreadsheetVersion getSpreadsheetVersion();
 
+    /**
+     * @return the cache of the parsed formulas of the workbook or {@code null} if the formulas aren't cached
+     * @since POI 5.2.4
+     */
+    default FormulaParseCache getFormulaParseCache() {
+        return null;
+    }
 }
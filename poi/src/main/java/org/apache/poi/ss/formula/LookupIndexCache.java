@@ -0,0 +1,143 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
+import org.apache.poi.ss.formula.eval.NumberEval;
+
+/**
+ * Caches the lookup indexes of areas, see {@link LookupIndexSource}.
+ * <p>
+ * Each index is tracked like a formula cell, which depends on all cells of its area: the cells
+ * read while building the index are the sensitive input cells of its cache entry and the lookup
+ * formulas consume that entry. A change of any cell of the area therefore clears the index along
+ * with the cached results of the lookup formulas and the index is rebuilt on the next lookup.
+ */
+final class LookupIndexCache {
+    private static final Logger LOG = LogManager.getLogger(LookupIndexCache.class);
+
+    /** the index couldn't be built, e.g. because the evaluation of a cell failed */
+    private static final Object NOT_INDEXED = new Object();
+
+    /** the "formula result" of a valid index entry */
+    private static final NumberEval BUILT = NumberEval.ZERO;
+
+    private static final class Key {
+        private final int _bookIndex;
+        private final int _sheetIndex;
+        private final int _firstRow;
+        private final int _firstColumn;
+        private final int _lastRow;
+        private final int _lastColumn;
+        private final Class<?> _indexType;
+
+        Key(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn, Class<?> indexType) {
+            _bookIndex = bookIndex;
+            _sheetIndex = sheetIndex;
+            _firstRow = firstRow;
+            _firstColumn = firstColumn;
+            _lastRow = lastRow;
+            _lastColumn = lastColumn;
+            _indexType = indexType;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = _bookIndex * 17 + _sheetIndex;
+            result = result * 31 + _firstRow;
+            result = result * 31 + _firstColumn;
+            result = result * 31 + _lastRow;
+            result = result * 31 + _lastColumn;
+            return result * 31 + _indexType.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _bookIndex == other._bookIndex && _sheetIndex == other._sheetIndex
+                    && _firstRow == other._firstRow && _firstColumn == other._firstColumn
+                    && _lastRow == other._lastRow && _lastColumn == other._lastColumn
+                    && _indexType == other._indexType;
+        }
+    }
+
+    private static final class Entry {
+        private final FormulaCellCacheEntry _cce = new FormulaCellCacheEntry();
+        private Object _index;
+    }
+
+    private final Map<Key, Entry> _entries = new HashMap<>();
+
+    /**
+     * @return the cached or newly built index, {@code null} if the index can't be used
+     */
+    public <T> T getIndex(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn,
+            Class<T> indexType, Supplier<T> builder, EvaluationTracker tracker) {
+        Key key = new Key(bookIndex, sheetIndex, firstRow, firstColumn, lastRow, lastColumn, indexType);
+        Entry entry = _entries.computeIfAbsent(key, k -> new Entry());
+        FormulaCellCacheEntry cce = entry._cce;
+        tracker.acceptFormulaDependency(cce);
+
+        if (cce.getValue() == null) {
+            if (!tracker.startEvaluate(cce)) {
+                // the area contains a cell, whose formula looks up the same area
+                return null;
+            }
+            try {
+                entry._index = null;
+                Object index;
+                try {
+                    index = builder.get();
+                } catch (RuntimeException e) {
+                    // the lookup scans the area and reports the error
+                    LOG.atDebug().withThrowable(e).log("Failed to build lookup index");
+                    index = NOT_INDEXED;
+                }
+                if (index == null) {
+                    return null;
+                }
+                entry._index = index;
+                tracker.updateCacheResult(BUILT);
+            } finally {
+                tracker.endEvaluate(cce);
+            }
+        }
+
+        Object index = entry._index;
+        return (index == NOT_INDEXED) ? null : indexType.cast(index);
+    }
+
+    public void notifyUpdatedBlankCell(BookSheetKey bsk, int rowIndex, int columnIndex, IEvaluationListener evaluationListener) {
+        for (Entry entry : _entries.values()) {
+            entry._cce.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, evaluationListener);
+        }
+    }
+
+    public void clear() {
+        _entries.clear();
+    }
+}
@@ -0,0 +1,43 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.function.Supplier;
+
+import org.apache.poi.util.Internal;
+
+/**
+ * An area, whose lookup indexes can be cached by the evaluator until one of its cells changes.
+ * Used by the lookup functions to avoid scanning the same range for every lookup.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+public interface LookupIndexSource {
+
+    /**
+     * Returns the cached index of the given type or builds it with the given builder.
+     * The builder has to read all cells of this area, so that changes of those cells
+     * invalidate the index.
+     *
+     * @param indexType the type of the index, there's one cached index per type and area
+     * @param builder builds the index, may return {@code null} if the index can't be cached
+     * @return the index or {@code null} if no index is available and the lookup has to scan the area
+     */
+    <T> T getLookupIndex(Class<T> indexType, Supplier<T> builder);
+}
@@ -0,0 +1,181 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.poi.ss.formula.FormulaDependencyGraph.Node;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.Internal;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Evaluates all formula cells of a workbook with several threads.
+ * <p>
+ * The formula cells are scheduled by the levels of the {@link FormulaDependencyGraph}. Each worker uses
+ * its own {@link WorkbookEvaluator}, as the evaluation cache isn't thread-safe, and publishes its results
+ * to a concurrent map, which is consulted by the other evaluators before evaluating a formula cell.
+ * <p>
+ * Finally, all formula cells are evaluated and updated in the same order as in
+ * {@link BaseFormulaEvaluator#evaluateAllFormulaCells(Workbook)} by a single evaluator, which picks up the
+ * precomputed results and evaluates the remaining cells - i.e. dynamic references, circular references and
+ * the cells, which depend on them - on the caller thread. Therefore the results don't differ from the
+ * serial evaluation.
+ * <p>
+ * The first exception of a worker stops the evaluation and is rethrown with the exceptions of the other
+ * workers as suppressed exceptions. As all cells are evaluated anyway, this is the same kind of exception,
+ * which the serial evaluation throws, but it might be thrown for a different cell.
+ * <p>
+ * The number of tasks of a level is limited by the parallelism of the executor. Workbooks, whose
+ * {@link EvaluationWorkbook#isConcurrentReadSafe() evaluation workbook} can't be read concurrently,
+ * are evaluated serially on the caller thread.
+ *
+ * @since POI 5.2.4
+ */
+@Internal
+final class ParallelFormulaEvaluation {
+    private static final Logger LOG = LogManager.getLogger(ParallelFormulaEvaluation.class);
+
+    /** levels with less cells are evaluated on the caller thread */
+    private static final int MIN_CELLS_PER_TASK = 64;
+
+    private final Workbook _wb;
+    private final Executor _executor;
+    private final int _parallelism;
+    private final Map<Object, ValueEval> _results = new ConcurrentHashMap<>();
+    private final Queue<WorkbookEvaluator> _idleEvaluators = new ConcurrentLinkedQueue<>();
+    /** the first failure of a worker, which stops the other workers */
+    private final AtomicReference<RuntimeException> _failure = new AtomicReference<>();
+
+    ParallelFormulaEvaluation(Workbook wb, Executor executor) {
+        this(wb, executor, getParallelism(executor));
+    }
+
+    ParallelFormulaEvaluation(Workbook wb, Executor executor, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive, but is " + parallelism);
+        }
+        _wb = wb;
+        _executor = executor;
+        _parallelism = parallelism;
+    }
+
+    /**
+     * @return the number of threads of the executor, if it is a {@link ForkJoinPool} or
+     *  {@link ThreadPoolExecutor}, otherwise 1
+     */
+    static int getParallelism(Executor executor) {
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            return Math.max(((ThreadPoolExecutor) executor).getMaximumPoolSize(), 1);
+        }
+        return 1;
+    }
+
+    void evaluateAll() {
+        FormulaEvaluator evaluator = _wb.getCreationHelper().createFormulaEvaluator();
+        WorkbookEvaluator bookEvaluator = ((WorkbookEvaluatorProvider) evaluator)._getWorkbookEvaluator();
+
+        if (_parallelism > 1 && bookEvaluator.getWorkbook().isConcurrentReadSafe()) {
+            // building the graph visits all cells, i.e. lazily created cells are created before the workers read them
+            FormulaDependencyGraph graph = new FormulaDependencyGraph(_wb, bookEvaluator.getWorkbook());
+            int parallelCells = 0;
+            for (List<Node> level : graph.getLevels()) {
+                evaluateLevel(level);
+                parallelCells += level.size();
+            }
+            LOG.atDebug().log("Evaluated {} of {} formula cells concurrently", box(parallelCells), box(graph.getNodes().size()));
+        }
+
+        bookEvaluator.setSharedFormulaResults(_results);
+        try {
+            BaseFormulaEvaluator.evaluateAllFormulaCells(_wb, evaluator);
+        } finally {
+            bookEvaluator.setSharedFormulaResults(null);
+        }
+    }
+
+    private void evaluateLevel(List<Node> level) {
+        int tasks = Math.min(level.size() / MIN_CELLS_PER_TASK, _parallelism);
+        if (tasks <= 1) {
+            evaluateCells(level);
+        } else {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                List<Node> cells = level.subList(i * level.size() / tasks, (i + 1) * level.size() / tasks);
+                futures.add(CompletableFuture.runAsync(() -> evaluateCells(cells), _executor));
+            }
+            try {
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+        RuntimeException failure = _failure.get();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void evaluateCells(List<Node> cells) {
+        WorkbookEvaluator evaluator = _idleEvaluators.poll();
+        if (evaluator == null) {
+            FormulaEvaluator fe = _wb.getCreationHelper().createFormulaEvaluator();
+            evaluator = ((WorkbookEvaluatorProvider) fe)._getWorkbookEvaluator();
+            evaluator.setSharedFormulaResults(_results);
+        }
+        try {
+            EvaluationWorkbook workbook = evaluator.getWorkbook();
+            for (Node node : cells) {
+                if (_failure.get() != null) {
+                    return;
+                }
+                EvaluationCell cell = workbook.getSheet(node.getSheetIndex()).getCell(node.getRowIndex(), node.getColumnIndex());
+                _results.put(cell.getIdentityKey(), evaluator.evaluate(cell));
+            }
+        } catch (RuntimeException e) {
+            if (!_failure.compareAndSet(null, e)) {
+                _failure.get().addSuppressed(e);
+            }
+        } finally {
+            _idleEvaluators.add(evaluator);
+        }
+    }
+}
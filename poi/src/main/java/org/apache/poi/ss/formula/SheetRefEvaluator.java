@@ -17,6 +17,8 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.function.Supplier;
+
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.ptg.FuncVarPtg;
 import org.apache.poi.ss.formula.ptg.Ptg;
@@ -48,6 +50,15 @@ final class SheetRefEvaluator {
         return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
     }
 
+    /**
+     * @return the cached lookup index of the given area of this sheet, see {@link LookupIndexSource}
+     */
+    public <T> T getLookupIndex(int firstRow, int firstColumn, int lastRow, int lastColumn,
+            Class<T> indexType, Supplier<T> builder) {
+        return _bookEvaluator.getLookupIndex(_sheetIndex, firstRow, firstColumn, lastRow, lastColumn,
+                indexType, builder, _tracker);
+    }
+
     private EvaluationSheet getSheet() {
         if (_sheet == null) {
             _sheet = _bookEvaluator.getSheet(_sheetIndex);
@@ -18,12 +18,16 @@
 package org.apache.poi.ss.formula;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Stack;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -38,6 +42,7 @@ import org.apache.poi.ss.formula.ptg.*;
 import org.apache.poi.ss.formula.udf.AggregatingUDFFinder;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddressBase;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.Internal;
@@ -56,6 +61,9 @@ public final class WorkbookEvaluator {
 
     private static final Logger LOG = LogManager.getLogger(WorkbookEvaluator.class);
 
+    /** the maximum number of cached compiled formulas */
+    private static final int MAX_COMPILED_FORMULAS = 4096;
+
     private final EvaluationWorkbook _workbook;
     private EvaluationCache _cache;
     /**
@@ -64,14 +72,51 @@ public final class WorkbookEvaluator {
     private int _workbookIx;
 
     private final IEvaluationListener _evaluationListener;
-    private final Map<EvaluationSheet, Integer> _sheetIndexesBySheet;
-    private final Map<String, Integer> _sheetIndexesByName;
+    private Map<EvaluationSheet, Integer> _sheetIndexesBySheet;
+    private Map<String, Integer> _sheetIndexesByName;
     private CollaboratingWorkbooksEnvironment _collaboratingWorkbookEnvironment;
     private final IStabilityClassifier _stabilityClassifier;
     private final AggregatingUDFFinder _udfFinder;
 
     private boolean _ignoreMissingWorkbooks;
 
+    /**
+     * formula results by cell identity, which have been computed by other evaluators of the same workbook
+     */
+    private volatile Map<Object, ValueEval> _sharedFormulaResults;
+
+    // read by all threads when evaluating concurrently
+    private volatile FormulaDependencyGraph _dependencyGraph;
+
+    private boolean _iterativeEvaluation;
+
+    /**
+     * the evaluation caches of the threads, {@code null} unless evaluating concurrently
+     */
+    private volatile ThreadLocal<EvaluationCache> _threadCaches;
+    /**
+     * the formula results, which have been computed by any thread, {@code null} unless evaluating concurrently
+     */
+    private volatile Map<Object, ValueEval> _concurrentResults;
+
+    /**
+     * the evaluator, whose results are used for the formula cells not affected by the changes since forking
+     */
+    private WorkbookEvaluator _baseEvaluator;
+    /**
+     * the dependencies between the formula cells, which are shared by all forks of the workbook
+     */
+    private FormulaDependencyGraph _forkGraph;
+    /**
+     * the ids of the formula cells, which are affected by the changes since forking
+     */
+    private BitSet _changedSinceFork;
+
+    /**
+     * compiled cell formulas by their shape, {@code null} if formulas are interpreted
+     */
+    private Map<CompiledFormula.Shape, CompiledFormula> _compiledFormulas;
+
     /**
      * whether print detailed messages about the next formula evaluation
      */
@@ -128,6 +173,9 @@ public final class WorkbookEvaluator {
     }
 
     /* package */ void attachToEnvironment(CollaboratingWorkbooksEnvironment collaboratingWorkbooksEnvironment, EvaluationCache cache, int workbookIx) {
+        if (_threadCaches != null) {
+            throw new IllegalStateException("Collaborating workbooks can't be evaluated concurrently");
+        }
         _collaboratingWorkbookEnvironment = collaboratingWorkbooksEnvironment;
         _cache = cache;
         _workbookIx = workbookIx;
@@ -154,6 +202,18 @@ public final class WorkbookEvaluator {
         return _collaboratingWorkbookEnvironment.getWorkbookEvaluator(workbookName);
     }
 
+    /**
+     * Uses the formula results of other evaluators instead of evaluating the cells again.
+     * The results are not tracked by the evaluation cache, i.e. they are not invalidated by the notify~ methods.
+     *
+     * @param sharedFormulaResults the results by {@link EvaluationCell#getIdentityKey()},
+     *                             need to be thread-safe if they are updated concurrently,
+     *                             or {@code null} to evaluate all cells again
+     */
+    /* package */ void setSharedFormulaResults(Map<Object, ValueEval> sharedFormulaResults) {
+        _sharedFormulaResults = sharedFormulaResults;
+    }
+
     /* package */ IEvaluationListener getEvaluationListener() {
         return _evaluationListener;
     }
@@ -165,8 +225,13 @@ public final class WorkbookEvaluator {
      */
     public void clearAllCachedResultValues() {
         _cache.clear();
+        clearConcurrentResults();
         _sheetIndexesBySheet.clear();
         _workbook.clearAllCachedResultValues();
+        if (_dependencyGraph != null) {
+            _dependencyGraph.rebuild();
+            _dependencyGraph.markAllDirty();
+        }
     }
 
     /**
@@ -176,6 +241,22 @@ public final class WorkbookEvaluator {
     public void notifyUpdateCell(EvaluationCell cell) {
         int sheetIndex = getSheetIndex(cell.getSheet());
         _cache.notifyUpdateCell(_workbookIx, sheetIndex, cell);
+        clearConcurrentResults();
+        if (_changedSinceFork != null) {
+            clearFormulaResults(_forkGraph.markDirty(sheetIndex, cell.getRowIndex(), cell.getColumnIndex(), _changedSinceFork));
+        }
+
+        if (_dependencyGraph != null) {
+            int rowIndex = cell.getRowIndex();
+            int columnIndex = cell.getColumnIndex();
+            if (cell.getCellType() == CellType.FORMULA
+                    || _dependencyGraph.getNode(sheetIndex, rowIndex, columnIndex) != null) {
+                // the formula has been added, changed or removed - the dependents are found by
+                // the references to the cell, so relinking it first doesn't lose any of them
+                _dependencyGraph.updateCell(sheetIndex, rowIndex, columnIndex);
+            }
+            markDirty(sheetIndex, rowIndex, columnIndex);
+        }
     }
 
     /**
@@ -185,6 +266,158 @@ public final class WorkbookEvaluator {
     public void notifyDeleteCell(EvaluationCell cell) {
         int sheetIndex = getSheetIndex(cell.getSheet());
         _cache.notifyDeleteCell(_workbookIx, sheetIndex, cell);
+        clearConcurrentResults();
+        if (_changedSinceFork != null) {
+            clearFormulaResults(_forkGraph.markDirty(sheetIndex, cell.getRowIndex(), cell.getColumnIndex(), _changedSinceFork));
+        }
+
+        if (_dependencyGraph != null) {
+            markDirty(sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+            // the cell is usually removed after the notification
+            _dependencyGraph.removeCell(sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+        }
+    }
+
+    /**
+     * Allows several threads to evaluate cells of the workbook at the same time, as long as the workbook
+     * isn't modified. Each thread evaluates with its own cache and tracker, and the results of the formula
+     * cells are published to all threads by a concurrent map, so that each formula is usually evaluated
+     * only once.
+     * <p>
+     * As the threads don't track the dependencies of each other's results, the notify~ methods
+     * discard all cached results in this mode. This mode can't be used with collaborating workbooks
+     * and the debug output of {@link #setDebugEvaluationOutputForNextEval(boolean)}.
+     * <p>
+     * This method must be called before the evaluator is shared with other threads.
+     *
+     * @param concurrent whether to allow concurrent evaluations
+     * @since POI 5.2.4
+     */
+    public void setConcurrentEvaluation(boolean concurrent) {
+        if (concurrent == (_threadCaches != null)) {
+            return;
+        }
+        if (concurrent) {
+            if (_collaboratingWorkbookEnvironment != CollaboratingWorkbooksEnvironment.EMPTY) {
+                throw new IllegalStateException("Collaborating workbooks can't be evaluated concurrently");
+            }
+            _sheetIndexesBySheet = Collections.synchronizedMap(new IdentityHashMap<>(_sheetIndexesBySheet));
+            _sheetIndexesByName = Collections.synchronizedMap(new IdentityHashMap<>(_sheetIndexesByName));
+            if (_compiledFormulas != null) {
+                _compiledFormulas = Collections.synchronizedMap(_compiledFormulas);
+            }
+            // the results, which have been computed before, are still valid for all threads
+            Map<Object, ValueEval> results = new ConcurrentHashMap<>();
+            _cache.copyFormulaResultsTo(results);
+            _concurrentResults = results;
+            _threadCaches = ThreadLocal.withInitial(() -> new EvaluationCache(_evaluationListener));
+        } else {
+            _sheetIndexesBySheet = new IdentityHashMap<>(_sheetIndexesBySheet);
+            _sheetIndexesByName = new IdentityHashMap<>(_sheetIndexesByName);
+            _threadCaches = null;
+            _concurrentResults = null;
+            if (_compiledFormulas != null) {
+                _compiledFormulas = null;
+                setCompiledEvaluation(true);
+            }
+        }
+    }
+
+    /**
+     * @since POI 5.2.4
+     */
+    public boolean isConcurrentEvaluation() {
+        return _threadCaches != null;
+    }
+
+    /**
+     * Discards the results and caches of all threads, if evaluating concurrently
+     */
+    private void clearConcurrentResults() {
+        if (_threadCaches != null) {
+            _concurrentResults = new ConcurrentHashMap<>();
+            _threadCaches = ThreadLocal.withInitial(() -> new EvaluationCache(_evaluationListener));
+        }
+    }
+
+    /**
+     * @return the evaluation cache of the current thread
+     */
+    private EvaluationCache getCache() {
+        ThreadLocal<EvaluationCache> threadCaches = _threadCaches;
+        return threadCaches == null ? _cache : threadCaches.get();
+    }
+
+    /**
+     * Creates an evaluator for a copy-on-write view of the workbook of this evaluator, whose cells may be changed
+     * independently of this evaluator. The fork uses the results of this evaluator for all formula cells, which
+     * don't depend on the cells changed in the view, so creating a fork is cheap and only the formula cells
+     * affected by its changes are evaluated again.
+     * <p>
+     * This evaluator is switched to concurrent evaluation, so that several forks can be evaluated by different
+     * threads. Its workbook must not be changed anymore.
+     *
+     * @param wb the workbook of this evaluator, to find the dependencies between the formula cells
+     * @param forkedWorkbook the view of the workbook of this evaluator, e.g. a {@code ForkedEvaluationWorkbook}
+     * @return the evaluator of the view
+     * @since POI 5.2.4
+     */
+    public synchronized WorkbookEvaluator fork(Workbook wb, EvaluationWorkbook forkedWorkbook) {
+        if (_forkGraph == null) {
+            _forkGraph = new FormulaDependencyGraph(wb, _workbook);
+        }
+        setConcurrentEvaluation(true);
+
+        // the UDFs of this evaluator are already registered with the workbook
+        WorkbookEvaluator fork = new WorkbookEvaluator(forkedWorkbook, _stabilityClassifier, null);
+        fork._baseEvaluator = this;
+        fork._forkGraph = _forkGraph;
+        fork._changedSinceFork = new BitSet();
+        fork._ignoreMissingWorkbooks = _ignoreMissingWorkbooks;
+        fork._iterativeEvaluation = _iterativeEvaluation;
+        fork.setCompiledEvaluation(isCompiledEvaluation());
+        return fork;
+    }
+
+    /**
+     * Tracks the dependencies of the formula cells with the given graph.
+     * <p>
+     * The cached formula results of the cells are used, as long as the graph doesn't mark them as dirty.
+     * The notify~ methods mark the formula cells as dirty, which depend on the changed cells.
+     *
+     * @param dependencyGraph the graph of this workbook or {@code null} to evaluate all formula cells again
+     */
+    /* package */ void setDependencyGraph(FormulaDependencyGraph dependencyGraph) {
+        _dependencyGraph = dependencyGraph;
+    }
+
+    /**
+     * @return the dependency graph, which is up-to-date with the formulas of the workbook,
+     *  or {@code null} if it hasn't been set up
+     */
+    /* package */ FormulaDependencyGraph getDependencyGraph() {
+        return _dependencyGraph;
+    }
+
+    private void markDirty(int sheetIndex, int rowIndex, int columnIndex) {
+        clearFormulaResults(_dependencyGraph.markDirty(sheetIndex, rowIndex, columnIndex));
+    }
+
+    /**
+     * Discards the cached results of formula cells, which have been marked as dirty by a dependency graph
+     */
+    private void clearFormulaResults(Collection<FormulaDependencyGraph.Node> dirtyNodes) {
+        if (!dirtyNodes.isEmpty()) {
+            // the lookup indexes don't track the cached formula results either
+            _cache.getLookupIndexCache().clear();
+        }
+        for (FormulaDependencyGraph.Node node : dirtyNodes) {
+            // the evaluation cache doesn't know about the dependencies on the cached formula results
+            EvaluationCell formulaCell = _workbook.getSheet(node.getSheetIndex()).getCell(node.getRowIndex(), node.getColumnIndex());
+            if (formulaCell != null) {
+                _cache.clearFormulaResult(formulaCell);
+            }
+        }
     }
 
     private int getSheetIndex(EvaluationSheet sheet) {
@@ -201,8 +434,14 @@ public final class WorkbookEvaluator {
     }
 
     public ValueEval evaluate(EvaluationCell srcCell) {
-        int sheetIndex = getSheetIndex(srcCell.getSheet());
-        return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(_cache));
+        return evaluate(srcCell, getSheetIndex(srcCell.getSheet()));
+    }
+
+    private ValueEval evaluate(EvaluationCell srcCell, int sheetIndex) {
+        if (_iterativeEvaluation) {
+            new EvaluationWorkStack(this).evaluatePrecedents(srcCell, sheetIndex);
+        }
+        return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(getCache()));
     }
 
     /**
@@ -244,7 +483,12 @@ public final class WorkbookEvaluator {
             return result;
         }
 
-        FormulaCellCacheEntry cce = _cache.getOrCreateFormulaCellEntry(srcCell);
+        ValueEval precomputed = getPrecomputedResult(srcCell, sheetIndex, rowIndex, columnIndex);
+        if (precomputed != null) {
+            return precomputed;
+        }
+
+        FormulaCellCacheEntry cce = getCache().getOrCreateFormulaCellEntry(srcCell);
         if (shouldCellDependencyBeRecorded || cce.isInputSensitive()) {
             tracker.acceptFormulaDependency(cce);
         }
@@ -257,43 +501,27 @@ public final class WorkbookEvaluator {
 
             try {
 
-                Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
                 OperationEvaluationContext ec = new OperationEvaluationContext
                         (this, _workbook, sheetIndex, rowIndex, columnIndex, tracker);
                 if (evalListener == null) {
-                    result = evaluateFormula(ec, ptgs);
+                    result = evaluateCellFormula(srcCell, ec, cce);
                 } else {
                     evalListener.onStartEvaluate(srcCell, cce);
-                    result = evaluateFormula(ec, ptgs);
+                    result = evaluateCellFormula(srcCell, ec, cce);
                     evalListener.onEndEvaluate(cce, result);
                 }
 
                 tracker.updateCacheResult(result);
+                Map<Object, ValueEval> concurrentResults = _concurrentResults;
+                if (concurrentResults != null && cce.getValue() != null) {
+                    concurrentResults.put(srcCell.getIdentityKey(), cce.getValue());
+                }
             } catch (NotImplementedException e) {
                 throw addExceptionInfo(e, sheetIndex, rowIndex, columnIndex);
             } catch (RuntimeException re) {
                 if (re.getCause() instanceof WorkbookNotFoundException && _ignoreMissingWorkbooks) {
                     LOG.atInfo().log("{} - Continuing with cached value!", re.getCause().getMessage());
-                    switch (srcCell.getCachedFormulaResultType()) {
-                        case NUMERIC:
-                            result = new NumberEval(srcCell.getNumericCellValue());
-                            break;
-                        case STRING:
-                            result = new StringEval(srcCell.getStringCellValue());
-                            break;
-                        case BLANK:
-                            result = BlankEval.instance;
-                            break;
-                        case BOOLEAN:
-                            result = BoolEval.valueOf(srcCell.getBooleanCellValue());
-                            break;
-                        case ERROR:
-                            result = ErrorEval.valueOf(srcCell.getErrorCellValue());
-                            break;
-                        case FORMULA:
-                        default:
-                            throw new IllegalStateException("Unexpected cell type '" + srcCell.getCellType() + "' found!");
-                    }
+                    result = getCachedFormulaResult(srcCell);
                 } else {
                     throw re;
                 }
@@ -319,6 +547,94 @@ public final class WorkbookEvaluator {
         return result;
     }
 
+    /**
+     * @return the formula result, which is stored in the cell
+     */
+    private static ValueEval getCachedFormulaResult(EvaluationCell srcCell) {
+        switch (srcCell.getCachedFormulaResultType()) {
+            case NUMERIC:
+                return new NumberEval(srcCell.getNumericCellValue());
+            case STRING:
+                return new StringEval(srcCell.getStringCellValue());
+            case BLANK:
+                return BlankEval.instance;
+            case BOOLEAN:
+                return BoolEval.valueOf(srcCell.getBooleanCellValue());
+            case ERROR:
+                return ErrorEval.valueOf(srcCell.getErrorCellValue());
+            case FORMULA:
+            default:
+                throw new IllegalStateException("Unexpected cell type '" + srcCell.getCellType() + "' found!");
+        }
+    }
+
+    /**
+     * @return the result of a formula cell, which has been computed by other evaluators, e.g. the evaluator
+     *  this evaluator has been forked from, or isn't affected by changes according to the dependency graph,
+     *  otherwise {@code null}
+     */
+    private ValueEval getPrecomputedResult(EvaluationCell srcCell, int sheetIndex, int rowIndex, int columnIndex) {
+        Map<Object, ValueEval> concurrentResults = _concurrentResults;
+        if (concurrentResults != null) {
+            ValueEval concurrentResult = concurrentResults.get(srcCell.getIdentityKey());
+            if (concurrentResult != null) {
+                return concurrentResult;
+            }
+        }
+        if (isUnchangedSinceFork(srcCell, sheetIndex, rowIndex, columnIndex)) {
+            return _baseEvaluator.evaluate(srcCell, sheetIndex);
+        }
+        if (_sharedFormulaResults != null) {
+            ValueEval sharedResult = _sharedFormulaResults.get(srcCell.getIdentityKey());
+            if (sharedResult != null) {
+                return sharedResult;
+            }
+        }
+
+        if (_dependencyGraph != null) {
+            FormulaDependencyGraph.Node node = _dependencyGraph.getNode(sheetIndex, rowIndex, columnIndex);
+            if (node != null && !node.isDirty() && node.getCell() == srcCell.getIdentityKey()) {
+                // not affected by any change since the cached result has been calculated
+                return getCachedFormulaResult(srcCell);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@code true}, if this evaluator has been forked and the formula cell isn't affected
+     *  by the changes since forking, i.e. the result of the base evaluator can be used
+     */
+    private boolean isUnchangedSinceFork(EvaluationCell srcCell, int sheetIndex, int rowIndex, int columnIndex) {
+        if (_baseEvaluator == null) {
+            return false;
+        }
+        FormulaDependencyGraph.Node node = _forkGraph.getNode(sheetIndex, rowIndex, columnIndex);
+        return node != null && !_changedSinceFork.get(node.getId()) && node.getCell() == srcCell.getIdentityKey();
+    }
+
+    /**
+     * @return {@code true}, if the formula cell doesn't need to be evaluated again
+     */
+    /* package */ boolean hasCachedResult(EvaluationCell formulaCell, int sheetIndex) {
+        if (isUnchangedSinceFork(formulaCell, sheetIndex, formulaCell.getRowIndex(), formulaCell.getColumnIndex())) {
+            // ask the base evaluator instead of evaluating the cell there
+            return _baseEvaluator.hasCachedResult(formulaCell, sheetIndex);
+        }
+        if (getPrecomputedResult(formulaCell, sheetIndex, formulaCell.getRowIndex(), formulaCell.getColumnIndex()) != null) {
+            return true;
+        }
+        FormulaCellCacheEntry cce = getCache().getFormulaCellEntry(formulaCell);
+        return cce != null && cce.getValue() != null;
+    }
+
+    /**
+     * Evaluates a cell like {@link #evaluate(EvaluationCell)}, but without evaluating its precedents upfront
+     */
+    /* package */ ValueEval evaluateCell(EvaluationCell srcCell, int sheetIndex) {
+        return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(getCache()));
+    }
+
     /**
      * Adds the current cell reference to the exception for easier debugging.
      * Would be nice to get the formula text as well, but that seems to require
@@ -368,6 +684,49 @@ public final class WorkbookEvaluator {
     }
 
 
+    /**
+     * Evaluates the formula of a cell, with the compiled formula of its shape if enabled.
+     * The compiled formula is kept in the cache entry of the cell, so the shape is only determined
+     * and the formula tokens are only read again, after the cell has been updated.
+     */
+    private ValueEval evaluateCellFormula(EvaluationCell srcCell, OperationEvaluationContext ec, FormulaCellCacheEntry cce) {
+        Map<CompiledFormula.Shape, CompiledFormula> compiledFormulas = _compiledFormulas;
+        if (compiledFormulas == null || dbgEvaluationOutputForNextEval || dbgEvaluationOutputIndent > 0) {
+            return evaluateFormula(ec, _workbook.getFormulaTokens(srcCell));
+        }
+        CompiledFormula compiled = cce.getCompiledFormula();
+        if (compiled == null) {
+            Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
+            compiled = getCompiledFormula(compiledFormulas, ptgs, ec.getRowIndex(), ec.getColumnIndex());
+            cce.setCompiledFormula(compiled);
+            if (!compiled.isCompilable()) {
+                return evaluateFormula(ec, ptgs);
+            }
+        } else if (!compiled.isCompilable()) {
+            return evaluateFormula(ec, _workbook.getFormulaTokens(srcCell));
+        }
+
+        ValueEval value = compiled.evaluate(this, ec, srcCell);
+        return ec.isSingleValue() ? dereferenceResult(value, srcCell, ec) : value;
+    }
+
+    /**
+     * @return the compiled formula of the shape of the tokens, or {@link CompiledFormula#NOT_COMPILABLE}
+     */
+    private static CompiledFormula getCompiledFormula(Map<CompiledFormula.Shape, CompiledFormula> compiledFormulas,
+                                                      Ptg[] ptgs, int rowIndex, int columnIndex) {
+        CompiledFormula.Shape shape = CompiledFormula.Shape.of(ptgs, rowIndex, columnIndex);
+        if (shape == null) {
+            return CompiledFormula.NOT_COMPILABLE;
+        }
+        CompiledFormula compiled = compiledFormulas.get(shape);
+        if (compiled == null) {
+            compiled = CompiledFormula.compile(ptgs, rowIndex, columnIndex);
+            compiledFormulas.put(shape, compiled);
+        }
+        return compiled;
+    }
+
     // visibility raised for testing
     @Internal
     /* package */ ValueEval evaluateFormula(OperationEvaluationContext ec, Ptg[] ptgs) {
@@ -608,8 +967,6 @@ public final class WorkbookEvaluator {
      * converted to {@link NumberEval#ZERO}
      */
     private static ValueEval dereferenceResult(ValueEval evaluationResult, OperationEvaluationContext ec) {
-        ValueEval value;
-
         if (ec == null) {
             throw new IllegalArgumentException("OperationEvaluationContext ec is null");
         }
@@ -619,7 +976,11 @@ public final class WorkbookEvaluator {
 
         EvaluationSheet evalSheet = ec.getWorkbook().getSheet(ec.getSheetIndex());
         EvaluationCell evalCell = evalSheet.getCell(ec.getRowIndex(), ec.getColumnIndex());
+        return dereferenceResult(evaluationResult, evalCell, ec);
+    }
 
+    private static ValueEval dereferenceResult(ValueEval evaluationResult, EvaluationCell evalCell, OperationEvaluationContext ec) {
+        ValueEval value;
         if (evalCell != null && evalCell.isPartOfArrayFormulaGroup() && evaluationResult instanceof AreaEval) {
             value = OperandResolver.getElementFromArray((AreaEval) evaluationResult, evalCell);
         } else {
@@ -668,7 +1029,7 @@ public final class WorkbookEvaluator {
      * <p>
      * special Note: OperationPtg subtypes cannot be passed here!
      */
-    private ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
+    /* package */ ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
         //  consider converting all these (ptg instanceof XxxPtg) expressions to (ptg.getClass() == XxxPtg.class)
 
         if (ptg instanceof NamePtg) {
@@ -776,7 +1137,7 @@ public final class WorkbookEvaluator {
             return getEvalForPtg(ptgs[0], ec);
         }
 
-        OperationEvaluationContext anyValueContext = new OperationEvaluationContext(this, ec.getWorkbook(), ec.getSheetIndex(), ec.getRowIndex(), ec.getColumnIndex(), new EvaluationTracker(_cache), false);
+        OperationEvaluationContext anyValueContext = new OperationEvaluationContext(this, ec.getWorkbook(), ec.getSheetIndex(), ec.getRowIndex(), ec.getColumnIndex(), new EvaluationTracker(getCache()), false);
         return evaluateFormula(anyValueContext, ptgs);
     }
 
@@ -791,6 +1152,19 @@ public final class WorkbookEvaluator {
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
 
+    /**
+     * @return the cached lookup index of the given area, see {@link LookupIndexSource}
+     */
+    /* package */ <T> T getLookupIndex(int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn,
+            Class<T> indexType, Supplier<T> builder, EvaluationTracker tracker) {
+        if (_sharedFormulaResults != null || _evaluationListener != null) {
+            // the shared results aren't tracked by the cache and the listener expects cell entries only
+            return null;
+        }
+        return getCache().getLookupIndexCache().getIndex(_workbookIx, sheetIndex, firstRow, firstColumn, lastRow, lastColumn,
+                indexType, builder, tracker);
+    }
+
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
@@ -818,7 +1192,7 @@ public final class WorkbookEvaluator {
                 sheetIndex,
                 rowIndex,
                 colIndex,
-                new EvaluationTracker(_cache)
+                new EvaluationTracker(getCache())
         );
         Ptg[] ptgs = FormulaParser.parse(formula, (FormulaParsingWorkbook) getWorkbook(), FormulaType.CELL, sheetIndex, rowIndex);
         return evaluateNameFormula(ptgs, ec);
@@ -869,7 +1243,7 @@ public final class WorkbookEvaluator {
 
         adjustRegionRelativeReference(ptgs, target, region);
 
-        final OperationEvaluationContext ec = new OperationEvaluationContext(this, getWorkbook(), sheetIndex, target.getRow(), target.getCol(), new EvaluationTracker(_cache), formulaType.isSingleValue());
+        final OperationEvaluationContext ec = new OperationEvaluationContext(this, getWorkbook(), sheetIndex, target.getRow(), target.getCol(), new EvaluationTracker(getCache()), formulaType.isSingleValue());
         return evaluateNameFormula(ptgs, ec);
     }
 
@@ -946,6 +1320,59 @@ public final class WorkbookEvaluator {
         return _ignoreMissingWorkbooks;
     }
 
+    /**
+     * Evaluates the precedents of a formula cell with an explicit work stack before the cell itself,
+     * so that long dependency chains don't need a deep Java call stack.
+     * <p>
+     * This needs additional lookups of the formula tokens, so it's disabled by default.
+     *
+     * @param iterative whether to evaluate the precedents with a work stack
+     * @since POI 5.2.4
+     */
+    public void setIterativeEvaluation(boolean iterative) {
+        _iterativeEvaluation = iterative;
+    }
+
+    /**
+     * @since POI 5.2.4
+     */
+    public boolean isIterativeEvaluation() {
+        return _iterativeEvaluation;
+    }
+
+    /**
+     * Evaluates cell formulas with compiled token arrays, which are shared by all formulas of the same shape,
+     * i.e. formulas which only differ by the position of their relative references like copied down formulas.
+     * The results are the same as with the interpreted evaluation.
+     * <p>
+     * Each formula cell keeps its compiled formula, until it is updated by {@link #notifyUpdateCell(EvaluationCell)}
+     * or the cached values are cleared. At most {@value #MAX_COMPILED_FORMULAS} compiled formulas are cached.
+     *
+     * @param compiled whether to evaluate compiled formulas
+     * @since POI 5.2.4
+     */
+    public void setCompiledEvaluation(boolean compiled) {
+        if (!compiled) {
+            _compiledFormulas = null;
+        } else if (_compiledFormulas == null) {
+            Map<CompiledFormula.Shape, CompiledFormula> compiledFormulas = new LinkedHashMap<CompiledFormula.Shape, CompiledFormula>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CompiledFormula.Shape, CompiledFormula> eldest) {
+                    return size() > MAX_COMPILED_FORMULAS;
+                }
+            };
+            // the access order is updated by each lookup
+            _compiledFormulas = (_threadCaches == null) ? compiledFormulas : Collections.synchronizedMap(compiledFormulas);
+        }
+    }
+
+    /**
+     * @since POI 5.2.4
+     */
+    public boolean isCompiledEvaluation() {
+        return _compiledFormulas != null;
+    }
+
     /**
      * Return a collection of functions that POI can evaluate
      *
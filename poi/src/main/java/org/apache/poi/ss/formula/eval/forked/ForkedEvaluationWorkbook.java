@@ -17,8 +17,8 @@
 
 package org.apache.poi.ss.formula.eval.forked;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.EvaluationCell;
@@ -47,7 +47,8 @@ final class ForkedEvaluationWorkbook implements EvaluationWorkbook {
 
     public ForkedEvaluationWorkbook(EvaluationWorkbook master) {
         _masterBook = master;
-        _sharedSheetsByName = new HashMap<>();
+        // the sheets of a forked workbook are looked up by the threads evaluating its forks
+        _sharedSheetsByName = new ConcurrentHashMap<>();
     }
 
     public ForkedEvaluationCell getOrCreateUpdatableCell(String sheetName, int rowIndex,
@@ -62,16 +63,15 @@ final class ForkedEvaluationWorkbook implements EvaluationWorkbook {
     }
 
     private ForkedEvaluationSheet getSharedSheet(String sheetName) {
-        ForkedEvaluationSheet result = _sharedSheetsByName.get(sheetName);
-        if (result == null) {
-            result = new ForkedEvaluationSheet(_masterBook.getSheet(_masterBook
-                    .getSheetIndex(sheetName)));
-            _sharedSheetsByName.put(sheetName, result);
-        }
-        return result;
+        return _sharedSheetsByName.computeIfAbsent(sheetName, name ->
+                new ForkedEvaluationSheet(_masterBook.getSheet(_masterBook.getSheetIndex(name))));
     }
 
     public void copyUpdatedCells(Workbook workbook) {
+        if (_masterBook instanceof ForkedEvaluationWorkbook) {
+            // a fork starts with the updated cells of the workbook it has been forked from
+            ((ForkedEvaluationWorkbook) _masterBook).copyUpdatedCells(workbook);
+        }
         String[] sheetNames = new String[_sharedSheetsByName.size()];
         _sharedSheetsByName.keySet().toArray(sheetNames);
         for (String sheetName : sheetNames) {
@@ -40,22 +40,53 @@ import org.apache.poi.ss.usermodel.Workbook;
  * This class enables a 'master workbook' to be loaded just once and shared between many evaluation
  * clients.  Each evaluation client creates its own {@link ForkedEvaluator} and can set cell values
  * that will be used for local evaluations (and don't disturb evaluations on other evaluators).
+ * <p>
+ * A {@link ForkedEvaluator} can also be {@link #fork() forked} itself, e.g. to evaluate many scenarios
+ * based on the same inputs. The forks reuse the results of the evaluator they have been forked from
+ * and only evaluate the formulas affected by their own updates again.
  */
 public final class ForkedEvaluator {
 
+    private final Workbook _wb;
     private final WorkbookEvaluator _evaluator;
     private final ForkedEvaluationWorkbook _sewb;
+    /** whether this evaluator has been forked, guarded by its monitor */
+    private boolean _forked;
 
-    private ForkedEvaluator(EvaluationWorkbook masterWorkbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+    private ForkedEvaluator(Workbook wb, EvaluationWorkbook masterWorkbook, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
+        _wb = wb;
         _sewb = new ForkedEvaluationWorkbook(masterWorkbook);
         _evaluator = new WorkbookEvaluator(_sewb, stabilityClassifier, udfFinder);
     }
 
+    private ForkedEvaluator(ForkedEvaluator base) {
+        _wb = base._wb;
+        _sewb = new ForkedEvaluationWorkbook(base._sewb);
+        _evaluator = base._evaluator.fork(_wb, _sewb);
+    }
+
     /**
      * @param udfFinder pass {@code null} for default (AnalysisToolPak only)
      */
     public static ForkedEvaluator create(Workbook wb, IStabilityClassifier stabilityClassifier, UDFFinder udfFinder) {
-        return new ForkedEvaluator(wb.createEvaluationWorkbook(), stabilityClassifier, udfFinder);
+        return new ForkedEvaluator(wb, wb.createEvaluationWorkbook(), stabilityClassifier, udfFinder);
+    }
+
+    /**
+     * Creates a copy-on-write fork of this evaluator, which starts with the updated cells of this evaluator.
+     * The fork uses the formula results of this evaluator for all formulas, which don't depend on the cells
+     * updated in the fork, so creating a fork is cheap and evaluating it only costs time for the formulas
+     * affected by its updates.
+     * <p>
+     * Cells of this evaluator can't be updated anymore, after it has been forked. The forks can be used
+     * concurrently on separate threads, but can't be combined by {@link #setupEnvironment(String[], ForkedEvaluator[])}.
+     *
+     * @return the new fork
+     * @since POI 5.2.4
+     */
+    public synchronized ForkedEvaluator fork() {
+        _forked = true;
+        return new ForkedEvaluator(this);
     }
 
     /**
@@ -63,8 +94,12 @@ public final class ForkedEvaluator {
      * @param sheetName the name of the sheet containing the cell
      * @param rowIndex zero based
      * @param columnIndex zero based
+     * @throws IllegalStateException if this evaluator has been forked
      */
-    public void updateCell(String sheetName, int rowIndex, int columnIndex, ValueEval value) {
+    public synchronized void updateCell(String sheetName, int rowIndex, int columnIndex, ValueEval value) {
+        if (_forked) {
+            throw new IllegalStateException("Cells can't be updated after the evaluator has been forked");
+        }
 
         ForkedEvaluationCell cell = _sewb.getOrCreateUpdatableCell(sheetName, rowIndex, columnIndex);
         cell.setValue(value);
@@ -72,7 +107,8 @@ public final class ForkedEvaluator {
     }
     /**
      * Copies the values of all updated cells (modified by calls to {@link
-     * #updateCell(String, int, int, ValueEval)}) to the supplied {@code workbook}.<br>
+     * #updateCell(String, int, int, ValueEval)} on this evaluator and the evaluators
+     * it has been forked from) to the supplied {@code workbook}.<br>
      * Typically, the supplied {@code workbook} is a writable copy of the 'master workbook',
      * but at the very least it must contain sheets with the same names.
      */
@@ -54,6 +54,16 @@ final class ArrayFunctionUtils {
 
     private static DoubleList collectValuesWithBlanks(ValueEval operand) throws EvaluationException {
         DoubleList doubleList = new DoubleList();
+        NumericSnapshot snapshot = NumericSnapshot.of(operand);
+        if (snapshot != null) {
+            if (snapshot.getFirstError() >= 0) {
+                throw new EvaluationException(snapshot.getError(snapshot.getFirstError()));
+            }
+            for (int i = 0; i < snapshot.getSize(); i++) {
+                doubleList.add(snapshot.getType(i) == NumericSnapshot.BLANK ? Double.NaN : snapshot.getValue(i));
+            }
+            return doubleList;
+        }
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx = ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
@@ -19,6 +19,8 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.BitSet;
+
 import org.apache.poi.ss.formula.OperationEvaluationContext;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -136,6 +138,14 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
         int height = ranges[0].getHeight();
         int width = ranges[0].getWidth();
 
+        BitSet matchingCells = CriteriaIndex.findMatchingCells(ranges, predicates);
+        if (matchingCells != null) {
+            for (int i = matchingCells.nextSetBit(0); i >= 0; i = matchingCells.nextSetBit(i + 1)) {
+                addValue(aggregator, sumRange, i / width, i % width);
+            }
+            return aggregator.getResult();
+        }
+
         for (int r = 0; r < height; r++) {
             for (int c = 0; c < width; c++) {
 
@@ -152,21 +162,25 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
                 }
 
                 if(matches) { // aggregate only if all of the corresponding criteria specified are true for that cell.
-                    if(sumRange != null) {
-                        ValueEval value = sumRange.getRelativeValue(r, c);
-                        if (value instanceof ErrorEval) {
-                            throw new EvaluationException((ErrorEval)value);
-                        }
-                        aggregator.addValue(value);
-                    } else {
-                        aggregator.addValue(null);
-                    }
+                    addValue(aggregator, sumRange, r, c);
                 }
             }
         }
         return aggregator.getResult();
     }
 
+    private static void addValue(Aggregator aggregator, AreaEval sumRange, int r, int c) throws EvaluationException {
+        if(sumRange != null) {
+            ValueEval value = sumRange.getRelativeValue(r, c);
+            if (value instanceof ErrorEval) {
+                throw new EvaluationException((ErrorEval)value);
+            }
+            aggregator.addValue(value);
+        } else {
+            aggregator.addValue(null);
+        }
+    }
+
     protected static AreaEval convertRangeArg(ValueEval eval) throws EvaluationException {
         if (eval instanceof AreaEval) {
             return (AreaEval) eval;
@@ -17,9 +17,12 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.regex.Pattern;
 
 import org.apache.poi.ss.formula.ThreeDEval;
+import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -165,6 +168,14 @@ public final class Countif extends Fixed2ArgFunction {
             return getClass().getName() + " [" + _operator.getRepresentation() + getValueText() + "]";
         }
         protected abstract String getValueText();
+        /**
+         * @return the criteria value, which together with the matcher class and the operator
+         *  identifies matchers with the same results
+         */
+        protected abstract Object getCriteriaValue();
+        final Object getCriteriaKey() {
+            return Arrays.asList(getClass(), _operator, getCriteriaValue());
+        }
     }
 
     private static final class NumberMatcher extends MatcherBase {
@@ -179,6 +190,10 @@ public final class Countif extends Fixed2ArgFunction {
         protected String getValueText() {
             return String.valueOf(_value);
         }
+        @Override
+        protected Object getCriteriaValue() {
+            return _value;
+        }
 
         @Override
         public boolean matches(ValueEval x) {
@@ -235,6 +250,10 @@ public final class Countif extends Fixed2ArgFunction {
         protected String getValueText() {
             return _value == 1 ? "TRUE" : "FALSE";
         }
+        @Override
+        protected Object getCriteriaValue() {
+            return _value;
+        }
 
         private static int boolToInt(boolean value) {
             return value ? 1 : 0;
@@ -292,6 +311,10 @@ public final class Countif extends Fixed2ArgFunction {
         protected String getValueText() {
             return FormulaError.forInt(_value).getString();
         }
+        @Override
+        protected Object getCriteriaValue() {
+            return _value;
+        }
 
         @Override
         public boolean matches(ValueEval x) {
@@ -332,6 +355,10 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return _pattern.pattern();
         }
+        @Override
+        protected Object getCriteriaValue() {
+            return _value;
+        }
 
         @Override
         public boolean matches(ValueEval x) {
@@ -447,6 +474,12 @@ public final class Countif extends Fixed2ArgFunction {
         if (rangeArg instanceof RefEval) {
             return CountUtils.countMatchingCellsInRef((RefEval) rangeArg, criteriaPredicate);
         } else if (rangeArg instanceof ThreeDEval) {
+            if (rangeArg instanceof AreaEval) {
+                BitSet matchingCells = CriteriaIndex.findMatchingCells((AreaEval) rangeArg, criteriaPredicate);
+                if (matchingCells != null) {
+                    return matchingCells.cardinality();
+                }
+            }
             return CountUtils.countMatchingCellsInArea((ThreeDEval) rangeArg, criteriaPredicate);
         } else {
             throw new IllegalArgumentException("Bad range arg type (" + rangeArg.getClass().getName() + ")");
@@ -492,6 +525,14 @@ public final class Countif extends Fixed2ArgFunction {
             return e.getErrorEval();
         }
     }
+
+    /**
+     * @return the key of matchers with the same results, {@code null} if the results of the matcher can't be shared
+     */
+    /* package */ static Object getCriteriaKey(I_MatchPredicate mp) {
+        return (mp instanceof MatcherBase) ? ((MatcherBase) mp).getCriteriaKey() : null;
+    }
+
     /**
      * When the second argument is a string, many things are possible
      */
@@ -0,0 +1,167 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.functions;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.LookupIndexSource;
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.functions.CountUtils.I_MatchPredicate;
+
+/**
+ * Index of a criteria range of SUMIF(S), COUNTIF(S), AVERAGEIFS, MAXIFS and MINIFS.
+ * <p>
+ * The cells are grouped by their distinct values, so a criteria is only matched once per value
+ * and the matching cells are the union of the bitsets of the matching values. The matching cells
+ * of the {@value #MAX_MATCHING_CRITERIA} most recently used criteria are kept, as many formulas usually
+ * share a few criteria. The index is cached with the lookup indexes of the evaluator, i.e. until one
+ * of the cells of the range changes.
+ */
+final class CriteriaIndex {
+
+    /** areas with fewer cells are scanned without an index */
+    private static final int MIN_INDEXED_CELLS = 32;
+
+    /** the maximum number of criteria, whose matching cells are kept */
+    private static final int MAX_MATCHING_CRITERIA = 32;
+
+    /** the distinct values of the range */
+    private final List<ValueEval> _values = new ArrayList<>();
+    /** the row-major positions of the cells with the value of the same index */
+    private final List<BitSet> _cells = new ArrayList<>();
+    /** the matching cells by criteria key, in access order */
+    private final Map<Object, BitSet> _matchingCells = new LinkedHashMap<Object, BitSet>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, BitSet> eldest) {
+            return size() > MAX_MATCHING_CRITERIA;
+        }
+    };
+
+    private CriteriaIndex(List<ValueEval> values) {
+        Map<Object, BitSet> cellsByValue = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            ValueEval value = values.get(i);
+            Object key = getValueKey(value);
+            BitSet cells = cellsByValue.get(key);
+            if (cells == null) {
+                cells = new BitSet();
+                cellsByValue.put(key, cells);
+                _values.add(value);
+                _cells.add(cells);
+            }
+            cells.set(i);
+        }
+    }
+
+    private static Object getValueKey(ValueEval value) {
+        if (value instanceof NumberEval) {
+            return ((NumberEval) value).getNumberValue();
+        }
+        if (value instanceof StringEval) {
+            return ((StringEval) value).getStringValue();
+        }
+        if (value instanceof BoolEval) {
+            return ((BoolEval) value).getBooleanValue();
+        }
+        // blank and error values are singletons
+        return value;
+    }
+
+    private BitSet getMatchingCells(I_MatchPredicate predicate) {
+        Object key = Countif.getCriteriaKey(predicate);
+        BitSet result = (key == null) ? null : _matchingCells.get(key);
+        if (result == null) {
+            result = new BitSet();
+            for (int i = 0; i < _values.size(); i++) {
+                if (predicate.matches(_values.get(i))) {
+                    result.or(_cells.get(i));
+                }
+            }
+            if (key != null) {
+                _matchingCells.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param area the criteria range
+     * @param predicate the criteria
+     * @return the row-major positions of the matching cells, which must not be modified,
+     *  or {@code null} if the range has to be scanned
+     */
+    static BitSet findMatchingCells(AreaEval area, I_MatchPredicate predicate) {
+        int height = area.getHeight();
+        int width = area.getWidth();
+        if (!(area instanceof LookupIndexSource) || (long) height * width < MIN_INDEXED_CELLS) {
+            return null;
+        }
+        CriteriaIndex index = ((LookupIndexSource) area).getLookupIndex(CriteriaIndex.class, () -> {
+            List<ValueEval> values = new ArrayList<>(height * width);
+            for (int r = 0; r < height; r++) {
+                for (int c = 0; c < width; c++) {
+                    ValueEval value = area.getRelativeValue(r, c);
+                    if (value == ErrorEval.CIRCULAR_REF_ERROR) {
+                        // the value of the cell isn't final
+                        return null;
+                    }
+                    values.add(value);
+                }
+            }
+            return new CriteriaIndex(values);
+        });
+        return (index == null) ? null : index.getMatchingCells(predicate);
+    }
+
+    /**
+     * @param areas the criteria ranges of the same size
+     * @param predicates the criteria of each range, {@code null} criteria match no cells
+     * @return the row-major positions of the cells matching all criteria
+     *  or {@code null} if the ranges have to be scanned
+     */
+    static BitSet findMatchingCells(AreaEval[] areas, I_MatchPredicate[] predicates) {
+        for (I_MatchPredicate predicate : predicates) {
+            if (predicate == null) {
+                return new BitSet();
+            }
+        }
+        BitSet result = null;
+        for (int i = 0; i < areas.length; i++) {
+            BitSet cells = findMatchingCells(areas[i], predicates[i]);
+            if (cells == null) {
+                return null;
+            }
+            if (result == null) {
+                result = (BitSet) cells.clone();
+            } else {
+                result.and(cells);
+            }
+        }
+        return result;
+    }
+}
@@ -17,14 +17,19 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.poi.ss.formula.LookupIndexSource;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -176,6 +181,10 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        TwoDEval getArea() {
+            return _tableArray.isRow() ? _tableArray : _tableArray.getRow(_rowIndex);
+        }
     }
 
     private static final class ColumnVector implements ValueVector {
@@ -207,6 +216,10 @@ public final class LookupUtils {
         public int getSize() {
             return _size;
         }
+
+        TwoDEval getArea() {
+            return _tableArray.isColumn() ? _tableArray : _tableArray.getColumn(_columnIndex);
+        }
     }
 
     private static final class SheetVector implements ValueVector {
@@ -380,6 +393,11 @@ public final class LookupUtils {
         protected abstract CompareResult compareSameType(ValueEval other);
         /** used only for debug purposes */
         protected abstract String getValueAsString();
+        /**
+         * @return the lookup value as key of the lookup indexes, see {@link #getIndexKey(ValueEval)},
+         *  or {@code null} if the comparison can't be indexed
+         */
+        protected abstract Object getIndexKey();
     }
 
     private static class StringLookupComparer extends LookupValueComparerBase {
@@ -418,6 +436,10 @@ public final class LookupUtils {
         protected String getValueAsString() {
             return _value;
         }
+        @Override
+        protected Object getIndexKey() {
+            return (_wildCardPattern != null && (_isMatchFunction || !_matchExact)) ? null : _value;
+        }
     }
 
     private static final class TolerantStringLookupComparer extends StringLookupComparer {
@@ -456,6 +478,10 @@ public final class LookupUtils {
         protected String getValueAsString() {
             return String.valueOf(_value);
         }
+        @Override
+        protected Object getIndexKey() {
+            return _value;
+        }
     }
     private static final class BooleanLookupComparer extends LookupValueComparerBase {
         private final boolean _value;
@@ -481,6 +507,10 @@ public final class LookupUtils {
         protected String getValueAsString() {
             return String.valueOf(_value);
         }
+        @Override
+        protected Object getIndexKey() {
+            return _value;
+        }
     }
 
     /**
@@ -697,6 +727,12 @@ public final class LookupUtils {
 
     private static int lookupIndexOfValue(LookupValueComparer lookupComparer, ValueVector vector,
                                           MatchMode matchMode, boolean reverse) {
+        if (!reverse) {
+            int indexed = lookupIndexOfExactMatch(lookupComparer, vector);
+            if (indexed >= 0 || (indexed == -1 && matchMode == MatchMode.ExactMatch)) {
+                return indexed;
+            }
+        }
         int bestMatchIdx = -1;
         ValueEval bestMatchEval = null;
         Iterator<Integer> idxIter = reverse ? vector.reverseIndexIterator() : vector.indexIterator();
@@ -969,4 +1005,241 @@ public final class LookupUtils {
         }
         return new TolerantStringLookupComparer(lookupValue, matchExact, isMatchFunction);
     }
+
+    /** vectors with fewer items are scanned without an index */
+    private static final int MIN_INDEXED_SIZE = 32;
+
+    /** the lookup can't use an index and has to scan the vector */
+    static final int NOT_INDEXED = -2;
+
+    /**
+     * @return the first index of an item equal to the lookup value, -1 if there's none
+     *  or {@link #NOT_INDEXED} if the vector has to be scanned
+     */
+    static int lookupIndexOfExactMatch(LookupValueComparer lookupComparer, ValueVector vector) {
+        Object key = getIndexKey(lookupComparer);
+        if (key == null) {
+            return NOT_INDEXED;
+        }
+        ExactMatchIndex index = getLookupIndex(vector, ExactMatchIndex.class, ExactMatchIndex::new);
+        if (index == null) {
+            return NOT_INDEXED;
+        }
+        int result = index.indexOf(key);
+        if (result >= 0 && !lookupComparer.compareTo(vector.getItem(result)).isEqual()) {
+            // the case folding of the index doesn't match the comparer
+            return NOT_INDEXED;
+        }
+        return result;
+    }
+
+    /**
+     * @return the last index of an item of the same type less than or equal to the lookup value,
+     *  -1 if there's none or {@link #NOT_INDEXED} if the vector has to be scanned
+     */
+    static int lookupLastIndexOfLessOrEqual(LookupValueComparer lookupComparer, ValueVector vector) {
+        SortedIndex.Range range = lookupLessOrEqual(lookupComparer, vector);
+        return (range == null) ? NOT_INDEXED : range.lastIndex;
+    }
+
+    /**
+     * @return the first index of an item of the same type less than or equal to the lookup value,
+     *  -1 if there's none or {@link #NOT_INDEXED} if the vector has to be scanned
+     */
+    static int lookupFirstIndexOfLessOrEqual(LookupValueComparer lookupComparer, ValueVector vector) {
+        SortedIndex.Range range = lookupLessOrEqual(lookupComparer, vector);
+        return (range == null) ? NOT_INDEXED : range.firstIndex;
+    }
+
+    private static SortedIndex.Range lookupLessOrEqual(LookupValueComparer lookupComparer, ValueVector vector) {
+        Object key = getIndexKey(lookupComparer);
+        if (key == null) {
+            return null;
+        }
+        SortedIndex index = getLookupIndex(vector, SortedIndex.class, SortedIndex::new);
+        return (index == null) ? null : index.lessOrEqual(key);
+    }
+
+    private static Object getIndexKey(LookupValueComparer lookupComparer) {
+        return (lookupComparer instanceof LookupValueComparerBase)
+                ? ((LookupValueComparerBase) lookupComparer).getIndexKey()
+                : null;
+    }
+
+    /**
+     * @return the key of the item with the same equality and order as the lookup comparers,
+     *  or {@code null} if the item never matches an indexed lookup value
+     */
+    private static Object getIndexKey(ValueEval item) {
+        if (item instanceof NumberEval) {
+            return ((NumberEval) item).getNumberValue();
+        }
+        if (item instanceof StringEval) {
+            return ((StringEval) item).getStringValue();
+        }
+        if (item instanceof BoolEval) {
+            return ((BoolEval) item).getBooleanValue();
+        }
+        return null;
+    }
+
+    /**
+     * @return the cached index of the vector, {@code null} if the vector isn't part of a cell area or
+     *  one of its cells can't be evaluated
+     */
+    private static <T> T getLookupIndex(ValueVector vector, Class<T> indexType, java.util.function.Function<List<ValueEval>, T> factory) {
+        if (vector.getSize() < MIN_INDEXED_SIZE) {
+            return null;
+        }
+        TwoDEval area;
+        if (vector instanceof ColumnVector) {
+            area = ((ColumnVector) vector).getArea();
+        } else if (vector instanceof RowVector) {
+            area = ((RowVector) vector).getArea();
+        } else {
+            return null;
+        }
+        if (!(area instanceof LookupIndexSource)) {
+            return null;
+        }
+        return ((LookupIndexSource) area).getLookupIndex(indexType, () -> {
+            // read all items, so the index depends on all cells of the vector
+            int size = vector.getSize();
+            List<ValueEval> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                ValueEval item = vector.getItem(i);
+                if (item == ErrorEval.CIRCULAR_REF_ERROR) {
+                    // the value of the cell isn't final
+                    return null;
+                }
+                items.add(item);
+            }
+            return factory.apply(items);
+        });
+    }
+
+    /**
+     * Maps the items to their first index.
+     * Strings are compared case-insensitive like {@link String#compareToIgnoreCase(String)}.
+     */
+    private static final class ExactMatchIndex {
+        private final Map<Object, Integer> _firstIndexes;
+
+        ExactMatchIndex(List<ValueEval> items) {
+            _firstIndexes = new HashMap<>(items.size() * 4 / 3 + 1);
+            for (int i = 0; i < items.size(); i++) {
+                Object key = getIndexKey(items.get(i));
+                if (key != null) {
+                    _firstIndexes.putIfAbsent(foldCase(key), i);
+                }
+            }
+        }
+
+        int indexOf(Object key) {
+            Integer index = _firstIndexes.get(foldCase(key));
+            return (index == null) ? -1 : index;
+        }
+
+        private static Object foldCase(Object key) {
+            if (!(key instanceof String)) {
+                return key;
+            }
+            String str = (String) key;
+            StringBuilder sb = new StringBuilder(str.length());
+            str.codePoints().forEach(cp -> sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp))));
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Sorts the items of each type by their value, to find the first and the last index
+     * of the items less than or equal to a lookup value.
+     */
+    private static final class SortedIndex {
+        static final class Range {
+            final int firstIndex;
+            final int lastIndex;
+
+            Range(int firstIndex, int lastIndex) {
+                this.firstIndex = firstIndex;
+                this.lastIndex = lastIndex;
+            }
+        }
+
+        private static final Range EMPTY = new Range(-1, -1);
+
+        private static final class TypeIndex {
+            private final Comparator<Object> _comparator;
+            private final Object[] _keys;
+            /** the lowest index of the items up to the sorted position */
+            private final int[] _minIndexes;
+            /** the highest index of the items up to the sorted position */
+            private final int[] _maxIndexes;
+
+            @SuppressWarnings("unchecked")
+            TypeIndex(List<Object> keys, List<Integer> indexes, Comparator<?> comparator) {
+                _comparator = (Comparator<Object>) comparator;
+                int size = keys.size();
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> _comparator.compare(keys.get(a), keys.get(b)));
+                _keys = new Object[size];
+                _minIndexes = new int[size];
+                _maxIndexes = new int[size];
+                int min = Integer.MAX_VALUE;
+                int max = -1;
+                for (int i = 0; i < size; i++) {
+                    _keys[i] = keys.get(order[i]);
+                    int index = indexes.get(order[i]);
+                    min = Math.min(min, index);
+                    max = Math.max(max, index);
+                    _minIndexes[i] = min;
+                    _maxIndexes[i] = max;
+                }
+            }
+
+            Range lessOrEqual(Object key) {
+                // number of keys less than or equal to the lookup value
+                int low = 0;
+                int high = _keys.length;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (_comparator.compare(_keys[mid], key) <= 0) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                return (low == 0) ? EMPTY : new Range(_minIndexes[low - 1], _maxIndexes[low - 1]);
+            }
+        }
+
+        private final Map<Class<?>, TypeIndex> _typeIndexes = new HashMap<>();
+
+        SortedIndex(List<ValueEval> items) {
+            Map<Class<?>, List<Object>> keys = new HashMap<>();
+            Map<Class<?>, List<Integer>> indexes = new HashMap<>();
+            for (int i = 0; i < items.size(); i++) {
+                Object key = getIndexKey(items.get(i));
+                if (key != null) {
+                    keys.computeIfAbsent(key.getClass(), k -> new ArrayList<>()).add(key);
+                    indexes.computeIfAbsent(key.getClass(), k -> new ArrayList<>()).add(i);
+                }
+            }
+            for (Map.Entry<Class<?>, List<Object>> me : keys.entrySet()) {
+                Class<?> type = me.getKey();
+                Comparator<?> comparator = (type == String.class)
+                        ? String.CASE_INSENSITIVE_ORDER
+                        : Comparator.naturalOrder();
+                _typeIndexes.put(type, new TypeIndex(me.getValue(), indexes.get(type), comparator));
+            }
+        }
+
+        Range lessOrEqual(Object key) {
+            TypeIndex typeIndex = _typeIndexes.get(key.getClass());
+            return (typeIndex == null) ? EMPTY : typeIndex.lessOrEqual(key);
+        }
+    }
 }
@@ -204,6 +204,13 @@ public final class Match extends Var2or3ArgFunction {
 
         int size = lookupRange.getSize();
         if(matchExact) {
+            int index = LookupUtils.lookupIndexOfExactMatch(lookupComparer, lookupRange);
+            if (index != LookupUtils.NOT_INDEXED) {
+                if (index < 0) {
+                    throw new EvaluationException(ErrorEval.NA);
+                }
+                return index;
+            }
             for (int i = 0; i < size; i++) {
                 if(lookupComparer.compareTo(lookupRange.getItem(i)).isEqual()) {
                     return i;
@@ -213,6 +220,13 @@ public final class Match extends Var2or3ArgFunction {
         }
 
         if(findLargestLessThanOrEqual) {
+            int index = LookupUtils.lookupLastIndexOfLessOrEqual(lookupComparer, lookupRange);
+            if (index != LookupUtils.NOT_INDEXED) {
+                if (index < 0) {
+                    throw new EvaluationException(ErrorEval.NA);
+                }
+                return index;
+            }
             // Note - backward iteration
             for (int i = size - 1; i>=0;  i--) {
                 CompareResult cmp = lookupComparer.compareTo(lookupRange.getItem(i));
@@ -228,6 +242,19 @@ public final class Match extends Var2or3ArgFunction {
 
         // else - find smallest greater than or equal to
         // TODO - is binary search used for (match_type==+1) ?
+        int index = LookupUtils.lookupFirstIndexOfLessOrEqual(lookupComparer, lookupRange);
+        if (index != LookupUtils.NOT_INDEXED) {
+            if (index < 0) {
+                return size-1;
+            }
+            if (lookupComparer.compareTo(lookupRange.getItem(index)).isEqual()) {
+                return index;
+            }
+            if (index < 1) {
+                throw new EvaluationException(ErrorEval.NA);
+            }
+            return index-1;
+        }
         for (int i = 0; i<size; i++) {
             CompareResult cmp = lookupComparer.compareTo(lookupRange.getItem(i));
             if(cmp.isEqual()) {
@@ -44,15 +44,19 @@ public abstract class MultiOperandNumericFunction implements Function {
         void accept(T value, R receiver) throws EvaluationException;
     }
 
+    private Policy boolByRefPolicy;
+    private Policy blankPolicy;
     private EvalConsumer<BoolEval, DoubleList> boolByRefConsumer;
     private EvalConsumer<BoolEval, DoubleList> boolByValueConsumer;
     private EvalConsumer<BlankEval, DoubleList> blankConsumer;
     private EvalConsumer<MissingArgEval, DoubleList> missingArgConsumer = ConsumerFactory.createForMissingArg(Policy.SKIP);
 
     protected MultiOperandNumericFunction(boolean isReferenceBoolCounted, boolean isBlankCounted) {
-        boolByRefConsumer = ConsumerFactory.createForBoolEval(isReferenceBoolCounted ? Policy.COERCE : Policy.SKIP);
+        boolByRefPolicy = isReferenceBoolCounted ? Policy.COERCE : Policy.SKIP;
+        boolByRefConsumer = ConsumerFactory.createForBoolEval(boolByRefPolicy);
         boolByValueConsumer = ConsumerFactory.createForBoolEval(Policy.COERCE);
-        blankConsumer = ConsumerFactory.createForBlank(isBlankCounted ? Policy.COERCE : Policy.SKIP);
+        blankPolicy = isBlankCounted ? Policy.COERCE : Policy.SKIP;
+        blankConsumer = ConsumerFactory.createForBlank(blankPolicy);
     }
 
     private static final int DEFAULT_MAX_NUM_OPERANDS = SpreadsheetVersion.EXCEL2007.getMaxFunctionArgs();
@@ -62,6 +66,7 @@ public abstract class MultiOperandNumericFunction implements Function {
     }
 
     public void setBlankEvalPolicy(Policy policy) {
+        blankPolicy = policy;
         blankConsumer = ConsumerFactory.createForBlank(policy);
     }
 
@@ -139,6 +144,13 @@ public abstract class MultiOperandNumericFunction implements Function {
      * Collects values from a single argument
      */
     private void collectValues(ValueEval operand, DoubleList temp) throws EvaluationException {
+        if (isSubtotalCounted() && isHiddenRowCounted()) {
+            NumericSnapshot snapshot = NumericSnapshot.of(operand);
+            if (snapshot != null) {
+                collectValues(snapshot, temp);
+                return;
+            }
+        }
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
             for (int sIx = ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
@@ -178,6 +190,44 @@ public abstract class MultiOperandNumericFunction implements Function {
         collectValue(operand, false, temp);
     }
 
+    /**
+     * Collects the values of an area from its snapshot like {@link #collectValue} does for each cell
+     */
+    private void collectValues(NumericSnapshot snapshot, DoubleList temp) throws EvaluationException {
+        boolean treatStringsAsZero = treatStringsAsZero();
+        if (snapshot.getFirstError() < 0
+                && (snapshot.getCount(NumericSnapshot.BOOL) == 0 || !treatStringsAsZero && boolByRefPolicy == Policy.SKIP)
+                && (snapshot.getCount(NumericSnapshot.BLANK) == 0 || blankPolicy == Policy.SKIP)
+                && (snapshot.getCount(NumericSnapshot.STRING) == 0 || !treatStringsAsZero)) {
+            temp.addAll(snapshot.getNumbers());
+            return;
+        }
+        for (int i = 0; i < snapshot.getSize(); i++) {
+            switch (snapshot.getType(i)) {
+                case NumericSnapshot.NUMBER:
+                    temp.add(snapshot.getValue(i));
+                    break;
+                case NumericSnapshot.BOOL:
+                    if (treatStringsAsZero) {
+                        boolByValueConsumer.accept(BoolEval.valueOf(snapshot.getValue(i) != 0), temp);
+                    } else {
+                        boolByRefConsumer.accept(BoolEval.valueOf(snapshot.getValue(i) != 0), temp);
+                    }
+                    break;
+                case NumericSnapshot.STRING:
+                    if (treatStringsAsZero) {
+                        temp.add(0.0);
+                    }
+                    break;
+                case NumericSnapshot.BLANK:
+                    blankConsumer.accept(BlankEval.instance, temp);
+                    break;
+                default:
+                    throw new EvaluationException(snapshot.getError(i));
+            }
+        }
+    }
+
     private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp) throws EvaluationException {
         if (ve == null) {
             throw new IllegalArgumentException("ve must not be null");
@@ -0,0 +1,189 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.functions;
+
+import org.apache.poi.ss.formula.LookupIndexSource;
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.OperandResolver;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+
+/**
+ * Columnar snapshot of the values of an area for the numeric aggregate functions.
+ * <p>
+ * The cells are stored in row-major order as primitive values with a type per cell,
+ * so the functions can aggregate large areas without reading and unboxing the cells again.
+ * The snapshot is cached with the lookup indexes of the evaluator, i.e. until one of the
+ * cells of the area changes.
+ */
+final class NumericSnapshot {
+
+    static final byte NUMBER = 0;
+    static final byte BOOL = 1;
+    static final byte STRING = 2;
+    static final byte BLANK = 3;
+    static final byte ERROR = 4;
+
+    /** areas with fewer cells are read cell by cell */
+    private static final int MIN_SNAPSHOT_CELLS = 32;
+
+    private final byte[] _types;
+    /**
+     * the numbers, 0 or 1 for booleans and the parsed strings or {@code NaN},
+     * if they aren't numbers, for strings
+     */
+    private final double[] _values;
+    /** the errors by position, {@code null} if there are none */
+    private ErrorEval[] _errors;
+    private int _firstError = -1;
+    private final int[] _typeCounts = new int[5];
+
+    /** the numbers without the other types */
+    private double[] _numbers;
+    /** the values of the numbers and booleans and 0 for the other types */
+    private double[] _productTerms;
+
+    private NumericSnapshot(int size) {
+        _types = new byte[size];
+        _values = new double[size];
+    }
+
+    /**
+     * @return the snapshot of the area or {@code null} if the operand has to be read cell by cell
+     */
+    static NumericSnapshot of(ValueEval operand) {
+        if (!(operand instanceof AreaEval) || !(operand instanceof LookupIndexSource)) {
+            return null;
+        }
+        AreaEval area = (AreaEval) operand;
+        int height = area.getHeight();
+        int width = area.getWidth();
+        if (area.getFirstSheetIndex() != area.getLastSheetIndex() || (long) height * width < MIN_SNAPSHOT_CELLS) {
+            return null;
+        }
+        return ((LookupIndexSource) area).getLookupIndex(NumericSnapshot.class, () -> {
+            NumericSnapshot snapshot = new NumericSnapshot(height * width);
+            for (int r = 0, i = 0; r < height; r++) {
+                for (int c = 0; c < width; c++, i++) {
+                    if (!snapshot.set(i, area.getRelativeValue(r, c))) {
+                        return null;
+                    }
+                }
+            }
+            return snapshot;
+        });
+    }
+
+    private boolean set(int index, ValueEval ve) {
+        byte type;
+        if (ve instanceof NumberEval) {
+            type = NUMBER;
+            _values[index] = ((NumberEval) ve).getNumberValue();
+        } else if (ve instanceof BoolEval) {
+            type = BOOL;
+            _values[index] = ((BoolEval) ve).getNumberValue();
+        } else if (ve instanceof StringEval) {
+            type = STRING;
+            Double d = OperandResolver.parseDouble(((StringEval) ve).getStringValue().trim());
+            _values[index] = (d == null) ? Double.NaN : d;
+        } else if (ve == BlankEval.instance) {
+            type = BLANK;
+        } else if (ve instanceof ErrorEval) {
+            if (ve == ErrorEval.CIRCULAR_REF_ERROR) {
+                // the value of the cell isn't final
+                return false;
+            }
+            type = ERROR;
+            if (_errors == null) {
+                _errors = new ErrorEval[_types.length];
+                _firstError = index;
+            }
+            _errors[index] = (ErrorEval) ve;
+        } else {
+            return false;
+        }
+        _types[index] = type;
+        _typeCounts[type]++;
+        return true;
+    }
+
+    int getSize() {
+        return _types.length;
+    }
+
+    byte getType(int index) {
+        return _types[index];
+    }
+
+    /**
+     * @return the number, 0 or 1 for booleans and the parsed number or {@code NaN} for strings
+     */
+    double getValue(int index) {
+        return _values[index];
+    }
+
+    int getCount(byte type) {
+        return _typeCounts[type];
+    }
+
+    ErrorEval getError(int index) {
+        return _errors[index];
+    }
+
+    /**
+     * @return the position of the first error or -1 if there are no errors
+     */
+    int getFirstError() {
+        return _firstError;
+    }
+
+    /**
+     * @return the numbers in row-major order without the values of the other types
+     */
+    double[] getNumbers() {
+        if (_numbers == null) {
+            double[] numbers = new double[_typeCounts[NUMBER]];
+            for (int i = 0, n = 0; i < _types.length; i++) {
+                if (_types[i] == NUMBER) {
+                    numbers[n++] = _values[i];
+                }
+            }
+            _numbers = numbers;
+        }
+        return _numbers;
+    }
+
+    /**
+     * @return the terms of SUMPRODUCT, i.e. the numbers and booleans and 0 for strings and blanks
+     */
+    double[] getProductTerms() {
+        if (_productTerms == null) {
+            double[] terms = new double[_types.length];
+            for (int i = 0; i < _types.length; i++) {
+                byte type = _types[i];
+                terms[i] = (type == NUMBER || type == BOOL) ? _values[i] : 0;
+            }
+            _productTerms = terms;
+        }
+        return _productTerms;
+    }
+}
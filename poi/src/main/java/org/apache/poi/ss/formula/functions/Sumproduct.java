@@ -156,6 +156,19 @@ public final class Sumproduct implements Function {
             return ErrorEval.VALUE_INVALID;
         }
 
+        double[][] terms = getProductTerms(args);
+        if (terms != null) {
+            double acc = 0;
+            for (int i = 0; i < height * width; i++) {
+                double term = 1D;
+                for (int n = 0; n < maxN; n++) {
+                    term *= terms[n][i];
+                }
+                acc += term;
+            }
+            return new NumberEval(acc);
+        }
+
         double acc = 0;
 
         for (int rrIx=0; rrIx<height; rrIx++) {
@@ -172,6 +185,37 @@ public final class Sumproduct implements Function {
         return new NumberEval(acc);
     }
 
+    /**
+     * @return the product terms of the snapshots of the areas in row-major order
+     *  or {@code null} if the areas have to be read cell by cell
+     * @throws EvaluationException if one of the areas contains an error
+     */
+    private static double[][] getProductTerms(TwoDEval[] args) throws EvaluationException {
+        NumericSnapshot[] snapshots = new NumericSnapshot[args.length];
+        for (int n = 0; n < args.length; n++) {
+            snapshots[n] = NumericSnapshot.of(args[n]);
+            if (snapshots[n] == null) {
+                return null;
+            }
+        }
+        // the error of the first cell with an error, in the first area on ties
+        NumericSnapshot errorSnapshot = null;
+        for (NumericSnapshot snapshot : snapshots) {
+            int firstError = snapshot.getFirstError();
+            if (firstError >= 0 && (errorSnapshot == null || firstError < errorSnapshot.getFirstError())) {
+                errorSnapshot = snapshot;
+            }
+        }
+        if (errorSnapshot != null) {
+            throw new EvaluationException(errorSnapshot.getError(errorSnapshot.getFirstError()));
+        }
+        double[][] terms = new double[args.length][];
+        for (int n = 0; n < args.length; n++) {
+            terms[n] = snapshots[n].getProductTerms();
+        }
+        return terms;
+    }
+
     private static void throwFirstError(TwoDEval areaEval) throws EvaluationException {
         int height = areaEval.getHeight();
         int width = areaEval.getWidth();
@@ -0,0 +1,432 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A map of primitive int keys to objects, kept in ascending key order.
+ * <p>
+ * Keys and values are stored in chunks of up to {@value #CHUNK_SIZE} entries with two parallel
+ * arrays each, and looked up by binary search over the chunks and within a chunk, so no boxed
+ * {@link Integer} keys or per-entry nodes are created as with a {@link java.util.TreeMap}.
+ * Appending a key larger than all existing keys - the usual case when rows or cells are created
+ * in order - is amortized O(1). Inserting in the middle only shifts the entries of one chunk,
+ * a full chunk is split in two.
+ * <p>
+ * The iterators are fail-fast like the ones of the JDK collections and support
+ * {@link Iterator#remove()}.
+ *
+ * @param <V> the type of the mapped values
+ */
+@Internal
+public class SortedIntMap<V> implements Iterable<V> {
+    private static final int DEFAULT_CAPACITY = 8;
+    /** the maximum number of entries of a chunk */
+    private static final int CHUNK_SIZE = 512;
+
+    /**
+     * A sorted part of the entries, the keys of a chunk are less than the keys of the next chunk
+     */
+    private static final class Chunk {
+        private int[] keys;
+        private Object[] values;
+        private int size;
+
+        Chunk(int capacity) {
+            keys = new int[capacity];
+            values = new Object[capacity];
+        }
+
+        int lastKey() {
+            return keys[size - 1];
+        }
+
+        int indexOf(int key) {
+            // fast path for the common case of accessing the last element
+            if (size > 0 && keys[size - 1] == key) {
+                return size - 1;
+            }
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        void insertAt(int idx, int key, Object value) {
+            if (size == keys.length) {
+                final int newCapacity = Math.min(size + Math.max(size >> 1, 1), CHUNK_SIZE);
+                keys = Arrays.copyOf(keys, newCapacity);
+                values = Arrays.copyOf(values, newCapacity);
+            }
+            if (idx < size) {
+                System.arraycopy(keys, idx, keys, idx + 1, size - idx);
+                System.arraycopy(values, idx, values, idx + 1, size - idx);
+            }
+            keys[idx] = key;
+            values[idx] = value;
+            size++;
+        }
+
+        void removeAt(int idx) {
+            final int tail = size - idx - 1;
+            if (tail > 0) {
+                System.arraycopy(keys, idx + 1, keys, idx, tail);
+                System.arraycopy(values, idx + 1, values, idx, tail);
+            }
+            values[--size] = null;
+        }
+
+        /**
+         * Moves the upper half of the entries to a new chunk
+         *
+         * @return the new chunk
+         */
+        Chunk split() {
+            final int half = size >>> 1;
+            Chunk upper = new Chunk(CHUNK_SIZE);
+            upper.size = size - half;
+            System.arraycopy(keys, half, upper.keys, 0, upper.size);
+            System.arraycopy(values, half, upper.values, 0, upper.size);
+            Arrays.fill(values, half, size, null);
+            size = half;
+            return upper;
+        }
+    }
+
+    private final int initialCapacity;
+    /** the non-empty chunks in ascending key order */
+    private Chunk[] chunks = new Chunk[1];
+    private int chunkCount;
+    private int size;
+    private int modCount;
+
+    public SortedIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SortedIntMap(int initialCapacity) {
+        this.initialCapacity = Math.min(Math.max(initialCapacity, 1), CHUNK_SIZE);
+    }
+
+    /**
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all mappings
+     */
+    public void clear() {
+        Arrays.fill(chunks, 0, chunkCount, null);
+        chunkCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the value mapped to the key or {@code null} if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (chunkCount == 0) {
+            return null;
+        }
+        final Chunk chunk = chunks[findChunk(key)];
+        final int idx = chunk.indexOf(key);
+        return idx < 0 ? null : (V)chunk.values[idx];
+    }
+
+    public boolean containsKey(int key) {
+        return chunkCount > 0 && chunks[findChunk(key)].indexOf(key) >= 0;
+    }
+
+    /**
+     * @param value the value to search for, compared by {@link Object#equals(Object)}
+     * @return true, if the value is mapped by any key - this is a linear search
+     */
+    public boolean containsValue(Object value) {
+        for (int c = 0; c < chunkCount; c++) {
+            final Chunk chunk = chunks[c];
+            for (int i = 0; i < chunk.size; i++) {
+                if (value == null ? chunk.values[i] == null : value.equals(chunk.values[i])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps the value to the key, replacing an existing mapping
+     *
+     * @param key the key
+     * @param value the value
+     * @return the previously mapped value or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (chunkCount == 0) {
+            addChunk(0, new Chunk(initialCapacity));
+        }
+        int ci = findChunk(key);
+        Chunk chunk = chunks[ci];
+        int idx = chunk.indexOf(key);
+        if (idx >= 0) {
+            V prev = (V)chunk.values[idx];
+            chunk.values[idx] = value;
+            return prev;
+        }
+
+        idx = -(idx + 1);
+        if (chunk.size == CHUNK_SIZE) {
+            if (idx == CHUNK_SIZE && ci == chunkCount - 1) {
+                // appending, e.g. when rows are created in order
+                chunk = new Chunk(DEFAULT_CAPACITY);
+                addChunk(chunkCount, chunk);
+                idx = 0;
+            } else if (idx == 0 && ci == 0) {
+                // prepending, e.g. when rows are created in reverse order
+                chunk = new Chunk(DEFAULT_CAPACITY);
+                addChunk(0, chunk);
+            } else {
+                Chunk upper = chunk.split();
+                addChunk(ci + 1, upper);
+                if (idx > chunk.size) {
+                    idx -= chunk.size;
+                    chunk = upper;
+                }
+            }
+        }
+        chunk.insertAt(idx, key, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping of the key
+     *
+     * @param key the key
+     * @return the previously mapped value or {@code null} if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (chunkCount == 0) {
+            return null;
+        }
+        final int ci = findChunk(key);
+        final int idx = chunks[ci].indexOf(key);
+        if (idx < 0) {
+            return null;
+        }
+        V prev = (V)chunks[ci].values[idx];
+        removeAt(ci, idx);
+        return prev;
+    }
+
+    /**
+     * @return the lowest key
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return chunks[0].keys[0];
+    }
+
+    /**
+     * @return the highest key
+     * @throws NoSuchElementException if the map is empty
+     */
+    public int lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return chunks[chunkCount - 1].lastKey();
+    }
+
+    /**
+     * Returns the number of keys strictly less than the given key, i.e. the
+     * equivalent of {@code treeMap.headMap(key).size()}, but without iterating
+     * over the entries - only the sizes of the preceding chunks are summed up
+     *
+     * @param key the (exclusive) upper bound
+     * @return the number of keys less than {@code key}
+     */
+    public int countLessThan(int key) {
+        if (chunkCount == 0) {
+            return 0;
+        }
+        final int ci = findChunk(key);
+        final int idx = chunks[ci].indexOf(key);
+        int count = idx < 0 ? -(idx + 1) : idx;
+        for (int c = 0; c < ci; c++) {
+            count += chunks[c].size;
+        }
+        return count;
+    }
+
+    /**
+     * @return an iterator over the values in ascending key order
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return new ValueIterator(0, 0, size);
+    }
+
+    /**
+     * Iterates over the values whose keys are within the given range
+     *
+     * @param fromKey the lowest key (inclusive)
+     * @param toKey the highest key (exclusive)
+     * @return an iterator over the values in ascending key order
+     */
+    public Iterator<V> iterator(int fromKey, int toKey) {
+        if (chunkCount == 0) {
+            return new ValueIterator(0, 0, 0);
+        }
+        final int ci = findChunk(fromKey);
+        final int idx = chunks[ci].indexOf(fromKey);
+        final int count = countLessThan(toKey) - countLessThan(fromKey);
+        return new ValueIterator(ci, idx < 0 ? -(idx + 1) : idx, Math.max(count, 0));
+    }
+
+    @Override
+    public Spliterator<V> spliterator() {
+        return Spliterators.spliterator(iterator(), size,
+            Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+
+    /**
+     * @return the index of the first chunk, whose last key isn't less than the key,
+     *  or the last chunk, if the key is greater than all keys
+     */
+    private int findChunk(int key) {
+        final int last = chunkCount - 1;
+        // fast path for the common case of accessing the last chunk
+        if (chunks[last].keys[0] <= key) {
+            return last;
+        }
+        int low = 0;
+        int high = last;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (chunks[mid].lastKey() < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void addChunk(int ci, Chunk chunk) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount + Math.max(chunkCount >> 1, 1));
+        }
+        if (ci < chunkCount) {
+            System.arraycopy(chunks, ci, chunks, ci + 1, chunkCount - ci);
+        }
+        chunks[ci] = chunk;
+        chunkCount++;
+    }
+
+    private void removeAt(int ci, int idx) {
+        final Chunk chunk = chunks[ci];
+        chunk.removeAt(idx);
+        if (chunk.size == 0) {
+            final int tail = chunkCount - ci - 1;
+            if (tail > 0) {
+                System.arraycopy(chunks, ci + 1, chunks, ci, tail);
+            }
+            chunks[--chunkCount] = null;
+        }
+        size--;
+        modCount++;
+    }
+
+    private final class ValueIterator implements Iterator<V> {
+        private int nextChunk;
+        private int next;
+        private int remaining;
+        private int lastReturnedChunk;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        ValueIterator(int chunk, int from, int count) {
+            nextChunk = chunk;
+            next = from;
+            remaining = count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            checkForComodification();
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            if (next >= chunks[nextChunk].size) {
+                // the chunks aren't empty
+                nextChunk++;
+                next = 0;
+            }
+            lastReturnedChunk = nextChunk;
+            lastReturned = next++;
+            remaining--;
+            return (V)chunks[lastReturnedChunk].values[lastReturned];
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            checkForComodification();
+            // the following chunks move down, if the chunk becomes empty
+            final boolean chunkRemoved = chunks[lastReturnedChunk].size == 1;
+            removeAt(lastReturnedChunk, lastReturned);
+            nextChunk = lastReturnedChunk;
+            next = chunkRemoved ? 0 : lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.eventusermodel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.util.RecordFormatException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing for {@link HSSFRecordCursor}
+ */
+final class TestHSSFRecordCursor {
+    private static final short[] SIDS = {
+        BOFRecord.sid, EOFRecord.sid, BoundSheetRecord.sid, SSTRecord.sid,
+        NumberRecord.sid, LabelSSTRecord.sid, FormulaRecord.sid
+    };
+
+    @Test
+    void sameRecordsAsEventFactory() throws IOException {
+        for (String sampleFileName : new String[]{"SampleSS.xls", "45365.xls", "SimpleWithSkip.xls", "FormulaEvalTestData.xls", "ContinueRecordProblem.xls"}) {
+            assertSameRecords(sampleFileName);
+        }
+    }
+
+    private static void assertSameRecords(String sampleFileName) throws IOException {
+        try (InputStream is = HSSFTestDataSamples.openSampleFileStream(sampleFileName);
+             POIFSFileSystem fs = new POIFSFileSystem(is)) {
+            List<byte[]> expected = new ArrayList<>();
+            new HSSFEventFactory().processWorkbookEvents(createRequest(expected), fs);
+
+            List<byte[]> actual = new ArrayList<>();
+            new HSSFEventFactory().processEvents(createRequest(actual), HSSFRecordCursor.create(fs.getRoot()));
+
+            assertTrue(expected.size() > 10);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(expected.get(i), actual.get(i), sampleFileName + " record " + i);
+            }
+        }
+    }
+
+    private static HSSFRequest createRequest(List<byte[]> records) {
+        HSSFRequest req = new HSSFRequest();
+        for (short sid : SIDS) {
+            req.addListener(r -> records.add(r.serialize()), sid);
+        }
+        return req;
+    }
+
+    @Test
+    void typedAccessors() throws IOException {
+        try (InputStream is = HSSFTestDataSamples.openSampleFileStream("SampleSS.xls");
+             POIFSFileSystem fs = new POIFSFileSystem(is)) {
+            HSSFRecordCursor cursor = HSSFRecordCursor.create(fs.getRoot());
+            assertThrows(IllegalStateException.class, cursor::getSid);
+
+            int cells = 0;
+            while (cursor.next()) {
+                switch (cursor.getSid()) {
+                    case NumberRecord.sid: {
+                        NumberRecord nr = (NumberRecord) cursor.getRecord();
+                        assertEquals(nr.getRow(), cursor.getRow());
+                        assertEquals(nr.getColumn(), cursor.getColumn());
+                        assertEquals(nr.getXFIndex(), cursor.getXFIndex());
+                        assertEquals(nr.getValue(), cursor.getNumberValue());
+                        assertSame(nr, cursor.getRecord());
+                        cells++;
+                        break;
+                    }
+                    case RKRecord.sid: {
+                        RKRecord rk = (RKRecord) cursor.getRecord();
+                        assertEquals(rk.getRKNumber(), cursor.getNumberValue());
+                        cells++;
+                        break;
+                    }
+                    case LabelSSTRecord.sid: {
+                        LabelSSTRecord label = (LabelSSTRecord) cursor.getRecord();
+                        assertEquals(label.getRow(), cursor.getRow());
+                        assertEquals(label.getSSTIndex(), cursor.getSSTIndex());
+                        assertThrows(IllegalStateException.class, cursor::getNumberValue);
+                        cells++;
+                        break;
+                    }
+                    default:
+                        assertEquals(cursor.getLength(), cursor.getData().remaining());
+                        assertTrue(cursor.getData().isReadOnly());
+                        assertThrows(RecordFormatException.class, () -> cursor.getByte(cursor.getLength()));
+                        break;
+                }
+            }
+            assertTrue(cells > 0);
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    void truncatedRecord() {
+        // BOF record with 16 bytes, of which only 2 are present
+        ByteBuffer buf = ByteBuffer.wrap(new byte[]{0x09, 0x08, 0x10, 0x00, 0x00, 0x06});
+        HSSFRecordCursor cursor = new HSSFRecordCursor(buf);
+        assertThrows(RecordFormatException.class, cursor::next);
+        assertEquals(0, buf.position());
+    }
+}
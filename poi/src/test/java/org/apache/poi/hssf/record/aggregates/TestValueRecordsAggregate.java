@@ -22,6 +22,9 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -37,7 +40,9 @@ import org.apache.poi.hssf.model.RowBlocksReader;
 import org.apache.poi.hssf.record.BlankRecord;
 import org.apache.poi.hssf.record.CellValueRecordInterface;
 import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
 import org.apache.poi.hssf.record.MulBlankRecord;
+import org.apache.poi.hssf.record.NumberRecord;
 import org.apache.poi.hssf.record.Record;
 import org.apache.poi.hssf.record.SharedFormulaRecord;
 import org.apache.poi.hssf.record.WindowTwoRecord;
@@ -46,6 +51,7 @@ import org.apache.poi.hssf.usermodel.HSSFRow;
 import org.apache.poi.hssf.usermodel.HSSFSheet;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.util.HexRead;
+import org.apache.poi.util.LittleEndian;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -374,6 +380,68 @@ final class TestValueRecordsAggregate {
         confirmMulBlank(4, 1, 2);
     }
 
+    /**
+     * NUMBER, LABELSST and BLANK cells are stored without record objects until they're requested
+     */
+    @Test
+    void testCompactCells() {
+        NumberRecord nr = new NumberRecord();
+        nr.setRow(1);
+        nr.setColumn((short) 0);
+        nr.setXFIndex((short) 15);
+        nr.setValue(1.5);
+        LabelSSTRecord lr = new LabelSSTRecord();
+        lr.setRow(1);
+        lr.setColumn((short) 1);
+        lr.setXFIndex((short) 16);
+        lr.setSSTIndex(7);
+        List<org.apache.poi.hssf.record.Record> records = new ArrayList<>();
+        records.add(nr);
+        records.add(lr);
+        records.add(newBlankRecord(3, 1));
+        records.add(new WindowTwoRecord());
+        constructValueRecord(records);
+        valueRecord.addMultipleBlanks(new MulBlankRecord(1, 4, new short[]{17, 18}));
+        valueRecord.insertCell(newBlankRecord(6, 1));
+
+        assertEquals(6, valueRecord.getPhysicalNumberOfCells());
+        assertEquals(0, valueRecord.getFirstCellInRow(1));
+        assertEquals(6, valueRecord.getLastCellInRow(1));
+        assertEquals(1, valueRecord.getNextRowWithCells(0));
+        assertEquals(-1, valueRecord.getNextRowWithCells(2));
+
+        // the compact and the inserted blanks are written as one MULBLANK record
+        byte[] expectedArray = HexRead.readFromString(""
+                + "03 02 0E 00 " // Number
+                + "01 00 00 00 0F 00 00 00 00 00 00 00 F8 3F "
+                + "FD 00 0A 00 " // LabelSST
+                + "01 00 01 00 10 00 07 00 00 00 "
+                + "BE 00 0E 00 " // MulBlank
+                + "01 00 03 00 00 00 11 00 12 00 00 00 06 00");
+        byte[] actualArray = new byte[expectedArray.length];
+        SerializerVisitor sv = new SerializerVisitor(actualArray);
+        valueRecord.visitCellsForRow(1, sv);
+        assertEquals(actualArray.length, sv.getWriteIndex());
+        assertEquals(actualArray.length, valueRecord.getRowCellBlockSize(0, 2));
+        assertArrayEquals(expectedArray, actualArray);
+
+        // the created record replaces the compact cell
+        CellValueRecordInterface cell = valueRecord.getCell(1, 0);
+        assertTrue(cell instanceof NumberRecord);
+        assertNotSame(nr, cell);
+        assertEquals(1.5, ((NumberRecord) cell).getValue());
+        assertEquals(15, cell.getXFIndex());
+        assertSame(cell, valueRecord.getCell(1, 0));
+        ((NumberRecord) cell).setValue(2.5);
+        sv = new SerializerVisitor(actualArray);
+        valueRecord.visitCellsForRow(1, sv);
+        assertEquals(2.5, LittleEndian.getDouble(actualArray, 10));
+
+        assertEquals(7, ((LabelSSTRecord) valueRecord.getCell(1, 1)).getSSTIndex());
+        assertNull(valueRecord.getCell(1, 2));
+        assertNull(valueRecord.getCell(5, 0));
+    }
+
     private void confirmMulBlank(int expectedTotalBlankCells,
             int expectedNumberOfMulBlankRecords, int expectedNumberOfSingleBlankRecords) {
         // assumed row ranges set-up by caller:
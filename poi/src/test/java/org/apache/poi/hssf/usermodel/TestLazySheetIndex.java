@@ -0,0 +1,144 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests parsing the sheets of a {@link HSSFWorkbook} on demand
+ */
+final class TestLazySheetIndex {
+
+    @Test
+    void sameSheetsAsEagerLoading() throws IOException {
+        for (String sampleFileName : new String[]{"SampleSS.xls", "FormulaEvalTestData.xls", "duprich1.xls", "testRRaC.xls"}) {
+            try (HSSFWorkbook eager = openSample(sampleFileName, false);
+                 HSSFWorkbook lazy = openSample(sampleFileName, true)) {
+                int numSheets = eager.getNumberOfSheets();
+                assertEquals(numSheets, lazy.getNumberOfSheets());
+                for (int i = 0; i < numSheets; i++) {
+                    assertNull(lazy._sheets.get(i), sampleFileName);
+                }
+
+                // parse the sheets in reverse order
+                for (int i = numSheets - 1; i >= 0; i--) {
+                    assertEquals(dump(eager.getSheetAt(i)), dump(lazy.getSheetAt(i)), sampleFileName + " sheet " + i);
+                    assertSame(lazy.getSheetAt(i), lazy.getSheet(lazy.getSheetName(i)));
+                }
+                assertArrayEquals(eager.getBytes(), lazy.getBytes(), sampleFileName);
+            }
+        }
+    }
+
+    @Test
+    void parseSingleSheet() throws IOException {
+        try (HSSFWorkbook wb = openSample("FormulaEvalTestData.xls", true)) {
+            HSSFSheet sheet = wb.getSheet("StatsLibTests");
+            assertEquals(2, wb.getSheetIndex(sheet));
+            for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+                assertEquals(i == 2, wb._sheets.get(i) != null);
+            }
+
+            // the sheet iterator parses all sheets
+            wb.sheetIterator().forEachRemaining(s -> assertNotNull(s));
+            assertFalse(wb._sheets.contains(null));
+        }
+    }
+
+    @Test
+    void releaseSheet() throws IOException {
+        try (HSSFWorkbook wb = openSample("SampleSS.xls", true)) {
+            assertFalse(wb.releaseSheet(1));
+
+            HSSFSheet sheet = wb.getSheetAt(1);
+            String expected = dump(sheet);
+            sheet.getRow(0).createCell(10).setCellValue("changed");
+            assertTrue(wb.releaseSheet(1));
+            assertNull(wb._sheets.get(1));
+
+            HSSFSheet reloaded = wb.getSheetAt(1);
+            assertNotSame(sheet, reloaded);
+            assertEquals(expected, dump(reloaded));
+
+            // new sheets can't be released
+            wb.createSheet("new");
+            assertFalse(wb.releaseSheet(3));
+        }
+
+        try (HSSFWorkbook wb = openSample("SampleSS.xls", false)) {
+            assertFalse(wb.releaseSheet(0));
+        }
+    }
+
+    @Test
+    void changeSheetOrder() throws IOException {
+        try (HSSFWorkbook eager = openSample("duprich1.xls", false);
+             HSSFWorkbook lazy = openSample("duprich1.xls", true)) {
+            for (HSSFWorkbook wb : new HSSFWorkbook[]{eager, lazy}) {
+                wb.setSheetOrder("OT", 0);
+                wb.cloneSheet(1);
+                wb.removeSheetAt(2);
+            }
+            assertEquals(eager.getNumberOfSheets(), lazy.getNumberOfSheets());
+            for (int i = 0; i < eager.getNumberOfSheets(); i++) {
+                assertEquals(eager.getSheetName(i), lazy.getSheetName(i));
+                assertEquals(dump(eager.getSheetAt(i)), dump(lazy.getSheetAt(i)));
+            }
+
+            // the moved sheet is still parsed from its own substream
+            assertTrue(lazy.releaseSheet(0));
+            assertEquals(dump(eager.getSheetAt(0)), dump(lazy.getSheetAt(0)));
+            assertFalse(lazy.releaseSheet(2));
+        }
+    }
+
+    private static HSSFWorkbook openSample(String sampleFileName, boolean loadSheetsOnDemand) throws IOException {
+        try (InputStream is = HSSFTestDataSamples.openSampleFileStream(sampleFileName)) {
+            POIFSFileSystem fs = new POIFSFileSystem(is);
+            return new HSSFWorkbook(fs.getRoot(), false, loadSheetsOnDemand);
+        }
+    }
+
+    private static String dump(HSSFSheet sheet) {
+        assertNotNull(sheet);
+        StringBuilder sb = new StringBuilder();
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                sb.append(cell.getAddress()).append('=').append(cell).append(';');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
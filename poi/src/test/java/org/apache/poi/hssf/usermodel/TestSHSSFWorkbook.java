@@ -0,0 +1,148 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.hssf.usermodel;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.output.UnsynchronizedByteArrayOutputStream;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.util.IOUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link SHSSFWorkbook}
+ */
+final class TestSHSSFWorkbook {
+
+    @Test
+    void sameWorkbookStreamAsHSSFWorkbook() throws IOException {
+        try (HSSFWorkbook expected = new HSSFWorkbook();
+             SHSSFWorkbook streamed = new SHSSFWorkbook(10)) {
+            fill(expected, expected.createSheet("first"), 1000);
+            fill(expected, expected.createSheet("second"), 70);
+            fill(streamed.getWorkbook(), streamed.createSheet("first"), 1000);
+            fill(streamed.getWorkbook(), streamed.createSheet("second"), 70);
+
+            byte[] expectedBytes = getWorkbookStream(write(expected));
+            byte[] actualBytes = getWorkbookStream(write(streamed));
+            assertArrayEquals(expectedBytes, actualBytes);
+
+            // the streamed workbook can still be changed and written again
+            streamed.createSheet("third").createRow(0).createCell(0).setCellValue("third");
+            fill(streamed.getWorkbook(), streamed.getWorkbook().getSheet("second"), 140);
+            expected.createSheet("third").createRow(0).createCell(0).setCellValue("third");
+            fill(expected, expected.getSheet("second"), 140);
+            assertArrayEquals(getWorkbookStream(write(expected)), getWorkbookStream(write(streamed)));
+        }
+    }
+
+    @Test
+    void writtenRows() throws IOException {
+        try (SHSSFWorkbook wb = new SHSSFWorkbook(10)) {
+            HSSFSheet sheet = wb.createSheet();
+            for (int i = 0; i < 100; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i);
+                row.createCell(1).setCellValue("text " + i);
+                row.createCell(3).setCellFormula("A" + (i + 1) + "*2");
+            }
+
+            // the first two blocks of 32 rows were written
+            assertNull(sheet.getRow(63));
+            assertNotNull(sheet.getRow(64));
+            assertEquals(36, sheet.getPhysicalNumberOfRows());
+            assertEquals(99, sheet.getLastRowNum());
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRow(63));
+            sheet.createRow(64);
+
+            wb.flushRows(sheet);
+            assertEquals(0, sheet.getPhysicalNumberOfRows());
+            assertThrows(IllegalArgumentException.class, () -> sheet.createRow(99));
+            sheet.createRow(100).createCell(1).setCellValue("last");
+            sheet.addMergedRegion(new CellRangeAddress(0, 1, 0, 1));
+
+            try (HSSFWorkbook read = new HSSFWorkbook(write(wb))) {
+                HSSFSheet readSheet = read.getSheetAt(0);
+                assertEquals(0, readSheet.getFirstRowNum());
+                assertEquals(100, readSheet.getLastRowNum());
+                assertEquals(101, readSheet.getPhysicalNumberOfRows());
+                assertEquals("text 10", readSheet.getRow(10).getCell(1).getStringCellValue());
+                assertEquals("A10*2", readSheet.getRow(9).getCell(3).getCellFormula());
+                // row 64 was replaced by an empty row
+                assertNull(readSheet.getRow(64).getCell(0));
+                assertEquals("last", readSheet.getRow(100).getCell(1).getStringCellValue());
+                assertEquals(1, readSheet.getNumMergedRegions());
+            }
+        }
+
+        try (SHSSFWorkbook wb = new SHSSFWorkbook()) {
+            assertThrows(IllegalArgumentException.class, () -> wb.flushRows(wb.getWorkbook().createSheet()));
+            assertTrue(wb.dispose());
+        }
+    }
+
+    private static void fill(HSSFWorkbook wb, HSSFSheet sheet, int numRows) {
+        HSSFCellStyle style = wb.createCellStyle();
+        style.setWrapText(true);
+        for (int i = sheet.getPhysicalNumberOfRows() == 0 ? 0 : sheet.getLastRowNum() + 1; i < numRows; i++) {
+            if (i % 17 == 5) {
+                // leave some rows out
+                continue;
+            }
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue("text " + i);
+            if (i % 3 == 0) {
+                row.createCell(2).setCellStyle(style);
+            }
+            row.createCell(3).setCellFormula("A" + (i + 1) + "*2");
+            Cell cell = row.createCell(5);
+            cell.setCellValue(i % 2 == 0);
+        }
+    }
+
+    private static InputStream write(HSSFWorkbook wb) throws IOException {
+        UnsynchronizedByteArrayOutputStream out = UnsynchronizedByteArrayOutputStream.builder().get();
+        wb.write(out);
+        return out.toInputStream();
+    }
+
+    private static InputStream write(SHSSFWorkbook wb) throws IOException {
+        UnsynchronizedByteArrayOutputStream out = UnsynchronizedByteArrayOutputStream.builder().get();
+        wb.write(out);
+        return out.toInputStream();
+    }
+
+    private static byte[] getWorkbookStream(InputStream workbook) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(workbook);
+             InputStream is = fs.createDocumentInputStream("Workbook")) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}
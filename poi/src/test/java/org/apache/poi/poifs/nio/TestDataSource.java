@@ -19,11 +19,14 @@
 
 package org.apache.poi.poifs.nio;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -246,4 +249,75 @@ class TestDataSource {
         assertEquals(-53, bs.get());
         assertEquals(-52, bs.get());
     }
+
+    @Test
+    void testChunkedByteArray() throws IOException {
+        final int chunk = ChunkedByteArrayDataSource.CHUNK_SIZE;
+        // spans three chunks
+        byte[] data = new byte[2 * chunk + 1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+
+        ChunkedByteArrayDataSource ds = new ChunkedByteArrayDataSource();
+        ds.write(ByteBuffer.wrap(data, 0, 512).slice(), 0);
+        assertEquals(data.length - 512, ds.readFrom(new ByteArrayInputStream(data, 512, data.length - 512), 10L * chunk));
+        assertEquals(data.length, ds.size());
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ds.copyTo(bos);
+        assertArrayEquals(data, bos.toByteArray());
+
+        // Within a chunk, the buffers are backed by the data
+        ByteBuffer bs = ds.read(512, chunk);
+        assertEquals(data[chunk], bs.get());
+        bs.put(bs.position(), (byte) -55);
+        assertEquals(-55, ds.read(4, chunk + 1).get());
+
+        // Across chunks
+        bs = ds.read(8, chunk - 4);
+        assertEquals(8, bs.remaining());
+        assertEquals(data[chunk - 4], bs.get());
+        assertEquals(data[chunk - 1], bs.get(3));
+        assertEquals(-55, bs.get(5));
+
+        // Off the end
+        bs = ds.read(8, data.length - 2);
+        assertEquals(2, bs.remaining());
+        assertThrows(IndexOutOfBoundsException.class, () -> ds.read(4, data.length), "Shouldn't be able to read off the end");
+
+        // Append, after a gap
+        bs = ByteBuffer.allocate(4);
+        bs.put(0, (byte) -55);
+        bs.put(3, (byte) -52);
+        ds.write(bs, 3L * chunk + 10);
+        assertEquals(3L * chunk + 14, ds.size());
+        assertEquals(0, ds.read(4, data.length).get());
+        bs = ds.read(4, 3L * chunk + 10);
+        assertEquals(-55, bs.get());
+        assertEquals(-52, bs.get(bs.position() + 2));
+
+        // The stream is only read up to the maximum length
+        ChunkedByteArrayDataSource limited = new ChunkedByteArrayDataSource();
+        assertEquals(100, limited.readFrom(new ByteArrayInputStream(data), 100));
+        assertEquals(100, limited.size());
+        assertEquals(0, new ChunkedByteArrayDataSource().readFrom(new ByteArrayInputStream(new byte[0]), 100));
+
+        // Append block by block after reading, like POIFSFileSystem.createBlockIfNeeded,
+        //  buffers read before the appends keep writing through to the data
+        ChunkedByteArrayDataSource blocks = new ChunkedByteArrayDataSource();
+        assertEquals(1000, blocks.readFrom(new ByteArrayInputStream(data), 1000));
+        ByteBuffer first = blocks.read(512, 0);
+        ByteBuffer last = blocks.read(512, 512);
+        for (long pos = 1024; pos < 2L * chunk + 1024; pos += 512) {
+            blocks.write(ByteBuffer.allocate(512), pos);
+        }
+        assertEquals(2L * chunk + 1024, blocks.size());
+        first.put(0, (byte) -55);
+        last.put(last.position() + 10, (byte) -52);
+        assertEquals(-55, blocks.read(1, 0).get());
+        assertEquals(-52, blocks.read(1, 522).get());
+        assertEquals(data[999], blocks.read(1, 999).get());
+        assertEquals(0, blocks.read(1, 1000).get());
+    }
 }
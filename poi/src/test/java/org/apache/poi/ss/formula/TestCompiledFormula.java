@@ -0,0 +1,164 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link WorkbookEvaluator#setCompiledEvaluation(boolean)}
+ */
+class TestCompiledFormula {
+    private static final String[] FORMULAS = {
+        "A{r}*2+$A$1",
+        "IF(A{r}>5,\"big\",A{r})",
+        "IF(A{r}>5,B{r})",
+        "IF(A{r}/0,1,2)",
+        "CHOOSE(MOD(A{r},4),\"one\",\"two\",\"three\")",
+        "SUM(A$1:A{r})",
+        "SUM(A{r})",
+        "AREAS((A$1:A{r},B$1:B{r}))",
+        "Other!A{r}&\"-\"&Other!$B$1",
+        "SUM(Other!A$1:B{r})/Values",
+        "INDIRECT(\"A\"&{r})+1",
+        "SUM({1,2;3,4})*A{r}",
+        "ROW()+COLUMN()",
+        "IFERROR(1/(A{r}-3),\"div\")",
+        "AND(A{r}>2,NOT(A{r}>7))",
+        "-A{r}%",
+        "VLOOKUP(A{r},$A$1:$B$10,2,FALSE)",
+        "A{r}:$A$10 $A$5",
+    };
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet sheet = wb.createSheet("Main");
+        Sheet other = wb.createSheet("Other");
+        for (int r = 0; r < 10; r++) {
+            Row row = sheet.createRow(r);
+            row.createCell(0).setCellValue(r + 1);
+            row.createCell(1).setCellValue("b" + r);
+            other.createRow(r).createCell(0).setCellValue(r * 1.5);
+            other.getRow(r).createCell(1).setCellValue(r % 2 == 0);
+        }
+        Name name = wb.createName();
+        name.setNameName("Values");
+        name.setRefersToFormula("Main!$A$1:$A$10");
+
+        for (int r = 0; r < 10; r++) {
+            Row row = sheet.getRow(r);
+            for (int f = 0; f < FORMULAS.length; f++) {
+                row.createCell(f + 2).setCellFormula(FORMULAS[f].replace("{r}", String.valueOf(r + 1)));
+            }
+        }
+        return wb;
+    }
+
+    @Test
+    void sameResultsAsInterpreter() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator interpreted = wb.getCreationHelper().createFormulaEvaluator();
+            HSSFFormulaEvaluator compiled = wb.getCreationHelper().createFormulaEvaluator();
+            compiled.setCompiledEvaluation(true);
+
+            for (Row row : wb.getSheet("Main")) {
+                for (Cell cell : row) {
+                    assertEquals(format(interpreted.evaluate(cell)), format(compiled.evaluate(cell)),
+                            cell.getAddress().formatAsString());
+                }
+            }
+
+            // the cached compiled formulas are still valid after a change
+            wb.getSheet("Main").getRow(3).getCell(0).setCellValue(42);
+            interpreted.clearAllCachedResultValues();
+            compiled.clearAllCachedResultValues();
+            for (Cell cell : wb.getSheet("Main").getRow(3)) {
+                assertEquals(format(interpreted.evaluate(cell)), format(compiled.evaluate(cell)),
+                        cell.getAddress().formatAsString());
+            }
+        }
+    }
+
+    @Test
+    void changedFormulaIsCompiledAgain() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            Row row = wb.createSheet().createRow(0);
+            Cell value = row.createCell(0);
+            value.setCellValue(2);
+            Cell formula = row.createCell(1);
+            formula.setCellFormula("A1+1");
+
+            HSSFFormulaEvaluator compiled = wb.getCreationHelper().createFormulaEvaluator();
+            compiled.setCompiledEvaluation(true);
+            assertEquals(3, compiled.evaluate(formula).getNumberValue(), 0);
+
+            // the compiled formula of the cell is kept, when its precedents change
+            value.setCellValue(5);
+            compiled.notifyUpdateCell(value);
+            assertEquals(6, compiled.evaluate(formula).getNumberValue(), 0);
+
+            formula.setCellFormula("A1*3");
+            compiled.notifyUpdateCell(formula);
+            assertEquals(15, compiled.evaluate(formula).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    void shape() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFEvaluationWorkbook ewb = HSSFEvaluationWorkbook.create(wb);
+            EvaluationSheet sheet = ewb.getSheet(0);
+            for (int f = 0; f < FORMULAS.length; f++) {
+                Ptg[] ptgs3 = ewb.getFormulaTokens(sheet.getCell(2, f + 2));
+                Ptg[] ptgs8 = ewb.getFormulaTokens(sheet.getCell(7, f + 2));
+                CompiledFormula.Shape shape3 = CompiledFormula.Shape.of(ptgs3, 2, f + 2);
+                CompiledFormula.Shape shape8 = CompiledFormula.Shape.of(ptgs8, 7, f + 2);
+                if (FORMULAS[f].contains("\"&{r}")) {
+                    // the row number is a constant
+                    assertNotEquals(shape3, shape8, FORMULAS[f]);
+                } else {
+                    // copied down formulas share a compiled formula
+                    assertEquals(shape3, shape8, FORMULAS[f]);
+                }
+                assertTrue(CompiledFormula.compile(ptgs3, 2, f + 2).isCompilable(), FORMULAS[f]);
+            }
+
+            // same formula text at another position
+            Ptg[] ptgs = ewb.getFormulaTokens(sheet.getCell(2, 2));
+            assertNotEquals(CompiledFormula.Shape.of(ptgs, 2, 2), CompiledFormula.Shape.of(ptgs, 3, 2));
+        }
+    }
+
+    private static String format(CellValue value) {
+        return (value == null) ? null : value.formatAsString();
+    }
+}
@@ -0,0 +1,198 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationTestHelper;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.util.SuppressForbidden;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the concurrent evaluation of a workbook with a shared {@link WorkbookEvaluator}
+ */
+class TestConcurrentEvaluation {
+    private static final int ROWS = 300;
+    private static final int THREADS = 8;
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet main = wb.createSheet("Main");
+        HSSFSheet data = wb.createSheet("Data");
+        for (int r = 0; r < ROWS; r++) {
+            HSSFRow row = data.createRow(r);
+            row.createCell(0).setCellValue(r % 17);
+            row.createCell(1).setCellValue("Key" + r);
+            // running balance
+            row.createCell(2).setCellFormula(r == 0 ? "A1" : "C" + r + "+A" + (r + 1));
+
+            row = main.createRow(r);
+            row.createCell(0).setCellFormula("VLOOKUP(\"Key" + (ROWS - r - 1) + "\",Data!$B$1:$C$" + ROWS + ",2,FALSE)");
+            row.createCell(1).setCellFormula("SUMIF(Data!$A$1:$A$" + ROWS + ",\">\"&MOD(ROW(),17),Data!$C$1:$C$" + ROWS + ")");
+            row.createCell(2).setCellFormula("A" + (r + 1) + "+B" + (r + 1) + "-SUM(Data!$A$1:$A$" + (r + 1) + ")");
+            row.createCell(3).setCellFormula(r == 0 ? "D2" : "D" + r + "+1");
+        }
+        return wb;
+    }
+
+    @Test
+    void sameResultsAsSingleThread() throws Exception {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            List<EvaluationCell> cells = new ArrayList<>();
+            for (int s = 0; s < wb.getNumberOfSheets(); s++) {
+                for (Row row : wb.getSheetAt(s)) {
+                    for (Cell cell : row) {
+                        cells.add(HSSFEvaluationTestHelper.wrapCell((HSSFCell) cell));
+                    }
+                }
+            }
+            WorkbookEvaluator singleThread = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            List<String> expected = evaluate(singleThread, cells);
+
+            WorkbookEvaluator shared = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            shared.setConcurrentEvaluation(true);
+            shared.setCompiledEvaluation(true);
+            assertSameResults(shared, supply(cells), expected, true);
+
+            // changes discard the results of all threads
+            HSSFCell cell = wb.getSheet("Data").getRow(5).getCell(0);
+            cell.setCellValue(100);
+            singleThread.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            shared.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(shared, supply(cells), evaluate(singleThread, cells), true);
+        }
+    }
+
+    @Test
+    void loadedWorkbook() throws Exception {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            // rows of plain values, whose cells are stored compactly when the workbook is loaded
+            HSSFSheet values = wb.createSheet("Values");
+            for (int r = 0; r < ROWS; r++) {
+                HSSFRow row = values.createRow(r);
+                for (int c = 0; c < 20; c++) {
+                    row.createCell(c).setCellValue(r * c);
+                }
+                wb.getSheet("Main").getRow(r).createCell(4).setCellFormula("SUM(Values!A" + (r + 1) + ":T" + (r + 1) + ")");
+            }
+
+            HSSFWorkbook loaded = HSSFTestDataSamples.writeOutAndReadBack(wb);
+            List<EvaluationCell> cells = new ArrayList<>();
+            List<Supplier<EvaluationCell>> loadedCells = new ArrayList<>();
+            // start with the plain values, so that their cells aren't created by the evaluation of the formulas
+            for (int s = wb.getNumberOfSheets() - 1; s >= 0; s--) {
+                HSSFSheet loadedSheet = loaded.getSheetAt(s);
+                for (Row row : wb.getSheetAt(s)) {
+                    for (Cell cell : row) {
+                        cells.add(HSSFEvaluationTestHelper.wrapCell((HSSFCell) cell));
+                        // the cells of the loaded workbook are created on their first access by any thread
+                        int rowIndex = cell.getRowIndex();
+                        int columnIndex = cell.getColumnIndex();
+                        loadedCells.add(() -> HSSFEvaluationTestHelper.wrapCell(loadedSheet.getRow(rowIndex).getCell(columnIndex)));
+                    }
+                }
+            }
+            List<String> expected = evaluate(new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null), cells);
+
+            WorkbookEvaluator shared = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(loaded), null, null);
+            shared.setConcurrentEvaluation(true);
+            // the threads access neighbouring cells of the same rows at the same time
+            assertSameResults(shared, loadedCells, expected, false);
+            loaded.close();
+        }
+    }
+
+    @Test
+    void collaboratingWorkbooks() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            WorkbookEvaluator shared = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            shared.setConcurrentEvaluation(true);
+            WorkbookEvaluator other = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            assertThrows(IllegalStateException.class, () ->
+                CollaboratingWorkbooksEnvironment.setup(new String[]{"a", "b"}, new WorkbookEvaluator[]{shared, other}));
+        }
+    }
+
+    @SuppressForbidden("test code")
+    private static void assertSameResults(WorkbookEvaluator shared, List<Supplier<EvaluationCell>> cells, List<String> expected,
+                                          boolean shuffle) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                // each thread evaluates the cells in a different order or starts at a different cell
+                List<Integer> order = new ArrayList<>();
+                for (int i = 0; i < cells.size(); i++) {
+                    order.add((i + t) % cells.size());
+                }
+                if (shuffle) {
+                    Collections.shuffle(order, new Random(t));
+                }
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i : order) {
+                        assertEquals(expected.get(i), String.valueOf(shared.evaluate(cells.get(i).get())));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<Supplier<EvaluationCell>> supply(List<EvaluationCell> cells) {
+        List<Supplier<EvaluationCell>> suppliers = new ArrayList<>();
+        for (EvaluationCell cell : cells) {
+            suppliers.add(() -> cell);
+        }
+        return suppliers;
+    }
+
+    private static List<String> evaluate(WorkbookEvaluator evaluator, List<EvaluationCell> cells) {
+        List<String> results = new ArrayList<>();
+        for (EvaluationCell cell : cells) {
+            results.add(String.valueOf(evaluator.evaluate(cell)));
+        }
+        return results;
+    }
+}
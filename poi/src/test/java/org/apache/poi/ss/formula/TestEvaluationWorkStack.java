@@ -0,0 +1,107 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link WorkbookEvaluator#setIterativeEvaluation(boolean)}
+ */
+class TestEvaluationWorkStack {
+
+    @Test
+    void deepChain() throws Exception {
+        final int rows = 50_000;
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue(1);
+                // running balance
+                row.createCell(1).setCellFormula(r == 0 ? "A1" : "A" + (r + 1) + "+B" + r);
+            }
+            sheet.createRow(rows).createCell(1).setCellFormula("SUM(B" + (rows - 9) + ":B" + rows + ")");
+
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            evaluator.setIterativeEvaluation(true);
+
+            // a small stack, which is not sufficient for the recursive evaluation
+            AtomicReference<Object> result = new AtomicReference<>();
+            Thread t = new Thread(null, () -> {
+                try {
+                    result.set(evaluator.evaluate(sheet.getRow(rows).getCell(1)));
+                } catch (Throwable e) {
+                    result.set(e);
+                }
+            }, "deepChain", 256 * 1024);
+            t.start();
+            t.join();
+
+            assertEquals(new CellValue(10 * rows - 45).formatAsString(), format(result.get()));
+            assertEquals(rows, evaluator.evaluate(sheet.getRow(rows - 1).getCell(1)).getNumberValue(), 0);
+        }
+    }
+
+    @Test
+    void sameResultsAsRecursiveEvaluation() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue(5);
+            row.createCell(1).setCellFormula("A1*2");
+            row.createCell(2).setCellFormula("B1+D1");
+            // circular reference
+            row.createCell(3).setCellFormula("E1");
+            row.createCell(4).setCellFormula("D1+B1");
+            row.createCell(5).setCellFormula("C1+B1");
+            row.createCell(6).setCellFormula("IF(A1>0,B1,1/0)+F1");
+
+            for (int i = 1; i < 7; i++) {
+                HSSFFormulaEvaluator recursive = wb.getCreationHelper().createFormulaEvaluator();
+                HSSFFormulaEvaluator iterative = wb.getCreationHelper().createFormulaEvaluator();
+                iterative.setIterativeEvaluation(true);
+                // start at a different cell each time
+                for (int j = 0; j < 7; j++) {
+                    Cell cell = row.getCell((i + j) % 7);
+                    assertEquals(format(recursive.evaluate(cell)), format(iterative.evaluate(cell)), cell.getAddress().formatAsString());
+                }
+            }
+            HSSFFormulaEvaluator iterative = wb.getCreationHelper().createFormulaEvaluator();
+            iterative.setIterativeEvaluation(true);
+            assertEquals(CellValue.getError(FormulaError.CIRCULAR_REF.getCode()).formatAsString(), format(iterative.evaluate(row.getCell(6))));
+            assertNull(iterative.evaluate(sheet.createRow(1).createCell(0)));
+        }
+    }
+
+    private static String format(Object result) {
+        return (result instanceof CellValue) ? ((CellValue) result).formatAsString() : String.valueOf(result);
+    }
+}
@@ -0,0 +1,212 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the incremental recalculation with {@link FormulaDependencyGraph}
+ */
+class TestFormulaDependencyGraph {
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet inputs = wb.createSheet("Inputs");
+        for (int r = 0; r < 10; r++) {
+            inputs.createRow(r).createCell(0).setCellValue(r + 1);
+        }
+
+        Sheet model = wb.createSheet("Model");
+        for (int r = 0; r < 10; r++) {
+            Row row = model.createRow(r);
+            row.createCell(0).setCellFormula("Inputs!A" + (r + 1) + "*10");
+            row.createCell(1).setCellFormula("A" + (r + 1) + "+1");
+        }
+        Row row = model.createRow(10);
+        row.createCell(0).setCellFormula("SUM(A1:A10)");
+        row.createCell(1).setCellFormula("SUM(B1:B10)");
+        row.createCell(2).setCellFormula("INDIRECT(\"Inputs!A1\")");
+        return wb;
+    }
+
+    @Test
+    void recalculateDirty() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            assertThrows(IllegalStateException.class, evaluator::recalculateDirty);
+
+            HSSFFormulaEvaluator.evaluateAllFormulaCells(wb);
+            evaluator.setupDependencyGraph(wb);
+            assertEquals(0, evaluator.recalculateDirty());
+
+            Sheet model = wb.getSheet("Model");
+            Cell total = model.getRow(10).getCell(1);
+            assertEquals(560, total.getNumericCellValue(), 0);
+
+            Cell input = wb.getSheet("Inputs").getRow(4).getCell(0);
+            input.setCellValue(100);
+            evaluator.notifyUpdateCell(input);
+            // A5, B5, both sums and the dynamic reference
+            assertEquals(5, evaluator.recalculateDirty());
+            assertEquals(1510, total.getNumericCellValue(), 0);
+            assertEquals(1001, model.getRow(4).getCell(1).getNumericCellValue(), 0);
+            assertEquals(0, evaluator.recalculateDirty());
+
+            // a changed formula is re-analyzed
+            Cell formula = model.getRow(2).getCell(1);
+            formula.setCellFormula("A3+Inputs!A10");
+            evaluator.notifyUpdateCell(formula);
+            assertEquals(3, evaluator.recalculateDirty());
+            assertEquals(1519, total.getNumericCellValue(), 0);
+
+            input = wb.getSheet("Inputs").getRow(9).getCell(0);
+            input.setCellValue(20);
+            evaluator.notifyUpdateCell(input);
+            assertEquals(6, evaluator.recalculateDirty());
+            assertEquals(1629, total.getNumericCellValue(), 0);
+
+            // a new formula cell
+            Cell added = model.getRow(10).createCell(3);
+            added.setCellFormula("B11*2");
+            evaluator.notifyUpdateCell(added);
+            assertEquals(2, evaluator.recalculateDirty());
+            assertEquals(3258, added.getNumericCellValue(), 0);
+
+            evaluator.clearAllCachedResultValues();
+            assertEquals(24, evaluator.recalculateDirty());
+            assertEquals(3258, added.getNumericCellValue(), 0);
+        }
+    }
+
+    @Test
+    void updatedLikeRebuilt() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            FormulaDependencyGraph graph = new FormulaDependencyGraph(wb, HSSFEvaluationWorkbook.create(wb));
+            Sheet model = wb.getSheet("Model");
+
+            // changed formula
+            model.getRow(2).getCell(1).setCellFormula("A3+Inputs!A10+B2");
+            graph.updateCell(1, 2, 1);
+            assertSameGraph(wb, graph);
+
+            // new formula cells, which are referenced by existing ones, and a self reference
+            model.getRow(5).createCell(2).setCellFormula("B6*2");
+            graph.updateCell(1, 5, 2);
+            model.getRow(10).createCell(3).setCellFormula("SUM(C1:C10)+D11");
+            graph.updateCell(1, 10, 3);
+            model.getRow(6).createCell(2).setCellFormula("C6+1");
+            graph.updateCell(1, 6, 2);
+            model.getRow(0).createCell(4).setCellFormula("F1*2");
+            graph.updateCell(1, 0, 4);
+            model.getRow(0).createCell(5).setCellFormula("A1+1");
+            graph.updateCell(1, 0, 5);
+            assertSameGraph(wb, graph);
+
+            // a formula becomes dynamic and static again
+            model.getRow(6).getCell(2).setCellFormula("INDIRECT(\"C6\")");
+            graph.updateCell(1, 6, 2);
+            assertSameGraph(wb, graph);
+            model.getRow(6).getCell(2).setCellFormula("C6-1");
+            graph.updateCell(1, 6, 2);
+            assertSameGraph(wb, graph);
+
+            // removed formulas
+            model.getRow(5).getCell(2).setCellValue(3);
+            graph.updateCell(1, 5, 2);
+            assertSameGraph(wb, graph);
+            graph.removeCell(1, 3, 0);
+            model.getRow(3).removeCell(model.getRow(3).getCell(0));
+            assertSameGraph(wb, graph);
+
+            // replaced cell
+            Row row = model.getRow(3);
+            row.removeCell(row.getCell(1));
+            row.createCell(1).setCellFormula("A4+A5");
+            graph.updateCell(1, 3, 1);
+            assertSameGraph(wb, graph);
+        }
+    }
+
+    private static void assertSameGraph(HSSFWorkbook wb, FormulaDependencyGraph graph) {
+        FormulaDependencyGraph rebuilt = new FormulaDependencyGraph(wb, HSSFEvaluationWorkbook.create(wb));
+        assertEquals(describe(rebuilt), describe(graph));
+        assertEquals(rebuilt.getLevels().size(), graph.getLevels().size());
+        for (FormulaDependencyGraph.Node node : rebuilt.getNodes()) {
+            assertEquals(describe(rebuilt.markDirty(node.getSheetIndex(), node.getRowIndex(), node.getColumnIndex())),
+                    describe(graph.markDirty(node.getSheetIndex(), node.getRowIndex(), node.getColumnIndex())), node.toString());
+            rebuilt.clearDirty(rebuilt.getNodes());
+            graph.clearDirty(graph.getNodes());
+        }
+    }
+
+    private static String describe(FormulaDependencyGraph graph) {
+        StringBuilder sb = new StringBuilder();
+        for (FormulaDependencyGraph.Node node : graph.getNodes()) {
+            sb.append(node).append(node.isDynamic() ? " dynamic" : "").append(" <").append(node.getPrecedentCount()).append(" >");
+            sb.append(describe(node.getDependents())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Iterable<FormulaDependencyGraph.Node> nodes) {
+        Set<String> names = new TreeSet<>();
+        for (FormulaDependencyGraph.Node node : nodes) {
+            names.add(node.toString());
+        }
+        return names.toString();
+    }
+
+    @Test
+    void sameResultsAsFullEvaluation() throws IOException {
+        try (HSSFWorkbook expected = createWorkbook(); HSSFWorkbook actual = createWorkbook()) {
+            HSSFFormulaEvaluator.evaluateAllFormulaCells(actual);
+            HSSFFormulaEvaluator evaluator = actual.getCreationHelper().createFormulaEvaluator();
+            evaluator.setupDependencyGraph(actual);
+
+            for (int r = 0; r < 10; r += 3) {
+                expected.getSheet("Inputs").getRow(r).getCell(0).setCellValue(r * 7.5);
+                Cell input = actual.getSheet("Inputs").getRow(r).getCell(0);
+                input.setCellValue(r * 7.5);
+                evaluator.notifyUpdateCell(input);
+            }
+            evaluator.recalculateDirty();
+            HSSFFormulaEvaluator.evaluateAllFormulaCells(expected);
+
+            for (Row row : expected.getSheet("Model")) {
+                for (Cell cell : row) {
+                    assertEquals(cell.getNumericCellValue(),
+                        actual.getSheet("Model").getRow(row.getRowNum()).getCell(cell.getColumnIndex()).getNumericCellValue(), 0,
+                        cell.getAddress().formatAsString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the cache of the parsed formulas
+ */
+class TestFormulaParseCache {
+
+    private static final String[] FORMULAS = {
+        "A{r}*B{r}+1",
+        "a{r}*b{r}+1",
+        "SUM($A$1:A{r})",
+        "SUM($A$20:A{r})",
+        "SUM(A{r}:C{r2})",
+        "SUM(C{r2}:A{r})",
+        "SUM(A{r}:$C{r2})",
+        "SUM($A{r}:$C{r2})",
+        "IF(A{r}>0,\"A1\",B{r2})",
+        "$A{r}+B$1+C{r2}",
+        "LOG10(A{r})",
+        "A{r} B{r2}",
+        "SUM(A:A)+A{r}",
+        "SUM({r}:{r2})",
+        "Sheet2!A{r}+A{r}",
+        "'Sheet 2'!A{r}",
+        "Rate*A{r}",
+        "{1,2;3,4}",
+        "#REF!+A{r}",
+        "1.5E+3*A{r}",
+        "IV{r}+1",
+    };
+
+    @Test
+    void sameTokensAsParser() throws IOException {
+        try (HSSFWorkbook cached = createWorkbook(); HSSFWorkbook uncached = createWorkbook()) {
+            cached.setFormulaParseCacheSize(100);
+            HSSFEvaluationWorkbook cachedBook = HSSFEvaluationWorkbook.create(cached);
+            HSSFEvaluationWorkbook uncachedBook = HSSFEvaluationWorkbook.create(uncached);
+            for (String template : FORMULAS) {
+                for (int r = 1; r < 40; r += 7) {
+                    String formula = template.replace("{r2}", String.valueOf(r + 3)).replace("{r}", String.valueOf(r));
+                    for (FormulaType type : new FormulaType[]{FormulaType.CELL, FormulaType.NAMEDRANGE}) {
+                        Ptg[] expected = FormulaParser.parse(formula, uncachedBook, type, 0);
+                        Ptg[] actual = FormulaParser.parse(formula, cachedBook, type, 0);
+                        assertArrayEquals(serialize(expected), serialize(actual), formula);
+                    }
+                }
+            }
+
+            // the formulas of the same shape share an entry and formulas with names or sheet references aren't cached
+            FormulaParseCache cache = cachedBook.getFormulaParseCache();
+            assertEquals(32, cache.size());
+
+            assertThrows(FormulaParseException.class, () -> FormulaParser.parse("A1+", cachedBook, FormulaType.CELL, 0));
+        }
+    }
+
+    @Test
+    void copiesTokens() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            wb.setFormulaParseCacheSize(10);
+            HSSFEvaluationWorkbook book = HSSFEvaluationWorkbook.create(wb);
+            Ptg[] ptgs = FormulaParser.parse("A1+1", book, FormulaType.CELL, 0);
+            ((RefPtg) ptgs[0]).setRow(5);
+            assertEquals(0, ((RefPtg) FormulaParser.parse("A1+1", book, FormulaType.CELL, 0)[0]).getRow());
+            assertEquals(7, ((RefPtg) FormulaParser.parse("A8+1", book, FormulaType.CELL, 0)[0]).getRow());
+            assertEquals(1, book.getFormulaParseCache().size());
+
+            wb.setFormulaParseCacheSize(0);
+            assertNull(book.getFormulaParseCache());
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        FormulaParseCache cache = new FormulaParseCache(SpreadsheetVersion.EXCEL97, 2);
+        cache.parse("1+1", null, FormulaType.CELL, 0, -1);
+        cache.parse("1+2", null, FormulaType.CELL, 0, -1);
+        cache.parse("1+1", null, FormulaType.CELL, 0, -1);
+        cache.parse("1+3", null, FormulaType.CELL, 0, -1);
+        assertEquals(2, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        wb.createSheet("Sheet1");
+        wb.createSheet("Sheet2");
+        wb.createSheet("Sheet 2");
+        wb.createName().setNameName("Rate");
+        wb.getName("Rate").setRefersToFormula("Sheet1!$Z$1");
+        return wb;
+    }
+
+    private static byte[] serialize(Ptg[] ptgs) {
+        byte[] data = new byte[Ptg.getEncodedSize(ptgs)];
+        Ptg.serializePtgs(ptgs, data, 0);
+        return data;
+    }
+}
@@ -0,0 +1,162 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationTestHelper;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the cached lookup indexes of VLOOKUP, HLOOKUP, MATCH, XLOOKUP and XMATCH
+ */
+class TestLookupIndexCache {
+    private static final int ROWS = 200;
+
+    private static final String[] LOOKUP_VALUES = {
+        "0", "1", "7", "7.5", "49", "99", "-1", "\"Key3\"", "\"KEY3\"", "\"key36\"", "\"key\"", "\"Zzz\"",
+        "\"k*\"", "TRUE", "FALSE", "Data!$A$4", "Data!$Z$1",
+    };
+
+    private static final String[] FORMULAS = {
+        "VLOOKUP({x},Data!$A$1:$B$" + ROWS + ",2,FALSE)",
+        "VLOOKUP({x},Data!$A$1:$B$" + ROWS + ",2,TRUE)",
+        "HLOOKUP({x},Data!$A$" + (ROWS + 1) + ":$BZ$" + (ROWS + 2) + ",2,FALSE)",
+        "MATCH({x},Data!$A$1:$A$" + ROWS + ",0)",
+        "MATCH({x},Data!$A$1:$A$" + ROWS + ",1)",
+        "MATCH({x},Data!$A$1:$A$" + ROWS + ",-1)",
+        "MATCH({x},Data!$C$1:$C$" + ROWS + ",1)",
+        "MATCH({x},Data!$D$1:$D$" + ROWS + ",-1)",
+        "XLOOKUP({x},Data!$A$1:$A$" + ROWS + ",Data!$B$1:$B$" + ROWS + ")",
+        "XLOOKUP({x},Data!$A$1:$A$" + ROWS + ",Data!$B$1:$B$" + ROWS + ",\"none\",-1)",
+        "XLOOKUP({x},Data!$A$1:$A$" + ROWS + ",Data!$B$1:$B$" + ROWS + ",\"none\",1)",
+        "XMATCH({x},Data!$A$1:$A$" + ROWS + ")",
+    };
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet main = wb.createSheet("Main");
+        HSSFSheet data = wb.createSheet("Data");
+        for (int r = 0; r < ROWS; r++) {
+            HSSFRow row = data.createRow(r);
+            switch (r % 5) {
+                case 0:
+                    row.createCell(0).setCellValue((r % 2 == 0 ? "Key" : "KEY") + (r % 37));
+                    break;
+                case 1:
+                    row.createCell(0).setCellValue(r % 50);
+                    break;
+                case 2:
+                    row.createCell(0).setCellValue(r % 2 == 0);
+                    break;
+                case 3:
+                    // blank
+                    break;
+                default:
+                    row.createCell(0).setCellFormula("B" + (r + 1) + "/10+1");
+                    break;
+            }
+            row.createCell(1).setCellValue(r * 10);
+            // sorted ascending and descending
+            row.createCell(2).setCellValue(r / 2);
+            row.createCell(3).setCellValue(ROWS - r);
+        }
+        HSSFRow header = data.createRow(ROWS);
+        HSSFRow values = data.createRow(ROWS + 1);
+        for (int c = 0; c < 78; c++) {
+            header.createCell(c).setCellValue(c % 3 == 0 ? "key" + c : String.valueOf(c));
+            values.createCell(c).setCellValue(c * 100);
+        }
+
+        for (int i = 0; i < LOOKUP_VALUES.length; i++) {
+            HSSFRow row = main.createRow(i);
+            for (int f = 0; f < FORMULAS.length; f++) {
+                row.createCell(f).setCellFormula(FORMULAS[f].replace("{x}", LOOKUP_VALUES[i]));
+            }
+        }
+        return wb;
+    }
+
+    @Test
+    void sameResultsAsScan() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            WorkbookEvaluator indexed = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            assertSameResults(wb, indexed);
+
+            // cached results and indexes are invalidated by changes of the looked up cells
+            HSSFSheet data = wb.getSheet("Data");
+            HSSFCell cell = data.getRow(1).getCell(0);
+            cell.setCellValue(99);
+            indexed.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, indexed);
+
+            // blank cell changed to a value
+            cell = data.getRow(3).createCell(0);
+            cell.setCellValue("Zzz");
+            indexed.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, indexed);
+
+            // formula in the looked up range changes its result
+            cell = data.getRow(4).getCell(1);
+            cell.setCellValue(-20);
+            indexed.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, indexed);
+
+            cell = data.getRow(ROWS).getCell(3);
+            cell.setCellValue("Key3");
+            indexed.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, indexed);
+        }
+    }
+
+    @Test
+    void circularReference() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            // the looked up range contains the lookup formula
+            HSSFRow row = wb.getSheet("Data").getRow(6);
+            row.getCell(0).setCellFormula("MATCH(1,A1:A" + ROWS + ",0)");
+            row.getCell(1).setCellFormula("VLOOKUP(49,A1:B" + ROWS + ",2,FALSE)");
+
+            WorkbookEvaluator indexed = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            assertSameResults(wb, indexed);
+        }
+    }
+
+    private static void assertSameResults(HSSFWorkbook wb, WorkbookEvaluator indexed) {
+        // the listener disables the lookup indexes
+        WorkbookEvaluator scanning = WorkbookEvaluatorTestHelper.createEvaluator(wb, new EvaluationListener() {});
+        for (int s = 0; s < wb.getNumberOfSheets(); s++) {
+            for (Row row : wb.getSheetAt(s)) {
+                for (Cell cell : row) {
+                    EvaluationCell evalCell = HSSFEvaluationTestHelper.wrapCell((HSSFCell) cell);
+                    assertEquals(String.valueOf(scanning.evaluate(evalCell)), String.valueOf(indexed.evaluate(evalCell)),
+                            cell.getSheet().getSheetName() + "!" + cell.getAddress().formatAsString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.FormulaDependencyGraph.Node;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.functions.FreeRefFunction;
+import org.apache.poi.ss.formula.udf.DefaultUDFFinder;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.SuppressForbidden;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link BaseFormulaEvaluator#evaluateAllFormulaCells(Workbook, java.util.concurrent.Executor)}
+ */
+class TestParallelFormulaEvaluation {
+    private static final int ROWS = 1000;
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        Sheet sheet1 = wb.createSheet("Data");
+        for (int r = 0; r < ROWS; r++) {
+            Row row = sheet1.createRow(r);
+            int rn = r + 1;
+            row.createCell(0).setCellValue(r);
+            row.createCell(1).setCellFormula("A" + rn + "*2");
+            // running balance
+            row.createCell(2).setCellFormula(r == 0 ? "B1" : "C" + r + "+B" + rn);
+            row.createCell(3).setCellFormula("IF(MOD(A" + rn + ",3)=0,\"fizz\",B" + rn + ">100)");
+        }
+        Name name = wb.createName();
+        name.setNameName("Doubled");
+        name.setRefersToFormula("Data!$B$1:$B$" + ROWS);
+
+        Sheet sheet2 = wb.createSheet("Summary");
+        Row row = sheet2.createRow(0);
+        row.createCell(0).setCellFormula("SUM(Data!B:B)");
+        row.createCell(1).setCellFormula("SUM(Doubled)-A1");
+        row.createCell(2).setCellFormula("Data!C" + ROWS + "/A1");
+        row.createCell(3).setCellFormula("INDIRECT(\"Data!C10\")+1");
+        row.createCell(4).setCellFormula("D1*2");
+
+        // circular reference and its dependents
+        row = sheet2.createRow(1);
+        row.createCell(0).setCellFormula("B2");
+        row.createCell(1).setCellFormula("A2+1");
+        row.createCell(2).setCellFormula("A2*2");
+        row.createCell(3).setCellFormula("1/0");
+        return wb;
+    }
+
+    @Test
+    void sameResultsAsSerialEvaluation() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (HSSFWorkbook expected = createWorkbook(); HSSFWorkbook actual = createWorkbook()) {
+            BaseFormulaEvaluator.evaluateAllFormulaCells(expected);
+            BaseFormulaEvaluator.evaluateAllFormulaCells(actual, pool);
+
+            assertEquals(ROWS * (ROWS - 1.0), actual.getSheet("Summary").getRow(0).getCell(0).getNumericCellValue(), 0);
+            assertEquals(CellType.ERROR, actual.getSheet("Summary").getRow(1).getCell(1).getCachedFormulaResultType());
+            assertSameResults(expected, actual);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressForbidden("test code")
+    void tasksAreSizedByTheExecutor() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        ExecutorService fixed = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals(3, ParallelFormulaEvaluation.getParallelism(pool));
+            assertEquals(2, ParallelFormulaEvaluation.getParallelism(fixed));
+            assertEquals(1, ParallelFormulaEvaluation.getParallelism(Runnable::run));
+        } finally {
+            pool.shutdown();
+            fixed.shutdown();
+        }
+
+        AtomicInteger tasks = new AtomicInteger();
+        Executor counting = task -> {
+            tasks.incrementAndGet();
+            task.run();
+        };
+        try (HSSFWorkbook expected = createWorkbook(); HSSFWorkbook serial = createWorkbook(); HSSFWorkbook actual = createWorkbook()) {
+            BaseFormulaEvaluator.evaluateAllFormulaCells(expected);
+
+            // the parallelism of an unknown executor isn't known
+            BaseFormulaEvaluator.evaluateAllFormulaCells(serial, counting);
+            assertEquals(0, tasks.get());
+            assertSameResults(expected, serial);
+
+            // only the levels of the doubled values and the fizz column have more than 4 * 64 cells
+            BaseFormulaEvaluator.evaluateAllFormulaCells(actual, counting, 4);
+            assertEquals(8, tasks.get());
+            assertSameResults(expected, actual);
+        }
+        assertThrows(IllegalArgumentException.class, () -> BaseFormulaEvaluator.evaluateAllFormulaCells(null, counting, 0));
+    }
+
+    @Test
+    void failuresAreReported() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        FreeRefFunction failAt = (args, ec) -> {
+            if (ec.getRowIndex() == ROWS / 2) {
+                throw new IllegalStateException("failed at row " + ec.getRowIndex());
+            }
+            return new NumberEval(ec.getRowIndex());
+        };
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            wb.addToolPack(new DefaultUDFFinder(new String[]{"FAILAT"}, new FreeRefFunction[]{failAt}));
+            Sheet sheet = wb.createSheet();
+            for (int r = 0; r < ROWS; r++) {
+                sheet.createRow(r).createCell(0).setCellFormula("FAILAT()");
+            }
+
+            IllegalStateException serial = assertThrows(IllegalStateException.class,
+                () -> BaseFormulaEvaluator.evaluateAllFormulaCells(wb));
+            IllegalStateException parallel = assertThrows(IllegalStateException.class,
+                () -> BaseFormulaEvaluator.evaluateAllFormulaCells(wb, pool));
+            assertEquals(serial.getMessage(), parallel.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void dependencyLevels() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            FormulaDependencyGraph graph = new FormulaDependencyGraph(wb, HSSFEvaluationWorkbook.create(wb));
+            assertEquals(ROWS * 3 + 9, graph.getNodes().size());
+
+            List<List<Node>> levels = graph.getLevels();
+            // the running balance is the longest chain, which is summed up in the summary sheet
+            assertEquals(ROWS + 2, levels.size());
+            // the doubled values and the division by zero
+            assertEquals(ROWS + 1, levels.get(0).size());
+
+            Set<String> scheduled = new HashSet<>();
+            for (List<Node> level : levels) {
+                for (Node node : level) {
+                    assertFalse(node.isDynamic());
+                    scheduled.add(node.getCell().getSheet().getSheetName() + "!" + node.getCell().getAddress());
+                }
+            }
+            assertTrue(scheduled.contains("Summary!A1"));
+            assertTrue(scheduled.contains("Summary!B1"));
+            assertTrue(scheduled.contains("Summary!D2"));
+            // dynamic reference and its dependent
+            assertFalse(scheduled.contains("Summary!D1"));
+            assertFalse(scheduled.contains("Summary!E1"));
+            // circular reference and its dependent
+            assertFalse(scheduled.contains("Summary!A2"));
+            assertFalse(scheduled.contains("Summary!B2"));
+            assertFalse(scheduled.contains("Summary!C2"));
+            assertEquals(ROWS * 3 + 4, scheduled.size());
+        }
+    }
+
+    private static void assertSameResults(Workbook expected, Workbook actual) {
+        for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+            for (Row expRow : expected.getSheetAt(s)) {
+                Row actRow = actual.getSheetAt(s).getRow(expRow.getRowNum());
+                for (Cell expCell : expRow) {
+                    if (expCell.getCellType() != CellType.FORMULA) {
+                        continue;
+                    }
+                    Cell actCell = actRow.getCell(expCell.getColumnIndex());
+                    String msg = expCell.getSheet().getSheetName() + "!" + expCell.getAddress();
+                    assertEquals(expCell.getCachedFormulaResultType(), actCell.getCachedFormulaResultType(), msg);
+                    switch (expCell.getCachedFormulaResultType()) {
+                        case NUMERIC:
+                            assertEquals(expCell.getNumericCellValue(), actCell.getNumericCellValue(), 0, msg);
+                            break;
+                        case STRING:
+                            assertEquals(expCell.getStringCellValue(), actCell.getStringCellValue(), msg);
+                            break;
+                        case BOOLEAN:
+                            assertEquals(expCell.getBooleanCellValue(), actCell.getBooleanCellValue(), msg);
+                            break;
+                        case ERROR:
+                            assertEquals(expCell.getErrorCellValue(), actCell.getErrorCellValue(), msg);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -114,4 +114,82 @@ public class BaseTestForkedEvaluator {
             assertEquals("Underlying cell 'A2' is missing in master sheet.", ex.getMessage());
         }
     }
+
+    @Test
+    void testFork() throws IOException {
+        try (Workbook wb = createWorkbook()) {
+            Sheet inputs = wb.getSheet("Inputs");
+            Sheet calculations = wb.getSheet("Calculations");
+            for (int r = 1; r < 50; r++) {
+                inputs.createRow(r).createCell(0).setCellValue(r);
+                Row row = calculations.createRow(r);
+                // a chain depending on the inputs and a column independent of them
+                row.createCell(0).setCellFormula("A" + r + "+Inputs!A" + (r + 1));
+                row.createCell(1).setCellFormula("B" + r + "*2");
+            }
+
+            ForkedEvaluator base = ForkedEvaluator.create(wb, null, null);
+            base.updateCell("Inputs", 0, 1, new NumberEval(10.0));
+            assertEquals(1225.0, ((NumberEval) base.evaluate("Calculations", 49, 0)).getNumberValue(), 0.0);
+            assertEquals(5.0 * (1L << 49), ((NumberEval) base.evaluate("Calculations", 49, 1)).getNumberValue(), 0.0);
+
+            ForkedEvaluator fork1 = base.fork();
+            ForkedEvaluator fork2 = base.fork();
+            assertThrows(IllegalStateException.class, () -> base.updateCell("Inputs", 0, 0, new NumberEval(1.0)));
+
+            fork1.updateCell("Inputs", 25, 0, new NumberEval(100.0));
+            fork2.updateCell("Inputs", 0, 0, new NumberEval(3.0));
+            ForkedEvaluator fork3 = fork2.fork();
+            fork3.updateCell("Inputs", 1, 0, new NumberEval(-1.0));
+
+            // same results as forked evaluators with all updates
+            ForkedEvaluator expected1 = ForkedEvaluator.create(wb, null, null);
+            expected1.updateCell("Inputs", 0, 1, new NumberEval(10.0));
+            expected1.updateCell("Inputs", 25, 0, new NumberEval(100.0));
+            ForkedEvaluator expected2 = ForkedEvaluator.create(wb, null, null);
+            expected2.updateCell("Inputs", 0, 1, new NumberEval(10.0));
+            expected2.updateCell("Inputs", 0, 0, new NumberEval(3.0));
+            ForkedEvaluator expected3 = ForkedEvaluator.create(wb, null, null);
+            expected3.updateCell("Inputs", 0, 1, new NumberEval(10.0));
+            expected3.updateCell("Inputs", 0, 0, new NumberEval(3.0));
+            expected3.updateCell("Inputs", 1, 0, new NumberEval(-1.0));
+
+            for (int r = 49; r >= 0; r--) {
+                for (int c = 0; c < 2; c++) {
+                    assertEquals(expected1.evaluate("Calculations", r, c).toString(), fork1.evaluate("Calculations", r, c).toString());
+                    assertEquals(expected2.evaluate("Calculations", r, c).toString(), fork2.evaluate("Calculations", r, c).toString());
+                    assertEquals(expected3.evaluate("Calculations", r, c).toString(), fork3.evaluate("Calculations", r, c).toString());
+                }
+            }
+
+            // a fork also copies the updates of the evaluators it has been forked from
+            try (Workbook copy = createWorkbook()) {
+                copy.getSheet("Inputs").createRow(1).createCell(0);
+                fork3.copyUpdatedCells(copy);
+                Row row = copy.getSheet("Inputs").getRow(0);
+                assertEquals(3.0, row.getCell(0).getNumericCellValue(), 0.0);
+                assertEquals(10.0, row.getCell(1).getNumericCellValue(), 0.0);
+                assertEquals(-1.0, copy.getSheet("Inputs").getRow(1).getCell(0).getNumericCellValue(), 0.0);
+            }
+
+            // forks can still be updated after their evaluation
+            fork1.updateCell("Inputs", 25, 0, new NumberEval(200.0));
+            expected1.updateCell("Inputs", 25, 0, new NumberEval(200.0));
+            assertEquals(expected1.evaluate("Calculations", 49, 0).toString(), fork1.evaluate("Calculations", 49, 0).toString());
+            assertEquals(1225.0, ((NumberEval) base.evaluate("Calculations", 49, 0)).getNumberValue(), 0.0);
+        }
+    }
+
+    @Test
+    void testForkUsesPreviousResults() throws IOException {
+        try (Workbook wb = createWorkbook()) {
+            ForkedEvaluator base = ForkedEvaluator.create(wb, null, null);
+            assertEquals(7.0, ((NumberEval) base.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+            ForkedEvaluator fork = base.fork();
+
+            // the result, which the base evaluator has computed before forking, isn't computed again
+            wb.getSheet("Calculations").getRow(0).getCell(1).setCellValue(6.0);
+            assertEquals(7.0, ((NumberEval) fork.evaluate("Calculations", 0, 0)).getNumberValue(), 0.0);
+        }
+    }
 }
@@ -0,0 +1,160 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.functions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationTestHelper;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationListener;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.formula.WorkbookEvaluatorTestHelper;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the criteria range indexes of SUMIF(S), COUNTIF(S), AVERAGEIFS, MAXIFS and MINIFS
+ */
+class TestCriteriaIndex {
+    private static final int ROWS = 300;
+
+    private static final String[] CRITERIA = {
+        "\"east\"", "\"EAST\"", "\"<>east\"", "\"w*\"", "\"?orth\"", "\"\"", "\"=\"", "\"<>\"", "\">m\"",
+        "3", "\"3\"", "\">=3\"", "\"<2\"", "\"<>3\"", "TRUE", "\"FALSE\"", "\"#N/A\"", "Data!$Z$1",
+    };
+
+    private static final String[] FORMULAS = {
+        "SUMIFS(Data!$C$1:$C$" + ROWS + ",Data!$A$1:$A$" + ROWS + ",{c})",
+        "SUMIFS(Data!$C$1:$C$" + ROWS + ",Data!$A$1:$A$" + ROWS + ",{c},Data!$B$1:$B$" + ROWS + ",\">1\")",
+        "COUNTIFS(Data!$A$1:$A$" + ROWS + ",{c},Data!$B$1:$B$" + ROWS + ",{c})",
+        "AVERAGEIFS(Data!$C$1:$C$" + ROWS + ",Data!$B$1:$B$" + ROWS + ",{c})",
+        "MAXIFS(Data!$C$1:$C$" + ROWS + ",Data!$A$1:$A$" + ROWS + ",{c})",
+        "MINIFS(Data!$C$1:$C$" + ROWS + ",Data!$B$1:$B$" + ROWS + ",{c})",
+        "COUNTIF(Data!$A$1:$B$" + ROWS + ",{c})",
+        "SUMIF(Data!$A$1:$A$" + ROWS + ",{c},Data!$C$1)",
+        "SUMIF(Data!$B$1:$B$" + ROWS + ",{c})",
+        "SUMIFS(Data!$D$1:$D$" + ROWS + ",Data!$A$1:$A$" + ROWS + ",{c})",
+    };
+
+    private static final String[] REGIONS = {"East", "west", "North", "south", "", "3"};
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet main = wb.createSheet("Main");
+        HSSFSheet data = wb.createSheet("Data");
+        for (int r = 0; r < ROWS; r++) {
+            HSSFRow row = data.createRow(r);
+            if (r % 11 != 7) {
+                row.createCell(0).setCellValue(REGIONS[r % REGIONS.length]);
+            }
+            switch (r % 7) {
+                case 0:
+                    row.createCell(1).setCellValue(r % 2 == 0);
+                    break;
+                case 1:
+                    row.createCell(1).setCellFormula("1/0");
+                    break;
+                case 2:
+                    // blank
+                    break;
+                default:
+                    row.createCell(1).setCellValue(r % 5);
+                    break;
+            }
+            row.createCell(2).setCellValue(r * 1.5);
+            if (r == ROWS - 3) {
+                row.createCell(3).setCellFormula("NA()");
+            } else {
+                row.createCell(3).setCellValue(r);
+            }
+        }
+
+        for (int i = 0; i < CRITERIA.length; i++) {
+            HSSFRow row = main.createRow(i);
+            for (int f = 0; f < FORMULAS.length; f++) {
+                row.createCell(f).setCellFormula(FORMULAS[f].replace("{c}", CRITERIA[i]));
+            }
+        }
+        return wb;
+    }
+
+    @Test
+    void sameResultsAsScan() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            WorkbookEvaluator indexed = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            assertSameResults(wb, indexed);
+
+            // the indexes are invalidated by changes of the criteria ranges
+            HSSFSheet data = wb.getSheet("Data");
+            HSSFCell cell = data.getRow(0).getCell(0);
+            cell.setCellValue("west");
+            indexed.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, indexed);
+
+            cell = data.getRow(7).createCell(0);
+            cell.setCellValue("east");
+            indexed.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, indexed);
+
+            cell = data.getRow(1).getCell(1);
+            cell.setCellFormula("2+1");
+            indexed.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, indexed);
+        }
+    }
+
+    @Test
+    void moreCriteriaThanKept() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet main = wb.createSheet("Main");
+            HSSFSheet data = wb.createSheet("Data");
+            for (int r = 0; r < ROWS; r++) {
+                data.createRow(r).createCell(0).setCellValue(r % 100);
+            }
+            // the matching cells of the first criteria are evicted, before they are used again
+            for (int r = 0; r < 200; r++) {
+                main.createRow(r).createCell(0).setCellFormula("COUNTIF(Data!$A$1:$A$" + ROWS + ",\"<" + (r % 100) + "\")");
+            }
+            WorkbookEvaluator indexed = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            assertSameResults(wb, indexed);
+            NumberEval count = (NumberEval) indexed.evaluate(HSSFEvaluationTestHelper.wrapCell(main.getRow(149).getCell(0)));
+            assertEquals(147, count.getNumberValue(), 0);
+        }
+    }
+
+    private static void assertSameResults(HSSFWorkbook wb, WorkbookEvaluator indexed) {
+        // the listener disables the criteria indexes
+        WorkbookEvaluator scanning = WorkbookEvaluatorTestHelper.createEvaluator(wb, new EvaluationListener() {});
+        for (Row row : wb.getSheet("Main")) {
+            for (Cell cell : row) {
+                EvaluationCell evalCell = HSSFEvaluationTestHelper.wrapCell((HSSFCell) cell);
+                assertEquals(String.valueOf(scanning.evaluate(evalCell)), String.valueOf(indexed.evaluate(evalCell)),
+                        cell.getAddress().formatAsString() + " " + cell.getCellFormula());
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula.functions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationTestHelper;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.EvaluationCell;
+import org.apache.poi.ss.formula.EvaluationListener;
+import org.apache.poi.ss.formula.WorkbookEvaluator;
+import org.apache.poi.ss.formula.WorkbookEvaluatorTestHelper;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the area snapshots of the numeric aggregate functions, SUMPRODUCT and CORREL
+ */
+class TestNumericSnapshot {
+    private static final int ROWS = 200;
+
+    private static final String[] FUNCTIONS = {
+        "SUM({a})", "AVERAGE({a})", "AVERAGEA({a})", "COUNT({a})", "MAX({a})", "MINA({a})", "STDEV({a})",
+        "MEDIAN({a})", "LARGE({a},3)", "PERCENTILE({a},0.3)", "PRODUCT({a})", "SUMSQ({a},1)",
+        "SUMPRODUCT({a},{b})", "SUMPRODUCT({a},{b},{a})", "CORREL({a},{b})", "COVAR({a},{b})",
+        "FORECAST(3,{a},{b})", "SUBTOTAL(9,{a})",
+    };
+
+    private static final String[][] AREAS = {
+        {"Data!$A$1:$A$" + ROWS, "Data!$C$1:$C$" + ROWS},
+        {"Data!$B$1:$B$" + ROWS, "Data!$C$1:$C$" + ROWS},
+        {"Data!$C$1:$C$" + ROWS, "Data!$D$1:$D$" + ROWS},
+        {"Data!$D$1:$D$" + ROWS, "Data!$B$1:$B$" + ROWS},
+        {"Data!$A$1:$B$" + ROWS, "Data!$C$1:$D$" + ROWS},
+    };
+
+    private static HSSFWorkbook createWorkbook() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet main = wb.createSheet("Main");
+        HSSFSheet data = wb.createSheet("Data");
+        for (int r = 0; r < ROWS; r++) {
+            HSSFRow row = data.createRow(r);
+            // numbers, booleans, strings and blanks
+            switch (r % 6) {
+                case 0:
+                    row.createCell(0).setCellValue(r % 2 == 0);
+                    break;
+                case 1:
+                    row.createCell(0).setCellValue(String.valueOf(r));
+                    break;
+                case 2:
+                    row.createCell(0).setCellValue("text");
+                    break;
+                case 3:
+                    // blank
+                    break;
+                default:
+                    row.createCell(0).setCellValue(r * 0.5);
+                    break;
+            }
+            // errors
+            if (r == 150) {
+                row.createCell(1).setCellFormula("1/0");
+            } else if (r == 40) {
+                row.createCell(1).setCellFormula("NA()");
+            } else {
+                row.createCell(1).setCellValue(r % 13);
+            }
+            row.createCell(2).setCellFormula("ROW()*1.25");
+            if (r != 40) {
+                row.createCell(3).setCellValue(ROWS - r);
+            }
+        }
+
+        int r = 0;
+        for (String[] areas : AREAS) {
+            HSSFRow row = main.createRow(r++);
+            for (int f = 0; f < FUNCTIONS.length; f++) {
+                row.createCell(f).setCellFormula(FUNCTIONS[f].replace("{a}", areas[0]).replace("{b}", areas[1]));
+            }
+        }
+        return wb;
+    }
+
+    @Test
+    void sameResultsAsCellByCell() throws IOException {
+        try (HSSFWorkbook wb = createWorkbook()) {
+            WorkbookEvaluator snapshots = new WorkbookEvaluator(HSSFEvaluationWorkbook.create(wb), null, null);
+            assertSameResults(wb, snapshots);
+
+            // the snapshots are invalidated by changes of the areas
+            HSSFSheet data = wb.getSheet("Data");
+            HSSFCell cell = data.getRow(150).getCell(1);
+            cell.setCellValue(7);
+            snapshots.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, snapshots);
+
+            cell = data.getRow(40).createCell(3);
+            cell.setCellValue(true);
+            snapshots.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, snapshots);
+
+            cell = data.getRow(40).getCell(1);
+            cell.setCellValue(-3);
+            snapshots.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertSameResults(wb, snapshots);
+        }
+    }
+
+    private static void assertSameResults(HSSFWorkbook wb, WorkbookEvaluator snapshots) {
+        // the listener disables the snapshots
+        WorkbookEvaluator cellByCell = WorkbookEvaluatorTestHelper.createEvaluator(wb, new EvaluationListener() {});
+        for (Row row : wb.getSheet("Main")) {
+            for (Cell cell : row) {
+                EvaluationCell evalCell = HSSFEvaluationTestHelper.wrapCell((HSSFCell) cell);
+                assertEquals(String.valueOf(cellByCell.evaluate(evalCell)), String.valueOf(snapshots.evaluate(evalCell)),
+                        cell.getAddress().formatAsString() + " " + cell.getCellFormula());
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Class to test SortedIntMap
+ */
+final class TestSortedIntMap {
+    @Test
+    void testEmpty() {
+        SortedIntMap<String> map = new SortedIntMap<>(0);
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+        assertNull(map.get(0));
+        assertNull(map.remove(0));
+        assertEquals(0, map.countLessThan(10));
+        assertFalse(map.iterator().hasNext());
+        assertThrows(NoSuchElementException.class, map::firstKey);
+        assertThrows(NoSuchElementException.class, map::lastKey);
+    }
+
+    @Test
+    void testPutGetRemove() {
+        SortedIntMap<String> map = new SortedIntMap<>();
+        assertNull(map.put(5, "five"));
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(9, "nine"));
+        assertNull(map.put(3, "three"));
+        assertEquals("three", map.put(3, "THREE"));
+
+        assertEquals(4, map.size());
+        assertEquals(1, map.firstKey());
+        assertEquals(9, map.lastKey());
+        assertEquals("one", map.get(1));
+        assertEquals("THREE", map.get(3));
+        assertNull(map.get(4));
+        assertTrue(map.containsKey(5));
+        assertFalse(map.containsKey(6));
+        assertTrue(map.containsValue("nine"));
+        assertFalse(map.containsValue("three"));
+
+        assertEquals(0, map.countLessThan(1));
+        assertEquals(2, map.countLessThan(4));
+        assertEquals(2, map.countLessThan(5));
+        assertEquals(4, map.countLessThan(100));
+
+        assertEquals("five", map.remove(5));
+        assertNull(map.remove(5));
+        assertEquals(3, map.size());
+        assertEquals("[one, THREE, nine]", values(map.iterator()).toString());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    @Test
+    void testRangeIterator() {
+        SortedIntMap<Integer> map = new SortedIntMap<>();
+        for (int i = 0; i < 20; i += 2) {
+            map.put(i, i);
+        }
+        assertEquals("[4, 6, 8]", values(map.iterator(3, 10)).toString());
+        assertEquals("[4, 6, 8, 10]", values(map.iterator(4, 11)).toString());
+        assertEquals("[]", values(map.iterator(5, 6)).toString());
+        assertEquals("[]", values(map.iterator(10, 3)).toString());
+    }
+
+    @Test
+    void testIteratorRemove() {
+        SortedIntMap<Integer> map = new SortedIntMap<>();
+        for (int i = 0; i < 10; i++) {
+            map.put(i, i);
+        }
+        for (Iterator<Integer> it = map.iterator(); it.hasNext(); ) {
+            if (it.next() % 3 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals("[1, 2, 4, 5, 7, 8]", values(map.iterator()).toString());
+
+        Iterator<Integer> it = map.iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+        it.next();
+        map.put(100, 100);
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    void testMatchesTreeMap() {
+        Random rnd = new Random(1234);
+        SortedIntMap<Integer> map = new SortedIntMap<>();
+        TreeMap<Integer, Integer> ref = new TreeMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            int key = rnd.nextInt(2_000);
+            if (rnd.nextInt(4) == 0) {
+                assertEquals(ref.remove(key), map.remove(key));
+            } else {
+                assertEquals(ref.put(key, i), map.put(key, i));
+            }
+        }
+        assertEquals(ref.size(), map.size());
+        assertEquals((int)ref.firstKey(), map.firstKey());
+        assertEquals((int)ref.lastKey(), map.lastKey());
+        assertEquals(ref.headMap(1000).size(), map.countLessThan(1000));
+        assertEquals(new ArrayList<>(ref.values()), values(map.iterator()));
+        assertEquals(new ArrayList<>(ref.subMap(500, 700).values()), values(map.iterator(500, 700)));
+    }
+
+    @Test
+    void testInsertionOrders() {
+        final int count = 20_000;
+        List<Integer> shuffled = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shuffled.add(i * 3);
+        }
+        Collections.shuffle(shuffled, new Random(1234));
+        List<Integer> descending = new ArrayList<>(shuffled);
+        descending.sort(Collections.reverseOrder());
+        List<Integer> ascending = new ArrayList<>(shuffled);
+        Collections.sort(ascending);
+
+        for (List<Integer> keys : Arrays.asList(ascending, descending, shuffled)) {
+            SortedIntMap<Integer> map = new SortedIntMap<>();
+            for (int key : keys) {
+                assertNull(map.put(key, key));
+            }
+            assertEquals(count, map.size());
+            assertEquals(0, map.firstKey());
+            assertEquals((count - 1) * 3, map.lastKey());
+            assertEquals(ascending, values(map.iterator()));
+            for (int i = 0; i < count; i++) {
+                assertEquals((Integer) (i * 3), map.get(i * 3));
+                assertNull(map.get(i * 3 + 1));
+                assertEquals(i, map.countLessThan(i * 3));
+                assertEquals(i + 1, map.countLessThan(i * 3 + 1));
+            }
+            assertEquals(ascending.subList(1000, 5000), values(map.iterator(3000, 15000)));
+        }
+    }
+
+    @Test
+    void testIteratorRemoveAcrossChunks() {
+        SortedIntMap<Integer> map = new SortedIntMap<>();
+        TreeMap<Integer, Integer> ref = new TreeMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            map.put(i, i);
+            ref.put(i, i);
+        }
+        // removes all entries of some chunks
+        Iterator<Integer> it = map.iterator(1000, 4000);
+        Iterator<Integer> refIt = ref.subMap(1000, 4000).values().iterator();
+        while (it.hasNext()) {
+            int value = it.next();
+            assertEquals((int) refIt.next(), value);
+            if (value % 7 != 0 || value > 2000) {
+                it.remove();
+                refIt.remove();
+            }
+        }
+        assertFalse(refIt.hasNext());
+        assertEquals(ref.size(), map.size());
+        assertEquals(new ArrayList<>(ref.values()), values(map.iterator()));
+        assertEquals(ref.headMap(4500).size(), map.countLessThan(4500));
+
+        it = map.iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        assertTrue(map.isEmpty());
+        assertNull(map.put(7, 7));
+        assertEquals(7, map.firstKey());
+    }
+
+    private static <T> List<T> values(Iterator<T> it) {
+        List<T> list = new ArrayList<>();
+        it.forEachRemaining(list::add);
+        return list;
+    }
+}